@@ -0,0 +1,380 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.benchmarks.LoadTestSupport.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop capacity test of the quiz and command endpoints: the highest
+ * request rate one instance sustains, with a latency histogram per endpoint
+ * at every rate tried.
+ *
+ * Requests arrive at a fixed rate whether or not earlier ones have
+ * finished, as they do from many independent users, and each latency is
+ * measured from when the request was due, so a stalled service shows up as
+ * latency instead of as a lower offered rate. The rate goes up in steps; a
+ * step passes while the service completes at least 95% of the requests it
+ * offered, however late, every endpoint's p99 stays within the SLO and fewer
+ * than 1% of requests fail. The saturation point is the last passing step.
+ *
+ * The mix covers {@code QuizController} (question, uncached check, cached
+ * explanation, save) and {@code CommandController} (a page of commands,
+ * search). By default the servlet stack runs in this JVM against an
+ * embedded mongod and a {@link StubLlmServer}, which takes the stub's
+ * options prefixed with {@code llm-}, fixtures and failure injection
+ * included. For the capacity per pod size, deploy pods with different CPU
+ * and memory limits, point them at a standalone stub and name each target
+ * after its size:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.command.buddy.benchmarks.CapacityLoadTest \
+ *     --target=500m-1Gi=http://buddy-small:8080 --target=2cpu-4Gi=http://buddy-large:8080
+ * </pre>
+ *
+ * Other options, with their defaults: {@code --stack=servlet} for the in-process run,
+ * {@code --start-rps=20}, {@code --step-rps=20}, {@code --max-rps=2000},
+ * {@code --step-seconds=30}, {@code --warmup-seconds=15}, {@code --slo-p99-ms=2000},
+ * {@code --max-in-flight=5000},
+ * {@code --mix=question:30,check:25,explain:15,save:5,list:15,search:10}.
+ */
+public final class CapacityLoadTest {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String QUESTION = "How do you show the commit history as a graph?";
+    private static final String[] TOOLS = {"git", "docker", "kubernetes"};
+    private static final double MIN_ACHIEVED = 0.95;
+    private static final double MAX_ERROR_RATE = 0.01;
+    // Upper bounds of the buckets in the reported histograms
+    private static final long[] BUCKETS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 30_000, 60_000};
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final int startRps;
+    private final int stepRps;
+    private final int maxRps;
+    private final Duration stepDuration;
+    private final Duration warmup;
+    private final long sloP99Ms;
+    private final int maxInFlight;
+    private final Endpoint[] schedule;
+
+    enum Endpoint {
+        QUESTION, CHECK, EXPLAIN, SAVE, LIST, SEARCH;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private CapacityLoadTest(Map<String, List<String>> options) {
+        this.startRps = (int) LoadTestSupport.number(options, "start-rps", 20);
+        this.stepRps = (int) LoadTestSupport.number(options, "step-rps", 20);
+        this.maxRps = (int) LoadTestSupport.number(options, "max-rps", 2000);
+        this.stepDuration = Duration.ofSeconds(LoadTestSupport.number(options, "step-seconds", 30));
+        this.warmup = Duration.ofSeconds(LoadTestSupport.number(options, "warmup-seconds", 15));
+        this.sloP99Ms = LoadTestSupport.number(options, "slo-p99-ms", 2000);
+        this.maxInFlight = (int) LoadTestSupport.number(options, "max-in-flight", 5000);
+        this.schedule = schedule(LoadTestSupport.last(options).getOrDefault("mix",
+            "question:30,check:25,explain:15,save:5,list:15,search:10"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = LoadTestSupport.parse(args);
+        CapacityLoadTest test = new CapacityLoadTest(options);
+        List<TargetResult> results = new ArrayList<>();
+
+        List<String> targets = options.getOrDefault("target", List.of());
+        if (!targets.isEmpty()) {
+            for (String target : targets) {
+                int equals = target.indexOf('=');
+                String label = equals > 0 ? target.substring(0, equals) : target;
+                results.add(test.run(label, target.substring(equals + 1)));
+            }
+        } else {
+            Map<String, String> last = LoadTestSupport.last(options);
+            String stack = last.getOrDefault("stack", "servlet");
+            StubLlmServer.Options llmOptions = StubLlmServer.options(last, "llm-", "127.0.0.1", 0);
+            try (EmbeddedMongo mongo = EmbeddedMongo.start();
+                 StubLlmServer llm = StubLlmServer.start(llmOptions);
+                 ConfigurableApplicationContext context = StackLoadTest.start(stack, mongo, llm)) {
+                String port = context.getEnvironment().getProperty("local.server.port");
+                results.add(test.run("in-process " + stack + ", " + Runtime.getRuntime().availableProcessors() + " cpus",
+                    "http://127.0.0.1:" + port));
+                System.out.println(llm.summary());
+            }
+        }
+
+        System.out.printf("%n%-32s %16s %14s%n", "target", "saturation rps", "p99 there ms");
+        for (TargetResult result : results) {
+            StepResult knee = result.saturation();
+            System.out.printf("%-32s %16s %14s%n", result.target(),
+                knee == null ? "-" : Integer.toString(knee.offeredRps()),
+                knee == null ? "-" : Long.toString(knee.p99Ms()));
+        }
+        File out = new File("capacity-" + LocalDateTime.now().format(TIMESTAMP) + ".json");
+        JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValue(out, results);
+        System.out.println("Steps and histograms written to " + out);
+    }
+
+    /**
+     * Raise the offered rate against one deployment until a step fails
+     */
+    private TargetResult run(String label, String baseUrl) throws InterruptedException {
+        System.out.printf("%n%s (%s)%n", label, baseUrl);
+        if (!warmup.isZero()) {
+            // Warms up the JIT, connection pools and caches; not reported
+            step(baseUrl, startRps, warmup);
+        }
+
+        List<StepResult> steps = new ArrayList<>();
+        for (int rps = startRps; rps <= maxRps; rps += stepRps) {
+            StepResult result = step(baseUrl, rps, stepDuration);
+            steps.add(result);
+            StringBuilder perEndpoint = new StringBuilder();
+            for (EndpointResult endpoint : result.endpoints()) {
+                perEndpoint.append(String.format("  %s %d", endpoint.endpoint(), endpoint.p99Ms()));
+            }
+            System.out.printf("  %5d rps offered  %8.1f/s done  p99 %6d ms  errors %5.2f%%  p99 by endpoint:%s%n",
+                result.offeredRps(), result.achievedRps(), result.p99Ms(), result.errorRate() * 100, perEndpoint);
+            if (!result.passed()) {
+                break;
+            }
+        }
+        return new TargetResult(label, baseUrl, steps);
+    }
+
+    /**
+     * Offer requests at a fixed rate for a while, then wait for the stragglers
+     */
+    private StepResult step(String baseUrl, int rps, Duration duration) throws InterruptedException {
+        Window window = new Window();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long period = 1_000_000_000L / rps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            long slot = 0;
+            for (long due = start; due < end; due += period, slot++) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                Endpoint endpoint = schedule[(int) (slot % schedule.length)];
+                if (!inFlight.tryAcquire()) {
+                    // The load generator itself is saturated; counts against the step
+                    window.dropped(endpoint);
+                    continue;
+                }
+                long dueAt = due;
+                HttpRequest request = request(endpoint, baseUrl, sequence.incrementAndGet());
+                requests.execute(() -> {
+                    try {
+                        send(window, endpoint, request, dueAt);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return window.result(rps, duration);
+    }
+
+    private void send(Window window, Endpoint endpoint, HttpRequest request, long due) {
+        boolean ok;
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() / 100 == 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            ok = false;
+        }
+        window.record(endpoint, (System.nanoTime() - due) / 1_000_000, ok);
+    }
+
+    private static HttpRequest request(Endpoint endpoint, String baseUrl, long n) {
+        String tool = TOOLS[(int) (n % TOOLS.length)];
+        return switch (endpoint) {
+            case QUESTION -> get(baseUrl + "/api/quiz/" + tool);
+            // Every answer is new, so each check reaches the LLM
+            case CHECK -> post(baseUrl + "/api/quiz/check", "{\"toolName\":\"" + tool + "\",\"question\":\""
+                + QUESTION + "\",\"answer\":\"" + tool + " log --graph --oneline -n " + n + "\"}");
+            // The same command every time, served from the response cache
+            case EXPLAIN -> post(baseUrl + "/api/quiz/explain",
+                "{\"toolName\":\"git\",\"command\":\"git log --graph --oneline\"}");
+            // New commands, so the listings and searches have something to find
+            case SAVE -> post(baseUrl + "/api/quiz/save", "{\"toolName\":\"" + tool + "\",\"command\":\"" + tool
+                + " status --short " + n + "\",\"explanation\":\"Shows the working tree status in short form.\"}");
+            case LIST -> get(baseUrl + "/commands/" + tool + "?limit=50&view=summary");
+            case SEARCH -> get(baseUrl + "/commands/" + tool + "/search?searchText=status%20short");
+        };
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofSeconds(60))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    /**
+     * The endpoints in the proportions of the mix, interleaved in a fixed pseudo-random order
+     */
+    private static Endpoint[] schedule(String mix) {
+        List<Endpoint> slots = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split(":");
+            Endpoint endpoint = Endpoint.valueOf(weight[0].trim().toUpperCase(Locale.ROOT));
+            for (int i = 0; i < Integer.parseInt(weight[1].trim()); i++) {
+                slots.add(endpoint);
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix: " + mix);
+        }
+        Collections.shuffle(slots, new Random(42));
+        return slots.toArray(Endpoint[]::new);
+    }
+
+    /**
+     * @return the histogram in the buckets of {@link #BUCKETS_MS}
+     */
+    private static List<Bucket> coarse(Histogram histogram) {
+        List<Bucket> coarse = new ArrayList<>(BUCKETS_MS.length);
+        long from = 0;
+        for (long upTo : BUCKETS_MS) {
+            coarse.add(new Bucket(upTo, histogram.count(from, upTo)));
+            from = upTo + 1;
+        }
+        return coarse;
+    }
+
+    /**
+     * What happened to the requests of one step
+     */
+    private final class Window {
+
+        private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, LongAdder> dropped = new EnumMap<>(Endpoint.class);
+        private final Histogram all = new Histogram();
+        private final LongAdder completed = new LongAdder();
+
+        Window() {
+            for (Endpoint endpoint : Endpoint.values()) {
+                latencies.put(endpoint, new Histogram());
+                errors.put(endpoint, new LongAdder());
+                dropped.put(endpoint, new LongAdder());
+            }
+        }
+
+        void dropped(Endpoint endpoint) {
+            dropped.get(endpoint).increment();
+            errors.get(endpoint).increment();
+        }
+
+        void record(Endpoint endpoint, long latencyMs, boolean ok) {
+            latencies.get(endpoint).record(latencyMs);
+            all.record(latencyMs);
+            if (ok) {
+                completed.increment();
+            } else {
+                errors.get(endpoint).increment();
+            }
+        }
+
+        StepResult result(int rps, Duration duration) {
+            List<EndpointResult> endpoints = new ArrayList<>();
+            long requests = 0;
+            long failed = 0;
+            boolean withinSlo = true;
+            for (Endpoint endpoint : Endpoint.values()) {
+                Histogram histogram = latencies.get(endpoint);
+                long count = histogram.count() + dropped.get(endpoint).sum();
+                if (count == 0) {
+                    continue;
+                }
+                long p99 = histogram.percentile(0.99);
+                withinSlo &= p99 <= sloP99Ms;
+                requests += count;
+                failed += errors.get(endpoint).sum();
+                endpoints.add(new EndpointResult(endpoint.label(), count, errors.get(endpoint).sum(),
+                    dropped.get(endpoint).sum(), histogram.percentile(0.50), histogram.percentile(0.90), p99,
+                    histogram.percentile(1.0), coarse(histogram)));
+            }
+            // Every request was due within the step, and the step waits for all of them; one that
+            // finished after the step ended is slow, which the p99 judges, not missing. Counting
+            // only those finished in time would fail a step that kept up but started with a queue.
+            double achieved = completed.sum() / (double) duration.toSeconds();
+            double errorRate = requests == 0 ? 1.0 : (double) failed / requests;
+            boolean passed = requests > 0 && withinSlo && errorRate < MAX_ERROR_RATE
+                && achieved >= rps * MIN_ACHIEVED;
+            return new StepResult(rps, achieved, errorRate, all.percentile(0.99), passed, endpoints);
+        }
+    }
+
+    record Bucket(long upToMs, long count) {
+    }
+
+    record EndpointResult(String endpoint, long requests, long errors, long dropped,
+                          long p50Ms, long p90Ms, long p99Ms, long maxMs, List<Bucket> histogram) {
+    }
+
+    record StepResult(int offeredRps, double achievedRps, double errorRate, long p99Ms, boolean passed,
+                      List<EndpointResult> endpoints) {
+    }
+
+    record TargetResult(String target, String url, List<StepResult> steps) {
+
+        /**
+         * @return the last step that passed, or null if none did
+         */
+        StepResult saturation() {
+            StepResult best = null;
+            for (StepResult step : steps) {
+                if (step.passed()) {
+                    best = step;
+                }
+            }
+            return best;
+        }
+    }
+}
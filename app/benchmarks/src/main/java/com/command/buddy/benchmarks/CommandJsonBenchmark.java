@@ -0,0 +1,60 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.model.Command;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization of {@link Command} as done by the MVC message
+ * converters for the {@code /commands} endpoints
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandJsonBenchmark {
+
+    private static final TypeReference<List<Command>> COMMANDS = new TypeReference<>() { };
+
+    @Param({ "1", "100", "1000" })
+    public int size;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private List<Command> commands;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        commands = Datasets.commands(size, 42);
+        Datasets.assignIds(commands);
+        json = objectMapper.writeValueAsBytes(commands);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return objectMapper.writeValueAsBytes(commands);
+    }
+
+    @Benchmark
+    public List<Command> deserialize() {
+        return objectMapper.readValue(json, COMMANDS);
+    }
+}
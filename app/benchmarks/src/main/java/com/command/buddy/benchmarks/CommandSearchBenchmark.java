@@ -0,0 +1,112 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.repository.CommandRepository;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.service.CommandService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CommandService} lookups over a large dataset, either held in
+ * memory or stored in an embedded mongod through the real repository.
+ * The {@code index} backend answers text searches from the trigram index
+ * instead of a substring scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CommandSearchBenchmark {
+
+    @Param({ "memory", "mongo", "index" })
+    public String backend;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int size;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private EmbeddedMongo mongo;
+    private MongoClient client;
+    private CommandService commandService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Command> commands = Datasets.commands(size, 42);
+        CommandRepository repository;
+        CommandSearchIndex searchIndex = new CommandSearchIndex(null, new SimpleMeterRegistry(),
+            "index".equals(backend), true, 0.3, 0.2);
+        if ("mongo".equals(backend)) {
+            mongo = EmbeddedMongo.start();
+            client = MongoClients.create(mongo.uri("benchmarks"));
+            MongoTemplate template = new MongoTemplate(client, "benchmarks");
+            repository = new MongoRepositoryFactory(template).getRepository(CommandRepository.class);
+            repository.saveAll(commands);
+        } else {
+            Datasets.assignIds(commands);
+            repository = InMemoryCommandRepository.of(commands);
+            searchIndex.rebuild(commands.stream());
+        }
+        commandService = new CommandService(repository, searchIndex);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (mongo != null) {
+            mongo.close();
+        }
+    }
+
+    @Benchmark
+    public List<Command> findByTool() {
+        return commandService.findCommandsByToolName(nextTool());
+    }
+
+    @Benchmark
+    public List<Command> searchByText() {
+        return commandService.searchCommandsByToolAndText(nextTool(), "rebase", 20);
+    }
+
+    /**
+     * Misspelled query; only the index backend finds anything
+     */
+    @Benchmark
+    public List<Command> searchWithTypo() {
+        return commandService.searchCommandsByToolAndText(nextTool(), "rebsae --forse", 20);
+    }
+
+    @Benchmark
+    public long countByTool() {
+        return commandService.getCommandCountByTool(nextTool());
+    }
+
+    private String nextTool() {
+        return Datasets.TOOLS[Math.floorMod(cursor.getAndIncrement(), Datasets.TOOLS.length)];
+    }
+}
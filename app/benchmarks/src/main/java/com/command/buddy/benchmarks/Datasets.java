@@ -0,0 +1,64 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.model.Command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic command datasets
+ */
+final class Datasets {
+
+    static final String[] TOOLS = { "git", "docker", "kubectl", "terraform", "npm", "mvn", "aws", "gcloud" };
+
+    private static final String[] VERBS = {
+        "commit", "push", "pull", "run", "build", "apply", "plan", "logs", "describe", "install",
+        "deploy", "rebase", "stash", "exec", "inspect", "prune", "scale", "rollout", "tag", "fetch"
+    };
+
+    private static final String[] FLAGS = {
+        "--all", "-f", "--force", "-n default", "--dry-run", "-v", "--no-cache", "-it", "--prune",
+        "--output json", "--recursive", "-m \"message\"", "--watch", "--tail 100", "--quiet"
+    };
+
+    private Datasets() {
+    }
+
+    /**
+     * Commands spread evenly over {@link #TOOLS}
+     *
+     * @param size the number of commands
+     * @param seed the random seed, so runs compare like with like
+     * @return the commands, without ids
+     */
+    static List<Command> commands(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Command> commands = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String tool = TOOLS[i % TOOLS.length];
+            StringBuilder text = new StringBuilder(64).append(tool).append(' ')
+                .append(VERBS[random.nextInt(VERBS.length)]);
+            int flags = random.nextInt(4);
+            for (int f = 0; f < flags; f++) {
+                text.append(' ').append(FLAGS[random.nextInt(FLAGS.length)]);
+            }
+            text.append(" target-").append(random.nextInt(size));
+            commands.add(new Command(tool, text.toString(),
+                "Runs " + text + " and reports the result. Generated explanation number " + i + "."));
+        }
+        return commands;
+    }
+
+    /**
+     * Give commands the ids MongoDB would otherwise assign
+     *
+     * @param commands the commands to update
+     */
+    static void assignIds(List<Command> commands) {
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).setId(String.format("%024x", i));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.command.buddy.benchmarks;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * A throwaway mongod for a benchmark trial. The binary is downloaded on
+ * first use and cached under {@code ~/.embedmongo}.
+ */
+final class EmbeddedMongo implements AutoCloseable {
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> process;
+
+    private EmbeddedMongo(TransitionWalker.ReachedState<RunningMongodProcess> process) {
+        this.process = process;
+    }
+
+    static EmbeddedMongo start() {
+        return new EmbeddedMongo(Mongod.instance().start(Version.Main.V7_0));
+    }
+
+    /**
+     * @param database the database to point at
+     * @return a connection string for {@code spring.data.mongodb.uri} or the driver
+     */
+    String uri(String database) {
+        ServerAddress address = process.current().getServerAddress();
+        return "mongodb://" + address.getHost() + ":" + address.getPort() + "/" + database;
+    }
+
+    @Override
+    public void close() {
+        process.close();
+    }
+}
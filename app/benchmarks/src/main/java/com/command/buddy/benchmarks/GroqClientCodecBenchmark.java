@@ -0,0 +1,157 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatCompletionParser;
+import com.command.buddy.client.GroqRequestFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of building a Groq request body and reading the answer out
+ * of the response, before and after the switch to records, precompiled
+ * prompts and the pull parser.
+ *
+ * The {@code legacy*} methods replay the original {@code GroqClient} code:
+ * {@code String.format} prompts, {@code HashMap}/{@code ArrayList} request
+ * trees and a full {@code Map} deserialization of the response. Run with
+ * {@code -prof gc} to compare {@code gc.alloc.rate.norm} (bytes per call).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroqClientCodecBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() { };
+
+    private static final String TOOL = "git";
+    private static final String QUESTION =
+        "How would you interactively rebase the last five commits on your current branch so you can squash them?";
+    private static final String ANSWER = "git rebase -i HEAD~5";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final GroqRequestFactory requests = PromptConstructionBenchmark.requestFactory("v1");
+    private final Random random = new Random();
+
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        response = sampleResponse().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] legacyRequest() {
+        return objectMapper.writeValueAsBytes(legacyRequestBody(legacyEvaluationPrompt(TOOL, QUESTION, ANSWER), 0.3));
+    }
+
+    @Benchmark
+    public byte[] request() {
+        return requests.evaluateAnswer(TOOL, QUESTION, ANSWER).toJson();
+    }
+
+    @Benchmark
+    public String legacyResponse() {
+        Map<String, Object> body = objectMapper.readValue(response, MAP);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> choices = (List<Map<String, Object>>) body.get("choices");
+        @SuppressWarnings("unchecked")
+        Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
+        return message.get("content");
+    }
+
+    @Benchmark
+    public String response() {
+        return ChatCompletionParser.parse(response).content();
+    }
+
+    private static String legacyEvaluationPrompt(String toolName, String question, String userAnswer) {
+        return String.format(
+            "Question about %s: \"%s\"\n\n" +
+            "User's answer: \"%s\"\n\n" +
+            "Evaluate if this command correctly solves the task. Respond with:\n" +
+            "1. Whether the answer is CORRECT or INCORRECT\n" +
+            "2. A brief explanation of why\n" +
+            "3. If incorrect, the proper command\n" +
+            "4. A tip for remembering this command",
+            toolName, question, userAnswer
+        );
+    }
+
+    private Map<String, Object> legacyRequestBody(String prompt, double temperature) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "llama-3.3-70b-versatile");
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        long uniqueId = System.currentTimeMillis();
+        int randomValue = ThreadLocalRandom.current().nextInt(1, 10000);
+
+        Map<String, String> systemMessage = new HashMap<>();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", String.format(
+            "You are a command line education assistant. Request ID: %d-%d. " +
+            "Provide diverse, unique responses and NEVER repeat the same question twice. " +
+            "Generate questions that cover different aspects and complexity levels. " +
+            "Current timestamp: %d. " +
+            "Ensure each question is unique by varying the difficulty, concepts, and specificity. " +
+            "Always generate a different question than any you've generated before.",
+            uniqueId, randomValue, System.currentTimeMillis()
+        ));
+        messages.add(systemMessage);
+
+        Map<String, String> userMessage = new HashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        requestBody.put("messages", messages);
+        requestBody.put("temperature", temperature);
+        requestBody.put("top_p", 0.9 + (random.nextDouble() * 0.1));
+        requestBody.put("frequency_penalty", 0.4 + (random.nextDouble() * 0.4));
+        requestBody.put("presence_penalty", 0.4 + (random.nextDouble() * 0.4));
+        return requestBody;
+    }
+
+    /**
+     * A typical evaluation response, about 1KB on the wire
+     */
+    static String sampleResponse() {
+        String content = "1. **CORRECT**\\n\\n"
+            + "2. `git rebase -i HEAD~5` opens an interactive rebase of the last five commits. "
+            + "In the editor, keep `pick` on the first commit and change the others to `squash` (or `s`) "
+            + "to fold them into it.\\n\\n"
+            + "3. No correction needed. `git reset --soft HEAD~5 && git commit` reaches the same result "
+            + "without the editor.\\n\\n"
+            + "4. Tip: think of `-i` as \\\"inspect\\\" - it lets you inspect and rewrite each commit "
+            + "before it is replayed, and `HEAD~N` counts back N commits from where you are.";
+        return "{\"id\":\"chatcmpl-7f3c1e52-2a0b-4c1f-9d55-0c3a8e1b7a90\",\"object\":\"chat.completion\","
+            + "\"created\":1718000000,\"model\":\"llama-3.3-70b-versatile\","
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},"
+            + "\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"queue_time\":0.018,\"prompt_tokens\":183,\"prompt_time\":0.009,"
+            + "\"completion_tokens\":164,\"completion_time\":0.131,\"total_tokens\":347,\"total_time\":0.14},"
+            + "\"system_fingerprint\":\"fp_3f3b593e33\","
+            + "\"x_groq\":{\"id\":\"req_01j0a1b2c3d4e5f6g7h8j9k0m1\"}}";
+    }
+}
@@ -0,0 +1,138 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandSummary;
+import com.command.buddy.repository.CommandRepository;
+import org.springframework.data.domain.Limit;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link CommandRepository} over a plain list, answering the derived
+ * queries with the same semantics Spring Data gives them. Used to measure
+ * the service layer without a database underneath.
+ *
+ * Every query method declared on {@link CommandRepository} is answered, so
+ * any {@code CommandService} call works; creating one fails as soon as the
+ * repository gains a query this class does not know, instead of in the
+ * middle of a measurement. Of the inherited CRUD methods only the reads the
+ * service uses are answered, and the data is read-only.
+ */
+final class InMemoryCommandRepository {
+
+    private InMemoryCommandRepository() {
+    }
+
+    static CommandRepository of(List<Command> commands) {
+        List<Command> data = commands.stream()
+            .sorted(Comparator.comparing(Command::getId, Comparator.nullsFirst(Comparator.naturalOrder())))
+            .toList();
+        Map<String, Command> byId = data.stream()
+            .filter(command -> command.getId() != null)
+            .collect(Collectors.toMap(Command::getId, Function.identity()));
+
+        Map<String, Function<Object[], Object>> queries = Map.ofEntries(
+            Map.entry("findByToolName", args -> select(data, tool((String) args[0])).toList()),
+            Map.entry("findByToolNameAndIdGreaterThanOrderByIdAsc", args ->
+                page(data, (String) args[0], (String) args[1], (Class<?>) args[3])
+                    .limit(((Limit) args[2]).max()).toList()),
+            Map.entry("streamByToolNameAndIdGreaterThanOrderByIdAsc", args ->
+                page(data, (String) args[0], (String) args[1], (Class<?>) args[2])),
+            Map.entry("streamAllByOrderByIdAsc", args -> data.stream()),
+            Map.entry("findByToolNameAndCommandTextContainingIgnoreCase", args ->
+                select(data, tool((String) args[0]).and(containing((String) args[1]))).toList()),
+            Map.entry("findByToolNameAndDetailsTagsOrderByIdAsc", args ->
+                select(data, tool((String) args[0]).and(tagged((String) args[1])))
+                    .limit(((Limit) args[2]).max()).toList()),
+            Map.entry("countByToolName", args -> select(data, tool((String) args[0])).count()),
+            Map.entry("findAllById", args -> findAllById(byId, (Iterable<?>) args[0])),
+            Map.entry("findById", args -> Optional.ofNullable(byId.get(args[0]))),
+            Map.entry("existsById", args -> byId.containsKey(args[0])),
+            Map.entry("count", args -> (long) data.size()));
+
+        List<String> missing = Arrays.stream(CommandRepository.class.getDeclaredMethods())
+            .map(Method::getName)
+            .filter(name -> !queries.containsKey(name))
+            .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("InMemoryCommandRepository does not answer " + missing
+                + "; add them or run the mongo backend");
+        }
+
+        return (CommandRepository) Proxy.newProxyInstance(
+            CommandRepository.class.getClassLoader(),
+            new Class<?>[] { CommandRepository.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryCommandRepository[" + data.size() + "]";
+                default -> {
+                    Function<Object[], Object> query = queries.get(method.getName());
+                    if (query == null) {
+                        throw new UnsupportedOperationException(
+                            "InMemoryCommandRepository is read-only and does not answer " + method.getName());
+                    }
+                    yield query.apply(args == null ? new Object[0] : args);
+                }
+            });
+    }
+
+    private static Stream<Command> select(List<Command> data, Predicate<Command> filter) {
+        return data.stream().filter(filter);
+    }
+
+    /**
+     * The commands of a tool after an id, in id order, read as {@link Command} or a projection
+     */
+    private static Stream<Object> page(List<Command> data, String toolName, String after, Class<?> type) {
+        return select(data, tool(toolName).and(command -> command.getId().compareTo(after) > 0))
+            .map(command -> view(command, type));
+    }
+
+    private static Object view(Command command, Class<?> type) {
+        if (type == CommandSummary.class) {
+            return new CommandSummary(command.getId(), command.getToolName(), command.getCommandText());
+        }
+        if (type.isInstance(command)) {
+            return command;
+        }
+        throw new UnsupportedOperationException("No in-memory projection to " + type.getName());
+    }
+
+    private static Predicate<Command> tool(String toolName) {
+        return command -> toolName.equals(command.getToolName());
+    }
+
+    private static Predicate<Command> containing(String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        return command -> command.getCommandText().toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private static Predicate<Command> tagged(String tag) {
+        return command -> command.getDetails() != null && command.getDetails().tags() != null
+            && command.getDetails().tags().contains(tag);
+    }
+
+    private static List<Command> findAllById(Map<String, Command> byId, Iterable<?> ids) {
+        List<Command> found = new ArrayList<>();
+        for (Object id : ids) {
+            Command command = byId.get(id);
+            if (command != null) {
+                found.add(command);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,118 @@
+package com.command.buddy.benchmarks;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recorded chat completion calls, one JSON object per line, as written by
+ * {@link LlmRecorder} and replayed by {@link StubLlmServer}.
+ *
+ * A call is matched on its key, the request without the model and the
+ * stream flag, so that a replay answers the same prompt the same way
+ * whichever route and mode asked. Calls with the same system prompt share
+ * a kind, which stands in for the operation and prompt version: a request
+ * that was never recorded gets a response, and a latency, of its kind.
+ */
+final class LlmFixtures {
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+    private static final Pattern MODEL = Pattern.compile("\"model\":\"(?:[^\"\\\\]|\\\\.)*\",?");
+    private static final Pattern STREAM = Pattern.compile(",\"stream\":(?:true|false)");
+    private static final Pattern FIRST_CONTENT = Pattern.compile("\"content\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final int LABEL_LENGTH = 60;
+
+    private LlmFixtures() {
+    }
+
+    /**
+     * One recorded call
+     *
+     * @param key hash of the request without model and stream flag
+     * @param kind hash of the system prompt
+     * @param label the start of the system prompt, for whoever reads the file
+     * @param stream whether the response is a server-sent event stream
+     * @param status the HTTP status
+     * @param latencyMs how long the whole response took
+     * @param contentType the response content type
+     * @param body the response body
+     */
+    record Fixture(String key, String kind, String label, boolean stream, int status, long latencyMs,
+                   String contentType, String body) {
+    }
+
+    static Fixture of(String request, int status, long latencyMs, String contentType, String body) {
+        String system = systemPrompt(request);
+        return new Fixture(key(request), hash(system),
+            system.length() > LABEL_LENGTH ? system.substring(0, LABEL_LENGTH) : system,
+            isStreaming(request), status, latencyMs, contentType, body);
+    }
+
+    static String key(String request) {
+        return hash(STREAM.matcher(MODEL.matcher(request).replaceFirst("")).replaceFirst(""));
+    }
+
+    static String kind(String request) {
+        return hash(systemPrompt(request));
+    }
+
+    static boolean isStreaming(String request) {
+        return request.contains("\"stream\":true");
+    }
+
+    static List<Fixture> read(Path path) throws IOException {
+        List<Fixture> fixtures = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    fixtures.add(JSON.readValue(line, Fixture.class));
+                }
+            }
+        }
+        return fixtures;
+    }
+
+    /**
+     * Append to a fixture file, one line per call so a recording can be stopped at any time
+     */
+    static void append(Path path, Fixture fixture) throws IOException {
+        String line = JSON.writeValueAsString(fixture) + System.lineSeparator();
+        synchronized (LlmFixtures.class) {
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+            }
+        }
+    }
+
+    /**
+     * The first message is the system prompt; still JSON-escaped, which is fine for hashing and labels
+     */
+    private static String systemPrompt(String request) {
+        Matcher content = FIRST_CONTENT.matcher(request);
+        return content.find() ? content.group(1) : "";
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.command.buddy.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records real chat completion calls into a fixture file for
+ * {@link StubLlmServer} to replay.
+ *
+ * A proxy in front of the chat completions API: point {@code groq.api.url}
+ * of one or more instances at it and use them as usual, or run a load test
+ * against them at a modest rate. Every call is forwarded with its
+ * {@code Authorization} header, and its response, status and latency are
+ * appended to the fixture file, so the recording captures the API's timing
+ * distribution along with its answers. Streamed responses are buffered and
+ * sent on in one piece.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.command.buddy.benchmarks.LlmRecorder --port=8089 --out=llm-fixtures.jsonl
+ * GROQ_API_URL=http://127.0.0.1:8089/v1/chat/completions ./mvnw spring-boot:run
+ * </pre>
+ *
+ * Options, with their defaults: {@code --port=8089}, {@code --out=llm-fixtures.jsonl},
+ * {@code --upstream=https://api.groq.com/openai/v1/chat/completions}.
+ */
+public final class LlmRecorder implements AutoCloseable {
+
+    private static final List<String> FORWARDED_HEADERS = List.of(
+        "retry-after", "x-ratelimit-limit-requests", "x-ratelimit-limit-tokens",
+        "x-ratelimit-remaining-requests", "x-ratelimit-remaining-tokens",
+        "x-ratelimit-reset-requests", "x-ratelimit-reset-tokens");
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+    private final URI upstream;
+    private final Path out;
+    private final AtomicLong recorded = new AtomicLong();
+
+    private LlmRecorder(int port, URI upstream, Path out) throws IOException {
+        this.upstream = upstream;
+        this.out = out;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int port = Integer.parseInt(options.getOrDefault("port", "8089"));
+        Path out = Path.of(options.getOrDefault("out", "llm-fixtures.jsonl"));
+        URI upstream = URI.create(options.getOrDefault("upstream", "https://api.groq.com/openai/v1/chat/completions"));
+
+        LlmRecorder recorder = new LlmRecorder(port, upstream, out);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            recorder.close();
+            System.out.printf("Recorded %d calls to %s%n", recorder.recorded.get(), out);
+            stopped.countDown();
+        }));
+        System.out.printf("Recording calls to %s into %s%nPoint groq.api.url at http://127.0.0.1:%d/v1/chat/completions%n",
+            upstream, out, port);
+        stopped.await();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] request = exchange.getRequestBody().readAllBytes();
+            HttpRequest.Builder forward = HttpRequest.newBuilder(upstream)
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request));
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization != null) {
+                forward.header("Authorization", authorization);
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<byte[]> response;
+            try {
+                response = http.send(forward.build(), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+            String contentType = response.headers().firstValue("content-type").orElse("application/json");
+            LlmFixtures.append(out, LlmFixtures.of(new String(request, StandardCharsets.UTF_8),
+                response.statusCode(), latencyMs, contentType, new String(response.body(), StandardCharsets.UTF_8)));
+            recorded.incrementAndGet();
+
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            for (String name : FORWARDED_HEADERS) {
+                response.headers().firstValue(name).ifPresent(value -> exchange.getResponseHeaders().add(name, value));
+            }
+            exchange.sendResponseHeaders(response.statusCode(), response.body().length == 0 ? -1 : response.body().length);
+            exchange.getResponseBody().write(response.body());
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
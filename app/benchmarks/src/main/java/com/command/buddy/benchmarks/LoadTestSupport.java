@@ -0,0 +1,97 @@
+package com.command.buddy.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The command line and latency bookkeeping shared by {@link StackLoadTest}
+ * and {@link CapacityLoadTest}
+ */
+final class LoadTestSupport {
+
+    private LoadTestSupport() {
+    }
+
+    /**
+     * @param args {@code --name=value} arguments; a name may be repeated
+     * @return every value of each option, in the order given
+     */
+    static Map<String, List<String>> parse(String[] args) {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.computeIfAbsent(arg.substring(2, equals), name -> new ArrayList<>()).add(arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * @return the last value given for each option
+     */
+    static Map<String, String> last(Map<String, List<String>> options) {
+        Map<String, String> last = new LinkedHashMap<>();
+        options.forEach((name, values) -> last.put(name, values.get(values.size() - 1)));
+        return last;
+    }
+
+    /**
+     * @return the last value given for a numeric option, or the default if it was not given
+     */
+    static long number(Map<String, List<String>> options, String name, long defaultValue) {
+        List<String> values = options.get(name);
+        return values == null ? defaultValue : Long.parseLong(values.get(values.size() - 1));
+    }
+
+    /**
+     * Latencies in 1 ms buckets up to a minute; slower ones count as a minute
+     */
+    static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(60_001);
+        private final LongAdder count = new LongAdder();
+
+        void record(long latencyMs) {
+            buckets.incrementAndGet((int) Math.min(Math.max(latencyMs, 0), buckets.length() - 1));
+            count.increment();
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        /**
+         * @return the number of latencies from {@code fromMs} up to and including {@code toMs}
+         */
+        long count(long fromMs, long toMs) {
+            long sum = 0;
+            for (long i = Math.max(fromMs, 0); i <= toMs && i < buckets.length(); i++) {
+                sum += buckets.get((int) i);
+            }
+            return sum;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return the latency in ms at the quantile, or 0 if nothing was recorded
+         */
+        long percentile(double quantile) {
+            long total = count.sum();
+            long threshold = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length() && total > 0; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+    }
+}
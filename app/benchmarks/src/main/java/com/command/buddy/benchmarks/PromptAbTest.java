@@ -0,0 +1,223 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatCompletion;
+import com.command.buddy.client.ChatCompletionParser;
+import com.command.buddy.client.ChatRequest;
+import com.command.buddy.client.GroqRequestFactory;
+import com.command.buddy.client.PromptSet;
+import com.command.buddy.client.TokenEstimator;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the prompt versions in {@link PromptSet} on latency and token
+ * cost over a recorded set of calls.
+ *
+ * Every fixture in {@code prompt-fixtures.jsonl} (one operation with its
+ * inputs per line) is built with each version and sent to the chat
+ * completions API, alternating versions so that drift in the API's latency
+ * hits all of them alike. Without an API key only the local token
+ * estimates are reported.
+ *
+ * <pre>
+ * GROQ_API_KEY=... java -cp target/benchmarks.jar com.command.buddy.benchmarks.PromptAbTest --repeats=3
+ * </pre>
+ *
+ * Options, with their defaults: {@code --versions=v1,v2}, {@code --repeats=1},
+ * {@code --pause-ms=500} between calls to stay under the rate limit,
+ * {@code --fixtures=} a file to use instead of the bundled set,
+ * {@code --url=https://api.groq.com/openai/v1/chat/completions},
+ * {@code --api-key=} defaulting to {@code GROQ_API_KEY}.
+ */
+public final class PromptAbTest {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final JsonMapper JSON = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build();
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final URI url;
+    private final String apiKey;
+    private final Duration pause;
+
+    private PromptAbTest(URI url, String apiKey, Duration pause) {
+        this.url = url;
+        this.apiKey = apiKey;
+        this.pause = pause;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        List<String> versions = options.containsKey("versions")
+            ? Arrays.asList(options.get("versions").split(","))
+            : PromptSet.versions();
+        int repeats = Integer.parseInt(options.getOrDefault("repeats", "1"));
+        String apiKey = options.getOrDefault("api-key", System.getenv().getOrDefault("GROQ_API_KEY", ""));
+        PromptAbTest test = new PromptAbTest(
+            URI.create(options.getOrDefault("url", "https://api.groq.com/openai/v1/chat/completions")),
+            apiKey,
+            Duration.ofMillis(Long.parseLong(options.getOrDefault("pause-ms", "500"))));
+
+        List<Fixture> fixtures = fixtures(options.get("fixtures"));
+        Map<String, GroqRequestFactory> factories = new LinkedHashMap<>();
+        Map<String, Tally> tallies = new LinkedHashMap<>();
+        for (String version : versions) {
+            factories.put(version, PromptConstructionBenchmark.requestFactory(version));
+        }
+
+        boolean live = !apiKey.isBlank();
+        if (!live) {
+            System.out.println("No API key, reporting estimated prompt tokens only");
+        }
+        for (int round = 0; round < repeats; round++) {
+            for (Fixture fixture : fixtures) {
+                for (int v = 0; v < versions.size(); v++) {
+                    // Rotate which version goes first, so none always runs on a warm connection
+                    String version = versions.get((v + round) % versions.size());
+                    ChatRequest request = fixture.request(factories.get(version));
+                    Tally tally = tallies.computeIfAbsent(version + ' ' + fixture.operation(), key -> new Tally());
+                    tally.estimated.add((long) TokenEstimator.estimate(request));
+                    if (live) {
+                        test.send(request, tally);
+                        Thread.sleep(test.pause);
+                    }
+                }
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%n%-16s %9s %9s %11s %8s %8s %7s%n",
+            "version op", "est. in", "in", "out", "p50 ms", "p95 ms", "errors");
+        tallies.forEach((key, tally) -> {
+            Result result = tally.result(key);
+            results.add(result);
+            System.out.printf("%-16s %9.0f %9.0f %11.0f %8d %8d %7d%n", key, result.estimatedPromptTokens(),
+                result.promptTokens(), result.completionTokens(), result.p50Ms(), result.p95Ms(), result.errors());
+        });
+        File out = new File("prompt-ab-" + LocalDateTime.now().format(TIMESTAMP) + ".json");
+        JSON.writeValue(out, results);
+        System.out.println("Results written to " + out);
+    }
+
+    private void send(ChatRequest chatRequest, Tally tally) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(url)
+            .timeout(Duration.ofSeconds(60))
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Bearer " + apiKey)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(chatRequest.toJson()))
+            .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            ChatCompletion completion = response.statusCode() / 100 == 2
+                ? ChatCompletionParser.parse(response.body())
+                : null;
+            if (completion == null || completion.usage() == null) {
+                tally.errors++;
+                return;
+            }
+            tally.latencies.add(latencyMs);
+            tally.prompt.add(completion.usage().promptTokens());
+            tally.completion.add(completion.usage().completionTokens());
+        } catch (IOException | RuntimeException e) {
+            tally.errors++;
+        }
+    }
+
+    private static List<Fixture> fixtures(String path) throws IOException {
+        try (InputStream in = path != null
+                ? Files.newInputStream(Path.of(path))
+                : PromptAbTest.class.getResourceAsStream("/prompt-fixtures.jsonl");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<Fixture> fixtures = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    fixtures.add(JSON.readValue(line, Fixture.class));
+                }
+            }
+            return fixtures;
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * One recorded call: the operation and the inputs it was made with
+     */
+    record Fixture(String operation, String tool, String task, String question, String answer, String command) {
+
+        ChatRequest request(GroqRequestFactory requests) {
+            return switch (operation) {
+                case "generate" -> requests.generateQuestion(tool, task);
+                case "evaluate" -> requests.evaluateAnswer(tool, question, answer);
+                case "explain" -> requests.explainCommand(tool, command);
+                default -> throw new IllegalArgumentException("Unknown operation " + operation);
+            };
+        }
+    }
+
+    /**
+     * Measurements of one version on one operation
+     */
+    private static final class Tally {
+
+        private final List<Long> estimated = new ArrayList<>();
+        private final List<Long> prompt = new ArrayList<>();
+        private final List<Long> completion = new ArrayList<>();
+        private final List<Long> latencies = new ArrayList<>();
+        private int errors;
+
+        Result result(String key) {
+            List<Long> sorted = latencies.stream().sorted().toList();
+            return new Result(key, estimated.size(), mean(estimated), mean(prompt), mean(completion),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), errors);
+        }
+
+        private static double mean(List<Long> values) {
+            return values.stream().mapToLong(Long::longValue).average().orElse(0);
+        }
+
+        private static long percentile(List<Long> sorted, double quantile) {
+            return sorted.isEmpty() ? 0 : sorted.get((int) Math.ceil(quantile * sorted.size()) - 1);
+        }
+    }
+
+    record Result(String versionAndOperation, int calls, double estimatedPromptTokens, double promptTokens,
+                  double completionTokens, long p50Ms, long p95Ms, int errors) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatRequest;
+import com.command.buddy.client.GroqRequestFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the request for each Groq operation with each prompt
+ * version, prompt rendering and token estimate included
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptConstructionBenchmark {
+
+    @Param({ "git", "kubernetes" })
+    public String tool;
+
+    @Param({ "v1", "v2" })
+    public String prompts;
+
+    private GroqRequestFactory requests;
+
+    @Setup
+    public void setUp() {
+        requests = requestFactory(prompts);
+    }
+
+    /**
+     * @param promptVersion the prompt version to build requests with
+     * @return a factory with the default token caps and no metrics backend
+     */
+    static GroqRequestFactory requestFactory(String promptVersion) {
+        return new GroqRequestFactory(new SimpleMeterRegistry(), promptVersion, 300, 400, 800, 2000);
+    }
+
+    @Benchmark
+    public ChatRequest generateQuestion() {
+        return requests.generateQuestion(tool);
+    }
+
+    @Benchmark
+    public ChatRequest evaluateAnswer() {
+        return requests.evaluateAnswer(tool,
+            "How do you list every branch, including remote-tracking ones?", tool + " branch -a");
+    }
+
+    @Benchmark
+    public ChatRequest explainCommand() {
+        return requests.explainCommand(tool, tool + " log --oneline --graph --decorate --all");
+    }
+
+    @Benchmark
+    public byte[] explainCommandJson() {
+        return requests.explainCommand(tool, tool + " log --oneline --graph --decorate --all").toJson();
+    }
+}
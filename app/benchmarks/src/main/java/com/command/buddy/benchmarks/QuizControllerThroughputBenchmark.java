@@ -0,0 +1,124 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.BuddyApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput of the quiz endpoints: the whole application runs
+ * on an embedded mongod and talks to a local stub instead of Groq, so the
+ * numbers cover request handling, caching and the LLM client but not the
+ * real model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(32)
+@Fork(1)
+public class QuizControllerThroughputBenchmark {
+
+    private static final String QUESTION = "How do you show the commit history as a graph?";
+
+    @Param({ "0", "200" })
+    public long stubLatencyMs;
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .build();
+    private final AtomicLong answers = new AtomicLong();
+
+    private EmbeddedMongo mongo;
+    private StubLlmServer llm;
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mongo = EmbeddedMongo.start();
+        llm = StubLlmServer.start(Duration.ofMillis(stubLatencyMs));
+        context = new SpringApplicationBuilder(BuddyApplication.class)
+            .properties(Map.of(
+                "server.port", "0",
+                "spring.data.mongodb.uri", mongo.uri("commandbuddy"),
+                "groq.api.url", llm.url(),
+                "groq.api.key", "benchmark",
+                // Measure the service, not the limits that protect the real API
+                "llm.rate-limit.requests-per-second", "100000",
+                "llm.rate-limit.burst", "100000",
+                "llm.bulkhead.generate", "1024",
+                "llm.bulkhead.evaluate", "1024",
+                "llm.bulkhead.explain", "1024",
+                "logging.level.root", "WARN"))
+            .run();
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + "/api/quiz";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        llm.close();
+        mongo.close();
+    }
+
+    @Benchmark
+    public int question() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/git")).GET());
+    }
+
+    /**
+     * Every answer is new, so each call goes through to the LLM
+     */
+    @Benchmark
+    public int checkUncached() throws IOException, InterruptedException {
+        return check("git log --graph --oneline -n " + answers.incrementAndGet());
+    }
+
+    /**
+     * The same answer every time, served from the response cache
+     */
+    @Benchmark
+    public int checkCached() throws IOException, InterruptedException {
+        return check("git log --graph --oneline");
+    }
+
+    private int check(String answer) throws IOException, InterruptedException {
+        String body = "{\"toolName\":\"git\",\"question\":\"" + QUESTION + "\",\"answer\":\"" + answer + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/check"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,153 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.cache.CompressedTextStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First tier of {@code LlmResponseCache} holding explanation-sized texts:
+ * the on-heap LRU map it used to be against the compressed off-heap
+ * {@link CompressedTextStore}.
+ *
+ * Run in sample-time mode for lookup percentiles; the GC profiler adds
+ * {@code gc.count} and {@code gc.time} for the same heap. Every trial
+ * prints the heap still in use after filling the store, which is what
+ * limits how many entries fit on a small pod. Reads are skewed towards a
+ * hot fifth of the keys, and one operation in ten is a write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:+UseG1GC" })
+public class ResponseStoreBenchmark {
+
+    private static final long NEVER = TimeUnit.DAYS.toNanos(365);
+    private static final int TEMPLATES = 512;
+
+    @Param({ "heap", "off-heap" })
+    public String store;
+
+    @Param({ "20000", "100000" })
+    public int entries;
+
+    private String[] templates;
+    private Map<String, String> heap;
+    private CompressedTextStore offHeap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        templates = templates(TEMPLATES, 42);
+        if ("heap".equals(store)) {
+            heap = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > entries;
+                }
+            };
+        } else {
+            offHeap = new CompressedTextStore(512L * 1024 * 1024);
+        }
+        for (int i = 0; i < entries; i++) {
+            put(i);
+        }
+
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> "direct".equals(pool.getName()))
+            .mapToLong(BufferPoolMXBean::getMemoryUsed)
+            .sum();
+        System.out.printf("%n%s, %d entries: %d MB heap in use after GC, %d MB direct%n",
+            store, entries, heapUsed >> 20, direct >> 20);
+    }
+
+    @Benchmark
+    public String mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 80% of reads go to the first 20% of keys
+        int key = random.nextInt(5) < 4 ? random.nextInt(Math.max(1, entries / 5)) : random.nextInt(entries);
+        if (random.nextInt(10) == 0) {
+            put(key);
+            return null;
+        }
+        return get(key);
+    }
+
+    private String get(int key) {
+        if (heap != null) {
+            synchronized (heap) {
+                return heap.get(key(key));
+            }
+        }
+        CompressedTextStore.Hit hit = offHeap.get(key(key));
+        return hit == null ? null : hit.text();
+    }
+
+    private void put(int key) {
+        // A fresh string each time, as a response read off the wire would be
+        String text = templates[key % TEMPLATES].replace("{n}", Integer.toString(key));
+        if (heap != null) {
+            synchronized (heap) {
+                heap.put(key(key), text);
+            }
+        } else {
+            offHeap.put(key(key), text, 900, System.nanoTime() + NEVER);
+        }
+    }
+
+    private static String key(int key) {
+        return String.format("%064x", key);
+    }
+
+    /**
+     * Structured explanations of a few KB, in the shape {@code explainCommand} returns
+     */
+    private static String[] templates(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] templates = new String[count];
+        for (int t = 0; t < count; t++) {
+            String tool = Datasets.TOOLS[random.nextInt(Datasets.TOOLS.length)];
+            StringBuilder text = new StringBuilder(4096)
+                .append("{\"summary\":\"Runs ").append(tool).append(" against target-{n} and reports what changed. ")
+                .append("The command is safe to repeat and prints nothing when there is nothing to do.\",\"parts\":[");
+            int parts = 4 + random.nextInt(8);
+            for (int p = 0; p < parts; p++) {
+                if (p > 0) {
+                    text.append(',');
+                }
+                text.append("{\"token\":\"--option-").append(random.nextInt(1000))
+                    .append("\",\"meaning\":\"Changes how ").append(tool)
+                    .append(" selects the objects it works on; without it the defaults from the configuration file ")
+                    .append("apply, which usually means the current context and namespace. Combine it with ")
+                    .append("--dry-run first to see the effect on target-{n} before anything is modified.\"}");
+            }
+            text.append("],\"examples\":[\"").append(tool).append(" status target-{n}\",\"")
+                .append(tool).append(" apply --dry-run target-{n}\"],\"warnings\":\"Needs write access; ")
+                .append("in a shared environment coordinate with the owners of target-{n} first.\"}");
+            templates[t] = text.toString();
+        }
+        return templates;
+    }
+}
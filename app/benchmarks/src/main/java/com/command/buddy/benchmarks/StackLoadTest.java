@@ -0,0 +1,287 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.BuddyApplication;
+import com.command.buddy.benchmarks.LoadTestSupport.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How many concurrent quiz users one instance serves on the servlet stack
+ * and on the reactive stack.
+ *
+ * Closed-loop virtual users play a quiz round (question, uncached check,
+ * cached explanation, think time) against the service. Users are added in
+ * steps; a step passes while the p95 latency stays within the SLO and
+ * fewer than 1% of requests fail. The result for a stack is the largest
+ * passing step.
+ *
+ * By default both stacks are started in this JVM against an embedded
+ * mongod and a stub LLM. For a per-pod figure, deploy the service twice
+ * with the same CPU and memory limits and point the test at each with
+ * {@code --target}:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.command.buddy.benchmarks.StackLoadTest \
+ *     --target=http://buddy-servlet:8080 --target=http://buddy-reactive:8080
+ * </pre>
+ *
+ * Other options, with their defaults: {@code --llm-latency-ms=800},
+ * {@code --think-time-ms=1000}, {@code --start-users=50}, {@code --step-users=50},
+ * {@code --max-users=5000}, {@code --step-seconds=20}, {@code --slo-p95-ms=2000}.
+ *
+ * Besides the steps in {@code loadtest-<timestamp>.json}, the summary is
+ * written as a Markdown table to {@code loadtest-<timestamp>.md}.
+ */
+public final class StackLoadTest {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String QUESTION = "How do you show the commit history as a graph?";
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    private final AtomicLong answers = new AtomicLong();
+
+    private final Duration thinkTime;
+    private final int startUsers;
+    private final int stepUsers;
+    private final int maxUsers;
+    private final Duration stepDuration;
+    private final long sloP95Ms;
+
+    private StackLoadTest(Map<String, List<String>> options) {
+        this.thinkTime = Duration.ofMillis(LoadTestSupport.number(options, "think-time-ms", 1000));
+        this.startUsers = (int) LoadTestSupport.number(options, "start-users", 50);
+        this.stepUsers = (int) LoadTestSupport.number(options, "step-users", 50);
+        this.maxUsers = (int) LoadTestSupport.number(options, "max-users", 5000);
+        this.stepDuration = Duration.ofSeconds(LoadTestSupport.number(options, "step-seconds", 20));
+        this.sloP95Ms = LoadTestSupport.number(options, "slo-p95-ms", 2000);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = LoadTestSupport.parse(args);
+        StackLoadTest test = new StackLoadTest(options);
+        List<StackResult> results = new ArrayList<>();
+
+        List<String> targets = options.getOrDefault("target", List.of());
+        if (!targets.isEmpty()) {
+            for (String target : targets) {
+                results.add(test.run(target, target));
+            }
+        } else {
+            Duration llmLatency = Duration.ofMillis(LoadTestSupport.number(options, "llm-latency-ms", 800));
+            try (EmbeddedMongo mongo = EmbeddedMongo.start();
+                 StubLlmServer llm = StubLlmServer.start(llmLatency)) {
+                for (String stack : List.of("servlet", "reactive")) {
+                    try (ConfigurableApplicationContext context = start(stack, mongo, llm)) {
+                        String port = context.getEnvironment().getProperty("local.server.port");
+                        results.add(test.run(stack, "http://127.0.0.1:" + port));
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%n%-40s %10s %10s %12s%n", "stack", "max users", "p95 ms", "requests/s");
+        for (StackResult result : results) {
+            StepResult best = result.maxSustained();
+            System.out.printf("%-40s %10d %10d %12.1f%n", result.stack(),
+                best == null ? 0 : best.users(), best == null ? 0 : best.p95Ms(),
+                best == null ? 0.0 : best.requestsPerSecond());
+        }
+        String name = "loadtest-" + LocalDateTime.now().format(TIMESTAMP);
+        File out = new File(name + ".json");
+        JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValue(out, results);
+        Path table = Path.of(name + ".md");
+        Files.writeString(table, table(results, options));
+        System.out.println("Steps written to " + out + ", summary table to " + table);
+    }
+
+    /**
+     * The summary as a Markdown table, to be kept under {@code results/} with the run it came from
+     */
+    static String table(List<StackResult> results, Map<String, List<String>> options) {
+        StringBuilder table = new StringBuilder()
+            .append("| Stack | Target | Max users | p95 ms | Requests/s | First failing step |\n")
+            .append("|-------|--------|----------:|-------:|-----------:|--------------------|\n");
+        for (StackResult result : results) {
+            StepResult best = result.maxSustained();
+            StepResult failed = result.steps().stream().filter(step -> !step.passed()).findFirst().orElse(null);
+            table.append(String.format(Locale.ROOT, "| %s | %s | %d | %d | %.1f | %s |%n", result.stack(),
+                result.target(), best == null ? 0 : best.users(), best == null ? 0 : best.p95Ms(),
+                best == null ? 0.0 : best.requestsPerSecond(),
+                failed == null ? "none" : String.format(Locale.ROOT, "%d users, p95 %d ms, %.2f%% errors",
+                    failed.users(), failed.p95Ms(), failed.errorRate() * 100)));
+        }
+        table.append("\nRun with: ");
+        if (options.isEmpty()) {
+            table.append("defaults");
+        }
+        options.forEach((option, values) -> values.forEach(value ->
+            table.append("`--").append(option).append('=').append(value).append("` ")));
+        table.append(String.format(Locale.ROOT, "%n%nJava %s, %d processors%n",
+            Runtime.version(), Runtime.getRuntime().availableProcessors()));
+        return table.toString();
+    }
+
+    static ConfigurableApplicationContext start(String stack, EmbeddedMongo mongo, StubLlmServer llm) {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(BuddyApplication.class);
+        if ("reactive".equals(stack)) {
+            application.profiles("reactive");
+        }
+        return application
+            .properties(Map.of(
+                "server.port", "0",
+                "spring.data.mongodb.uri", mongo.uri("loadtest_" + stack),
+                "groq.api.url", llm.url(),
+                "groq.api.key", "loadtest",
+                // Measure the service, not the limits that protect the real API
+                "llm.rate-limit.requests-per-second", "100000",
+                "llm.rate-limit.burst", "100000",
+                "llm.bulkhead.generate", "100000",
+                "llm.bulkhead.evaluate", "100000",
+                "llm.bulkhead.explain", "100000",
+                "logging.level.root", "WARN"))
+            .run();
+    }
+
+    /**
+     * Ramp users up against one deployment until a step fails
+     */
+    private StackResult run(String stack, String baseUrl) throws InterruptedException {
+        System.out.printf("%n%s (%s)%n", stack, baseUrl);
+        List<StepResult> steps = new ArrayList<>();
+        List<Thread> users = new ArrayList<>();
+        AtomicReference<Step> current = new AtomicReference<>(new Step());
+
+        try {
+            for (int target = startUsers; target <= maxUsers; target += stepUsers) {
+                while (users.size() < target) {
+                    users.add(Thread.ofVirtual().name("loadtest-user-" + users.size())
+                        .start(() -> playQuiz(baseUrl, current)));
+                }
+
+                // Let the new users settle before measuring
+                Thread.sleep(thinkTime.toMillis());
+                Step step = new Step();
+                current.set(step);
+                Thread.sleep(stepDuration.toMillis());
+
+                StepResult result = step.result(target, stepDuration);
+                steps.add(result);
+                System.out.printf("  %5d users  p95 %6d ms  %8.1f req/s  errors %.2f%%%n",
+                    result.users(), result.p95Ms(), result.requestsPerSecond(), result.errorRate() * 100);
+                if (!result.passed()) {
+                    break;
+                }
+            }
+        } finally {
+            users.forEach(Thread::interrupt);
+            for (Thread user : users) {
+                user.join(Duration.ofSeconds(5));
+            }
+        }
+        return new StackResult(stack, baseUrl, steps);
+    }
+
+    private void playQuiz(String baseUrl, AtomicReference<Step> current) {
+        String quiz = baseUrl + "/api/quiz";
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                send(current.get(), HttpRequest.newBuilder(URI.create(quiz + "/git")).GET());
+                // Every answer is new, so each check reaches the LLM
+                post(current.get(), quiz + "/check", "{\"toolName\":\"git\",\"question\":\"" + QUESTION
+                    + "\",\"answer\":\"git log --graph --oneline -n " + answers.incrementAndGet() + "\"}");
+                // The same command every time, served from the response cache
+                post(current.get(), quiz + "/explain", "{\"toolName\":\"git\",\"command\":\"git log --graph --oneline\"}");
+                Thread.sleep(thinkTime.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void post(Step step, String url, String body) throws InterruptedException {
+        send(step, HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private void send(Step step, HttpRequest.Builder request) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<Void> response = http.send(request.timeout(Duration.ofSeconds(60)).build(),
+                HttpResponse.BodyHandlers.discarding());
+            ok = response.statusCode() / 100 == 2;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            ok = false;
+        }
+        step.record((System.nanoTime() - start) / 1_000_000, ok);
+    }
+
+    /**
+     * Latencies and errors of one measurement window
+     */
+    private final class Step {
+
+        private final Histogram latencies = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyMs, boolean ok) {
+            latencies.record(latencyMs);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        StepResult result(int users, Duration duration) {
+            long total = latencies.count();
+            long p95 = latencies.percentile(0.95);
+            double errorRate = total == 0 ? 1.0 : (double) errors.sum() / total;
+            boolean passed = total > 0 && p95 <= sloP95Ms && errorRate < MAX_ERROR_RATE;
+            return new StepResult(users, total, total / (double) duration.toSeconds(), p95, errorRate, passed);
+        }
+    }
+
+    record StepResult(int users, long requests, double requestsPerSecond, long p95Ms, double errorRate, boolean passed) {
+    }
+
+    record StackResult(String stack, String target, List<StepResult> steps) {
+
+        StepResult maxSustained() {
+            StepResult best = null;
+            for (StepResult step : steps) {
+                if (step.passed()) {
+                    best = step;
+                }
+            }
+            return best;
+        }
+    }
+}
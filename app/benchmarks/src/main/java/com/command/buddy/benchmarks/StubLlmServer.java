@@ -0,0 +1,289 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatCompletion;
+import com.command.buddy.client.ChatCompletionParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the chat completions endpoint.
+ *
+ * Without fixtures it answers every request with the same completion. With
+ * fixtures recorded by {@link LlmRecorder} it answers each request with a
+ * recorded response to the same prompt, or failing that one to a prompt of
+ * the same kind. The latency is either fixed or replayed from the recording,
+ * optionally scaled, and a share of requests can be failed with a 500 or
+ * throttled with a 429 and {@code retry-after}, to see how the service
+ * degrades. Streamed requests get server-sent events whichever way the
+ * response was recorded.
+ *
+ * Suites start it in process; it also runs on its own, for deployed pods:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.command.buddy.benchmarks.StubLlmServer \
+ *     --port=8089 --fixtures=llm-fixtures.jsonl --latency=recorded --error-rate=0.01 --rate-limit-rate=0.02
+ * </pre>
+ *
+ * Options, with their defaults: {@code --host=0.0.0.0}, {@code --port=8089},
+ * {@code --fixtures=} none, {@code --latency=800} in ms or {@code recorded},
+ * {@code --latency-scale=1.0}, {@code --error-rate=0}, {@code --rate-limit-rate=0},
+ * {@code --retry-after-ms=1000}.
+ */
+public final class StubLlmServer implements AutoCloseable {
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+    private static final int CHUNK_CHARS = 16;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Options options;
+    private final byte[] completion;
+    private final Map<String, List<LlmFixtures.Fixture>> byKey = new HashMap<>();
+    private final Map<String, List<LlmFixtures.Fixture>> byKind = new HashMap<>();
+
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * How the stub answers
+     *
+     * @param host the address to listen on
+     * @param port the port, 0 for any
+     * @param latency the latency of every response, unless replayed
+     * @param recordedLatency whether to replay the latency recorded with each fixture instead
+     * @param latencyScale factor applied to every latency
+     * @param errorRate share of requests answered with a 500
+     * @param rateLimitRate share of requests answered with a 429
+     * @param retryAfter the retry-after sent with a 429
+     * @param fixtures recorded calls to answer from, may be empty
+     */
+    record Options(String host, int port, Duration latency, boolean recordedLatency, double latencyScale,
+                   double errorRate, double rateLimitRate, Duration retryAfter, List<LlmFixtures.Fixture> fixtures) {
+
+        static Options fixed(Duration latency) {
+            return new Options("127.0.0.1", 0, latency, false, 1.0, 0, 0, Duration.ofSeconds(1), List.of());
+        }
+    }
+
+    private StubLlmServer(Options options) throws IOException {
+        this.options = options;
+        this.completion = GroqClientCodecBenchmark.sampleResponse().getBytes(StandardCharsets.UTF_8);
+        for (LlmFixtures.Fixture fixture : options.fixtures()) {
+            // Failures are injected on demand, not replayed
+            if (fixture.status() / 100 == 2) {
+                byKey.computeIfAbsent(fixture.key(), key -> new ArrayList<>()).add(fixture);
+                byKind.computeIfAbsent(fixture.kind(), kind -> new ArrayList<>()).add(fixture);
+            }
+        }
+        this.server = HttpServer.create(new InetSocketAddress(options.host(), options.port()), 1024);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @param latency how long every request takes, standing in for generation time
+     * @return the running server
+     */
+    static StubLlmServer start(Duration latency) throws IOException {
+        return new StubLlmServer(Options.fixed(latency));
+    }
+
+    /**
+     * @param options fixtures, latency and failures to serve
+     * @return the running server
+     */
+    static StubLlmServer start(Options options) throws IOException {
+        return new StubLlmServer(options);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> cli = LlmRecorder.parse(args);
+        StubLlmServer stub = start(options(cli, "", "0.0.0.0", Integer.parseInt(cli.getOrDefault("port", "8089"))));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stub.close();
+            System.out.println(stub.summary());
+            stopped.countDown();
+        }));
+        System.out.printf("Serving %d recorded calls on %s%n", stub.options.fixtures().size(), stub.url());
+        stopped.await();
+    }
+
+    /**
+     * Read stub options from the command line, shared by the suites that start a stub
+     *
+     * @param prefix prepended to every option name, e.g. {@code llm-}
+     */
+    static Options options(Map<String, String> cli, String prefix, String host, int port) throws IOException {
+        String fixtures = cli.get(prefix + "fixtures");
+        String latency = cli.getOrDefault(prefix + "latency", "800");
+        boolean recorded = "recorded".equals(latency);
+        return new Options(
+            cli.getOrDefault(prefix + "host", host),
+            port,
+            Duration.ofMillis(recorded ? 0 : Long.parseLong(latency)),
+            recorded,
+            Double.parseDouble(cli.getOrDefault(prefix + "latency-scale", "1.0")),
+            Double.parseDouble(cli.getOrDefault(prefix + "error-rate", "0")),
+            Double.parseDouble(cli.getOrDefault(prefix + "rate-limit-rate", "0")),
+            Duration.ofMillis(Long.parseLong(cli.getOrDefault(prefix + "retry-after-ms", "1000"))),
+            fixtures == null ? List.of() : LlmFixtures.read(Path.of(fixtures)));
+    }
+
+    String url() {
+        String host = "0.0.0.0".equals(options.host()) ? "127.0.0.1" : options.host();
+        return "http://" + host + ":" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    /**
+     * @return how the requests so far were answered
+     */
+    String summary() {
+        return String.format("Stub LLM: %d replayed, %d default answers, %d failed, %d throttled",
+            replayed.sum(), fallbacks.sum(), failed.sum(), throttled.sum());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < options.rateLimitRate()) {
+                // The real API throttles straight away
+                throttled.increment();
+                exchange.getResponseHeaders().add("retry-after", Long.toString(Math.max(1, options.retryAfter().toSeconds())));
+                exchange.getResponseHeaders().add("x-ratelimit-remaining-requests", "0");
+                exchange.getResponseHeaders().add("x-ratelimit-reset-requests", options.retryAfter().toMillis() + "ms");
+                send(exchange, 429, "application/json", error("Rate limit reached (injected)", "rate_limit_exceeded"));
+                return;
+            }
+
+            LlmFixtures.Fixture fixture = fixtureFor(request);
+            Thread.sleep(latency(fixture));
+            if (roll < options.rateLimitRate() + options.errorRate()) {
+                failed.increment();
+                send(exchange, 500, "application/json", error("Internal server error (injected)", "server_error"));
+                return;
+            }
+
+            boolean stream = LlmFixtures.isStreaming(request);
+            if (fixture == null) {
+                fallbacks.increment();
+                byte[] body = stream ? events(new String(completion, StandardCharsets.UTF_8), false) : completion;
+                send(exchange, 200, stream ? "text/event-stream" : "application/json", body);
+                return;
+            }
+            replayed.increment();
+            if (stream == fixture.stream()) {
+                send(exchange, 200, fixture.contentType(), fixture.body().getBytes(StandardCharsets.UTF_8));
+            } else if (stream) {
+                send(exchange, 200, "text/event-stream", events(fixture.body(), false));
+            } else {
+                send(exchange, 200, "application/json", events(fixture.body(), true));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LlmFixtures.Fixture fixtureFor(String request) {
+        List<LlmFixtures.Fixture> candidates = byKey.get(LlmFixtures.key(request));
+        if (candidates == null) {
+            candidates = byKind.get(LlmFixtures.kind(request));
+        }
+        if (candidates == null) {
+            return null;
+        }
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private Duration latency(LlmFixtures.Fixture fixture) {
+        Duration base = options.recordedLatency() && fixture != null
+            ? Duration.ofMillis(fixture.latencyMs())
+            : options.latency();
+        return Duration.ofNanos((long) (base.toNanos() * options.latencyScale()));
+    }
+
+    /**
+     * Convert between a completion and its stream of chunks
+     *
+     * @param toCompletion true to join a recorded stream into a completion, false to split a completion into events
+     */
+    private static byte[] events(String body, boolean toCompletion) {
+        if (toCompletion) {
+            StringBuilder content = new StringBuilder();
+            ChatCompletion.Usage usage = null;
+            for (String line : body.split("\n")) {
+                String data = line.startsWith("data:") ? line.substring(5).trim() : "";
+                if (data.isEmpty() || "[DONE]".equals(data)) {
+                    continue;
+                }
+                ChatCompletion chunk = ChatCompletionParser.parseChunk(data.getBytes(StandardCharsets.UTF_8));
+                if (chunk.content() != null) {
+                    content.append(chunk.content());
+                }
+                usage = chunk.usage() != null ? chunk.usage() : usage;
+            }
+            return JSON.writeValueAsBytes(Map.of(
+                "choices", List.of(Map.of("index", 0, "message", Map.of("role", "assistant", "content", content.toString()))),
+                "usage", usage(usage)));
+        }
+
+        ChatCompletion completion = ChatCompletionParser.parse(body.getBytes(StandardCharsets.UTF_8));
+        String content = completion.content() == null ? "" : completion.content();
+        StringBuilder events = new StringBuilder();
+        for (int i = 0; i < content.length(); i += CHUNK_CHARS) {
+            String piece = content.substring(i, Math.min(content.length(), i + CHUNK_CHARS));
+            events.append("data: ").append(JSON.writeValueAsString(Map.of(
+                "choices", List.of(Map.of("index", 0, "delta", Map.of("content", piece)))))).append("\n\n");
+        }
+        events.append("data: ").append(JSON.writeValueAsString(Map.of(
+            "choices", List.of(), "x_groq", Map.of("usage", usage(completion.usage()))))).append("\n\n");
+        events.append("data: [DONE]\n\n");
+        return events.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Long> usage(ChatCompletion.Usage usage) {
+        return usage == null
+            ? Map.of("prompt_tokens", 0L, "completion_tokens", 0L, "total_tokens", 0L)
+            : Map.of("prompt_tokens", usage.promptTokens(), "completion_tokens", usage.completionTokens(),
+                     "total_tokens", usage.totalTokens());
+    }
+
+    private static byte[] error(String message, String code) {
+        return JSON.writeValueAsBytes(Map.of("error", Map.of("message", message, "type", code, "code", code)));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
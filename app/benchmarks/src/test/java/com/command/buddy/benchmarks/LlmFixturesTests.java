@@ -0,0 +1,57 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatRequest;
+import com.command.buddy.client.GroqRequestFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmFixturesTests {
+
+	private final GroqRequestFactory requests =
+		new GroqRequestFactory(new SimpleMeterRegistry(), "v1", 300, 400, 800, 2000);
+
+	@Test
+	void matchesTheSamePromptWhateverTheModelAndMode() {
+		ChatRequest request = requests.explainCommand("git", "git status");
+
+		String key = LlmFixtures.key(json(request));
+
+		assertThat(LlmFixtures.key(json(request.withModel("llama-3.1-8b-instant")))).isEqualTo(key);
+		assertThat(LlmFixtures.key(json(request.streaming()))).isEqualTo(key);
+		assertThat(LlmFixtures.isStreaming(json(request.streaming()))).isTrue();
+		assertThat(LlmFixtures.isStreaming(json(request))).isFalse();
+		assertThat(LlmFixtures.key(json(requests.explainCommand("git", "git status -s")))).isNotEqualTo(key);
+	}
+
+	@Test
+	void leavesModelAndStreamInsideMessagesAlone() {
+		String first = json(requests.explainCommand("jq", "jq '.model' <<< '{\"model\":\"a\",\"stream\":true}'"));
+		String second = json(requests.explainCommand("jq", "jq '.model' <<< '{\"model\":\"b\",\"stream\":false}'"));
+
+		assertThat(LlmFixtures.key(first)).isNotEqualTo(LlmFixtures.key(second));
+		assertThat(LlmFixtures.isStreaming(first)).isFalse();
+	}
+
+	@Test
+	void groupsRequestsOfOneOperationIntoAKind() {
+		String explain = json(requests.explainCommand("git", "git status"));
+		String other = json(requests.explainCommand("docker", "docker ps -a"));
+		String evaluate = json(requests.evaluateAnswer("git", "List all branches", "git branch -a"));
+
+		assertThat(LlmFixtures.kind(other)).isEqualTo(LlmFixtures.kind(explain));
+		assertThat(LlmFixtures.kind(evaluate)).isNotEqualTo(LlmFixtures.kind(explain));
+
+		LlmFixtures.Fixture fixture = LlmFixtures.of(explain, 200, 640, "application/json", "{}");
+		assertThat(fixture.key()).isEqualTo(LlmFixtures.key(explain));
+		assertThat(fixture.kind()).isEqualTo(LlmFixtures.kind(explain));
+		assertThat(fixture.label()).hasSizeLessThanOrEqualTo(60);
+	}
+
+	private static String json(ChatRequest request) {
+		return new String(request.toJson(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,116 @@
+package com.command.buddy.benchmarks;
+
+import com.command.buddy.client.ChatCompletion;
+import com.command.buddy.client.ChatCompletionParser;
+import com.command.buddy.client.ChatRequest;
+import com.command.buddy.client.GroqRequestFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays recordings to the other mode than they were recorded in
+ */
+class StubLlmServerTests {
+
+	private static final String EXPLANATION = "Shows the working tree status, one line per changed file.";
+
+	private static final String COMPLETION = "{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+		+ "\"content\":\"" + EXPLANATION + "\"}}],\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":14,"
+		+ "\"total_tokens\":134}}";
+
+	private static final String STREAM =
+		"data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Shows the working\"}}]}\n\n"
+		+ "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\" tree status, one line\"}}]}\n\n"
+		+ "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\" per changed file.\"}}]}\n\n"
+		+ "data: {\"choices\":[],\"x_groq\":{\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":14,"
+		+ "\"total_tokens\":134}}}\n\n"
+		+ "data: [DONE]\n\n";
+
+	private final GroqRequestFactory requests =
+		new GroqRequestFactory(new SimpleMeterRegistry(), "v1", 300, 400, 800, 2000);
+	private final HttpClient http = HttpClient.newHttpClient();
+	private final ChatRequest recordedAsCompletion = requests.explainCommand("git", "git status");
+	private final ChatRequest shortStatus = requests.explainCommand("git", "git status -s");
+	private StubLlmServer stub;
+
+	@BeforeEach
+	void start() throws IOException {
+		List<LlmFixtures.Fixture> fixtures = List.of(
+			LlmFixtures.of(json(recordedAsCompletion), 200, 0, "application/json", COMPLETION),
+			LlmFixtures.of(json(shortStatus.streaming()), 200, 0, "text/event-stream", STREAM));
+		stub = StubLlmServer.start(new StubLlmServer.Options("127.0.0.1", 0, Duration.ZERO, false, 1.0,
+			0, 0, Duration.ofSeconds(1), fixtures));
+	}
+
+	@AfterEach
+	void stop() {
+		stub.close();
+	}
+
+	@Test
+	void joinsARecordedStreamIntoACompletion() throws Exception {
+		HttpResponse<String> response = post(shortStatus.withModel("llama-3.1-8b-instant"));
+
+		assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json");
+		ChatCompletion completion = ChatCompletionParser.parse(response.body().getBytes(StandardCharsets.UTF_8));
+		assertThat(completion.content()).isEqualTo(EXPLANATION);
+		assertThat(completion.usage()).isEqualTo(new ChatCompletion.Usage(120, 14, 134));
+	}
+
+	@Test
+	void splitsARecordedCompletionIntoAStream() throws Exception {
+		HttpResponse<String> response = post(recordedAsCompletion.streaming());
+
+		assertThat(response.headers().firstValue("Content-Type")).hasValue("text/event-stream");
+		StringBuilder content = new StringBuilder();
+		List<ChatCompletion.Usage> usages = new ArrayList<>();
+		List<String> events = List.of(response.body().split("\n\n"));
+		assertThat(events.getLast()).isEqualTo("data: [DONE]");
+		for (String event : events.subList(0, events.size() - 1)) {
+			assertThat(event).startsWith("data: ");
+			ChatCompletion chunk = ChatCompletionParser.parseChunk(
+				event.substring(6).getBytes(StandardCharsets.UTF_8));
+			if (chunk.content() != null) {
+				content.append(chunk.content());
+			}
+			if (chunk.usage() != null) {
+				usages.add(chunk.usage());
+			}
+		}
+		assertThat(content).hasToString(EXPLANATION);
+		assertThat(events).hasSizeGreaterThan(3);
+		assertThat(usages).containsExactly(new ChatCompletion.Usage(120, 14, 134));
+	}
+
+	@Test
+	void replaysRecordingsInTheModeTheyWereRecordedIn() throws Exception {
+		assertThat(post(recordedAsCompletion).body()).isEqualTo(COMPLETION);
+		assertThat(post(shortStatus.streaming()).body()).isEqualTo(STREAM);
+		assertThat(stub.summary()).startsWith("Stub LLM: 2 replayed, 0 default answers");
+	}
+
+	private HttpResponse<String> post(ChatRequest request) throws IOException, InterruptedException {
+		return http.send(HttpRequest.newBuilder(URI.create(stub.url()))
+			.header("Content-Type", "application/json")
+			.POST(HttpRequest.BodyPublishers.ofByteArray(request.toJson()))
+			.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static String json(ChatRequest request) {
+		return new String(request.toJson(), StandardCharsets.UTF_8);
+	}
+}
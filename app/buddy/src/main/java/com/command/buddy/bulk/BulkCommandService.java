@@ -0,0 +1,412 @@
+package com.command.buddy.bulk;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.service.CommandService;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Streaming bulk import and export of commands.
+ *
+ * Imports are parsed and validated record by record as the body arrives and
+ * written in unordered bulk inserts, a few batches at a time, so parsing
+ * the next batch overlaps with writing the previous ones. Exports write
+ * straight from a database cursor.
+ */
+@Service
+public class BulkCommandService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkCommandService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // MongoDB's duplicate key error, raised for a command that is already stored
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int FLUSH_EVERY = 256;
+    private static final String[] CSV_COLUMNS = { "toolName", "commandText", "explanation" };
+
+    private final MongoOperations mongoOperations;
+    private final CommandService commandService;
+    private final CommandSearchIndex searchIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("command-import-", 0).factory());
+
+    private final Counter insertedDocuments;
+    private final Counter rejectedDocuments;
+    private final Counter failedDocuments;
+    private final Counter exportedDocuments;
+    private final Timer batchWrites;
+    private final DistributionSummary importThroughput;
+    private final DistributionSummary exportThroughput;
+
+    public BulkCommandService(MongoOperations mongoOperations,
+                              CommandService commandService,
+                              CommandSearchIndex searchIndex,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${commands.import.batch-size:1000}") int batchSize,
+                              @Value("${commands.import.max-in-flight:4}") int maxInFlight) {
+        this.mongoOperations = mongoOperations;
+        this.commandService = commandService;
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+
+        this.insertedDocuments = Counter.builder("commands.import.documents")
+            .tag("outcome", "inserted")
+            .register(meterRegistry);
+        this.rejectedDocuments = Counter.builder("commands.import.documents")
+            .tag("outcome", "rejected")
+            .register(meterRegistry);
+        this.failedDocuments = Counter.builder("commands.import.documents")
+            .tag("outcome", "failed")
+            .register(meterRegistry);
+        this.exportedDocuments = Counter.builder("commands.export.documents")
+            .register(meterRegistry);
+        this.batchWrites = Timer.builder("commands.import.batch")
+            .description("Time to write one unordered bulk insert")
+            .register(meterRegistry);
+        this.importThroughput = DistributionSummary.builder("commands.import.throughput")
+            .baseUnit("documents/s")
+            .register(meterRegistry);
+        this.exportThroughput = DistributionSummary.builder("commands.export.throughput")
+            .baseUnit("documents/s")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Import newline-delimited JSON, one command object per line. Only the
+     * {@code toolName}, {@code commandText} and {@code explanation} of each
+     * object are imported; any other field is ignored.
+     *
+     * @param body the request body
+     * @return what was imported and what was not
+     * @throws IOException if the body cannot be read, e.g. because the client went away
+     */
+    public ImportReport importNdjson(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long line = 0;
+        for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            Command command;
+            try {
+                command = objectMapper.readValue(text, Command.class);
+            } catch (JacksonException e) {
+                run.reject(line, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            run.accept(line, command);
+        }
+        return run.finish();
+    }
+
+    /**
+     * Import CSV with a header row naming the {@code toolName},
+     * {@code commandText} and (optional) {@code explanation} columns
+     *
+     * @param body the request body
+     * @return what was imported and what was not
+     * @throws IOException if the body cannot be read, e.g. because the client went away
+     */
+    public ImportReport importCsv(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+
+        List<String> header = reader.next();
+        int[] columns = header == null ? null : columnIndexes(header);
+        if (columns == null) {
+            run.invalid(1, "Header row must name the toolName and commandText columns");
+            return run.finish();
+        }
+
+        try {
+            for (List<String> record = reader.next(); record != null; record = reader.next()) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (record.size() != header.size()) {
+                    run.reject(reader.line(), "Expected " + header.size() + " fields but found " + record.size());
+                    continue;
+                }
+                run.accept(reader.line(), new Command(
+                    record.get(columns[0]),
+                    record.get(columns[1]),
+                    columns[2] < 0 ? null : record.get(columns[2])));
+            }
+        } catch (MalformedCsvException e) {
+            // A quote that never closes swallows the rest of the file
+            run.reject(e.line(), e.getMessage());
+        }
+        return run.finish();
+    }
+
+    /**
+     * Write commands as newline-delimited JSON
+     *
+     * @param documents the commands, or projections of them
+     * @param out where to write
+     * @return the number of documents written
+     * @throws IOException if the output cannot be written
+     */
+    public long writeNdjson(Stream<?> documents, OutputStream out) throws IOException {
+        Iterator<?> iterator = documents.iterator();
+        long written = 0;
+        while (iterator.hasNext()) {
+            out.write(objectMapper.writeValueAsBytes(iterator.next()));
+            out.write('\n');
+            if (++written % FLUSH_EVERY == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Export commands as newline-delimited JSON
+     *
+     * @param toolName only export this tool, or null for every command
+     * @param out where to write
+     * @throws IOException if the output cannot be written
+     */
+    public void exportNdjson(String toolName, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        try (Stream<Command> commands = commandsToExport(toolName)) {
+            recordExport(writeNdjson(commands, out), start);
+        }
+    }
+
+    /**
+     * Export commands as CSV, with a header row
+     *
+     * @param toolName only export this tool, or null for every command
+     * @param out where to write
+     * @throws IOException if the output cannot be written
+     */
+    public void exportCsv(String toolName, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        BufferedWriter buffered = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvWriter csv = new CsvWriter(buffered);
+        long written = 0;
+        try (Stream<Command> commands = commandsToExport(toolName)) {
+            csv.write(CSV_COLUMNS);
+            Iterator<Command> iterator = commands.iterator();
+            while (iterator.hasNext()) {
+                Command command = iterator.next();
+                csv.write(command.getToolName(), command.getCommandText(), command.getExplanation());
+                if (++written % FLUSH_EVERY == 0) {
+                    buffered.flush();
+                }
+            }
+        }
+        buffered.flush();
+        recordExport(written, start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    private Stream<Command> commandsToExport(String toolName) {
+        return toolName == null
+            ? commandService.streamAllCommands()
+            : commandService.streamCommandsByToolName(toolName, null, Command.class);
+    }
+
+    private void recordExport(long written, long start) {
+        exportedDocuments.increment(written);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (written > 0 && seconds > 0) {
+            exportThroughput.record(written / seconds);
+        }
+    }
+
+    private static int[] columnIndexes(List<String> header) {
+        int[] columns = { -1, -1, -1 };
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            for (int c = 0; c < CSV_COLUMNS.length; c++) {
+                if (name.equals(CSV_COLUMNS[c].toLowerCase(Locale.ROOT))) {
+                    columns[c] = i;
+                }
+            }
+        }
+        return columns[0] < 0 || columns[1] < 0 ? null : columns;
+    }
+
+    /**
+     * State of a single import: the batch being filled and the batches
+     * being written
+     */
+    private final class ImportRun {
+
+        private final long start = System.nanoTime();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final List<CompletableFuture<ImportReport.BatchReport>> batches = new ArrayList<>();
+        private final List<ImportReport.ImportError> errors = Collections.synchronizedList(new ArrayList<>());
+        private List<Command> batch = new ArrayList<>(batchSize);
+        private long[] lines = new long[batchSize];
+        private long received;
+        private long rejected;
+
+        void accept(long line, Command parsed) {
+            received++;
+            // Only the fields a client may set: the id is assigned below, the content hash when the command
+            // is written, and the structured explanation only ever comes from the LLM
+            Command command = new Command(parsed.getToolName(), parsed.getCommandText(), parsed.getExplanation());
+            if (command.getToolName() == null || command.getToolName().trim().isEmpty()) {
+                invalid(line, "toolName is required");
+                return;
+            }
+            if (command.getCommandText() == null || command.getCommandText().trim().isEmpty()) {
+                invalid(line, "commandText is required");
+                return;
+            }
+            // Assigned here so the search index can pick the commands up without reading them back
+            command.setId(new ObjectId().toHexString());
+            lines[batch.size()] = line;
+            batch.add(command);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Count a record that could not even be parsed
+         */
+        void reject(long line, String message) {
+            received++;
+            invalid(line, message);
+        }
+
+        void invalid(long line, String message) {
+            rejected++;
+            rejectedDocuments.increment();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.ImportError(line, message));
+            }
+        }
+
+        ImportReport finish() {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+            List<ImportReport.BatchReport> reports = batches.stream().map(CompletableFuture::join).toList();
+            long inserted = reports.stream().mapToLong(ImportReport.BatchReport::inserted).sum();
+            long sent = reports.stream().mapToLong(ImportReport.BatchReport::size).sum();
+            long elapsed = System.nanoTime() - start;
+            double perSecond = inserted / Math.max(elapsed / 1_000_000_000.0, 1e-9);
+            if (inserted > 0) {
+                importThroughput.record(perSecond);
+            }
+            return new ImportReport(received, inserted, rejected, sent - inserted,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), perSecond, List.copyOf(errors), reports);
+        }
+
+        private void flush() {
+            List<Command> commands = batch;
+            long[] commandLines = lines;
+            int number = batches.size() + 1;
+            batch = new ArrayList<>(batchSize);
+            lines = new long[batchSize];
+
+            // Bounds memory: parsing waits while too many batches are still being written
+            inFlight.acquireUninterruptibly();
+            batches.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return write(number, commands, commandLines);
+                } finally {
+                    inFlight.release();
+                }
+            }, writers));
+        }
+    }
+
+    private ImportReport.BatchReport write(int number, List<Command> commands, long[] lines) {
+        long start = System.nanoTime();
+        List<ImportReport.ImportError> errors = new ArrayList<>();
+        Set<Integer> failed = new HashSet<>();
+        int inserted;
+        try {
+            inserted = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Command.class)
+                .insert(commands)
+                .execute()
+                .getInsertedCount();
+        } catch (BulkOperationException e) {
+            inserted = e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                errors.add(new ImportReport.ImportError(lines[error.getIndex()],
+                    error.getCode() == DUPLICATE_KEY ? "Command is already stored" : error.getMessage()));
+            }
+        } catch (RuntimeException e) {
+            // Not only database errors: a command that cannot be mapped fails its batch, not the import
+            log.warn("Bulk insert of batch {} failed: {}", number, e.getMessage());
+            inserted = 0;
+            for (int i = 0; i < commands.size(); i++) {
+                failed.add(i);
+            }
+            errors.add(new ImportReport.ImportError(lines[0], "Batch failed: " + e.getMessage()));
+        }
+        long elapsed = System.nanoTime() - start;
+        batchWrites.record(elapsed, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < commands.size(); i++) {
+            if (!failed.contains(i)) {
+                searchIndex.index(commands.get(i));
+            }
+        }
+        insertedDocuments.increment(inserted);
+        failedDocuments.increment(commands.size() - inserted);
+        return new ImportReport.BatchReport(number, lines[0], commands.size(), inserted,
+            TimeUnit.NANOSECONDS.toMillis(elapsed), errors);
+    }
+}
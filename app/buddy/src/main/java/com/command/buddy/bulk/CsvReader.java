@@ -0,0 +1,111 @@
+package com.command.buddy.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, fields optionally wrapped in
+ * double quotes, {@code ""} for a literal quote, and line breaks allowed
+ * inside quoted fields. Reads one record at a time so a body of any size
+ * can be parsed as it arrives. A byte order mark at the start, which
+ * spreadsheets often write, is skipped.
+ */
+final class CsvReader {
+
+    private final Reader reader;
+    private int line = 1;
+    private int recordLine;
+    private int peeked = -2;
+    private boolean started;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the line the last record returned by {@link #next()} started on
+     */
+    int line() {
+        return recordLine;
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input
+     * @throws IOException if the input cannot be read
+     * @throws MalformedCsvException if a quoted field is not closed
+     */
+    List<String> next() throws IOException {
+        recordLine = line;
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedCsvException("Unterminated quoted field", recordLine);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
@@ -0,0 +1,52 @@
+package com.command.buddy.bulk;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import
+ *
+ * @param received records read from the body
+ * @param inserted commands written to the database
+ * @param rejected records that failed validation and were not sent to the database
+ * @param failed commands the database refused
+ * @param durationMs wall time of the whole import
+ * @param documentsPerSecond inserted commands per second
+ * @param errors validation errors, capped so a bad file cannot blow up the response
+ * @param batches one entry per database batch
+ */
+public record ImportReport(long received,
+                           long inserted,
+                           long rejected,
+                           long failed,
+                           long durationMs,
+                           double documentsPerSecond,
+                           List<ImportError> errors,
+                           List<BatchReport> batches) {
+
+    /**
+     * A record that could not be imported
+     *
+     * @param line the line of the body the record starts on
+     * @param message what was wrong with it
+     */
+    public record ImportError(long line, String message) {
+    }
+
+    /**
+     * Outcome of one unordered bulk write
+     *
+     * @param batch the batch number, from 1
+     * @param firstLine the line of the body the first record of the batch starts on
+     * @param size commands sent
+     * @param inserted commands written
+     * @param durationMs time spent in the bulk write
+     * @param errors write errors, by line
+     */
+    public record BatchReport(int batch,
+                              long firstLine,
+                              int size,
+                              int inserted,
+                              long durationMs,
+                              List<ImportError> errors) {
+    }
+}
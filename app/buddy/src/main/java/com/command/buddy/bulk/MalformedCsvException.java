@@ -0,0 +1,22 @@
+package com.command.buddy.bulk;
+
+/**
+ * Raised by {@link CsvReader} for input that is not valid CSV, as opposed
+ * to input that could not be read at all
+ */
+class MalformedCsvException extends IllegalArgumentException {
+
+    private final int line;
+
+    MalformedCsvException(String message, int line) {
+        super(message + " starting on line " + line);
+        this.line = line;
+    }
+
+    /**
+     * @return the line the malformed record started on
+     */
+    int line() {
+        return line;
+    }
+}
@@ -0,0 +1,79 @@
+package com.command.buddy.cache;
+
+import com.command.buddy.client.LlmOperation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed keys for LLM responses.
+ *
+ * Inputs are normalized before hashing so that trivially different requests
+ * (surrounding or repeated whitespace, tool name casing) share an entry.
+ * Command text keeps its case since flags such as -p and -P differ.
+ */
+public final class CacheKey {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private CacheKey() {
+    }
+
+    /**
+     * Build the key for an operation on a tool
+     *
+     * @param operation the LLM operation
+     * @param toolName the name of the tool
+     * @param inputs the remaining prompt inputs, in a fixed order
+     * @return a hex encoded SHA-256 of the normalized inputs
+     */
+    public static String of(LlmOperation operation, String toolName, String... inputs) {
+        return hash(operation.tag(), toolName, inputs);
+    }
+
+    /**
+     * Identity of a saved command, used to store each distinct
+     * (tool, command) pair only once
+     *
+     * @param toolName the name of the tool
+     * @param commandText the command
+     * @return a hex encoded SHA-256 of the normalized pair
+     */
+    public static String ofCommand(String toolName, String commandText) {
+        return hash("command", toolName, commandText);
+    }
+
+    private static String hash(String namespace, String toolName, String... inputs) {
+        MessageDigest digest = sha256();
+        digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(toolName.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        for (String input : inputs) {
+            digest.update((byte) 0);
+            digest.update(normalize(input).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Trim and collapse runs of whitespace into a single space
+     *
+     * @param input the raw input
+     * @return the normalized input
+     */
+    public static String normalize(String input) {
+        return WHITESPACE.matcher(input.trim()).replaceAll(" ");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
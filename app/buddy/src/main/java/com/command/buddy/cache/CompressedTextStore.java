@@ -0,0 +1,320 @@
+package com.command.buddy.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed, off-heap store for long LLM responses: explanations and
+ * answer feedback, which run to several kilobytes each.
+ *
+ * Texts are deflated into direct buffers outside the Java heap, so a large
+ * hot set adds little for the garbage collector to trace or copy; only the
+ * key index stays on the heap. A single response compresses poorly on its
+ * own, so once enough have been stored a dictionary is trained on them (see
+ * {@link DictionaryTrainer}) and later entries are compressed against it.
+ * The dictionary is trained once, and each entry keeps a reference to the
+ * one it was compressed with.
+ *
+ * The memory is split into equal segments that are written one after the
+ * other, like a ring. When the ring is full the oldest segment is reused
+ * and everything in it is evicted at once, which leaves no fragmentation
+ * and needs no free list. An entry read while it sits in the older half of
+ * the ring is copied to the head, so what is in use survives and what has
+ * not been read for half a lap goes: close to least recently used.
+ */
+public final class CompressedTextStore {
+
+    private static final int SEGMENTS = 64;
+    private static final int DICTIONARY_SAMPLES = 200;
+    private static final int DICTIONARY_BYTES = 16 * 1024;
+    // Deflaters and inflaters hold native memory; enough are kept for the usual concurrency
+    private static final int POOLED_CODECS = 16;
+
+    private final int segmentBytes;
+    private final ByteBuffer[] segments = new ByteBuffer[SEGMENTS];
+    private final long[] segmentGenerations = new long[SEGMENTS];
+    private final List<List<String>> segmentKeys = new ArrayList<>(SEGMENTS);
+    private final Map<String, Slot> index = new HashMap<>();
+
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOLED_CODECS);
+    private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOLED_CODECS);
+    private final List<byte[]> samples = new ArrayList<>();
+    private volatile byte[] dictionary;
+    // Set, under the lock, by the one put that trains the dictionary
+    private boolean training;
+
+    private int head;
+    private int position;
+    private long generation;
+    private long storedBytes;
+    private long rawBytes;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * A text read back from the store
+     *
+     * @param text the text
+     * @param upstreamLatencyMs the latency stored with it
+     */
+    public record Hit(String text, long upstreamLatencyMs) {
+    }
+
+    /**
+     * Where an entry lives; stale once its segment has been reused. The
+     * dictionary is the one it was deflated with, or null.
+     */
+    private record Slot(int segment, long generation, int offset, int length, int rawLength,
+                        byte[] dictionary, long upstreamLatencyMs, long expiresAtNanos) {
+    }
+
+    /**
+     * @param maxBytes the off-heap memory to use, allocated as it fills
+     */
+    public CompressedTextStore(long maxBytes) {
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(64 * 1024, maxBytes / SEGMENTS));
+        for (int i = 0; i < SEGMENTS; i++) {
+            segmentKeys.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @return the text and its latency, or null if absent, expired or evicted
+     */
+    public Hit get(String key) {
+        Slot slot;
+        byte[] compressed;
+        synchronized (this) {
+            slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (slot.expiresAtNanos - System.nanoTime() < 0) {
+                remove(key, slot);
+                expirations++;
+                return null;
+            }
+            compressed = new byte[slot.length];
+            segments[slot.segment].get(slot.offset, compressed);
+            if (generation - slot.generation >= SEGMENTS / 2) {
+                write(key, compressed, slot.rawLength, slot.dictionary, slot.upstreamLatencyMs, slot.expiresAtNanos);
+            }
+        }
+        return new Hit(inflate(compressed, slot.rawLength, slot.dictionary), slot.upstreamLatencyMs);
+    }
+
+    /**
+     * Store a text, replacing any under the same key
+     *
+     * @param key the cache key
+     * @param text the text
+     * @param upstreamLatencyMs how long the LLM took to produce it
+     * @param expiresAtNanos {@link System#nanoTime()} after which it is dropped
+     */
+    public void put(String key, String text, long upstreamLatencyMs, long expiresAtNanos) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte[] dictionary = this.dictionary;
+        if (dictionary != null && dictionary.length == 0) {
+            dictionary = null;
+        }
+        byte[] compressed = deflate(raw, dictionary);
+        if (compressed.length > segmentBytes) {
+            return;
+        }
+        synchronized (this) {
+            Slot previous = index.get(key);
+            if (previous != null) {
+                remove(key, previous);
+            }
+            write(key, compressed, raw.length, dictionary, upstreamLatencyMs, expiresAtNanos);
+            if (this.dictionary == null && !training) {
+                samples.add(raw);
+            }
+        }
+        if (this.dictionary == null) {
+            trainWhenSampled();
+        }
+    }
+
+    /**
+     * @return the number of entries held
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the compressed bytes held, without what evicted entries left behind
+     */
+    public synchronized long storedBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * @return the uncompressed size of the held texts over their compressed size
+     */
+    public synchronized double compressionRatio() {
+        return storedBytes == 0 ? 0.0 : (double) rawBytes / storedBytes;
+    }
+
+    /**
+     * @return the entries dropped because their segment was reused
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the entries dropped because they expired
+     */
+    public synchronized long expirations() {
+        return expirations;
+    }
+
+    /**
+     * @return whether later entries are compressed against a trained dictionary
+     */
+    public boolean hasDictionary() {
+        byte[] dictionary = this.dictionary;
+        return dictionary != null && dictionary.length > 0;
+    }
+
+    private void write(String key, byte[] compressed, int rawLength, byte[] dictionary,
+                       long upstreamLatencyMs, long expiresAtNanos) {
+        if (segments[head] == null) {
+            segments[head] = ByteBuffer.allocateDirect(segmentBytes);
+        }
+        if (position + compressed.length > segmentBytes) {
+            advance();
+        }
+        segments[head].put(position, compressed);
+        Slot slot = new Slot(head, generation, position, compressed.length, rawLength, dictionary,
+            upstreamLatencyMs, expiresAtNanos);
+        Slot previous = index.put(key, slot);
+        if (previous != null) {
+            storedBytes -= previous.length;
+            rawBytes -= previous.rawLength;
+        }
+        storedBytes += compressed.length;
+        rawBytes += rawLength;
+        segmentKeys.get(head).add(key);
+        position += compressed.length;
+    }
+
+    /**
+     * Move the head to the next segment, evicting whatever is still in it
+     */
+    private void advance() {
+        head = (head + 1) % SEGMENTS;
+        generation++;
+        position = 0;
+        if (segments[head] == null) {
+            segments[head] = ByteBuffer.allocateDirect(segmentBytes);
+        }
+        List<String> keys = segmentKeys.get(head);
+        for (String key : keys) {
+            Slot slot = index.get(key);
+            // Entries copied to the head or replaced since live elsewhere now
+            if (slot != null && slot.segment == head && slot.generation == segmentGenerations[head]) {
+                remove(key, slot);
+                evictions++;
+            }
+        }
+        keys.clear();
+        segmentGenerations[head] = generation;
+    }
+
+    private void remove(String key, Slot slot) {
+        index.remove(key);
+        storedBytes -= slot.length;
+        rawBytes -= slot.rawLength;
+    }
+
+    private void trainWhenSampled() {
+        List<byte[]> sampled;
+        synchronized (this) {
+            if (dictionary != null || training || samples.size() < DICTIONARY_SAMPLES) {
+                return;
+            }
+            // No other put trains or samples from here on, so the dictionary is only ever set once
+            training = true;
+            sampled = new ArrayList<>(samples);
+            samples.clear();
+        }
+        byte[] trained = DictionaryTrainer.train(sampled, DICTIONARY_BYTES);
+        // An empty dictionary is still set, so training is not attempted again
+        dictionary = trained;
+    }
+
+    private byte[] deflate(byte[] raw, byte[] dictionary) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        }
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[raw.length + raw.length / 1000 + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private String inflate(byte[] compressed, int rawLength, byte[] dictionary) {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, rawLength - length);
+                if (read == 0 && inflater.needsDictionary()) {
+                    if (dictionary == null) {
+                        throw new IllegalStateException("Entry needs a dictionary it was not stored with");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (read == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated entry");
+                }
+                length += read;
+            }
+            return new String(raw, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            // IllegalArgumentException comes from setDictionary when the checksum does not match
+            throw new IllegalStateException("Corrupt entry", e);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
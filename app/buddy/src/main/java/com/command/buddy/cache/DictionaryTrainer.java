@@ -0,0 +1,113 @@
+package com.command.buddy.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds a preset deflate dictionary from sample texts.
+ *
+ * A simplified version of the cover algorithm used by zstd: every sample is
+ * cut into overlapping segments, a segment scores by how many other samples
+ * share its 8-byte substrings, and the best segments are taken greedily.
+ * Substrings already covered by a chosen segment stop counting, so the
+ * dictionary does not fill up with copies of the same boilerplate. Deflate
+ * reaches nearer bytes more cheaply, so the best segments go at the end.
+ */
+final class DictionaryTrainer {
+
+    private static final int K = 8;
+    private static final int SEGMENT = 64;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @param samples texts like the ones that will be compressed
+     * @param maxSize the size of the dictionary, at most the 32 KB deflate window
+     * @return the dictionary, empty if the samples have nothing in common
+     */
+    static byte[] train(List<byte[]> samples, int maxSize) {
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + K <= sample.length; i++) {
+                if (seen.add(kmer(sample, i))) {
+                    frequencies.merge(kmer(sample, i), 1, Integer::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start + SEGMENT <= sample.length; start += SEGMENT / 2) {
+                Candidate candidate = new Candidate(sample, start, score(sample, start, frequencies));
+                if (candidate.score > 0) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        List<Candidate> chosen = new ArrayList<>();
+        int size = 0;
+        while (size + SEGMENT <= maxSize && !candidates.isEmpty()) {
+            Candidate best = candidates.poll();
+            // Scores only go down as segments are chosen, so re-score lazily
+            long score = score(best.sample, best.start, frequencies);
+            if (score <= 0) {
+                continue;
+            }
+            if (!candidates.isEmpty() && score < candidates.peek().score) {
+                candidates.add(new Candidate(best.sample, best.start, score));
+                continue;
+            }
+            chosen.add(best);
+            size += SEGMENT;
+            for (int i = best.start; i + K <= best.start + SEGMENT; i++) {
+                frequencies.put(kmer(best.sample, i), 0);
+            }
+        }
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            dictionary.write(chosen.get(i).sample, chosen.get(i).start, SEGMENT);
+        }
+        return dictionary.toByteArray();
+    }
+
+    /**
+     * Number of other samples sharing each distinct substring of the segment
+     */
+    private static long score(byte[] sample, int start, Map<Long, Integer> frequencies) {
+        Set<Long> counted = new HashSet<>();
+        long score = 0;
+        for (int i = start; i + K <= start + SEGMENT; i++) {
+            long kmer = kmer(sample, i);
+            if (counted.add(kmer)) {
+                score += Math.max(0, frequencies.getOrDefault(kmer, 0) - 1);
+            }
+        }
+        return score;
+    }
+
+    private static long kmer(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < K; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private record Candidate(byte[] sample, int start, long score) implements Comparable<Candidate> {
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Long.compare(other.score, score);
+        }
+    }
+}
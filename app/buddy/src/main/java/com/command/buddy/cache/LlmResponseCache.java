@@ -0,0 +1,289 @@
+package com.command.buddy.cache;
+
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.model.CachedResponse;
+import com.command.buddy.repository.CachedResponseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache for deterministic LLM responses.
+ *
+ * The first tier is a size and TTL bounded in-process LRU. The second tier is
+ * the {@code llm_responses} collection, which is shared by every replica and
+ * survives restarts. A miss in both tiers calls the loader and populates both.
+ *
+ * The cached responses are explanations and answer feedback of a few KB
+ * each, so by default the first tier keeps them compressed outside the heap
+ * in a {@link CompressedTextStore} bounded by {@code llm.cache.off-heap.max-bytes}
+ * rather than by entry count. This holds many more entries for the same
+ * heap and keeps them out of the old generation.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final CachedResponseRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final LruMap entries;
+    private final CompressedTextStore offHeap;
+    private final Map<LlmOperation, Meters> meters = new EnumMap<>(LlmOperation.class);
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    public LlmResponseCache(CachedResponseRepository repository,
+                            MeterRegistry meterRegistry,
+                            @Value("${llm.cache.max-entries:10000}") int maxEntries,
+                            @Value("${llm.cache.ttl:PT24H}") Duration ttl,
+                            @Value("${llm.cache.off-heap.enabled:true}") boolean offHeapEnabled,
+                            @Value("${llm.cache.off-heap.max-bytes:67108864}") long offHeapMaxBytes) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.entries = new LruMap();
+        this.offHeap = offHeapEnabled ? new CompressedTextStore(offHeapMaxBytes) : null;
+
+        for (LlmOperation operation : LlmOperation.values()) {
+            meters.put(operation, new Meters(operation));
+        }
+        Gauge.builder("llm.cache.size", this, LlmResponseCache::size)
+            .tag("tier", "l1")
+            .register(meterRegistry);
+        Gauge.builder("llm.cache.hit.ratio", this, LlmResponseCache::hitRatio)
+            .description("Share of lookups answered by either tier")
+            .register(meterRegistry);
+        FunctionCounter.builder("llm.cache.evictions", this, cache -> cache.evictions(false))
+            .tag("tier", "l1").tag("cause", "size")
+            .register(meterRegistry);
+        FunctionCounter.builder("llm.cache.evictions", this, cache -> cache.evictions(true))
+            .tag("tier", "l1").tag("cause", "expired")
+            .register(meterRegistry);
+        if (offHeap != null) {
+            Gauge.builder("llm.cache.off-heap.bytes", offHeap, CompressedTextStore::storedBytes)
+                .description("Compressed responses held outside the heap")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+            Gauge.builder("llm.cache.compression.ratio", offHeap, CompressedTextStore::compressionRatio)
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Return the cached response for a key, or compute and cache it
+     *
+     * @param operation the LLM operation the response belongs to
+     * @param toolName the name of the tool
+     * @param key the content hash from {@link CacheKey}
+     * @param loader produces the response on a miss
+     * @return the cached or freshly loaded response
+     */
+    public String get(LlmOperation operation, String toolName, String key, Supplier<String> loader) {
+        Optional<String> cached = peek(operation, key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        long start = System.nanoTime();
+        String response = loader.get();
+        put(operation, toolName, key, response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    /**
+     * Look a response up in both tiers without loading it on a miss
+     *
+     * @param operation the LLM operation the response belongs to
+     * @param key the content hash from {@link CacheKey}
+     * @return the cached response, or empty on a miss
+     */
+    public Optional<String> peek(LlmOperation operation, String key) {
+        Meters m = meters.get(operation);
+        lookups.increment();
+
+        Entry local = getLocal(key);
+        if (local != null) {
+            hits.increment();
+            m.l1Hits.increment();
+            m.savedLatency.record(local.upstreamLatencyMs, TimeUnit.MILLISECONDS);
+            return Optional.of(local.response);
+        }
+
+        long lookupStart = System.nanoTime();
+        Optional<CachedResponse> shared = findShared(key);
+        if (shared.isPresent()) {
+            CachedResponse cached = shared.get();
+            putLocal(key, cached.getResponse(), cached.getUpstreamLatencyMs());
+            hits.increment();
+            m.l2Hits.increment();
+            long lookupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lookupStart);
+            m.savedLatency.record(Math.max(0, cached.getUpstreamLatencyMs() - lookupMs), TimeUnit.MILLISECONDS);
+            return Optional.of(cached.getResponse());
+        }
+
+        m.misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Store a freshly generated response in both tiers
+     *
+     * @param operation the LLM operation the response belongs to
+     * @param toolName the name of the tool
+     * @param key the content hash from {@link CacheKey}
+     * @param response the response to cache
+     * @param upstreamLatencyMs how long the LLM took to produce the response
+     */
+    public void put(LlmOperation operation, String toolName, String key, String response, long upstreamLatencyMs) {
+        if (response == null || response.isBlank()) {
+            return;
+        }
+        putLocal(key, response, upstreamLatencyMs);
+        saveShared(new CachedResponse(key, operation.tag(), toolName, response, upstreamLatencyMs, Instant.now()));
+    }
+
+    /**
+     * @return the number of entries held in the first tier
+     */
+    public int size() {
+        if (offHeap != null) {
+            return offHeap.size();
+        }
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        long total = lookups.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    private double evictions(boolean expired) {
+        if (offHeap != null) {
+            return expired ? offHeap.expirations() : offHeap.evictions();
+        }
+        return expired ? expiredEvictions.sum() : sizeEvictions.sum();
+    }
+
+    private Entry getLocal(String key) {
+        if (offHeap != null) {
+            CompressedTextStore.Hit hit = offHeap.get(key);
+            return hit == null ? null : new Entry(hit.text(), hit.upstreamLatencyMs(), 0);
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtNanos - System.nanoTime() < 0) {
+                entries.remove(key);
+                expiredEvictions.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putLocal(String key, String response, long upstreamLatencyMs) {
+        if (offHeap != null) {
+            offHeap.put(key, response, upstreamLatencyMs, System.nanoTime() + ttl.toNanos());
+            return;
+        }
+        Entry entry = new Entry(response, upstreamLatencyMs, System.nanoTime() + ttl.toNanos());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private Optional<CachedResponse> findShared(String key) {
+        try {
+            return repository.findById(key);
+        } catch (DataAccessException e) {
+            log.warn("Shared response cache lookup failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void saveShared(CachedResponse cached) {
+        try {
+            repository.save(cached);
+        } catch (DataAccessException e) {
+            log.warn("Shared response cache write failed: {}", e.getMessage());
+        }
+    }
+
+    private record Entry(String response, long upstreamLatencyMs, long expiresAtNanos) {
+    }
+
+    /**
+     * Access-ordered map that drops the least recently used entry once full
+     */
+    private final class LruMap extends LinkedHashMap<String, Entry> {
+
+        LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Per-operation hit/miss counters and saved latency
+     */
+    private final class Meters {
+
+        private final Counter l1Hits;
+        private final Counter l2Hits;
+        private final Counter misses;
+        private final Timer savedLatency;
+
+        Meters(LlmOperation operation) {
+            String tag = operation.tag();
+            this.l1Hits = Counter.builder("llm.cache.requests")
+                .tag("operation", tag).tag("result", "l1_hit")
+                .register(meterRegistry);
+            this.l2Hits = Counter.builder("llm.cache.requests")
+                .tag("operation", tag).tag("result", "l2_hit")
+                .register(meterRegistry);
+            this.misses = Counter.builder("llm.cache.requests")
+                .tag("operation", tag).tag("result", "miss")
+                .register(meterRegistry);
+            this.savedLatency = Timer.builder("llm.cache.latency.saved")
+                .description("Upstream LLM latency avoided by serving from the cache")
+                .tag("operation", tag)
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.command.buddy.cache;
+
+import com.command.buddy.session.QuestionFingerprint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Nearest-neighbour cache of answer evaluations.
+ *
+ * {@link LlmResponseCache} only matches a question and answer that are the
+ * same after whitespace normalization. This cache also matches an answer
+ * that is the same command in another spelling (see
+ * {@link com.command.buddy.shell.CommandCanonicalizer}) given to a question
+ * worded slightly differently. Answers must match exactly after
+ * canonicalization, since a one-character difference in a command can turn
+ * a right answer into a wrong one; questions only need a word-shingle
+ * Jaccard similarity of at least {@code llm.verdict-cache.min-similarity}.
+ * The similarity is computed exactly, not estimated from the MinHash
+ * signature, whose noise at this threshold would serve verdicts for
+ * questions that are less alike than configured.
+ *
+ * Entries are kept in memory, grouped by tool and canonical answer, and the
+ * least recently used answers are dropped once the cache is full.
+ */
+@Component
+public class VerdictCache {
+
+    // Different questions answered by the same command, kept per answer
+    private static final int MAX_QUESTIONS_PER_ANSWER = 8;
+
+    private final int maxAnswers;
+    private final double minSimilarity;
+    private final LinkedHashMap<String, List<Verdict>> answers;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary hitSimilarity;
+
+    public VerdictCache(MeterRegistry meterRegistry,
+                        @Value("${llm.verdict-cache.max-answers:20000}") int maxAnswers,
+                        @Value("${llm.verdict-cache.min-similarity:0.85}") double minSimilarity) {
+        this.maxAnswers = maxAnswers;
+        this.minSimilarity = minSimilarity;
+        this.answers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Verdict>> eldest) {
+                return size() > VerdictCache.this.maxAnswers;
+            }
+        };
+
+        this.hits = Counter.builder("llm.verdict-cache.requests")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("llm.verdict-cache.requests")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        this.hitSimilarity = DistributionSummary.builder("llm.verdict-cache.similarity")
+            .description("Question similarity of the cached verdicts that were served")
+            .register(meterRegistry);
+        Gauge.builder("llm.verdict-cache.size", this, VerdictCache::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Find the verdict for the same answer to the most similar question
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param canonicalAnswer the user's answer, canonicalized
+     * @return the cached verdict, or empty if no question is similar enough
+     */
+    public Optional<String> find(String toolName, String question, String canonicalAnswer) {
+        QuestionFingerprint fingerprint = QuestionFingerprint.of(toolName, question);
+        long[] shingles = QuestionFingerprint.shingles(toolName, question);
+        Verdict best = null;
+        double bestSimilarity = 0;
+        synchronized (answers) {
+            List<Verdict> verdicts = answers.get(key(toolName, canonicalAnswer));
+            if (verdicts != null) {
+                for (Verdict verdict : verdicts) {
+                    double similarity = verdict.question.hash() == fingerprint.hash()
+                        ? 1.0 : QuestionFingerprint.jaccard(verdict.shingles, shingles);
+                    if (similarity >= minSimilarity && similarity > bestSimilarity) {
+                        best = verdict;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        hitSimilarity.record(bestSimilarity);
+        return Optional.of(best.feedback);
+    }
+
+    /**
+     * Remember the verdict for an answer
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param canonicalAnswer the user's answer, canonicalized
+     * @param feedback the evaluation returned by the LLM
+     */
+    public void put(String toolName, String question, String canonicalAnswer, String feedback) {
+        if (feedback == null || feedback.isBlank()) {
+            return;
+        }
+        Verdict verdict = new Verdict(QuestionFingerprint.of(toolName, question),
+            QuestionFingerprint.shingles(toolName, question), feedback);
+        synchronized (answers) {
+            List<Verdict> verdicts = answers.computeIfAbsent(key(toolName, canonicalAnswer), k -> new ArrayList<>(2));
+            verdicts.removeIf(existing -> existing.question.hash() == verdict.question.hash());
+            if (verdicts.size() >= MAX_QUESTIONS_PER_ANSWER) {
+                verdicts.remove(0);
+            }
+            verdicts.add(verdict);
+        }
+    }
+
+    /**
+     * @return the number of distinct answers held
+     */
+    public int size() {
+        synchronized (answers) {
+            return answers.size();
+        }
+    }
+
+    private static String key(String toolName, String canonicalAnswer) {
+        return toolName.trim().toLowerCase(Locale.ROOT) + '\0' + canonicalAnswer;
+    }
+
+    private record Verdict(QuestionFingerprint question, long[] shingles, String feedback) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+
+/**
+ * The outcome of grading one answer of a batch, with what grading it this
+ * way saved over a call of its own
+ *
+ * @param feedback the evaluation, or null if the answer could not be graded
+ * @param source how it was graded: {@code local}, {@code cache}, {@code duplicate}, {@code batch} or {@code single}
+ * @param promptTokens the prompt tokens spent on this answer, its share of the batch for batched answers
+ * @param savedPromptTokens the estimated prompt tokens saved against grading it on its own
+ * @param latencyMs the time spent on this answer, its share of the batch for batched answers
+ * @param savedLatencyMs the time saved against the typical single evaluation, null until that is known
+ * @param error why the answer could not be graded, or null
+ */
+public record AnswerEvaluation(AnswerFeedback feedback,
+                               String source,
+                               long promptTokens,
+                               long savedPromptTokens,
+                               long latencyMs,
+                               Long savedLatencyMs,
+                               String error) {
+
+    /**
+     * @param source how grading was attempted
+     * @param error the failure
+     * @return an answer that could not be graded
+     */
+    public static AnswerEvaluation failed(String source, Throwable error) {
+        return new AnswerEvaluation(null, source, 0, 0, 0, null, error.getMessage());
+    }
+}
@@ -0,0 +1,11 @@
+package com.command.buddy.client;
+
+/**
+ * One answer to grade in a batch
+ *
+ * @param toolName the name of the tool
+ * @param question the quiz question that was asked
+ * @param answer the command provided by the user
+ */
+public record AnswerItem(String toolName, String question, String answer) {
+}
@@ -0,0 +1,292 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Grades many answers in as few LLM calls as the budgets allow.
+ *
+ * Answers are packed in order into batches of at most
+ * {@code llm.batch.max-items}, whose prompt fits in
+ * {@code llm.batch.max-input-tokens} and whose replies, at
+ * {@code llm.batch.output-tokens-per-item} each, fit in
+ * {@code llm.batch.max-output-tokens}. Each batch is one JSON-mode call
+ * sharing a single system prompt, and the verdicts are matched back to the
+ * answers by id. Answers whose verdict is missing or unreadable, and every
+ * answer of a batch whose call failed, are graded one at a time through
+ * {@link GroqClient}. Batches of one go that way directly. Those single
+ * calls wait in one queue shared by all requests, with at most
+ * {@code llm.batch.fallback-concurrency} in flight, so a failed batch of a
+ * large request does not start hundreds of calls at once against the
+ * bulkhead and the rate limit that interactive users share.
+ *
+ * Each answer reports the prompt tokens and time it cost, and what that
+ * saved over a call of its own. {@code llm.batch.items} counts answers by
+ * outcome and {@code llm.batch.size} records the size of the batches sent.
+ */
+@Component
+public class BatchEvaluator {
+
+    private final GroqHttpClient httpClient;
+    private final GroqRequestFactory requests;
+    private final GroqClient groqClient;
+    private final ModelRouter router;
+    private final int maxItems;
+    private final int maxInputTokens;
+    private final int maxOutputTokens;
+    private final int outputTokensPerItem;
+    private final int fallbackConcurrency;
+
+    private final ConcurrentLinkedQueue<Runnable> queuedSingles = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger singlesInFlight = new AtomicInteger();
+    // Lets one thread at a time start queued calls, however many ask
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private final Counter batched;
+    private final Counter fallbacks;
+    private final Counter failures;
+    private final DistributionSummary batchSize;
+
+    public BatchEvaluator(GroqHttpClient httpClient,
+                          GroqRequestFactory requests,
+                          GroqClient groqClient,
+                          ModelRouter router,
+                          MeterRegistry meterRegistry,
+                          @Value("${llm.batch.max-items:40}") int maxItems,
+                          @Value("${llm.batch.max-input-tokens:6000}") int maxInputTokens,
+                          @Value("${llm.batch.max-output-tokens:6000}") int maxOutputTokens,
+                          @Value("${llm.batch.output-tokens-per-item:150}") int outputTokensPerItem,
+                          @Value("${llm.batch.fallback-concurrency:4}") int fallbackConcurrency) {
+        this.httpClient = httpClient;
+        this.requests = requests;
+        this.groqClient = groqClient;
+        this.router = router;
+        this.maxItems = Math.max(1, Math.min(maxItems, maxOutputTokens / outputTokensPerItem));
+        this.maxInputTokens = maxInputTokens;
+        this.maxOutputTokens = maxOutputTokens;
+        this.outputTokensPerItem = outputTokensPerItem;
+        this.fallbackConcurrency = Math.max(1, fallbackConcurrency);
+
+        this.batched = itemCounter(meterRegistry, "batched");
+        this.fallbacks = itemCounter(meterRegistry, "fallback");
+        this.failures = itemCounter(meterRegistry, "failed");
+        this.batchSize = DistributionSummary.builder("llm.batch.size")
+            .description("Answers graded per batch call")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Grade answers, batching them where possible
+     *
+     * @param items the answers to grade
+     * @return a future completed with one evaluation per answer, in the same order;
+     *         answers that could not be graded carry an error instead of failing the rest
+     */
+    public CompletableFuture<List<AnswerEvaluation>> evaluate(List<AnswerItem> items) {
+        AnswerEvaluation[] results = new AnswerEvaluation[items.size()];
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (List<Integer> batch : pack(items)) {
+            calls.add(batch.size() == 1
+                ? queued(() -> single(items, batch.get(0), results))
+                : batch(items, batch, results));
+        }
+        return CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> Arrays.asList(results));
+    }
+
+    /**
+     * The evaluation of an answer that was graded without calling the LLM
+     *
+     * @param source how it was graded
+     * @param feedback the evaluation
+     * @param item the answer
+     * @return the evaluation, which saved a whole call
+     */
+    public AnswerEvaluation withoutCall(String source, AnswerFeedback feedback, AnswerItem item) {
+        Duration typical = router.typicalLatency(LlmOperation.EVALUATE_ANSWER);
+        return new AnswerEvaluation(feedback, source, 0, requests.evaluationTokens(item), 0,
+            typical != null ? typical.toMillis() : null, null);
+    }
+
+    /**
+     * Split the answers, in order, into batches that fit the budgets
+     */
+    private List<List<Integer>> pack(List<AnswerItem> items) {
+        int overhead = requests.batchOverheadTokens();
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int tokens = overhead;
+        for (int i = 0; i < items.size(); i++) {
+            int itemTokens = requests.batchItemTokens(current.size() + 1, items.get(i));
+            if (!current.isEmpty() && (current.size() == maxItems || tokens + itemTokens > maxInputTokens)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                tokens = overhead;
+                itemTokens = requests.batchItemTokens(1, items.get(i));
+            }
+            current.add(i);
+            tokens += itemTokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private CompletableFuture<Void> batch(List<AnswerItem> items, List<Integer> indexes, AnswerEvaluation[] results) {
+        List<AnswerItem> batch = indexes.stream().map(items::get).toList();
+        ChatRequest request;
+        try {
+            request = requests.evaluateAnswers(batch, maxInputTokens,
+                Math.min(maxOutputTokens, batch.size() * outputTokensPerItem));
+        } catch (PromptTooLongException e) {
+            // The estimate while packing is per item; fall back rather than fail the batch
+            return fallBack(items, indexes, results);
+        }
+        batchSize.record(batch.size());
+
+        long start = System.nanoTime();
+        return httpClient.chatCompletion(LlmOperation.EVALUATE_BATCH, request)
+            .handle((completion, error) -> {
+                if (error != null) {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof LlmUnavailableException) {
+                        // Single calls would be turned away too
+                        for (int index : indexes) {
+                            results[index] = AnswerEvaluation.failed("batch", cause);
+                        }
+                        failures.increment(indexes.size());
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    return fallBack(items, indexes, results);
+                }
+
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Map<Integer, AnswerFeedback> verdicts = BatchVerdictParser.parse(completion.content());
+                long promptTokens = completion.usage() != null
+                    ? completion.usage().promptTokens()
+                    : TokenEstimator.estimate(request);
+                Duration typical = router.typicalLatency(LlmOperation.EVALUATE_ANSWER);
+
+                // Each answer pays for its own lines and an equal part of the shared prompt
+                int overhead = requests.batchOverheadTokens();
+                long[] itemTokens = new long[batch.size()];
+                long estimated = overhead;
+                for (int i = 0; i < batch.size(); i++) {
+                    itemTokens[i] = requests.batchItemTokens(i + 1, batch.get(i));
+                    estimated += itemTokens[i];
+                }
+
+                List<Integer> missing = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    AnswerFeedback feedback = verdicts.get(i + 1);
+                    if (feedback == null) {
+                        missing.add(indexes.get(i));
+                        continue;
+                    }
+                    double share = (itemTokens[i] + (double) overhead / batch.size()) / estimated;
+                    long itemPromptTokens = Math.round(promptTokens * share);
+                    long itemLatencyMs = latencyMs / batch.size();
+                    results[indexes.get(i)] = new AnswerEvaluation(feedback, "batch",
+                        itemPromptTokens,
+                        requests.evaluationTokens(batch.get(i)) - itemPromptTokens,
+                        itemLatencyMs,
+                        typical != null ? typical.toMillis() - itemLatencyMs : null,
+                        null);
+                }
+                batched.increment(batch.size() - missing.size());
+                return fallBack(items, missing, results);
+            })
+            .thenCompose(fallback -> fallback);
+    }
+
+    private CompletableFuture<Void> fallBack(List<AnswerItem> items, List<Integer> indexes, AnswerEvaluation[] results) {
+        fallbacks.increment(indexes.size());
+        return CompletableFuture.allOf(indexes.stream()
+            .map(index -> queued(() -> single(items, index, results)))
+            .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Run a single call once fewer than {@code llm.batch.fallback-concurrency} are in flight
+     *
+     * @param call starts the call; its future never fails
+     * @return a future completed when the call has finished
+     */
+    private CompletableFuture<Void> queued(Supplier<CompletableFuture<Void>> call) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queuedSingles.add(() -> call.get().whenComplete((ignored, error) -> {
+            singlesInFlight.decrementAndGet();
+            done.complete(null);
+            drainSingles();
+        }));
+        drainSingles();
+        return done;
+    }
+
+    private void drainSingles() {
+        if (drainRequests.getAndIncrement() != 0) {
+            // The thread already draining goes round once more
+            return;
+        }
+        do {
+            while (singlesInFlight.get() < fallbackConcurrency) {
+                Runnable next = queuedSingles.poll();
+                if (next == null) {
+                    break;
+                }
+                singlesInFlight.incrementAndGet();
+                next.run();
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private CompletableFuture<Void> single(List<AnswerItem> items, int index, AnswerEvaluation[] results) {
+        AnswerItem item = items.get(index);
+        long start = System.nanoTime();
+        CompletableFuture<AnswerFeedback> call;
+        try {
+            call = groqClient.evaluateCommandAnswerAsync(item.toolName(), item.question(), item.answer());
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((feedback, error) -> {
+            if (error != null) {
+                failures.increment();
+                results[index] = AnswerEvaluation.failed("single", unwrap(error));
+            } else {
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                results[index] = new AnswerEvaluation(feedback, "single",
+                    requests.evaluationTokens(item), 0, latencyMs, 0L, null);
+            }
+            return null;
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static Counter itemCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("llm.batch.items")
+            .description("Answers submitted for batch grading, by how they were graded")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,131 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits the reply to a batch evaluation into one feedback per item.
+ *
+ * The reply is {@code {"results":[{"id":1,"verdict":"CORRECT","reason":...,"command":...,"tip":...}]}}.
+ * Each result becomes the same {@link AnswerFeedback} a single evaluation
+ * is read into, so callers cannot tell the two apart. Results without a
+ * known verdict are dropped, and a reply that is not JSON yields none, so
+ * their items can be graded one at a time instead.
+ */
+final class BatchVerdictParser {
+
+    private static final byte[] RESULTS = ascii("results");
+    private static final byte[] ID = ascii("id");
+    private static final byte[] VERDICT = ascii("verdict");
+    private static final byte[] REASON = ascii("reason");
+    private static final byte[] COMMAND = ascii("command");
+    private static final byte[] TIP = ascii("tip");
+
+    private BatchVerdictParser() {
+    }
+
+    /**
+     * @param content the completion text
+     * @return the feedback of each result that could be read, by item id
+     */
+    static Map<Integer, AnswerFeedback> parse(String content) {
+        Map<Integer, AnswerFeedback> feedback = new HashMap<>();
+        if (content == null) {
+            return feedback;
+        }
+        // Some models still fence JSON in markdown
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            return feedback;
+        }
+
+        try {
+            JsonScanner scanner = new JsonScanner(content.substring(start, end + 1).getBytes(StandardCharsets.UTF_8));
+            if (scanner.next() != JsonScanner.Token.START_OBJECT) {
+                return feedback;
+            }
+            while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+                if (scanner.nameEquals(RESULTS)) {
+                    readResults(scanner, feedback);
+                } else {
+                    scanner.skipValue();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep whatever was read before the reply went wrong
+        }
+        return feedback;
+    }
+
+    private static void readResults(JsonScanner scanner, Map<Integer, AnswerFeedback> feedback) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_ARRAY) {
+            if (token == JsonScanner.Token.START_OBJECT) {
+                scanner.skipContainer();
+            }
+            return;
+        }
+
+        while ((token = scanner.next()) != JsonScanner.Token.END_ARRAY && token != JsonScanner.Token.END) {
+            if (token != JsonScanner.Token.START_OBJECT) {
+                if (token == JsonScanner.Token.START_ARRAY) {
+                    scanner.skipContainer();
+                }
+                continue;
+            }
+
+            Integer id = null;
+            AnswerFeedback.Verdict verdict = null;
+            String reason = null;
+            String command = null;
+            String tip = null;
+            while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+                if (scanner.nameEquals(ID)) {
+                    id = readId(scanner);
+                } else if (scanner.nameEquals(VERDICT)) {
+                    verdict = StructuredOutputs.verdict(StructuredOutputs.readString(scanner));
+                } else if (scanner.nameEquals(REASON)) {
+                    reason = StructuredOutputs.readString(scanner);
+                } else if (scanner.nameEquals(COMMAND)) {
+                    command = StructuredOutputs.readString(scanner);
+                } else if (scanner.nameEquals(TIP)) {
+                    tip = StructuredOutputs.readString(scanner);
+                } else {
+                    scanner.skipValue();
+                }
+            }
+
+            if (id != null && verdict != null) {
+                feedback.put(id, new AnswerFeedback(verdict, StructuredOutputs.blankToNull(reason),
+                    verdict == AnswerFeedback.Verdict.CORRECT ? null : StructuredOutputs.blankToNull(command),
+                    StructuredOutputs.blankToNull(tip)));
+            }
+        }
+    }
+
+    private static Integer readId(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token == JsonScanner.Token.NUMBER) {
+            return (int) scanner.longValue();
+        }
+        if (token == JsonScanner.Token.STRING) {
+            try {
+                return Integer.valueOf(scanner.stringValue().strip());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (token == JsonScanner.Token.START_OBJECT || token == JsonScanner.Token.START_ARRAY) {
+            scanner.skipContainer();
+        }
+        return null;
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
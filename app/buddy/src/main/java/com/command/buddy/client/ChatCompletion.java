@@ -0,0 +1,16 @@
+package com.command.buddy.client;
+
+/**
+ * The parts of a chat completion response the service uses
+ *
+ * @param content the text of the first choice
+ * @param usage token accounting, null if the response did not include it
+ */
+public record ChatCompletion(String content, Usage usage) {
+
+    /**
+     * Token accounting reported by the API
+     */
+    public record Usage(long promptTokens, long completionTokens, long totalTokens) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.command.buddy.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pulls the first choice's content and the token usage out of chat
+ * completion responses, skipping everything else without building a tree
+ */
+public final class ChatCompletionParser {
+
+    private static final byte[] CHOICES = ascii("choices");
+    private static final byte[] MESSAGE = ascii("message");
+    private static final byte[] DELTA = ascii("delta");
+    private static final byte[] CONTENT = ascii("content");
+    private static final byte[] USAGE = ascii("usage");
+    private static final byte[] X_GROQ = ascii("x_groq");
+    private static final byte[] PROMPT_TOKENS = ascii("prompt_tokens");
+    private static final byte[] COMPLETION_TOKENS = ascii("completion_tokens");
+    private static final byte[] TOTAL_TOKENS = ascii("total_tokens");
+
+    private ChatCompletionParser() {
+    }
+
+    /**
+     * Parse a complete (non-streamed) response body
+     *
+     * @param json the response body
+     * @return the content of {@code choices[0].message} and the usage
+     */
+    public static ChatCompletion parse(byte[] json) {
+        return parse(json, MESSAGE);
+    }
+
+    /**
+     * Parse one {@code data:} payload of a streamed response
+     *
+     * @param json the chunk
+     * @return the content of {@code choices[0].delta}, which may be null, and the usage if present,
+     *         either at the top level or in {@code x_groq}
+     */
+    public static ChatCompletion parseChunk(byte[] json) {
+        return parse(json, DELTA);
+    }
+
+    private static ChatCompletion parse(byte[] json, byte[] messageField) {
+        JsonScanner scanner = new JsonScanner(json);
+        if (scanner.next() != JsonScanner.Token.START_OBJECT) {
+            throw new IllegalArgumentException("Chat completion response is not a JSON object");
+        }
+
+        String content = null;
+        ChatCompletion.Usage usage = null;
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(CHOICES)) {
+                content = readFirstChoice(scanner, messageField);
+            } else if (scanner.nameEquals(USAGE)) {
+                usage = readUsage(scanner);
+            } else if (scanner.nameEquals(X_GROQ)) {
+                ChatCompletion.Usage groqUsage = readGroqExtension(scanner);
+                usage = groqUsage != null ? groqUsage : usage;
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return new ChatCompletion(content, usage);
+    }
+
+    /**
+     * Groq reports the usage of a streamed response in {@code x_groq.usage}
+     * of the last chunk
+     */
+    private static ChatCompletion.Usage readGroqExtension(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_OBJECT) {
+            if (token == JsonScanner.Token.START_ARRAY) {
+                scanner.skipContainer();
+            }
+            return null;
+        }
+
+        ChatCompletion.Usage usage = null;
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(USAGE)) {
+                usage = readUsage(scanner);
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return usage;
+    }
+
+    private static String readFirstChoice(JsonScanner scanner, byte[] messageField) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_ARRAY) {
+            if (token == JsonScanner.Token.START_OBJECT) {
+                scanner.skipContainer();
+            }
+            return null;
+        }
+
+        String content = null;
+        boolean first = true;
+        while ((token = scanner.next()) != JsonScanner.Token.END_ARRAY) {
+            if (token != JsonScanner.Token.START_OBJECT) {
+                continue;
+            }
+            if (!first) {
+                scanner.skipContainer();
+                continue;
+            }
+            first = false;
+            while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+                if (scanner.nameEquals(messageField)) {
+                    content = readContent(scanner);
+                } else {
+                    scanner.skipValue();
+                }
+            }
+        }
+        return content;
+    }
+
+    private static String readContent(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_OBJECT) {
+            if (token == JsonScanner.Token.START_ARRAY) {
+                scanner.skipContainer();
+            }
+            return null;
+        }
+
+        String content = null;
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(CONTENT)) {
+                if (scanner.next() == JsonScanner.Token.STRING) {
+                    content = scanner.stringValue();
+                }
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return content;
+    }
+
+    private static ChatCompletion.Usage readUsage(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_OBJECT) {
+            if (token == JsonScanner.Token.START_ARRAY) {
+                scanner.skipContainer();
+            }
+            return null;
+        }
+
+        long prompt = 0;
+        long completion = 0;
+        long total = 0;
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(PROMPT_TOKENS)) {
+                scanner.next();
+                prompt = scanner.longValue();
+            } else if (scanner.nameEquals(COMPLETION_TOKENS)) {
+                scanner.next();
+                completion = scanner.longValue();
+            } else if (scanner.nameEquals(TOTAL_TOKENS)) {
+                scanner.next();
+                total = scanner.longValue();
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return new ChatCompletion.Usage(prompt, completion, total);
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,18 @@
+package com.command.buddy.client;
+
+/**
+ * One message of a chat completion request
+ *
+ * @param role system, user or assistant
+ * @param content the message text
+ */
+public record ChatMessage(String role, String content) {
+
+    public static ChatMessage system(String content) {
+        return new ChatMessage("system", content);
+    }
+
+    public static ChatMessage user(String content) {
+        return new ChatMessage("user", content);
+    }
+}
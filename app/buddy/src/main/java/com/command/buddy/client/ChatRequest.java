@@ -0,0 +1,126 @@
+package com.command.buddy.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An immutable chat completion request
+ *
+ * @param model the model to run
+ * @param messages the conversation, usually a system and a user message
+ * @param temperature sampling temperature
+ * @param topP nucleus sampling, null to use the API default
+ * @param frequencyPenalty null to use the API default
+ * @param presencePenalty null to use the API default
+ * @param maxTokens cap on the tokens generated, null for no cap
+ * @param stream whether tokens are streamed back as server-sent events
+ * @param jsonMode whether the reply is constrained to a JSON object
+ */
+public record ChatRequest(String model,
+                          List<ChatMessage> messages,
+                          double temperature,
+                          Double topP,
+                          Double frequencyPenalty,
+                          Double presencePenalty,
+                          Integer maxTokens,
+                          boolean stream,
+                          boolean jsonMode) {
+
+    public ChatRequest {
+        messages = List.copyOf(messages);
+    }
+
+    /**
+     * A request for a free text reply
+     */
+    public ChatRequest(String model, List<ChatMessage> messages, double temperature, Double topP,
+                       Double frequencyPenalty, Double presencePenalty, Integer maxTokens, boolean stream) {
+        this(model, messages, temperature, topP, frequencyPenalty, presencePenalty, maxTokens, stream, false);
+    }
+
+    /**
+     * @return the same request with streaming switched on
+     */
+    public ChatRequest streaming() {
+        return new ChatRequest(model, messages, temperature, topP, frequencyPenalty, presencePenalty, maxTokens, true, jsonMode);
+    }
+
+    /**
+     * @param model the model to run instead
+     * @return the same request for another model
+     */
+    public ChatRequest withModel(String model) {
+        return new ChatRequest(model, messages, temperature, topP, frequencyPenalty, presencePenalty, maxTokens, stream, jsonMode);
+    }
+
+    /**
+     * Serialize the request without going through a general purpose object mapper
+     *
+     * @return the UTF-8 encoded JSON body
+     */
+    public byte[] toJson() {
+        int size = 160;
+        for (ChatMessage message : messages) {
+            size += message.content().length() + 40;
+        }
+
+        StringBuilder json = new StringBuilder(size);
+        json.append("{\"model\":");
+        appendString(json, model);
+        json.append(",\"messages\":[");
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"role\":");
+            appendString(json, message.role());
+            json.append(",\"content\":");
+            appendString(json, message.content());
+            json.append('}');
+        }
+        json.append("],\"temperature\":").append(temperature);
+        appendNumber(json, "top_p", topP);
+        appendNumber(json, "frequency_penalty", frequencyPenalty);
+        appendNumber(json, "presence_penalty", presencePenalty);
+        if (maxTokens != null) {
+            json.append(",\"max_tokens\":").append(maxTokens.intValue());
+        }
+        if (stream) {
+            json.append(",\"stream\":true");
+        }
+        if (jsonMode) {
+            json.append(",\"response_format\":{\"type\":\"json_object\"}");
+        }
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendNumber(StringBuilder json, String name, Double value) {
+        if (value != null) {
+            json.append(",\"").append(name).append("\":").append(value.doubleValue());
+        }
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            json.append(value, start, i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> json.append(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        json.append(value, start, value.length()).append('"');
+    }
+}
@@ -0,0 +1,180 @@
+package com.command.buddy.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An in-flight streamed chat completion.
+ *
+ * Consumes the server-sent event lines of a {@code stream: true} response one
+ * at a time, so the upstream is only read as fast as the listener can forward
+ * tokens. Cancelling drops the subscription, which aborts the HTTP exchange
+ * and stops token generation being billed.
+ */
+public class ChatStream implements Flow.Subscriber<String> {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private final TokenListener listener;
+    private final StringBuilder content = new StringBuilder();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private volatile Flow.Subscription subscription;
+    private volatile CompletableFuture<?> exchange;
+    private volatile boolean cancelled;
+    private volatile ChatCompletion.Usage usage;
+
+    ChatStream(TokenListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * A stream that has already finished, used when the response is served without the LLM
+     *
+     * @return a stream whose cancel is a no-op
+     */
+    public static ChatStream completed() {
+        ChatStream stream = new ChatStream(null);
+        stream.finished.set(true);
+        return stream;
+    }
+
+    /**
+     * Abort the stream. The listener is not notified.
+     */
+    public void cancel() {
+        cancelled = true;
+        finished.set(true);
+        abort();
+    }
+
+    /**
+     * Stop reading the response and drop the exchange
+     */
+    private void abort() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        CompletableFuture<?> pending = exchange;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    /**
+     * @return the text received so far
+     */
+    public String content() {
+        synchronized (content) {
+            return content.toString();
+        }
+    }
+
+    /**
+     * @return whether the stream was aborted by {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the token usage sent with the last chunk, or null if none has arrived
+     */
+    public ChatCompletion.Usage usage() {
+        return usage;
+    }
+
+    void attach(CompletableFuture<?> exchange) {
+        this.exchange = exchange;
+        if (cancelled) {
+            exchange.cancel(true);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (cancelled) {
+            return;
+        }
+        if (finished.get()) {
+            subscription.request(1);
+            return;
+        }
+        if (!line.startsWith(DATA_PREFIX)) {
+            // Blank separators and comments carry no content
+            subscription.request(1);
+            return;
+        }
+
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE.equals(data)) {
+            complete();
+            // Keep reading to the end of the body so the exchange completes and releases its permit
+            subscription.request(1);
+            return;
+        }
+
+        ChatCompletion chunk;
+        try {
+            chunk = ChatCompletionParser.parseChunk(data.getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            // The upstream sent something other than a chunk; the listener hears about it
+            fail(new GroqApiException("Malformed chunk in the Groq API stream", e));
+            abort();
+            return;
+        }
+        if (chunk.usage() != null) {
+            usage = chunk.usage();
+        }
+        String token = chunk.content();
+        if (token != null && !token.isEmpty()) {
+            synchronized (content) {
+                content.append(token);
+            }
+            try {
+                listener.onToken(token);
+            } catch (Exception e) {
+                // The downstream is gone, stop reading from the upstream
+                cancel();
+                return;
+            }
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        fail(error);
+    }
+
+    @Override
+    public void onComplete() {
+        complete();
+    }
+
+    void fail(Throwable error) {
+        if (finished.compareAndSet(false, true)) {
+            listener.onError(error);
+        }
+    }
+
+    private void complete() {
+        if (finished.compareAndSet(false, true)) {
+            listener.onComplete();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.command.buddy.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A generated quiz question and the commands that answer it.
+ *
+ * The question prompt asks for one {@code QUESTION:} line followed by one
+ * {@code ANSWER:} line per accepted command. A reply that ignores the format
+ * is kept whole as the question, with no answers.
+ *
+ * @param text the question shown to the user
+ * @param answers commands that correctly answer it, possibly empty
+ */
+public record GeneratedQuestion(String text, List<String> answers) {
+
+    private static final String QUESTION = "question:";
+    private static final String ANSWER = "answer:";
+
+    public GeneratedQuestion {
+        answers = List.copyOf(answers);
+    }
+
+    /**
+     * @param content the completion text
+     * @return the question and its answers
+     */
+    public static GeneratedQuestion parse(String content) {
+        if (content == null) {
+            return new GeneratedQuestion(null, List.of());
+        }
+
+        StringBuilder question = new StringBuilder();
+        List<String> answers = new ArrayList<>();
+        boolean labelled = false;
+        for (String line : content.strip().split("\\R")) {
+            String trimmed = line.strip();
+            String lower = trimmed.toLowerCase(Locale.ROOT);
+            if (lower.startsWith(ANSWER)) {
+                String answer = unquote(trimmed.substring(ANSWER.length()));
+                if (!answer.isEmpty()) {
+                    answers.add(answer);
+                }
+            } else if (lower.startsWith(QUESTION)) {
+                labelled = true;
+                question.setLength(0);
+                question.append(trimmed.substring(QUESTION.length()).strip());
+            } else if (!trimmed.isEmpty() && (!labelled || answers.isEmpty())) {
+                // Continuation of a question that spans several lines
+                question.append(question.isEmpty() ? "" : " ").append(trimmed);
+            }
+        }
+        return new GeneratedQuestion(question.toString(), answers);
+    }
+
+    // Models like to wrap commands in backticks
+    private static String unquote(String answer) {
+        String stripped = answer.strip();
+        while (stripped.length() >= 2 && stripped.startsWith("`") && stripped.endsWith("`")) {
+            stripped = stripped.substring(1, stripped.length() - 1).strip();
+        }
+        return stripped;
+    }
+}
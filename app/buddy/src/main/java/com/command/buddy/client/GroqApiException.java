@@ -0,0 +1,27 @@
+package com.command.buddy.client;
+
+/**
+ * Raised when the Groq API answers with a non-success status or a body
+ * that does not contain a completion
+ */
+public class GroqApiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public GroqApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public GroqApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    /**
+     * @return the HTTP status returned by the API, or 0 if the failure was not an HTTP error
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
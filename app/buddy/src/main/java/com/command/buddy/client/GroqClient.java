@@ -1,83 +1,62 @@
 package com.command.buddy.client;
 
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.model.CommandExplanation;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Client for interacting with Groq's LLM API
+ *
+ * Every operation has a non-blocking variant returning a {@link CompletableFuture};
+ * the blocking variants simply wait on it, which is cheap on a virtual thread.
+ * Evaluations and explanations are requested in JSON mode and returned as
+ * typed records; their streamed variants stay free text.
  */
 @Component
 public class GroqClient {
 
-    @Value("${groq.api.key}")
-    private String apiKey;
+    private final GroqHttpClient httpClient;
+    private final GroqRequestFactory requests;
 
-    @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}")
-    private String apiUrl;
+    // Evaluate and explain are deterministic enough to share one call between identical requests
+    private final SingleFlight<AnswerFeedback> evaluations;
+    private final SingleFlight<CommandExplanation> explanations;
     
-    private final RestTemplate restTemplate;
-    private final Random random = new Random();
-    
-    public GroqClient() {
-        this.restTemplate = new RestTemplate();
+    public GroqClient(GroqHttpClient httpClient,
+                      GroqRequestFactory requests,
+                      MeterRegistry meterRegistry,
+                      @Value("${llm.single-flight.timeout:90s}") Duration singleFlightTimeout) {
+        this.httpClient = httpClient;
+        this.requests = requests;
+        this.evaluations = new SingleFlight<>(LlmOperation.EVALUATE_ANSWER.tag(), singleFlightTimeout, meterRegistry);
+        this.explanations = new SingleFlight<>(LlmOperation.EXPLAIN_COMMAND.tag(), singleFlightTimeout, meterRegistry);
     }
     
     /**
      * Generate a command quiz question for a specific tool
      *
      * @param toolName the name of the tool (e.g., git, docker, kubernetes)
-     * @return a quiz question about using the tool
+     * @return a quiz question about using the tool, with the commands that answer it
      */
-    public String generateCommandQuestion(String toolName) {
-        // Add a timestamp to ensure uniqueness in the prompt
-        long timestamp = System.currentTimeMillis();
-        int randomNum = ThreadLocalRandom.current().nextInt(1, 10000);
-        
-        // Different task types for command categories
-        String[] taskTypes = {
-            "creating/configuring", "managing", "inspecting", "modifying", 
-            "troubleshooting", "advanced usage", "optimization", "automation", 
-            "security", "networking", "resource management", "cleanup tasks"
-        };
-        
-        // Randomly select 3-5 task types to focus on
-        int numTasksToUse = ThreadLocalRandom.current().nextInt(3, 6);
-        StringBuilder selectedTasks = new StringBuilder();
-        for (int i = 0; i < numTasksToUse; i++) {
-            int taskIndex = ThreadLocalRandom.current().nextInt(taskTypes.length);
-            selectedTasks.append(taskTypes[taskIndex]);
-            if (i < numTasksToUse - 1) {
-                selectedTasks.append(", ");
-            }
-        }
-        
-        String prompt = String.format(
-            "You are a command line tutor helping users learn %s commands. " +
-            "Session ID: %d-%d. " +
-            "Generate a NEW, UNIQUE practical question that asks the user to provide a specific %s command. " +
-            "Each question should be completely different from previous ones. " +
-            "Focus on these %s operations: %s. " +
-            "Format your response as a clear, concise question only. " +
-            "Do not provide the answer or any hints. " +
-            "Make sure the question is practical and realistic for real-world scenarios. " +
-            "Ensure the question is completely different from any previous questions.",
-            toolName, timestamp, randomNum, toolName, toolName, selectedTasks.toString()
-        );
-        
-        // High temperature for maximum variety
-        double randomizedTemp = 0.8 + (random.nextDouble() * 0.2); // Between 0.8 and 1.0
-        return callGroqApi(prompt, randomizedTemp);
+    public GeneratedQuestion generateCommandQuestion(String toolName) {
+        return await(generateCommandQuestionAsync(toolName));
+    }
+
+    /**
+     * Generate a command quiz question for a specific tool without blocking
+     *
+     * @param toolName the name of the tool (e.g., git, docker, kubernetes)
+     * @return a future completed with the quiz question and the commands that answer it
+     */
+    public CompletableFuture<GeneratedQuestion> generateCommandQuestionAsync(String toolName) {
+        return callGroqApi(LlmOperation.GENERATE_QUESTION, requests.generateQuestion(toolName))
+            .thenApply(GeneratedQuestion::parse);
     }
     
     /**
@@ -86,21 +65,39 @@ public class GroqClient {
      * @param toolName the name of the tool
      * @param question the quiz question that was asked
      * @param userAnswer the command provided by the user
-     * @return evaluation of the answer with explanation
+     * @return the verdict, with why and the right command
+     */
+    public AnswerFeedback evaluateCommandAnswer(String toolName, String question, String userAnswer) {
+        return await(evaluateCommandAnswerAsync(toolName, question, userAnswer));
+    }
+
+    /**
+     * Evaluate a user's command answer against a question without blocking
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @return a future completed with the evaluation
+     */
+    public CompletableFuture<AnswerFeedback> evaluateCommandAnswerAsync(String toolName, String question, String userAnswer) {
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, userAnswer);
+        return evaluations.execute(key,
+            () -> callGroqApi(LlmOperation.EVALUATE_ANSWER, requests.evaluateAnswerJson(toolName, question, userAnswer))
+                .thenApply(StructuredOutputs::parseFeedback));
+    }
+
+    /**
+     * Stream the evaluation of a user's command answer token by token
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @param listener receives the generated tokens
+     * @return the in-flight stream
      */
-    public String evaluateCommandAnswer(String toolName, String question, String userAnswer) {
-        String prompt = String.format(
-            "Question about %s: \"%s\"\n\n" +
-            "User's answer: \"%s\"\n\n" +
-            "Evaluate if this command correctly solves the task. Respond with:\n" +
-            "1. Whether the answer is CORRECT or INCORRECT\n" +
-            "2. A brief explanation of why\n" +
-            "3. If incorrect, the proper command\n" +
-            "4. A tip for remembering this command",
-            toolName, question, userAnswer
-        );
-        
-        return callGroqApi(prompt, 0.3);
+    public ChatStream streamCommandEvaluation(String toolName, String question, String userAnswer, TokenListener listener) {
+        return httpClient.streamChatCompletion(LlmOperation.EVALUATE_ANSWER,
+            requests.evaluateAnswer(toolName, question, userAnswer), listener);
     }
     
     /**
@@ -108,100 +105,65 @@ public class GroqClient {
      *
      * @param toolName the name of the tool
      * @param command the command to explain
-     * @return detailed explanation of the command
+     * @return the explanation, split into sections
+     */
+    public CommandExplanation explainCommand(String toolName, String command) {
+        return await(explainCommandAsync(toolName, command));
+    }
+
+    /**
+     * Generate an explanation for a command without blocking
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @return a future completed with the explanation
+     */
+    public CompletableFuture<CommandExplanation> explainCommandAsync(String toolName, String command) {
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        return explanations.execute(key,
+            () -> callGroqApi(LlmOperation.EXPLAIN_COMMAND, requests.explainCommandJson(toolName, command))
+                .thenApply(StructuredOutputs::parseExplanation));
+    }
+
+    /**
+     * Stream the explanation of a command token by token
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @param listener receives the generated tokens
+     * @return the in-flight stream
      */
-    public String explainCommand(String toolName, String command) {
-        String prompt = String.format(
-            "Explain the following %s command in detail:\n\n" +
-            "%s\n\n" +
-            "Include:\n" +
-            "1. What this command does\n" +
-            "2. Breakdown of each part/flag\n" +
-            "3. Common use cases\n" +
-            "4. Any potential gotchas or warnings\n" +
-            "Format as a concise explanation.",
-            toolName, command
-        );
-        
-        return callGroqApi(prompt, 0.3);
+    public ChatStream streamCommandExplanation(String toolName, String command, TokenListener listener) {
+        return httpClient.streamChatCompletion(LlmOperation.EXPLAIN_COMMAND,
+            requests.explainCommand(toolName, command), listener);
     }
     
     /**
-     * Call the Groq API with the given prompt
+     * Call the Groq API with the given request
+     *
+     * @param operation the operation the call is made for
+     * @param request the chat completion request
+     * @return a future completed with the response from the API
+     */
+    private CompletableFuture<String> callGroqApi(LlmOperation operation, ChatRequest request) {
+        return httpClient.chatCompletion(operation, request)
+            .thenApply(ChatCompletion::content);
+    }
+
+    /**
+     * Wait for a call to finish, rethrowing its failure
      *
-     * @param prompt the prompt to send to the API
-     * @param temperature the temperature parameter (0.0 to 1.0)
-     * @return the response from the API
+     * @param call the pending API call
+     * @return the response
      */
-    private String callGroqApi(String prompt, double temperature) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", "Bearer " + apiKey);
-        
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "llama-3.3-70b-versatile");
-        
-        List<Map<String, String>> messages = new ArrayList<>();
-        
-        // Ensure uniqueness with detailed system message
-        long uniqueId = System.currentTimeMillis();
-        int randomValue = ThreadLocalRandom.current().nextInt(1, 10000);
-        
-        // Add a system message to guide the LLM to provide diverse responses
-        Map<String, String> systemMessage = new HashMap<>();
-        systemMessage.put("role", "system");
-        systemMessage.put("content", String.format(
-            "You are a command line education assistant. Request ID: %d-%d. " +
-            "Provide diverse, unique responses and NEVER repeat the same question twice. " +
-            "Generate questions that cover different aspects and complexity levels. " +
-            "Current timestamp: %d. " +
-            "Ensure each question is unique by varying the difficulty, concepts, and specificity. " +
-            "Always generate a different question than any you've generated before.",
-            uniqueId, randomValue, System.currentTimeMillis()
-        ));
-        messages.add(systemMessage);
-        
-        // Add the user prompt
-        Map<String, String> userMessage = new HashMap<>();
-        userMessage.put("role", "user");
-        userMessage.put("content", prompt);
-        messages.add(userMessage);
-        
-        requestBody.put("messages", messages);
-        requestBody.put("temperature", temperature);
-        
-        // Randomize parameters for more variety
-        double topP = 0.9 + (random.nextDouble() * 0.1); // Between 0.9 and 1.0
-        double freqPenalty = 0.4 + (random.nextDouble() * 0.4); // Between 0.4 and 0.8
-        double presPenalty = 0.4 + (random.nextDouble() * 0.4); // Between 0.4 and 0.8
-        
-        requestBody.put("top_p", topP);
-        requestBody.put("frequency_penalty", freqPenalty);
-        requestBody.put("presence_penalty", presPenalty);
-        
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-        
+    private <T> T await(CompletableFuture<T> call) {
         try {
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                apiUrl, 
-                org.springframework.http.HttpMethod.POST,
-                request, 
-                new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {}
-            );
-            
-            if (response.getBody() != null && response.getBody().containsKey("choices")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.getBody().get("choices");
-                if (!choices.isEmpty()) {
-                    Map<String, Object> firstChoice = choices.get(0);
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> responseMessage = (Map<String, String>) firstChoice.get("message");
-                    return responseMessage.get("content");
-                }
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
-            return "Error: Unable to process response from Groq API.";
-        } catch (Exception e) {
-            return "Error calling Groq API: " + e.getMessage();
+            throw e;
         }
     }
 }
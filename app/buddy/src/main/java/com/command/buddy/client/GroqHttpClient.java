@@ -0,0 +1,180 @@
+package com.command.buddy.client;
+
+import com.command.buddy.resilience.LlmResilience;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking transport for Groq's chat completions API.
+ *
+ * Sits on a single shared {@link HttpClient}, which keeps a pool of
+ * keep-alive connections and multiplexes requests over HTTP/2. Callbacks
+ * run on virtual threads so no platform thread is held while waiting on
+ * the LLM. Every request goes through {@link LlmResilience} first, and
+ * {@link ModelRouter} picks the model and endpoint it is sent to.
+ */
+@Component
+public class GroqHttpClient {
+
+    private final HttpClient httpClient;
+    private final LlmResilience resilience;
+    private final ModelRouter router;
+    private final LlmMetrics metrics;
+    private final String apiKey;
+    private final Duration readTimeout;
+
+    public GroqHttpClient(LlmResilience resilience,
+                          ModelRouter router,
+                          LlmMetrics metrics,
+                          @Value("${groq.api.key}") String apiKey,
+                          @Value("${groq.http.connect-timeout:5s}") Duration connectTimeout,
+                          @Value("${groq.http.read-timeout:60s}") Duration readTimeout) {
+        this.resilience = resilience;
+        this.router = router;
+        this.metrics = metrics;
+        this.apiKey = apiKey;
+        this.readTimeout = readTimeout;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    /**
+     * Send a chat completion request. Completions have no side effects, so
+     * transient failures are retried, and slow ones may be hedged onto
+     * another route.
+     *
+     * @param operation the operation the request is made for
+     * @param chatRequest the request; its model is replaced by the route's
+     * @return a future completed with the first choice and the token usage
+     */
+    public CompletableFuture<ChatCompletion> chatCompletion(LlmOperation operation, ChatRequest chatRequest) {
+        return router.execute(operation, route -> send(operation, route, chatRequest.withModel(route.model())));
+    }
+
+    /**
+     * One attempt on one route. Cancelling the returned future aborts the
+     * exchange in flight, which is how the loser of a hedge is stopped.
+     */
+    private CompletableFuture<ChatCompletion> send(LlmOperation operation, LlmRoute route, ChatRequest chatRequest) {
+        HttpRequest request = newRequest(route.uri(), chatRequest).build();
+        CompletableFuture<ChatCompletion> attempt = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> exchange = new AtomicReference<>();
+
+        Timer.Sample sample = metrics.start();
+        resilience.execute(operation, () -> {
+                if (attempt.isDone()) {
+                    return CompletableFuture.<HttpResponse<byte[]>>failedFuture(new CancellationException());
+                }
+                CompletableFuture<HttpResponse<byte[]>> sent =
+                    httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                exchange.set(sent);
+                return sent;
+            })
+            .thenApply(this::parseCompletion)
+            .whenComplete((completion, error) -> {
+                if (completion != null) {
+                    attempt.complete(completion);
+                } else {
+                    attempt.completeExceptionally(error);
+                }
+            });
+
+        attempt.whenComplete((completion, error) -> {
+            if (attempt.isCancelled()) {
+                CompletableFuture<?> sent = exchange.get();
+                if (sent != null) {
+                    sent.cancel(true);
+                }
+            }
+            metrics.record(sample, operation, route.model(), false, error);
+            if (completion != null) {
+                metrics.recordUsage(operation, route.model(), completion.usage());
+            }
+        });
+        return attempt;
+    }
+
+    /**
+     * Send a chat completion request with {@code stream: true} and forward
+     * the generated tokens as they arrive. Streams are not retried or hedged
+     * since tokens may already have been forwarded; they always go to the
+     * operation's primary route.
+     *
+     * @param operation the operation the request is made for
+     * @param chatRequest the request, sent with streaming switched on
+     * @param listener receives the tokens
+     * @return the in-flight stream, which can be cancelled to abort the request
+     * @throws LlmUnavailableException if the request cannot be admitted
+     */
+    public ChatStream streamChatCompletion(LlmOperation operation, ChatRequest chatRequest, TokenListener listener) {
+        LlmRoute route = router.primary(operation);
+        HttpRequest request = newRequest(route.uri(), chatRequest.withModel(route.model()).streaming())
+            .header("Accept", "text/event-stream")
+            .build();
+
+        Timer.Sample sample = metrics.start();
+        LlmResilience.Permit permit;
+        try {
+            permit = resilience.acquire(operation);
+        } catch (LlmUnavailableException e) {
+            metrics.record(sample, operation, route.model(), true, e);
+            throw e;
+        }
+        ChatStream stream = new ChatStream(listener);
+        CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(permit.delay().toNanos(), TimeUnit.NANOSECONDS))
+            .thenCompose(ignored -> {
+                CompletableFuture<HttpResponse<Void>> exchange = httpClient.sendAsync(request, info ->
+                    info.statusCode() / 100 == 2
+                        ? HttpResponse.BodySubscribers.fromLineSubscriber(stream)
+                        : HttpResponse.BodySubscribers.replacing(null));
+                stream.attach(exchange);
+                return exchange;
+            })
+            .whenComplete((response, error) -> {
+                LlmResilience.Failure failure = error != null ? permit.onError(error) : permit.onResponse(response);
+                if (failure != null) {
+                    stream.fail(failure.exception());
+                }
+                metrics.record(sample, operation, route.model(), true,
+                    failure != null ? failure.exception() : stream.isCancelled() ? new CancellationException() : null);
+                metrics.recordUsage(operation, route.model(), stream.usage());
+            });
+        return stream;
+    }
+
+    private HttpRequest.Builder newRequest(URI uri, ChatRequest chatRequest) {
+        return HttpRequest.newBuilder(uri)
+            .timeout(readTimeout)
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Bearer " + apiKey)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(chatRequest.toJson()));
+    }
+
+    private ChatCompletion parseCompletion(HttpResponse<byte[]> response) {
+        ChatCompletion completion;
+        try {
+            completion = ChatCompletionParser.parse(response.body());
+        } catch (RuntimeException e) {
+            throw new GroqApiException("Unable to process response from Groq API.", e);
+        }
+        if (completion.content() == null) {
+            throw new GroqApiException(response.statusCode(), "Unable to process response from Groq API.");
+        }
+        return completion;
+    }
+}
@@ -0,0 +1,250 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the chat completion requests for each operation.
+ *
+ * The prompts come from the {@link PromptSet} named by
+ * {@code llm.prompts.version} and are compiled once, so building a request
+ * only fills in the variable parts. Each request is capped at the
+ * operation's {@code llm.max-tokens.*} output tokens, and its prompt is
+ * measured with {@link TokenEstimator} before it leaves: the estimate is
+ * published as {@code llm.prompt.tokens}, and a prompt over
+ * {@code llm.prompt.max-input-tokens} is rejected. Batch evaluations carry
+ * their own budgets, since how many items go in one is up to the caller.
+ *
+ * Evaluations and explanations come in two shapes: free text, which is
+ * what streams send, and JSON mode, which blocking calls read into typed
+ * records with {@link StructuredOutputs}.
+ */
+@Component
+public class GroqRequestFactory {
+
+    static final String MODEL = "llama-3.3-70b-versatile";
+
+    // Different task types for command categories
+    private static final String[] TASK_TYPES = {
+        "creating/configuring", "managing", "inspecting", "modifying",
+        "troubleshooting", "advanced usage", "optimization", "automation",
+        "security", "networking", "resource management", "cleanup tasks"
+    };
+
+    // Repeats are filtered out per user by the quiz sessions, so a moderate temperature is enough
+    private static final double QUESTION_TEMPERATURE = 0.7;
+    private static final double ANSWER_TEMPERATURE = 0.3;
+
+    // Bounds the rotation state; a tool not asked about for this many others starts over
+    private static final int MAX_TOOLS = 1024;
+
+    // Next task type of each tool, least recently asked first
+    private final LinkedHashMap<String, Integer> nextTask = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_TOOLS;
+        }
+    };
+
+    private final PromptSet prompts;
+    private final Map<LlmOperation, Integer> maxTokens = new EnumMap<>(LlmOperation.class);
+    private final int maxInputTokens;
+    private final Map<LlmOperation, DistributionSummary> promptTokens = new EnumMap<>(LlmOperation.class);
+
+    public GroqRequestFactory(MeterRegistry meterRegistry,
+                              @Value("${llm.prompts.version:v1}") String promptVersion,
+                              @Value("${llm.max-tokens.generate:300}") int generateMaxTokens,
+                              @Value("${llm.max-tokens.evaluate:400}") int evaluateMaxTokens,
+                              @Value("${llm.max-tokens.explain:800}") int explainMaxTokens,
+                              @Value("${llm.prompt.max-input-tokens:2000}") int maxInputTokens) {
+        this.prompts = PromptSet.of(promptVersion);
+        this.maxTokens.put(LlmOperation.GENERATE_QUESTION, generateMaxTokens);
+        this.maxTokens.put(LlmOperation.EVALUATE_ANSWER, evaluateMaxTokens);
+        this.maxTokens.put(LlmOperation.EXPLAIN_COMMAND, explainMaxTokens);
+        this.maxInputTokens = maxInputTokens;
+
+        for (LlmOperation operation : LlmOperation.values()) {
+            promptTokens.put(operation, DistributionSummary.builder("llm.prompt.tokens")
+                .description("Estimated prompt tokens of the requests built, before they are sent")
+                .baseUnit("tokens")
+                .tag("operation", operation.tag())
+                .tag("version", prompts.version())
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @return the prompt version requests are built with
+     */
+    public String promptVersion() {
+        return prompts.version();
+    }
+
+    /**
+     * Request for a new quiz question. Successive calls for a tool cycle
+     * through the task types, so questions spread over the whole tool.
+     *
+     * @param toolName the name of the tool
+     * @return the request
+     */
+    public ChatRequest generateQuestion(String toolName) {
+        String tool = toolName.trim().toLowerCase(Locale.ROOT);
+        int next;
+        synchronized (nextTask) {
+            next = nextTask.getOrDefault(tool, 0);
+            nextTask.put(tool, (next + 1) % TASK_TYPES.length);
+        }
+        return generateQuestion(toolName, TASK_TYPES[next]);
+    }
+
+    /**
+     * Request for a new quiz question on one kind of task
+     *
+     * @param toolName the name of the tool
+     * @param task the kind of task the question is about, e.g. "troubleshooting"
+     * @return the request
+     */
+    public ChatRequest generateQuestion(String toolName, String task) {
+        return request(LlmOperation.GENERATE_QUESTION, prompts.question().render(toolName, task), QUESTION_TEMPERATURE);
+    }
+
+    /**
+     * Request to grade an answer
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @return the request
+     */
+    public ChatRequest evaluateAnswer(String toolName, String question, String userAnswer) {
+        return request(LlmOperation.EVALUATE_ANSWER,
+            prompts.evaluation().render(toolName, question, userAnswer), ANSWER_TEMPERATURE);
+    }
+
+    /**
+     * Request to grade an answer, replying with a JSON object
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @return the request
+     */
+    public ChatRequest evaluateAnswerJson(String toolName, String question, String userAnswer) {
+        return request(LlmOperation.EVALUATE_ANSWER,
+            prompts.structuredEvaluation().render(toolName, question, userAnswer), ANSWER_TEMPERATURE,
+            maxTokens.get(LlmOperation.EVALUATE_ANSWER), maxInputTokens, true);
+    }
+
+    /**
+     * Request to grade several answers in one call. Items are numbered from 1
+     * in the order given, and the reply is a JSON object with one result per id.
+     *
+     * @param items the answers to grade
+     * @param maxInputTokens the prompt budget of the batch
+     * @param maxTokens cap on the tokens generated for the whole batch
+     * @return the request
+     */
+    public ChatRequest evaluateAnswers(List<AnswerItem> items, int maxInputTokens, int maxTokens) {
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            rendered.append(batchItem(i + 1, items.get(i)));
+        }
+        return request(LlmOperation.EVALUATE_BATCH, prompts.batchEvaluation().render(rendered.toString()),
+            ANSWER_TEMPERATURE, maxTokens, maxInputTokens, true);
+    }
+
+    /**
+     * @param item an answer
+     * @return the estimated prompt tokens of grading it on its own
+     */
+    public int evaluationTokens(AnswerItem item) {
+        return TokenEstimator.estimate(chatRequest(
+            prompts.structuredEvaluation().render(item.toolName(), item.question(), item.answer()),
+            ANSWER_TEMPERATURE, maxTokens.get(LlmOperation.EVALUATE_ANSWER), true));
+    }
+
+    /**
+     * @return the estimated prompt tokens of a batch with no items
+     */
+    public int batchOverheadTokens() {
+        return TokenEstimator.estimate(chatRequest(prompts.batchEvaluation().render(""), ANSWER_TEMPERATURE, null, true));
+    }
+
+    /**
+     * @param id the item's position in the batch, from 1
+     * @param item an answer
+     * @return the estimated tokens the item adds to a batch prompt
+     */
+    public int batchItemTokens(int id, AnswerItem item) {
+        return TokenEstimator.estimate(batchItem(id, item));
+    }
+
+    /**
+     * Request to explain a command
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @return the request
+     */
+    public ChatRequest explainCommand(String toolName, String command) {
+        return request(LlmOperation.EXPLAIN_COMMAND, prompts.explanation().render(toolName, command), ANSWER_TEMPERATURE);
+    }
+
+    /**
+     * Request to explain a command, replying with a JSON object
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @return the request
+     */
+    public ChatRequest explainCommandJson(String toolName, String command) {
+        return request(LlmOperation.EXPLAIN_COMMAND, prompts.structuredExplanation().render(toolName, command),
+            ANSWER_TEMPERATURE, maxTokens.get(LlmOperation.EXPLAIN_COMMAND), maxInputTokens, true);
+    }
+
+    private ChatRequest request(LlmOperation operation, List<ChatMessage> messages, double temperature) {
+        return request(operation, messages, temperature, maxTokens.get(operation), maxInputTokens, false);
+    }
+
+    /**
+     * @throws PromptTooLongException if the prompt is over the input token budget
+     */
+    private ChatRequest request(LlmOperation operation, List<ChatMessage> messages, double temperature,
+                                Integer maxTokens, int maxInputTokens, boolean jsonMode) {
+        ChatRequest request = chatRequest(messages, temperature, maxTokens, jsonMode);
+
+        int estimated = TokenEstimator.estimate(request);
+        promptTokens.get(operation).record(estimated);
+        if (estimated > maxInputTokens) {
+            throw new PromptTooLongException(estimated, maxInputTokens);
+        }
+        return request;
+    }
+
+    private static ChatRequest chatRequest(List<ChatMessage> messages, double temperature, Integer maxTokens,
+                                           boolean jsonMode) {
+        return new ChatRequest(
+            MODEL,
+            messages,
+            temperature,
+            1.0,
+            0.0,
+            0.0,
+            maxTokens,
+            false,
+            jsonMode);
+    }
+
+    private static String batchItem(int id, AnswerItem item) {
+        return "[" + id + "] Tool: " + item.toolName() + "\nQuestion: " + item.question()
+            + "\nAnswer: " + item.answer() + "\n\n";
+    }
+}
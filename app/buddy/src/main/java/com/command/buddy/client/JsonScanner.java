@@ -0,0 +1,280 @@
+package com.command.buddy.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal pull tokenizer over UTF-8 JSON bytes.
+ *
+ * Field names can be compared against expected names without decoding them,
+ * and values are only turned into strings when asked for, so skipping the
+ * parts of a document nobody reads costs no allocation. The API returns
+ * well-formed JSON, and model output in JSON mode is validated by the API
+ * too, so only the checks that keep the scanner inside the buffer are made:
+ * a truncated document, a misspelled literal, an unbalanced bracket or a
+ * bad escape throw {@link MalformedJsonException}. Commas and colons are
+ * not checked.
+ */
+final class JsonScanner {
+
+    enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME, STRING, NUMBER, TRUE, FALSE, NULL, END
+    }
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final byte[] buffer;
+    private int position;
+
+    // true for each open object, false for each open array
+    private boolean[] containers = new boolean[16];
+    private int depth;
+    private boolean expectName;
+
+    private int valueStart;
+    private int valueEnd;
+    private boolean valueEscaped;
+
+    JsonScanner(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    Token next() {
+        while (true) {
+            skipWhitespace();
+            if (position >= buffer.length) {
+                if (depth > 0) {
+                    throw new MalformedJsonException("Unexpected end of input", position);
+                }
+                return Token.END;
+            }
+            byte b = buffer[position];
+            switch (b) {
+                case '{' -> {
+                    position++;
+                    push(true);
+                    expectName = true;
+                    return Token.START_OBJECT;
+                }
+                case '}' -> {
+                    pop(true);
+                    expectName = false;
+                    return Token.END_OBJECT;
+                }
+                case '[' -> {
+                    position++;
+                    push(false);
+                    expectName = false;
+                    return Token.START_ARRAY;
+                }
+                case ']' -> {
+                    pop(false);
+                    return Token.END_ARRAY;
+                }
+                case ',' -> {
+                    position++;
+                    expectName = depth > 0 && containers[depth - 1];
+                }
+                case ':' -> {
+                    position++;
+                    expectName = false;
+                }
+                case '"' -> {
+                    readString();
+                    if (expectName) {
+                        expectName = false;
+                        return Token.FIELD_NAME;
+                    }
+                    return Token.STRING;
+                }
+                case 't' -> {
+                    return literal(TRUE, Token.TRUE);
+                }
+                case 'f' -> {
+                    return literal(FALSE, Token.FALSE);
+                }
+                case 'n' -> {
+                    return literal(NULL, Token.NULL);
+                }
+                default -> {
+                    readNumber();
+                    return Token.NUMBER;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare the current field name or string with an ASCII name without decoding it
+     */
+    boolean nameEquals(byte[] name) {
+        return !valueEscaped && Arrays.equals(buffer, valueStart, valueEnd, name, 0, name.length);
+    }
+
+    String stringValue() {
+        if (!valueEscaped) {
+            return new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder text = new StringBuilder(valueEnd - valueStart);
+        int segment = valueStart;
+        int i = valueStart;
+        while (i < valueEnd) {
+            if (buffer[i] != '\\') {
+                i++;
+                continue;
+            }
+            text.append(new String(buffer, segment, i - segment, StandardCharsets.UTF_8));
+            // readString made sure an escape never ends the value
+            byte escaped = buffer[i + 1];
+            switch (escaped) {
+                case 'n' -> text.append('\n');
+                case 't' -> text.append('\t');
+                case 'r' -> text.append('\r');
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'u' -> {
+                    text.append(hexChar(i + 2));
+                    i += 4;
+                }
+                default -> text.append((char) escaped);
+            }
+            i += 2;
+            segment = i;
+        }
+        text.append(new String(buffer, segment, valueEnd - segment, StandardCharsets.UTF_8));
+        return text.toString();
+    }
+
+    long longValue() {
+        long value = 0;
+        boolean negative = false;
+        for (int i = valueStart; i < valueEnd; i++) {
+            byte b = buffer[i];
+            if (b == '-') {
+                negative = true;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else {
+                // Fractions and exponents are not expected in token counts
+                break;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Skip the value that follows a field name, or the rest of a container whose start was just read
+     */
+    void skipValue() {
+        Token token = next();
+        if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+            skipContainer();
+        }
+    }
+
+    /**
+     * Skip to the end of the container whose start token was just returned
+     */
+    void skipContainer() {
+        int level = 1;
+        while (level > 0) {
+            Token token = next();
+            if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+                level++;
+            } else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+                level--;
+            } else if (token == Token.END) {
+                return;
+            }
+        }
+    }
+
+    private void readString() {
+        int start = position;
+        position++;
+        valueStart = position;
+        valueEscaped = false;
+        // Multi-byte UTF-8 sequences never contain the quote or backslash bytes
+        while (position < buffer.length && buffer[position] != '"') {
+            if (buffer[position] == '\\') {
+                valueEscaped = true;
+                position += 2;
+            } else {
+                position++;
+            }
+        }
+        if (position >= buffer.length) {
+            throw new MalformedJsonException("Unterminated string starting", start);
+        }
+        valueEnd = position;
+        position++;
+    }
+
+    private char hexChar(int from) {
+        if (from + 4 > valueEnd) {
+            throw new MalformedJsonException("Truncated \\u escape", from - 2);
+        }
+        int value = 0;
+        for (int i = from; i < from + 4; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                throw new MalformedJsonException("Invalid \\u escape", from - 2);
+            }
+            value = value << 4 | digit;
+        }
+        return (char) value;
+    }
+
+    private Token literal(byte[] text, Token token) {
+        if (!Arrays.equals(buffer, position, Math.min(position + text.length, buffer.length), text, 0, text.length)) {
+            throw new MalformedJsonException("Invalid literal", position);
+        }
+        position += text.length;
+        return token;
+    }
+
+    private void readNumber() {
+        valueStart = position;
+        while (position < buffer.length) {
+            byte b = buffer[position];
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (position == valueStart) {
+            throw new MalformedJsonException("Unexpected character", position);
+        }
+        valueEnd = position;
+        valueEscaped = false;
+    }
+
+    private void skipWhitespace() {
+        while (position < buffer.length) {
+            byte b = buffer[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private void pop(boolean object) {
+        if (depth == 0 || containers[depth - 1] != object) {
+            throw new MalformedJsonException("Unbalanced " + (object ? "'}'" : "']'"), position);
+        }
+        position++;
+        depth--;
+    }
+
+    private void push(boolean object) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+        }
+        containers[depth++] = object;
+    }
+}
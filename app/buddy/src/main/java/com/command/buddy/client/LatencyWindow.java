@@ -0,0 +1,56 @@
+package com.command.buddy.client;
+
+import java.util.Arrays;
+
+/**
+ * The last few hundred latencies of a route, for moving percentile
+ * estimates that follow the route as it speeds up or slows down.
+ *
+ * Percentiles are computed on demand by sorting a copy of the window. With a
+ * few hundred samples that costs microseconds, which is nothing next to the
+ * LLM call it is computed for, and unlike a decaying sketch it is exact over
+ * the window.
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * @param nanos the latency of one call
+     */
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.95
+     * @return the latency at that quantile in nanoseconds, or -1 if the window is empty
+     */
+    long percentile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
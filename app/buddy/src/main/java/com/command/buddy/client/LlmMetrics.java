@@ -0,0 +1,116 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Latency and token usage of the calls made to the LLM.
+ *
+ * {@code llm.requests} times each call on one route, including time queued
+ * in the rate limiter and retries, tagged by operation, the route's model,
+ * whether it was streamed and its outcome. A hedged call is two samples, and
+ * the loser shows up as cancelled. It publishes a histogram so
+ * percentiles can be aggregated across instances, and Prometheus attaches
+ * trace exemplars to its buckets when tracing is on.
+ *
+ * {@code llm.tokens} counts the prompt and completion tokens from the
+ * {@code usage} field of each response.
+ */
+@Component
+public class LlmMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public LlmMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return a sample to pass to {@link #record} when the call finishes
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stop the timer of a call
+     *
+     * @param sample the sample taken when the call started
+     * @param operation the operation the call was made for
+     * @param model the model that was asked
+     * @param streamed whether the response was streamed
+     * @param error the failure, or null if the call succeeded
+     */
+    public void record(Timer.Sample sample, LlmOperation operation, String model, boolean streamed, Throwable error) {
+        sample.stop(Timer.builder("llm.requests")
+            .description("LLM calls, from admission to the last byte of the response")
+            .tag("operation", operation.tag())
+            .tag("model", model)
+            .tag("mode", streamed ? "stream" : "blocking")
+            .tag("outcome", outcome(error))
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+    }
+
+    /**
+     * Count the tokens a response reports
+     *
+     * @param operation the operation the call was made for
+     * @param model the model that was asked
+     * @param usage the usage field, ignored if null
+     */
+    public void recordUsage(LlmOperation operation, String model, ChatCompletion.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        tokens(operation, model, "prompt").increment(usage.promptTokens());
+        tokens(operation, model, "completion").increment(usage.completionTokens());
+    }
+
+    private Counter tokens(LlmOperation operation, String model, String type) {
+        return Counter.builder("llm.tokens")
+            .description("Tokens billed by the LLM, as reported in the usage field")
+            .baseUnit("tokens")
+            .tag("operation", operation.tag())
+            .tag("model", model)
+            .tag("type", type)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param error the failure of a call, or null
+     * @return a bounded tag value describing how the call ended
+     */
+    static String outcome(Throwable error) {
+        Throwable cause = error;
+        // Transport failures arrive wrapped, in a GroqApiException without a status
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || (cause instanceof GroqApiException api && api.getStatusCode() == 0)) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause == null) {
+            return "success";
+        }
+        if (cause instanceof LlmUnavailableException) {
+            return "rejected";
+        }
+        if (cause instanceof CancellationException) {
+            return "cancelled";
+        }
+        if (cause instanceof HttpTimeoutException || cause instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof GroqApiException api && api.getStatusCode() >= 400) {
+            return api.getStatusCode() >= 500 ? "server_error" : "client_error";
+        }
+        return "error";
+    }
+}
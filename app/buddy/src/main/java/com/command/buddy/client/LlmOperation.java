@@ -0,0 +1,25 @@
+package com.command.buddy.client;
+
+/**
+ * The kinds of calls made to the LLM, used to tag metrics and cache entries
+ */
+public enum LlmOperation {
+
+    GENERATE_QUESTION("generate"),
+    EVALUATE_ANSWER("evaluate"),
+    EVALUATE_BATCH("evaluate_batch"),
+    EXPLAIN_COMMAND("explain");
+
+    private final String tag;
+
+    LlmOperation(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return the short name used in metric tags and cache keys
+     */
+    public String tag() {
+        return tag;
+    }
+}
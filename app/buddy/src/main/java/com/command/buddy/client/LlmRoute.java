@@ -0,0 +1,85 @@
+package com.command.buddy.client;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * A model behind a chat completions endpoint, with its recent latencies.
+ *
+ * Configured as {@code model} for the default endpoint, or
+ * {@code model@url} for any other OpenAI-compatible one.
+ */
+public final class LlmRoute {
+
+    private static final int WINDOW = 256;
+
+    private final String name;
+    private final String model;
+    private final URI uri;
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW);
+
+    LlmRoute(String name, String model, URI uri) {
+        this.name = name;
+        this.model = model;
+        this.uri = uri;
+    }
+
+    /**
+     * @param spec {@code model} or {@code model@url}
+     * @param defaultUri the endpoint of routes that do not name one
+     * @return the route
+     */
+    static LlmRoute parse(String spec, URI defaultUri) {
+        String trimmed = spec.trim();
+        int at = trimmed.indexOf('@');
+        if (at < 0) {
+            return new LlmRoute(trimmed, trimmed, defaultUri);
+        }
+        return new LlmRoute(trimmed, trimmed.substring(0, at), URI.create(trimmed.substring(at + 1)));
+    }
+
+    /**
+     * @return the route as configured, used in metric tags
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the model requests on this route are sent to
+     */
+    public String model() {
+        return model;
+    }
+
+    /**
+     * @return the chat completions endpoint
+     */
+    public URI uri() {
+        return uri;
+    }
+
+    /**
+     * @param latency how long a call on this route took
+     */
+    void record(Duration latency) {
+        latencies.record(latency.toNanos());
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @param minSamples how many calls the estimate needs to be trusted
+     * @return the latency at that quantile, or null while there are too few samples
+     */
+    Duration latency(double quantile, int minSamples) {
+        if (latencies.size() < minSamples) {
+            return null;
+        }
+        return Duration.ofNanos(latencies.percentile(quantile));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
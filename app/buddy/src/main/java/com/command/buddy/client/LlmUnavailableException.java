@@ -0,0 +1,24 @@
+package com.command.buddy.client;
+
+import java.time.Duration;
+
+/**
+ * Raised instead of calling the LLM when it is known to be unavailable or
+ * we are out of capacity for it, so the caller can fail fast
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public LlmUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long the client should wait before trying again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,22 @@
+package com.command.buddy.client;
+
+/**
+ * Raised by {@link JsonScanner} for input that is not well-formed JSON,
+ * such as a truncated body or a misspelled literal
+ */
+class MalformedJsonException extends IllegalArgumentException {
+
+    private final int position;
+
+    MalformedJsonException(String message, int position) {
+        super(message + " at byte " + position);
+        this.position = position;
+    }
+
+    /**
+     * @return the offset in the input at which the problem was found
+     */
+    int position() {
+        return position;
+    }
+}
@@ -0,0 +1,400 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Picks the model and endpoint for each call, and hedges slow calls.
+ *
+ * Each operation has a ranked list of {@link LlmRoute}s in
+ * {@code llm.routes.<operation>}; calls go to the first. Every route keeps
+ * a moving window of its latencies. When a call is still running at its
+ * route's {@code llm.hedge.percentile} latency, the same request is also
+ * sent to the fastest of the other routes, the first answer wins and the
+ * other request is cancelled.
+ *
+ * Hedges are paid for out of a budget that grows by
+ * {@code llm.hedge.max-ratio} per call, up to {@code llm.hedge.burst}, so
+ * they never add more than that share of calls however slow the primary
+ * route gets. {@code llm.hedge.requests} counts hedges that won, lost,
+ * failed or were not sent for lack of budget.
+ *
+ * A call whose primary attempt fails with nothing else in flight fails
+ * over once to that same other route, whether or not hedging is enabled
+ * or has enough samples yet. Failures the other route would meet as well
+ * are passed on instead: a request the API rejected as invalid, and the
+ * shared rate limit or open circuit. {@code llm.failovers} counts the
+ * failovers that succeeded or failed.
+ */
+@Component
+public class ModelRouter {
+
+    private static final String[] OUTCOMES = {"won", "lost", "failed", "budget_exhausted"};
+
+    private final Map<LlmOperation, List<LlmRoute>> routes = new EnumMap<>(LlmOperation.class);
+    private final Map<LlmOperation, Map<String, Counter>> hedges = new EnumMap<>(LlmOperation.class);
+    private final Map<LlmOperation, Map<Boolean, Counter>> failovers = new EnumMap<>(LlmOperation.class);
+    private final boolean hedgingEnabled;
+    private final double hedgeQuantile;
+    private final int minSamples;
+    private final Duration minHedgeDelay;
+    private final double hedgeRatio;
+    private final double hedgeBurst;
+
+    private double hedgeCredit;
+
+    public ModelRouter(MeterRegistry meterRegistry,
+                       @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}") String apiUrl,
+                       @Value("${llm.routes.generate:llama-3.1-8b-instant,llama-3.3-70b-versatile}") String generateRoutes,
+                       @Value("${llm.routes.evaluate:llama-3.3-70b-versatile,llama-3.1-8b-instant}") String evaluateRoutes,
+                       @Value("${llm.routes.explain:llama-3.3-70b-versatile,llama-3.1-8b-instant}") String explainRoutes,
+                       @Value("${llm.hedge.enabled:true}") boolean hedgingEnabled,
+                       @Value("${llm.hedge.percentile:0.95}") double hedgeQuantile,
+                       @Value("${llm.hedge.min-samples:20}") int minSamples,
+                       @Value("${llm.hedge.min-delay:250ms}") Duration minHedgeDelay,
+                       @Value("${llm.hedge.max-ratio:0.1}") double hedgeRatio,
+                       @Value("${llm.hedge.burst:10}") int hedgeBurst) {
+        URI defaultUri = URI.create(apiUrl);
+        this.routes.put(LlmOperation.GENERATE_QUESTION, parseRoutes(generateRoutes, defaultUri));
+        this.routes.put(LlmOperation.EVALUATE_ANSWER, parseRoutes(evaluateRoutes, defaultUri));
+        // Batches go to the same models, but are slower and must not skew the latencies single calls are hedged on
+        this.routes.put(LlmOperation.EVALUATE_BATCH, parseRoutes(evaluateRoutes, defaultUri));
+        this.routes.put(LlmOperation.EXPLAIN_COMMAND, parseRoutes(explainRoutes, defaultUri));
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgeQuantile = hedgeQuantile;
+        this.minSamples = minSamples;
+        this.minHedgeDelay = minHedgeDelay;
+        this.hedgeRatio = hedgeRatio;
+        this.hedgeBurst = hedgeBurst;
+
+        for (LlmOperation operation : LlmOperation.values()) {
+            Map<String, Counter> counters = new HashMap<>();
+            for (String outcome : OUTCOMES) {
+                counters.put(outcome, Counter.builder("llm.hedge.requests")
+                    .tag("operation", operation.tag())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            }
+            hedges.put(operation, counters);
+            Map<Boolean, Counter> failoverCounters = new HashMap<>();
+            for (boolean succeeded : new boolean[] {true, false}) {
+                failoverCounters.put(succeeded, Counter.builder("llm.failovers")
+                    .description("Calls sent to another route after the primary failed")
+                    .tag("operation", operation.tag())
+                    .tag("outcome", succeeded ? "succeeded" : "failed")
+                    .register(meterRegistry));
+            }
+            failovers.put(operation, failoverCounters);
+
+            for (LlmRoute route : routes.get(operation)) {
+                for (double quantile : new double[] {0.5, hedgeQuantile}) {
+                    Gauge.builder("llm.route.latency", route, r -> seconds(r.latency(quantile, 1)))
+                        .description("Moving latency percentile of a route")
+                        .baseUnit("seconds")
+                        .tag("operation", operation.tag())
+                        .tag("route", route.name())
+                        .tag("quantile", Double.toString(quantile))
+                        .register(meterRegistry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param operation the operation
+     * @return the route calls for it go to first
+     */
+    public LlmRoute primary(LlmOperation operation) {
+        return routes.get(operation).get(0);
+    }
+
+    /**
+     * @param operation the operation
+     * @return the median latency of its primary route, or null while it has too few samples
+     */
+    public Duration typicalLatency(LlmOperation operation) {
+        return primary(operation).latency(0.5, minSamples);
+    }
+
+    /**
+     * Make a call on the operation's primary route, hedged onto another route
+     * if it is slow and failed over to it if it fails
+     *
+     * @param operation the operation
+     * @param send sends the request on a route; cancelling the returned future must abort it
+     * @return a future completed with the first successful answer, or the
+     *         primary's failure if no attempt succeeds
+     */
+    public <T> CompletableFuture<T> execute(LlmOperation operation, Function<LlmRoute, CompletableFuture<T>> send) {
+        List<LlmRoute> candidates = routes.get(operation);
+        LlmRoute primary = candidates.get(0);
+        depositHedgeCredit();
+
+        LlmRoute backup = backupRoute(candidates);
+        HedgedCall<T> call = new HedgedCall<>(operation, send, backup);
+        call.launchPrimary(primary);
+
+        Duration delay = backup == null || !hedgingEnabled ? null : hedgeDelay(primary, backup);
+        if (delay != null) {
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+                .execute(call::hedge);
+        }
+        return call.result;
+    }
+
+    /**
+     * The fastest route other than the primary, by median latency; routes
+     * without enough samples yet rank after those with
+     */
+    private LlmRoute backupRoute(List<LlmRoute> candidates) {
+        if (candidates.size() < 2) {
+            return null;
+        }
+        LlmRoute fastest = candidates.get(1);
+        Duration fastestMedian = fastest.latency(0.5, minSamples);
+        for (LlmRoute route : candidates.subList(2, candidates.size())) {
+            Duration median = route.latency(0.5, minSamples);
+            if (median != null && (fastestMedian == null || median.compareTo(fastestMedian) < 0)) {
+                fastest = route;
+                fastestMedian = median;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * @return how long to wait for the primary before hedging, or null not to hedge
+     */
+    private Duration hedgeDelay(LlmRoute primary, LlmRoute backup) {
+        Duration tail = primary.latency(hedgeQuantile, minSamples);
+        if (tail == null) {
+            return null;
+        }
+        Duration delay = tail.compareTo(minHedgeDelay) < 0 ? minHedgeDelay : tail;
+        // A hedge that usually takes longer than the wait so far cannot win often enough to pay for itself
+        Duration backupMedian = backup.latency(0.5, minSamples);
+        if (backupMedian != null && backupMedian.compareTo(delay) >= 0) {
+            return null;
+        }
+        return delay;
+    }
+
+    private synchronized void depositHedgeCredit() {
+        hedgeCredit = Math.min(hedgeBurst, hedgeCredit + hedgeRatio);
+    }
+
+    private synchronized boolean withdrawHedgeCredit() {
+        if (hedgeCredit < 1) {
+            return false;
+        }
+        hedgeCredit -= 1;
+        return true;
+    }
+
+    private static List<LlmRoute> parseRoutes(String specs, URI defaultUri) {
+        List<LlmRoute> parsed = new ArrayList<>();
+        for (String spec : specs.split(",")) {
+            if (!spec.isBlank()) {
+                parsed.add(LlmRoute.parse(spec, defaultUri));
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No LLM route configured in '" + specs + "'");
+        }
+        return List.copyOf(parsed);
+    }
+
+    private static double seconds(Duration latency) {
+        return latency == null ? Double.NaN : latency.toNanos() / 1e9;
+    }
+
+    /**
+     * Whether another route could answer where this attempt failed
+     */
+    private static boolean worthFailingOver(Throwable error) {
+        if (error instanceof CancellationException || error instanceof LlmUnavailableException) {
+            // Cancelled by the caller, or turned away by the limits every route shares
+            return false;
+        }
+        if (error instanceof GroqApiException api) {
+            int status = api.getStatusCode();
+            // The request itself was rejected and would be again
+            return status < 400 || status >= 500;
+        }
+        return true;
+    }
+
+    /**
+     * One call and its attempts: the primary request, and at most one hedge
+     * or failover on the backup route
+     */
+    private final class HedgedCall<T> {
+
+        private final LlmOperation operation;
+        private final Function<LlmRoute, CompletableFuture<T>> send;
+        private final LlmRoute backup;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final List<Attempt<T>> attempts = new ArrayList<>(2);
+        private int pending;
+        private boolean backupSent;
+        private Throwable primaryError;
+
+        HedgedCall(LlmOperation operation, Function<LlmRoute, CompletableFuture<T>> send, LlmRoute backup) {
+            this.operation = operation;
+            this.send = send;
+            this.backup = backup;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    cancelAll(null);
+                }
+            });
+        }
+
+        void launchPrimary(LlmRoute route) {
+            synchronized (this) {
+                pending++;
+            }
+            start(route, Role.PRIMARY);
+        }
+
+        void hedge() {
+            // Checked, paid for and counted as pending in one step, so a failing primary
+            // cannot settle the call or fail over in between
+            synchronized (this) {
+                if (settled.get() || result.isDone() || pending == 0 || backupSent) {
+                    return;
+                }
+                if (!withdrawHedgeCredit()) {
+                    hedges.get(operation).get("budget_exhausted").increment();
+                    return;
+                }
+                backupSent = true;
+                pending++;
+            }
+            start(backup, Role.HEDGE);
+        }
+
+        /**
+         * Send an attempt that has already been counted as pending
+         */
+        private void start(LlmRoute route, Role role) {
+            long start = System.nanoTime();
+            CompletableFuture<T> future;
+            if (result.isDone()) {
+                // Cancelled by the caller before the attempt went out
+                future = CompletableFuture.failedFuture(new CancellationException());
+            } else {
+                try {
+                    future = send.apply(route);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+            }
+            Attempt<T> attempt = new Attempt<>(route, role, future, start);
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            future.whenComplete((value, error) -> onDone(attempt, value, error));
+        }
+
+        private void onDone(Attempt<T> attempt, T value, Throwable error) {
+            if (error == null) {
+                // Settle before completing, so callers see the losers already cancelled and counted
+                if (settled.compareAndSet(false, true)) {
+                    attempt.route.record(Duration.ofNanos(System.nanoTime() - attempt.start));
+                    if (attempt.role == Role.HEDGE) {
+                        hedges.get(operation).get("won").increment();
+                    } else if (attempt.role == Role.FAILOVER) {
+                        failovers.get(operation).get(true).increment();
+                    }
+                    cancelAll(attempt);
+                    result.complete(value);
+                }
+                return;
+            }
+
+            Throwable cause = unwrap(error);
+            boolean last;
+            boolean failOver = false;
+            synchronized (this) {
+                pending--;
+                if (attempt.role == Role.PRIMARY) {
+                    primaryError = cause;
+                    if (pending == 0 && !backupSent && backup != null && !settled.get() && !result.isDone()
+                            && worthFailingOver(cause)) {
+                        backupSent = true;
+                        failOver = true;
+                        pending++;
+                    }
+                }
+                last = pending == 0;
+            }
+            if (failOver) {
+                start(backup, Role.FAILOVER);
+                return;
+            }
+            if (!settled.get()) {
+                if (attempt.role == Role.HEDGE) {
+                    hedges.get(operation).get("failed").increment();
+                } else if (attempt.role == Role.FAILOVER) {
+                    failovers.get(operation).get(false).increment();
+                }
+            }
+            if (last && settled.compareAndSet(false, true)) {
+                result.completeExceptionally(primaryError != null ? primaryError : cause);
+            }
+        }
+
+        /**
+         * Cancel the attempts still running. A loser's time so far is kept
+         * as a sample, a lower bound that keeps a slow route's tail visible.
+         */
+        private void cancelAll(Attempt<T> winner) {
+            List<Attempt<T>> running;
+            synchronized (this) {
+                running = List.copyOf(attempts);
+            }
+            for (Attempt<T> attempt : running) {
+                if (attempt == winner || attempt.future.isDone()) {
+                    continue;
+                }
+                attempt.future.cancel(true);
+                if (winner != null) {
+                    attempt.route.record(Duration.ofNanos(System.nanoTime() - attempt.start));
+                    if (attempt.role == Role.HEDGE) {
+                        hedges.get(operation).get("lost").increment();
+                    }
+                }
+            }
+        }
+    }
+
+    private enum Role {
+        PRIMARY, HEDGE, FAILOVER
+    }
+
+    private record Attempt<T>(LlmRoute route, Role role, CompletableFuture<T> future, long start) {
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,167 @@
+package com.command.buddy.client;
+
+import java.util.List;
+
+/**
+ * One version of the prompts for every operation, selected with
+ * {@code llm.prompts.version}.
+ *
+ * A version is never edited once it has shipped; a change is a new version,
+ * so metrics and A/B results always refer to one wording. Every prompt keeps
+ * its instructions in a prefix that is the same for all calls and puts the
+ * variable parts last, so the provider can cache the prefix across requests.
+ *
+ * @param version the name used in configuration and metric tags
+ * @param question generates a quiz question
+ * @param evaluation grades an answer
+ * @param explanation explains a command
+ * @param batchEvaluation grades many answers at once, replying in JSON
+ * @param structuredEvaluation grades an answer, replying in JSON
+ * @param structuredExplanation explains a command, replying in JSON
+ */
+public record PromptSet(String version, Prompt question, Prompt evaluation, Prompt explanation, Prompt batchEvaluation,
+                        Prompt structuredEvaluation, Prompt structuredExplanation) {
+
+    /**
+     * Batch grading came after both versions and is the same in each. The
+     * reply is a JSON object so the verdicts can be matched back to their items.
+     */
+    private static final Prompt BATCH_EVALUATION = new Prompt(
+        "You grade command line quiz answers. Each item has an id, a tool, a question and the user's answer. " +
+        "Reply with a JSON object of the form " +
+        "{\"results\":[{\"id\":1,\"verdict\":\"CORRECT\",\"reason\":\"...\",\"command\":\"...\",\"tip\":\"...\"}]} " +
+        "with one result per item: verdict is CORRECT or INCORRECT, reason is one sentence on why, " +
+        "command is the right command if the answer is incorrect and empty otherwise, " +
+        "and tip is a short tip for remembering it.",
+        PromptTemplate.compile("{{items}}"));
+
+    /**
+     * JSON replies for the blocking evaluate and explain calls, the same in
+     * every version. Streams keep the version's free text prompts, since
+     * their tokens are shown as they arrive.
+     */
+    private static final Prompt STRUCTURED_EVALUATION = new Prompt(
+        "You grade command line quiz answers. Reply with a JSON object of the form " +
+        "{\"verdict\":\"CORRECT\",\"reason\":\"...\",\"correctedCommand\":\"...\",\"tip\":\"...\"} " +
+        "where verdict is CORRECT or INCORRECT, reason is one sentence on why, " +
+        "correctedCommand is the right command if the answer is incorrect and empty otherwise, " +
+        "and tip is a short tip for remembering it.",
+        PromptTemplate.compile("Tool: {{tool}}\nQuestion: {{question}}\nAnswer: {{answer}}"));
+
+    private static final Prompt STRUCTURED_EXPLANATION = new Prompt(
+        "You explain command line commands concisely. Reply with a JSON object of the form " +
+        "{\"summary\":\"...\",\"parts\":[{\"token\":\"...\",\"meaning\":\"...\"}]," +
+        "\"useCases\":[\"...\"],\"gotchas\":[\"...\"],\"tags\":[\"...\"]} " +
+        "where summary says what the command does, parts explains each part and flag in order, " +
+        "useCases lists common uses, gotchas lists pitfalls and warnings, " +
+        "and tags are one to five short lowercase topics such as \"branching\" or \"networking\".",
+        PromptTemplate.compile("Tool: {{tool}}\nCommand: {{command}}"));
+
+    /**
+     * The original prompts: one short system message, with the instructions
+     * for each operation in the user message
+     */
+    public static final PromptSet V1 = new PromptSet("v1",
+        new Prompt(
+            "You are a command line education assistant. Answer precisely and concisely.",
+            PromptTemplate.compile(
+                "You are a command line tutor helping users learn {{tool}} commands. " +
+                "Generate a practical question that asks the user to provide a specific {{tool}} command. " +
+                "Focus on {{tool}} {{task}}. " +
+                "Make sure the question is practical and realistic for real-world scenarios, " +
+                "and names any files, branches, images or resources the command needs. " +
+                "Do not put hints in the question.\n\n" +
+                "Respond in exactly this format, with one ANSWER line per correct command " +
+                "and no placeholders in the commands:\n" +
+                "QUESTION: <the question>\n" +
+                "ANSWER: <a command that answers it>")),
+        new Prompt(
+            "You are a command line education assistant. Answer precisely and concisely.",
+            PromptTemplate.compile(
+                "Question about {{tool}}: \"{{question}}\"\n\n" +
+                "User's answer: \"{{answer}}\"\n\n" +
+                "Evaluate if this command correctly solves the task. Respond with:\n" +
+                "1. Whether the answer is CORRECT or INCORRECT\n" +
+                "2. A brief explanation of why\n" +
+                "3. If incorrect, the proper command\n" +
+                "4. A tip for remembering this command")),
+        new Prompt(
+            "You are a command line education assistant. Answer precisely and concisely.",
+            PromptTemplate.compile(
+                "Explain the following {{tool}} command in detail:\n\n" +
+                "{{command}}\n\n" +
+                "Include:\n" +
+                "1. What this command does\n" +
+                "2. Breakdown of each part/flag\n" +
+                "3. Common use cases\n" +
+                "4. Any potential gotchas or warnings\n" +
+                "Format as a concise explanation.")),
+        BATCH_EVALUATION,
+        STRUCTURED_EVALUATION,
+        STRUCTURED_EXPLANATION);
+
+    /**
+     * Compact prompts: the instructions move into a per-operation system
+     * message, so everything before the variables is a cacheable prefix, and
+     * the user message only carries the variables
+     */
+    public static final PromptSet V2 = new PromptSet("v2",
+        new Prompt(
+            "You write practical command line quiz questions. Ask for one specific command for a realistic task, " +
+            "naming any files, branches, images or resources it needs. Give no hints. Reply exactly as:\n" +
+            "QUESTION: <question>\n" +
+            "ANSWER: <command>\n" +
+            "with one ANSWER line per correct command and no placeholders.",
+            PromptTemplate.compile("Tool: {{tool}}\nTopic: {{task}}")),
+        new Prompt(
+            "You grade command line quiz answers. Reply with CORRECT or INCORRECT, one sentence on why, " +
+            "the right command if the answer is incorrect, and a short tip for remembering it.",
+            PromptTemplate.compile("Tool: {{tool}}\nQuestion: {{question}}\nAnswer: {{answer}}")),
+        new Prompt(
+            "You explain command line commands concisely: what the command does, each part and flag, " +
+            "common uses, and gotchas.",
+            PromptTemplate.compile("Tool: {{tool}}\nCommand: {{command}}")),
+        BATCH_EVALUATION,
+        STRUCTURED_EVALUATION,
+        STRUCTURED_EXPLANATION);
+
+    private static final List<PromptSet> VERSIONS = List.of(V1, V2);
+
+    /**
+     * @param version a version name, e.g. "v2"
+     * @return the prompts of that version
+     * @throws IllegalArgumentException if there is no such version
+     */
+    public static PromptSet of(String version) {
+        for (PromptSet prompts : VERSIONS) {
+            if (prompts.version.equalsIgnoreCase(version.trim())) {
+                return prompts;
+            }
+        }
+        throw new IllegalArgumentException("Unknown prompt version " + version + ", expected one of " + versions());
+    }
+
+    /**
+     * @return the names of all versions, oldest first
+     */
+    public static List<String> versions() {
+        return VERSIONS.stream().map(PromptSet::version).toList();
+    }
+
+    /**
+     * The two messages of one operation
+     *
+     * @param system the system message, fixed for every call
+     * @param user the user message
+     */
+    public record Prompt(String system, PromptTemplate user) {
+
+        /**
+         * @param values the values of the user message's variables
+         * @return the system and user messages
+         */
+        public List<ChatMessage> render(String... values) {
+            return List.of(ChatMessage.system(system), ChatMessage.user(user.render(values)));
+        }
+    }
+}
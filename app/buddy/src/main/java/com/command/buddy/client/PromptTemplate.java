@@ -0,0 +1,97 @@
+package com.command.buddy.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prompt with {@code {{name}}} placeholders, parsed once up front.
+ *
+ * Rendering only copies the literal segments and the supplied values into a
+ * buffer that is sized in advance, instead of re-parsing a format string on
+ * every call the way {@link String#format} does.
+ */
+public final class PromptTemplate {
+
+    private final String[] literals;
+    private final int[] slots;
+    private final List<String> variables;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, int[] slots, List<String> variables) {
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse a template
+     *
+     * @param template text with {@code {{name}}} placeholders; a name may appear more than once
+     * @return the compiled template
+     */
+    public static PromptTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+
+        int position = 0;
+        while (true) {
+            int open = template.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated placeholder at " + open + " in prompt template");
+            }
+            literals.add(template.substring(position, open));
+            String name = template.substring(open + 2, close).trim();
+            slots.add(indexes.computeIfAbsent(name, key -> indexes.size()));
+            position = close + 2;
+        }
+        literals.add(template.substring(position));
+
+        return new PromptTemplate(
+            literals.toArray(String[]::new),
+            slots.stream().mapToInt(Integer::intValue).toArray(),
+            List.copyOf(indexes.keySet()));
+    }
+
+    /**
+     * Fill in the placeholders
+     *
+     * @param values one value per variable, in the order of {@link #variables()}
+     * @return the rendered prompt
+     */
+    public String render(String... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("Expected values for " + variables + " but got " + values.length);
+        }
+
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+
+        StringBuilder prompt = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            prompt.append(literals[i]).append(values[slots[i]]);
+        }
+        prompt.append(literals[slots.length]);
+        return prompt.toString();
+    }
+
+    /**
+     * @return the variable names in the order their values are passed to {@link #render(String...)}
+     */
+    public List<String> variables() {
+        return variables;
+    }
+}
@@ -0,0 +1,31 @@
+package com.command.buddy.client;
+
+/**
+ * Raised before a request is sent when its prompt is estimated to be over
+ * the input token budget, which only user-supplied text can cause
+ */
+public class PromptTooLongException extends RuntimeException {
+
+    private final int estimatedTokens;
+    private final int maxTokens;
+
+    public PromptTooLongException(int estimatedTokens, int maxTokens) {
+        super("Input is too long: about " + estimatedTokens + " tokens, the limit is " + maxTokens);
+        this.estimatedTokens = estimatedTokens;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * @return the estimated prompt tokens of the rejected request
+     */
+    public int getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    /**
+     * @return the input token budget
+     */
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+}
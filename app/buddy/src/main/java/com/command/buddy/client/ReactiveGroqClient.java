@@ -0,0 +1,298 @@
+package com.command.buddy.client;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.model.CommandExplanation;
+import com.command.buddy.resilience.LlmResilience;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * {@link WebClient} twin of {@link GroqClient} for the reactive stack.
+ *
+ * Builds the same requests and goes through the same {@link LlmResilience}
+ * admission, retries, {@link ModelRouter} routing and hedging and
+ * single-flight coalescing, but never blocks: calls
+ * are {@link Mono}s and streams are {@link Flux}es of tokens. Cancelling a
+ * subscription, for example when the client disconnects, aborts the
+ * upstream request.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGroqClient {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE =
+        new ParameterizedTypeReference<>() { };
+    private static final String DONE = "[DONE]";
+    private static final byte[] EMPTY = new byte[0];
+
+    private final WebClient webClient;
+    private final GroqRequestFactory requests;
+    private final LlmResilience resilience;
+    private final ModelRouter router;
+    private final LlmMetrics metrics;
+    private final Duration readTimeout;
+
+    private final SingleFlight<AnswerFeedback> evaluations;
+    private final SingleFlight<CommandExplanation> explanations;
+
+    public ReactiveGroqClient(WebClient.Builder webClientBuilder,
+                              GroqRequestFactory requests,
+                              LlmResilience resilience,
+                              ModelRouter router,
+                              LlmMetrics metrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${groq.api.key}") String apiKey,
+                              @Value("${groq.http.read-timeout:60s}") Duration readTimeout,
+                              @Value("${llm.single-flight.timeout:90s}") Duration singleFlightTimeout) {
+        this.webClient = webClientBuilder
+            .defaultHeader("Authorization", "Bearer " + apiKey)
+            .build();
+        this.requests = requests;
+        this.resilience = resilience;
+        this.router = router;
+        this.metrics = metrics;
+        this.readTimeout = readTimeout;
+        this.evaluations = new SingleFlight<>(LlmOperation.EVALUATE_ANSWER.tag(), singleFlightTimeout, meterRegistry);
+        this.explanations = new SingleFlight<>(LlmOperation.EXPLAIN_COMMAND.tag(), singleFlightTimeout, meterRegistry);
+    }
+
+    /**
+     * Generate a command quiz question for a specific tool
+     *
+     * @param toolName the name of the tool (e.g., git, docker, kubernetes)
+     * @return the quiz question and the commands that answer it
+     */
+    public Mono<GeneratedQuestion> generateCommandQuestion(String toolName) {
+        return complete(LlmOperation.GENERATE_QUESTION, requests.generateQuestion(toolName))
+            .map(GeneratedQuestion::parse);
+    }
+
+    /**
+     * Evaluate a user's command answer against a question
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @return the evaluation, read from a JSON mode reply
+     */
+    public Mono<AnswerFeedback> evaluateCommandAnswer(String toolName, String question, String userAnswer) {
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, userAnswer);
+        return shared(evaluations, key,
+            () -> complete(LlmOperation.EVALUATE_ANSWER, requests.evaluateAnswerJson(toolName, question, userAnswer))
+                .map(StructuredOutputs::parseFeedback));
+    }
+
+    /**
+     * Stream the evaluation of a user's command answer token by token
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question that was asked
+     * @param userAnswer the command provided by the user
+     * @return the generated tokens
+     */
+    public Flux<String> streamCommandEvaluation(String toolName, String question, String userAnswer) {
+        return stream(LlmOperation.EVALUATE_ANSWER, requests.evaluateAnswer(toolName, question, userAnswer));
+    }
+
+    /**
+     * Generate an explanation for a command
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @return the explanation, read from a JSON mode reply
+     */
+    public Mono<CommandExplanation> explainCommand(String toolName, String command) {
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        return shared(explanations, key,
+            () -> complete(LlmOperation.EXPLAIN_COMMAND, requests.explainCommandJson(toolName, command))
+                .map(StructuredOutputs::parseExplanation));
+    }
+
+    /**
+     * Stream the explanation of a command token by token
+     *
+     * @param toolName the name of the tool
+     * @param command the command to explain
+     * @return the generated tokens
+     */
+    public Flux<String> streamCommandExplanation(String toolName, String command) {
+        return stream(LlmOperation.EXPLAIN_COMMAND, requests.explainCommand(toolName, command));
+    }
+
+    /**
+     * Join an identical call already in flight, or start one. The shared call
+     * is not cancelled when one of its subscribers goes away.
+     */
+    private <T> Mono<T> shared(SingleFlight<T> flight, String key, Supplier<Mono<T>> call) {
+        return Mono.fromFuture(() -> flight.execute(key, () -> call.get().toFuture()), true);
+    }
+
+    /**
+     * A completion on the operation's routes, hedged like the blocking
+     * client's. Cancelling the subscription cancels every attempt.
+     */
+    private Mono<String> complete(LlmOperation operation, ChatRequest request) {
+        return Mono.fromFuture(() -> router.execute(operation, route -> timed(operation, route, request).toFuture()))
+            .map(ChatCompletion::content);
+    }
+
+    /**
+     * One routed call, with its retries, as one {@code llm.requests} sample
+     */
+    private Mono<ChatCompletion> timed(LlmOperation operation, LlmRoute route, ChatRequest request) {
+        String model = route.model();
+        byte[] body = request.withModel(model).toJson();
+        return Mono.defer(() -> {
+            Timer.Sample sample = metrics.start();
+            return attempt(operation, route.uri(), body, 1)
+                .doOnNext(completion -> {
+                    metrics.record(sample, operation, model, false, null);
+                    metrics.recordUsage(operation, model, completion.usage());
+                })
+                .doOnError(error -> metrics.record(sample, operation, model, false, error))
+                .doOnCancel(() -> metrics.record(sample, operation, model, false, new CancellationException()));
+        });
+    }
+
+    /**
+     * One attempt of a completion request, admitted by the resilience layer
+     * and retried on the same terms as {@link GroqHttpClient}
+     */
+    private Mono<ChatCompletion> attempt(LlmOperation operation, URI uri, byte[] body, int attempt) {
+        return Mono.defer(() -> {
+            LlmResilience.Permit permit = resilience.acquire(operation);
+            return Mono.delay(permit.delay())
+                .then(send(uri, body))
+                .map(response -> new Outcome(response, permit.onResponse(response.status(), response.headers())))
+                .onErrorResume(error -> Mono.just(new Outcome(null, permit.onError(error))))
+                .doOnCancel(() -> permit.onError(new CancellationException()))
+                .flatMap(outcome -> outcome.failure() == null
+                    ? Mono.just(parseCompletion(outcome.response()))
+                    : retryOrFail(operation, uri, body, attempt, outcome.failure()));
+        });
+    }
+
+    private Mono<RawResponse> send(URI uri, byte[] body) {
+        return webClient.post()
+            .uri(uri)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(body)
+            .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                .defaultIfEmpty(EMPTY)
+                .map(bytes -> new RawResponse(response.statusCode().value(), headersOf(response), bytes)))
+            .timeout(readTimeout);
+    }
+
+    private Mono<ChatCompletion> retryOrFail(LlmOperation operation, URI uri, byte[] body, int attempt,
+                                             LlmResilience.Failure failure) {
+        Duration backoff = resilience.retryDelay(failure, attempt);
+        if (backoff == null) {
+            return Mono.error(failure.exception());
+        }
+        return Mono.delay(backoff).then(attempt(operation, uri, body, attempt + 1));
+    }
+
+    /**
+     * Send a request with {@code stream: true} and emit the generated tokens.
+     * Streams are not retried or hedged since tokens may already have been
+     * forwarded; they always go to the operation's primary route.
+     */
+    private Flux<String> stream(LlmOperation operation, ChatRequest request) {
+        LlmRoute route = router.primary(operation);
+        String model = route.model();
+        byte[] body = request.withModel(model).streaming().toJson();
+        return Flux.defer(() -> {
+            Timer.Sample sample = metrics.start();
+            return admitted(operation, route.uri(), model, body)
+                .doOnComplete(() -> metrics.record(sample, operation, model, true, null))
+                .doOnError(error -> metrics.record(sample, operation, model, true, error))
+                .doOnCancel(() -> metrics.record(sample, operation, model, true, new CancellationException()));
+        });
+    }
+
+    /**
+     * The stream itself, once admitted by the resilience layer
+     */
+    private Flux<String> admitted(LlmOperation operation, URI uri, String model, byte[] body) {
+        return Flux.defer(() -> {
+            LlmResilience.Permit permit = resilience.acquire(operation);
+            return Mono.delay(permit.delay())
+                .thenMany(webClient.post()
+                    .uri(uri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(body)
+                    .exchangeToFlux(response -> {
+                        LlmResilience.Failure failure = permit.onResponse(response.statusCode().value(), headersOf(response));
+                        if (failure != null) {
+                            return response.releaseBody().thenMany(Flux.error(failure.exception()));
+                        }
+                        return response.bodyToFlux(SSE)
+                            .map(event -> event.data() == null ? "" : event.data().trim())
+                            .takeWhile(data -> !DONE.equals(data))
+                            .filter(data -> !data.isEmpty())
+                            .<String>handle((data, sink) -> {
+                                ChatCompletion chunk = ChatCompletionParser.parseChunk(data.getBytes(StandardCharsets.UTF_8));
+                                metrics.recordUsage(operation, model, chunk.usage());
+                                if (chunk.content() != null && !chunk.content().isEmpty()) {
+                                    sink.next(chunk.content());
+                                }
+                            });
+                    }))
+                .doOnError(permit::onError)
+                .doOnCancel(() -> permit.onError(new CancellationException()));
+        });
+    }
+
+    private ChatCompletion parseCompletion(RawResponse response) {
+        ChatCompletion completion;
+        try {
+            completion = ChatCompletionParser.parse(response.body());
+        } catch (RuntimeException e) {
+            throw new GroqApiException("Unable to process response from Groq API.", e);
+        }
+        if (completion.content() == null) {
+            throw new GroqApiException(response.status(), "Unable to process response from Groq API.");
+        }
+        return completion;
+    }
+
+    /**
+     * The rate limiter reads {@code java.net.http} headers, so copy them over
+     */
+    private static HttpHeaders headersOf(ClientResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        response.headers().asHttpHeaders().forEach(headers::put);
+        return HttpHeaders.of(headers, (name, value) -> true);
+    }
+
+    private record RawResponse(int status, HttpHeaders headers, byte[] body) {
+    }
+
+    /**
+     * A response with its verdict, or just the verdict when the request failed
+     */
+    private record Outcome(RawResponse response, LlmResilience.Failure failure) {
+    }
+}
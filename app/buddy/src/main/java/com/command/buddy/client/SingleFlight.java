@@ -0,0 +1,88 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls that share a key into a single upstream call.
+ *
+ * The first caller for a key becomes the leader and starts the call; callers
+ * arriving while it is in flight get a copy of the same future. The entry is
+ * removed as soon as the call settles, successfully or not, so a failed or
+ * timed out leader never poisons later calls. Each caller gets its own copy,
+ * so one caller cancelling does not cancel the call for everybody else.
+ *
+ * @param <V> the result type
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String operation, Duration timeout, MeterRegistry meterRegistry) {
+        this.timeout = timeout;
+        this.leaders = Counter.builder("llm.singleflight.requests")
+            .tag("operation", operation).tag("role", "leader")
+            .register(meterRegistry);
+        this.followers = Counter.builder("llm.singleflight.requests")
+            .tag("operation", operation).tag("role", "coalesced")
+            .description("Calls that shared an upstream request already in flight")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run the call for a key, or join the one already in flight
+     *
+     * @param key identifies calls that are guaranteed to produce the same result
+     * @param call starts the upstream call
+     * @return a future completed with the shared result
+     */
+    public CompletableFuture<V> execute(String key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            followers.increment();
+            return existing.copy();
+        }
+
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            followers.increment();
+            return existing.copy();
+        }
+
+        leaders.increment();
+        try {
+            call.get()
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    // Cleared before anyone is woken up, so callers retrying straight away start a new call
+                    inFlight.remove(key, leader);
+                    if (error != null) {
+                        leader.completeExceptionally(error);
+                    } else {
+                        leader.complete(result);
+                    }
+                });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+        }
+        return leader.copy();
+    }
+
+    /**
+     * @return the number of distinct calls currently in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,376 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.model.CommandExplanation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the JSON the evaluate and explain prompts ask for into typed
+ * records, and writes the records back as the same JSON for caching.
+ *
+ * Cached responses from before JSON mode, streamed responses (which stay
+ * free text so they can be shown as they arrive) and the grading rules'
+ * feedback are all text, so anything that is not a JSON object is read as
+ * text instead: numbered lines for feedback, a summary for explanations.
+ */
+public final class StructuredOutputs {
+
+    private static final byte[] VERDICT = ascii("verdict");
+    private static final byte[] REASON = ascii("reason");
+    private static final byte[] CORRECTED_COMMAND = ascii("correctedCommand");
+    private static final byte[] COMMAND = ascii("command");
+    private static final byte[] TIP = ascii("tip");
+    private static final byte[] SUMMARY = ascii("summary");
+    private static final byte[] PARTS = ascii("parts");
+    private static final byte[] TOKEN = ascii("token");
+    private static final byte[] MEANING = ascii("meaning");
+    private static final byte[] USE_CASES = ascii("useCases");
+    private static final byte[] GOTCHAS = ascii("gotchas");
+    private static final byte[] TAGS = ascii("tags");
+
+    private static final Pattern NUMBERED = Pattern.compile("^\\s*(\\d+)[.)]\\s*(.*)$");
+    private static final Pattern INCORRECT = Pattern.compile("\\bINCORRECT\\b");
+    private static final Pattern CORRECT = Pattern.compile("\\bCORRECT\\b");
+    private static final int MAX_TAGS = 8;
+
+    private StructuredOutputs() {
+    }
+
+    /**
+     * @param content an evaluation, as JSON or text
+     * @return the feedback
+     */
+    public static AnswerFeedback parseFeedback(String content) {
+        if (content == null) {
+            return new AnswerFeedback(AnswerFeedback.Verdict.UNKNOWN, null, null, null);
+        }
+        byte[] json = jsonObject(content);
+        if (json != null) {
+            try {
+                AnswerFeedback feedback = readFeedback(new JsonScanner(json));
+                if (feedback != null) {
+                    return feedback;
+                }
+            } catch (RuntimeException e) {
+                // Not the JSON we asked for, so read it as text
+            }
+        }
+        return feedbackFromText(content);
+    }
+
+    /**
+     * @param content an explanation, as JSON or text
+     * @return the explanation
+     */
+    public static CommandExplanation parseExplanation(String content) {
+        if (content == null) {
+            return new CommandExplanation(null, null, null, null, null);
+        }
+        byte[] json = jsonObject(content);
+        if (json != null) {
+            try {
+                CommandExplanation explanation = readExplanation(new JsonScanner(json));
+                if (explanation != null) {
+                    return explanation;
+                }
+            } catch (RuntimeException e) {
+                // Not the JSON we asked for, so read it as text
+            }
+        }
+        return new CommandExplanation(content.strip(), null, null, null, null);
+    }
+
+    /**
+     * @param content a cached evaluation, as JSON or text
+     * @return the evaluation as text to stream to a user, text content unchanged
+     */
+    public static String feedbackText(String content) {
+        return content == null || jsonObject(content) == null ? content : parseFeedback(content).text();
+    }
+
+    /**
+     * @param content a cached explanation, as JSON or text
+     * @return the explanation as text to stream to a user, text content unchanged
+     */
+    public static String explanationText(String content) {
+        return content == null || jsonObject(content) == null ? content : parseExplanation(content).text();
+    }
+
+    /**
+     * @param feedback graded feedback
+     * @return the JSON {@link #parseFeedback} reads back
+     */
+    public static String toJson(AnswerFeedback feedback) {
+        StringBuilder json = new StringBuilder(64);
+        json.append("{\"verdict\":");
+        ChatRequest.appendString(json, feedback.verdict().name());
+        appendField(json, "reason", feedback.reason());
+        appendField(json, "correctedCommand", feedback.correctedCommand());
+        appendField(json, "tip", feedback.tip());
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param explanation an explanation
+     * @return the JSON {@link #parseExplanation} reads back
+     */
+    public static String toJson(CommandExplanation explanation) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"summary\":");
+        ChatRequest.appendString(json, explanation.summary() == null ? "" : explanation.summary());
+        json.append(",\"parts\":[");
+        for (int i = 0; i < explanation.parts().size(); i++) {
+            CommandExplanation.Part part = explanation.parts().get(i);
+            json.append(i > 0 ? ",{\"token\":" : "{\"token\":");
+            ChatRequest.appendString(json, part.token());
+            json.append(",\"meaning\":");
+            ChatRequest.appendString(json, part.meaning());
+            json.append('}');
+        }
+        json.append(']');
+        appendArray(json, "useCases", explanation.useCases());
+        appendArray(json, "gotchas", explanation.gotchas());
+        appendArray(json, "tags", explanation.tags());
+        return json.append('}').toString();
+    }
+
+    private static AnswerFeedback readFeedback(JsonScanner scanner) {
+        if (scanner.next() != JsonScanner.Token.START_OBJECT) {
+            return null;
+        }
+        AnswerFeedback.Verdict verdict = null;
+        String reason = null;
+        String command = null;
+        String tip = null;
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(VERDICT)) {
+                verdict = verdict(readString(scanner));
+            } else if (scanner.nameEquals(REASON)) {
+                reason = readString(scanner);
+            } else if (scanner.nameEquals(CORRECTED_COMMAND) || scanner.nameEquals(COMMAND)) {
+                command = readString(scanner);
+            } else if (scanner.nameEquals(TIP)) {
+                tip = readString(scanner);
+            } else {
+                scanner.skipValue();
+            }
+        }
+        if (verdict == null) {
+            return null;
+        }
+        return new AnswerFeedback(verdict, blankToNull(reason),
+            verdict == AnswerFeedback.Verdict.CORRECT ? null : blankToNull(command), blankToNull(tip));
+    }
+
+    private static CommandExplanation readExplanation(JsonScanner scanner) {
+        if (scanner.next() != JsonScanner.Token.START_OBJECT) {
+            return null;
+        }
+        String summary = null;
+        List<CommandExplanation.Part> parts = List.of();
+        List<String> useCases = List.of();
+        List<String> gotchas = List.of();
+        List<String> tags = List.of();
+        while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+            if (scanner.nameEquals(SUMMARY)) {
+                summary = readString(scanner);
+            } else if (scanner.nameEquals(PARTS)) {
+                parts = readParts(scanner);
+            } else if (scanner.nameEquals(USE_CASES)) {
+                useCases = readStrings(scanner);
+            } else if (scanner.nameEquals(GOTCHAS)) {
+                gotchas = readStrings(scanner);
+            } else if (scanner.nameEquals(TAGS)) {
+                tags = readStrings(scanner).stream()
+                    .map(tag -> tag.strip().toLowerCase(Locale.ROOT))
+                    .filter(tag -> !tag.isEmpty())
+                    .distinct()
+                    .limit(MAX_TAGS)
+                    .toList();
+            } else {
+                scanner.skipValue();
+            }
+        }
+        if (summary == null) {
+            return null;
+        }
+        return new CommandExplanation(summary.strip(), parts, useCases, gotchas, tags);
+    }
+
+    /**
+     * Feedback written as numbered lines, "1. CORRECT", "2. why", then the
+     * command if incorrect and a tip; anything else keeps the whole text as the reason
+     */
+    private static AnswerFeedback feedbackFromText(String content) {
+        List<String> items = new ArrayList<>();
+        for (String line : content.strip().split("\\R")) {
+            Matcher numbered = NUMBERED.matcher(line);
+            if (numbered.matches()) {
+                items.add(unmark(numbered.group(2)));
+            } else if (!items.isEmpty() && !line.isBlank()) {
+                int last = items.size() - 1;
+                items.set(last, items.get(last) + "\n" + line.strip());
+            } else if (!line.isBlank()) {
+                // Text before the first numbered line
+                items.clear();
+                break;
+            }
+        }
+
+        AnswerFeedback.Verdict verdict = items.isEmpty() ? null : verdict(items.get(0));
+        if (verdict == null) {
+            AnswerFeedback.Verdict scanned = INCORRECT.matcher(content).find() ? AnswerFeedback.Verdict.INCORRECT
+                : CORRECT.matcher(content).find() ? AnswerFeedback.Verdict.CORRECT
+                : AnswerFeedback.Verdict.UNKNOWN;
+            return new AnswerFeedback(scanned, content.strip(), null, null);
+        }
+
+        String reason = items.size() > 1 ? items.get(1) : null;
+        String command = null;
+        String tip = null;
+        if (verdict == AnswerFeedback.Verdict.INCORRECT) {
+            command = items.size() > 2 ? items.get(2) : null;
+            tip = items.size() > 3 ? items.get(items.size() - 1) : null;
+        } else if (items.size() > 2) {
+            tip = items.get(items.size() - 1);
+        }
+        return new AnswerFeedback(verdict, reason, command, tip);
+    }
+
+    /**
+     * @return the verdict a line starts with, or null
+     */
+    static AnswerFeedback.Verdict verdict(String text) {
+        if (text == null) {
+            return null;
+        }
+        String upper = text.strip().toUpperCase(Locale.ROOT);
+        if (upper.startsWith("INCORRECT")) {
+            return AnswerFeedback.Verdict.INCORRECT;
+        }
+        if (upper.startsWith("CORRECT")) {
+            return AnswerFeedback.Verdict.CORRECT;
+        }
+        return null;
+    }
+
+    // Models like to bold the verdict
+    private static String unmark(String text) {
+        return text.replace("**", "").strip();
+    }
+
+    /**
+     * @return the UTF-8 bytes of the JSON object in the content, possibly fenced in markdown, or null
+     */
+    private static byte[] jsonObject(String content) {
+        String stripped = content.strip();
+        if (stripped.startsWith("```")) {
+            int start = stripped.indexOf('{');
+            int end = stripped.lastIndexOf('}');
+            if (start < 0 || end < start) {
+                return null;
+            }
+            stripped = stripped.substring(start, end + 1);
+        }
+        if (!stripped.startsWith("{")) {
+            return null;
+        }
+        return stripped.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<CommandExplanation.Part> readParts(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_ARRAY) {
+            if (token == JsonScanner.Token.START_OBJECT) {
+                scanner.skipContainer();
+            }
+            return List.of();
+        }
+        List<CommandExplanation.Part> parts = new ArrayList<>();
+        while ((token = scanner.next()) != JsonScanner.Token.END_ARRAY && token != JsonScanner.Token.END) {
+            if (token != JsonScanner.Token.START_OBJECT) {
+                if (token == JsonScanner.Token.START_ARRAY) {
+                    scanner.skipContainer();
+                }
+                continue;
+            }
+            String partToken = null;
+            String meaning = null;
+            while (scanner.next() == JsonScanner.Token.FIELD_NAME) {
+                if (scanner.nameEquals(TOKEN)) {
+                    partToken = readString(scanner);
+                } else if (scanner.nameEquals(MEANING)) {
+                    meaning = readString(scanner);
+                } else {
+                    scanner.skipValue();
+                }
+            }
+            if (partToken != null && meaning != null) {
+                parts.add(new CommandExplanation.Part(partToken, meaning));
+            }
+        }
+        return parts;
+    }
+
+    private static List<String> readStrings(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token != JsonScanner.Token.START_ARRAY) {
+            if (token == JsonScanner.Token.START_OBJECT) {
+                scanner.skipContainer();
+            }
+            return List.of();
+        }
+        List<String> values = new ArrayList<>();
+        while ((token = scanner.next()) != JsonScanner.Token.END_ARRAY && token != JsonScanner.Token.END) {
+            if (token == JsonScanner.Token.STRING) {
+                values.add(scanner.stringValue());
+            } else if (token == JsonScanner.Token.START_OBJECT || token == JsonScanner.Token.START_ARRAY) {
+                scanner.skipContainer();
+            }
+        }
+        return values;
+    }
+
+    static String readString(JsonScanner scanner) {
+        JsonScanner.Token token = scanner.next();
+        if (token == JsonScanner.Token.STRING) {
+            return scanner.stringValue();
+        }
+        if (token == JsonScanner.Token.START_OBJECT || token == JsonScanner.Token.START_ARRAY) {
+            scanner.skipContainer();
+        }
+        return null;
+    }
+
+    private static void appendField(StringBuilder json, String name, String value) {
+        if (value != null) {
+            json.append(",\"").append(name).append("\":");
+            ChatRequest.appendString(json, value);
+        }
+    }
+
+    private static void appendArray(StringBuilder json, String name, List<String> values) {
+        json.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            ChatRequest.appendString(json, values.get(i));
+        }
+        json.append(']');
+    }
+
+    static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.strip();
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
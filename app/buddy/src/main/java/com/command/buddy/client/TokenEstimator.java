@@ -0,0 +1,103 @@
+package com.command.buddy.client;
+
+/**
+ * Estimates how many tokens a prompt costs, without calling the API.
+ *
+ * Splits text the way the Llama 3 pre-tokenizer does (a word with the
+ * space or punctuation mark in front of it, digits in groups of three,
+ * punctuation runs, line breaks) and charges each piece by length, since
+ * the 128k-entry vocabulary is not shipped with the service. Words of up to
+ * six letters are one token; longer words, identifiers and flags are charged
+ * one token per six letters, rounded up. It is an estimate: compare {@code llm.prompt.tokens}
+ * with the prompt tokens Groq reports in {@code llm.tokens} to see how far off it is.
+ */
+public final class TokenEstimator {
+
+    // <|begin_of_text|>, and the assistant header the reply is generated after
+    private static final int REQUEST_OVERHEAD = 1 + 4;
+    // <|start_header_id|>role<|end_header_id|>\n\n ... <|eot_id|>
+    private static final int MESSAGE_OVERHEAD = 5;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * @param request a chat request
+     * @return the estimated prompt tokens, chat template included
+     */
+    public static int estimate(ChatRequest request) {
+        int tokens = REQUEST_OVERHEAD;
+        for (ChatMessage message : request.messages()) {
+            tokens += MESSAGE_OVERHEAD + estimate(message.content());
+        }
+        return tokens;
+    }
+
+    /**
+     * @param text any text
+     * @return the estimated number of tokens it encodes to
+     */
+    public static int estimate(CharSequence text) {
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isLineBreak(c)) {
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    i++;
+                }
+                tokens++;
+            } else if (Character.isWhitespace(c) && (i + 1 >= length || Character.isWhitespace(text.charAt(i + 1)))) {
+                // A run of spaces, less the one that goes with the next word
+                while (i + 1 < length && Character.isWhitespace(text.charAt(i + 1)) && !isLineBreak(text.charAt(i + 1))) {
+                    i++;
+                }
+                i++;
+                tokens++;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else {
+                // One leading space or symbol attaches to the word after it
+                int start = i;
+                if (!Character.isLetter(c)) {
+                    i++;
+                }
+                if (i < length && Character.isLetter(text.charAt(i))) {
+                    int letters = i;
+                    while (i < length && Character.isLetter(text.charAt(i))) {
+                        i++;
+                    }
+                    tokens += wordTokens(text, letters, i);
+                } else {
+                    while (i < length && isSymbol(text.charAt(i))) {
+                        i++;
+                    }
+                    tokens += 1 + (i - start - 1) / 2;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static int wordTokens(CharSequence text, int start, int end) {
+        if (text.charAt(start) >= '\u2E80') {
+            // CJK has no spaces and about one token per character
+            return end - start;
+        }
+        // Six letters or part of them per token
+        return 1 + (end - start - 1) / 6;
+    }
+
+    private static boolean isSymbol(char c) {
+        return !Character.isLetterOrDigit(c) && !Character.isWhitespace(c);
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
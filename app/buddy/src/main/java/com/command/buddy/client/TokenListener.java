@@ -0,0 +1,27 @@
+package com.command.buddy.client;
+
+/**
+ * Receives a streamed completion as it is generated
+ */
+public interface TokenListener {
+
+    /**
+     * Called for every content fragment, in order. Throwing cancels the stream.
+     *
+     * @param token the next piece of generated text
+     * @throws Exception if the token could not be forwarded
+     */
+    void onToken(String token) throws Exception;
+
+    /**
+     * Called once after the last token
+     */
+    void onComplete();
+
+    /**
+     * Called once if the stream fails or is cancelled by the upstream
+     *
+     * @param error the failure
+     */
+    void onError(Throwable error);
+}
@@ -0,0 +1,229 @@
+package com.command.buddy.cluster;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.search.CommandSearchIndex;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the change stream of the {@code commands} collection, so that the
+ * in-process state derived from it, the {@link CommandSearchIndex}, stays
+ * current on every replica and not just the one that wrote the change.
+ *
+ * Inserts, updates and replacements re-index the command and deletes drop
+ * it. A replica also sees its own writes come back; the index skips those,
+ * as their content is already indexed. After a dropped connection the
+ * stream resumes where it left off.
+ *
+ * The stream starts at the cluster time read before the index's startup
+ * scan begins, so a write made while the scan runs is either seen by the
+ * scan or replayed from the stream, and none falls in between.
+ *
+ * Change streams need a replica set; a single-node one is enough. On a
+ * standalone server the stream is turned off with a warning and each
+ * replica's index only sees its own writes until it restarts.
+ */
+@Component
+public class CommandChangeStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandChangeStream.class);
+
+    // $changeStream on a standalone server
+    private static final int NOT_A_REPLICA_SET = 40573;
+    // The resume token fell off the oplog, or cannot be used any more
+    private static final int HISTORY_LOST = 286;
+    private static final int FATAL_ERROR = 280;
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final MongoOperations mongoOperations;
+    private final CommandSearchIndex searchIndex;
+    private final boolean enabled;
+    private final Map<OperationType, Counter> events = new EnumMap<>(OperationType.class);
+
+    private volatile boolean running;
+    private volatile Thread follower;
+    private BsonDocument resumeToken;
+    // Where the first cursor starts when there is no resume token yet
+    private BsonTimestamp startAt;
+
+    public CommandChangeStream(MongoOperations mongoOperations,
+                               CommandSearchIndex searchIndex,
+                               MeterRegistry meterRegistry,
+                               @Value("${cluster.change-stream.enabled:true}") boolean enabled) {
+        this.mongoOperations = mongoOperations;
+        this.searchIndex = searchIndex;
+        this.enabled = enabled;
+
+        for (OperationType type : List.of(OperationType.INSERT, OperationType.UPDATE,
+                                          OperationType.REPLACE, OperationType.DELETE)) {
+            events.put(type, Counter.builder("cluster.change-stream.events")
+                .tag("collection", "commands")
+                .tag("type", type.getValue())
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Start following the stream once the application is up, from before
+     * the search index's startup scan
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        startAt = clusterTime();
+        running = true;
+        follower = Thread.ofVirtual().name("commands-change-stream").start(this::follow);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = follower;
+        if (thread != null) {
+            // Unblocks the cursor, which then closes
+            thread.interrupt();
+        }
+    }
+
+    private void follow() {
+        Duration backoff = MIN_BACKOFF;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changes().cursor()) {
+                log.info("Following changes to commands for the search index");
+                backoff = MIN_BACKOFF;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.next();
+                    apply(change);
+                    resumeToken = change.getResumeToken();
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == NOT_A_REPLICA_SET) {
+                    log.warn("MongoDB is not a replica set, so changes made by other instances "
+                        + "will not reach this instance's search index");
+                    return;
+                }
+                if (e.getErrorCode() == HISTORY_LOST || e.getErrorCode() == FATAL_ERROR) {
+                    log.warn("Unable to resume the commands change stream, changes since the last event are missed: {}",
+                        e.getMessage());
+                    resumeToken = null;
+                    startAt = null;
+                }
+                backoff = pause(backoff, e);
+            } catch (MongoException | IllegalStateException e) {
+                backoff = pause(backoff, e);
+            }
+        }
+    }
+
+    private ChangeStreamIterable<Document> changes() {
+        ChangeStreamIterable<Document> changes = mongoOperations
+            .getCollection(mongoOperations.getCollectionName(Command.class))
+            .watch(List.of(Aggregates.match(Filters.in("operationType",
+                List.of("insert", "update", "replace", "delete")))))
+            .fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) {
+            return changes.resumeAfter(resumeToken);
+        }
+        return startAt == null ? changes : changes.startAtOperationTime(startAt);
+    }
+
+    /**
+     * @return the time of the latest operation on the cluster, or null on a standalone server
+     */
+    private BsonTimestamp clusterTime() {
+        try {
+            Object operationTime = mongoOperations.executeCommand(new Document("hello", 1)).get("operationTime");
+            return operationTime instanceof BsonTimestamp time ? time : null;
+        } catch (DataAccessException e) {
+            log.warn("Unable to read the cluster time, the commands change stream starts from now: {}",
+                e.getMessage());
+            return null;
+        }
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        OperationType type = change.getOperationType();
+        Counter counter = events.get(type);
+        if (counter != null) {
+            counter.increment();
+        }
+        if (type == OperationType.DELETE) {
+            String id = id(change.getDocumentKey());
+            if (id != null) {
+                searchIndex.remove(id);
+            }
+        } else if (change.getFullDocument() != null) {
+            // Null when the document was deleted again before the lookup
+            searchIndex.index(mongoOperations.getConverter().read(Command.class, change.getFullDocument()));
+        }
+    }
+
+    /**
+     * Wait before reconnecting, doubling the wait up to a limit
+     *
+     * @return the wait for the next failure
+     */
+    private Duration pause(Duration backoff, RuntimeException cause) {
+        if (!running) {
+            return backoff;
+        }
+        log.warn("Commands change stream interrupted, reconnecting in {} s: {}",
+            backoff.toSeconds(), cause.getMessage());
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        Duration next = backoff.multipliedBy(2);
+        return next.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : next;
+    }
+
+    private static String id(BsonDocument documentKey) {
+        if (documentKey == null) {
+            return null;
+        }
+        BsonValue id = documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+}
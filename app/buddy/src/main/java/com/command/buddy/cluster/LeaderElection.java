@@ -0,0 +1,172 @@
+package com.command.buddy.cluster;
+
+import com.command.buddy.model.LeaderLease;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Lease-based leader election over the {@code leader_leases} collection, so
+ * that jobs which must run once per cluster, not once per replica, run on
+ * one replica at a time.
+ *
+ * The lease is a single document. Every replica tries to take or renew it
+ * on a fixed delay with one conditional upsert, which only matches while
+ * the replica already owns the lease or the lease has expired; otherwise
+ * the upsert collides with the existing document and fails. A replica that
+ * dies loses the lease when it expires, and one that shuts down hands it
+ * over straight away.
+ *
+ * Expiry times are written with the local clock, so the lease duration
+ * must comfortably exceed the clock skew between replicas. A replica that
+ * cannot reach MongoDB stops considering itself leader when the lease it
+ * last wrote runs out, measured on its own monotonic clock.
+ */
+@Component
+public class LeaderElection {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderElection.class);
+
+    // One lease for every background job; jobs that should spread out would get their own
+    static final String LEASE = "background-jobs";
+
+    private final MongoOperations mongoOperations;
+    private final String instanceId;
+    private final Duration leaseDuration;
+    private final boolean enabled;
+
+    private final Counter acquired;
+    private final Counter lost;
+
+    // System.nanoTime() at which the lease this replica holds runs out, or null if it holds none
+    private volatile Long leaseUntil;
+
+    public LeaderElection(MongoOperations mongoOperations,
+                          MeterRegistry meterRegistry,
+                          @Value("${cluster.instance-id:}") String instanceId,
+                          @Value("${cluster.leader.lease-duration:15s}") Duration leaseDuration,
+                          @Value("${cluster.leader.enabled:true}") boolean enabled) {
+        this.mongoOperations = mongoOperations;
+        this.instanceId = instanceId.isBlank() ? defaultInstanceId() : instanceId;
+        this.leaseDuration = leaseDuration;
+        this.enabled = enabled;
+
+        this.acquired = Counter.builder("cluster.leader.changes")
+            .tag("change", "acquired")
+            .register(meterRegistry);
+        this.lost = Counter.builder("cluster.leader.changes")
+            .tag("change", "lost")
+            .register(meterRegistry);
+        Gauge.builder("cluster.leader", this, election -> election.isLeader() ? 1 : 0)
+            .description("1 on the replica that runs the background jobs")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether this replica holds the lease and should run the background jobs
+     *
+     * @return true while the lease is held, always true when election is disabled
+     */
+    public boolean isLeader() {
+        if (!enabled) {
+            return true;
+        }
+        Long until = leaseUntil;
+        return until != null && System.nanoTime() - until < 0;
+    }
+
+    /**
+     * @return the id this replica writes as the lease owner
+     */
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Take the lease if it is free or expired, or extend it if this replica
+     * already holds it
+     */
+    @Scheduled(fixedDelayString = "${cluster.leader.renew-interval-ms:5000}")
+    public void renew() {
+        if (!enabled) {
+            return;
+        }
+        boolean wasLeader = isLeader();
+        // Measured before the write, so the local deadline never outlives the stored one
+        long start = System.nanoTime();
+        try {
+            leaseUntil = tryAcquire(Instant.now()) ? start + leaseDuration.toNanos() : null;
+        } catch (DataAccessException e) {
+            // Keep what we have until it runs out; nobody else can take it before then either
+            log.warn("Unable to renew the leader lease: {}", e.getMessage());
+        }
+
+        boolean leader = isLeader();
+        if (leader && !wasLeader) {
+            acquired.increment();
+            log.info("Instance {} is now the leader and runs the background jobs", instanceId);
+        } else if (!leader && wasLeader) {
+            lost.increment();
+            log.info("Instance {} is no longer the leader", instanceId);
+        }
+    }
+
+    /**
+     * Hand the lease over on shutdown rather than making the next leader wait for it to expire
+     */
+    @PreDestroy
+    public void release() {
+        if (!enabled || leaseUntil == null) {
+            return;
+        }
+        leaseUntil = null;
+        try {
+            mongoOperations.remove(Query.query(Criteria.where("_id").is(LEASE).and("owner").is(instanceId)),
+                LeaderLease.class);
+        } catch (DataAccessException e) {
+            log.warn("Unable to release the leader lease, it expires in {}: {}", leaseDuration, e.getMessage());
+        }
+    }
+
+    private boolean tryAcquire(Instant now) {
+        Query query = Query.query(Criteria.where("_id").is(LEASE)
+            .orOperator(Criteria.where("owner").is(instanceId), Criteria.where("expiresAt").lt(now)));
+        Update update = new Update()
+            .set("owner", instanceId)
+            .set("expiresAt", now.plus(leaseDuration));
+        try {
+            return mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), LeaderLease.class) != null;
+        } catch (DuplicateKeyException e) {
+            // Held by another replica, so the upsert tried to insert a second lease
+            return false;
+        }
+    }
+
+    /**
+     * The pod name on Kubernetes, or the host name; with a random suffix so
+     * that several instances on one machine, or a restarted pod, never share an id
+     */
+    private static String defaultInstanceId() {
+        String host = System.getenv("HOSTNAME");
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return host == null || host.isBlank() ? suffix : host + "-" + suffix;
+    }
+}
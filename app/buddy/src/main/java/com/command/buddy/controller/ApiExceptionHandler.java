@@ -0,0 +1,85 @@
+package com.command.buddy.controller;
+
+import com.command.buddy.client.GroqApiException;
+import com.command.buddy.client.LlmUnavailableException;
+import com.command.buddy.client.PromptTooLongException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Maps LLM failures and rejected writes to HTTP responses instead of
+ * returning error text with a 200
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    /**
+     * The LLM was not called because it is unavailable or we are out of capacity
+     *
+     * @param e the rejection
+     * @return 503 with a Retry-After header
+     */
+    @ExceptionHandler(LlmUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleUnavailable(LlmUnavailableException e) {
+        return ResponseEntity
+            .status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e))
+            .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * The LLM was called but did not produce a usable answer
+     *
+     * @param e the failure
+     * @return 502
+     */
+    @ExceptionHandler(GroqApiException.class)
+    public ResponseEntity<Map<String, String>> handleUpstreamFailure(GroqApiException e) {
+        return ResponseEntity
+            .status(HttpStatus.BAD_GATEWAY)
+            .body(Map.of("error", "Error calling Groq API: " + e.getMessage()));
+    }
+
+    /**
+     * The user's input would make a prompt over the input token budget
+     *
+     * @param e the rejection
+     * @return 400
+     */
+    @ExceptionHandler(PromptTooLongException.class)
+    public ResponseEntity<Map<String, String>> handlePromptTooLong(PromptTooLongException e) {
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * A command with the same tool and command text is already stored
+     *
+     * @param e the rejected write
+     * @return 409
+     */
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Map<String, String>> handleDuplicate(DuplicateKeyException e) {
+        return ResponseEntity
+            .status(HttpStatus.CONFLICT)
+            .body(Map.of("error", "This command is already stored"));
+    }
+
+    /**
+     * Retry-After in whole seconds, never less than one
+     *
+     * @param e the rejection
+     * @return the header value
+     */
+    static String retryAfterSeconds(LlmUnavailableException e) {
+        long millis = e.getRetryAfter().toMillis();
+        return Long.toString(Math.max(1, (millis + 999) / 1000));
+    }
+}
@@ -1,33 +1,52 @@
 package com.command.buddy.controller;
 
+import com.command.buddy.bulk.BulkCommandService;
+import com.command.buddy.bulk.ImportReport;
 import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandSummary;
 import com.command.buddy.service.CommandService;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * REST controller for handling Command operations
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/commands")
 public class CommandController {
 
+    private static final int MAX_SEARCH_LIMIT = 200;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final CommandService commandService;
+    private final BulkCommandService bulkCommandService;
 
     @Autowired
-    public CommandController(CommandService commandService) {
+    public CommandController(CommandService commandService, BulkCommandService bulkCommandService) {
         this.commandService = commandService;
+        this.bulkCommandService = bulkCommandService;
     }
 
     /**
      * Create a new command
      *
      * @param command the command to save
-     * @return the saved command with its generated ID
+     * @return the saved command with its generated ID, or 409 if the same command is already stored
      */
     @PostMapping
     public ResponseEntity<Command> createCommand(@RequestBody Command command) {
@@ -45,24 +64,122 @@ public class CommandController {
     }
 
     /**
-     * Get all commands for a specific tool
+     * Import commands in bulk from newline-delimited JSON, one command
+     * object per line. The body is parsed as it arrives and written in
+     * unordered batches.
+     *
+     * @param body the request body
+     * @return counts, throughput and the errors of every batch
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportReport> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkCommandService.importNdjson(body));
+    }
+    
+    /**
+     * Import commands in bulk from CSV with a {@code toolName,commandText,explanation}
+     * header row
+     *
+     * @param body the request body
+     * @return counts, throughput and the errors of every batch
+     */
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<ImportReport> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkCommandService.importCsv(body));
+    }
+    
+    /**
+     * Export commands as newline-delimited JSON or CSV, streamed from a
+     * database cursor
+     *
+     * @param toolName only export this tool; every command when absent
+     * @param format {@code ndjson} or {@code csv}
+     * @return the commands
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCommands(
+            @RequestParam(required = false) String toolName,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        String tool = toolName == null || toolName.isBlank() ? null : toolName;
+        return switch (format) {
+            case "ndjson" -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"commands.ndjson\"")
+                .body(out -> bulkCommandService.exportNdjson(tool, out));
+            case "csv" -> ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"commands.csv\"")
+                .body(out -> bulkCommandService.exportCsv(tool, out));
+            default -> ResponseEntity.badRequest().build();
+        };
+    }
+    
+    /**
+     * Get one page of commands for a specific tool. When the page is full, a
+     * {@code Link} header with {@code rel="next"} points at the next one.
      *
      * @param toolName the name of the tool
-     * @return list of commands for the specified tool
+     * @param after the id of the last command of the previous page
+     * @param limit the page size
+     * @param view {@code full}, or {@code summary} to leave out explanations
+     * @return list of commands for the specified tool, in id order
      */
     @GetMapping("/{toolName}")
-    public ResponseEntity<List<Command>> getCommandsByTool(@PathVariable String toolName) {
-        if (toolName == null || toolName.trim().isEmpty()) {
+    public ResponseEntity<List<?>> getCommandsByTool(
+            @PathVariable String toolName,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "full") String view) {
+        Class<?> type = viewType(view);
+        if (toolName == null || toolName.trim().isEmpty() || type == null ||
+            !isValidCursor(after) || limit < 1 || limit > MAX_PAGE_SIZE) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         
-        List<Command> commands = commandService.findCommandsByToolName(toolName);
+        List<?> commands = commandService.findCommandsByToolName(toolName, after, limit, type);
         
         if (commands.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
         
-        return new ResponseEntity<>(commands, HttpStatus.OK);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (commands.size() == limit) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", idOf(commands.get(commands.size() - 1)))
+                .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(commands);
+    }
+    
+    /**
+     * Stream every command for a specific tool as newline-delimited JSON.
+     * Documents are written as they come off the database cursor, so memory
+     * use does not grow with the number of commands.
+     *
+     * @param toolName the name of the tool
+     * @param after only return commands after this id
+     * @param view {@code full}, or {@code summary} to leave out explanations
+     * @return one JSON document per line
+     */
+    @GetMapping(value = "/{toolName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCommandsByTool(
+            @PathVariable String toolName,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "full") String view) {
+        Class<?> type = viewType(view);
+        if (toolName == null || toolName.trim().isEmpty() || type == null || !isValidCursor(after)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> {
+            try (Stream<?> commands = commandService.streamCommandsByToolName(toolName, after, type)) {
+                bulkCommandService.writeNdjson(commands, out);
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
     }
     
     /**
@@ -70,19 +187,22 @@ public class CommandController {
      *
      * @param toolName the name of the tool
      * @param searchText the text to search for
+     * @param limit maximum number of results, best match first
      * @return list of matching commands
      */
     @GetMapping("/{toolName}/search")
     public ResponseEntity<List<Command>> searchCommands(
             @PathVariable String toolName,
-            @RequestParam String searchText) {
+            @RequestParam String searchText,
+            @RequestParam(defaultValue = "20") int limit) {
         
         if (toolName == null || toolName.trim().isEmpty() || 
-            searchText == null || searchText.trim().isEmpty()) {
+            searchText == null || searchText.trim().isEmpty() ||
+            limit < 1 || limit > MAX_SEARCH_LIMIT) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         
-        List<Command> commands = commandService.searchCommandsByToolAndText(toolName, searchText);
+        List<Command> commands = commandService.searchCommandsByToolAndText(toolName, searchText, limit);
         
         if (commands.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -90,4 +210,47 @@ public class CommandController {
         
         return new ResponseEntity<>(commands, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    /**
+     * Find commands by a tag of their structured explanation
+     *
+     * @param toolName the name of the tool
+     * @param tag the tag, e.g. "branching"
+     * @param limit maximum number of results
+     * @return list of matching commands, in id order
+     */
+    @GetMapping("/{toolName}/tags/{tag}")
+    public ResponseEntity<List<Command>> getCommandsByTag(
+            @PathVariable String toolName,
+            @PathVariable String tag,
+            @RequestParam(defaultValue = "50") int limit) {
+        
+        if (toolName.trim().isEmpty() || tag.trim().isEmpty() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        
+        List<Command> commands = commandService.findCommandsByTag(toolName, tag, limit);
+        
+        if (commands.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        
+        return new ResponseEntity<>(commands, HttpStatus.OK);
+    }
+
+    private static Class<?> viewType(String view) {
+        return switch (view) {
+            case "full" -> Command.class;
+            case "summary" -> CommandSummary.class;
+            default -> null;
+        };
+    }
+    
+    private static boolean isValidCursor(String after) {
+        return after == null || ObjectId.isValid(after);
+    }
+    
+    private static String idOf(Object command) {
+        return command instanceof CommandSummary summary ? summary.id() : ((Command) command).getId();
+    }
+}
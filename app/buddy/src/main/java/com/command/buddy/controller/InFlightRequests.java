@@ -0,0 +1,45 @@
+package com.command.buddy.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Requests being handled right now, per controller.
+ *
+ * Published as {@code http.server.requests.in-flight} tagged with the
+ * controller's class name. A streamed response counts until its last event
+ * is sent, so this shows the SSE connections held open as well as the
+ * ordinary requests.
+ */
+@Component
+public class InFlightRequests {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    public InFlightRequests(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param controller the controller class a request was mapped to
+     * @return the count to increment when the request starts and decrement when it ends
+     */
+    public AtomicInteger of(Class<?> controller) {
+        return counts.computeIfAbsent(controller, this::register);
+    }
+
+    private AtomicInteger register(Class<?> controller) {
+        AtomicInteger count = new AtomicInteger();
+        Gauge.builder("http.server.requests.in-flight", count, AtomicInteger::get)
+            .description("Requests currently being handled")
+            .tag("controller", controller.getSimpleName())
+            .register(meterRegistry);
+        return count;
+    }
+}
@@ -0,0 +1,55 @@
+package com.command.buddy.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts servlet requests into {@link InFlightRequests}.
+ *
+ * An async request (SSE, streaming export) is dispatched again when it
+ * finishes; the count taken on the first dispatch rides along as a request
+ * attribute and is released in the {@code afterCompletion} of the last one.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class InFlightRequestsInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    private static final String COUNT_ATTRIBUTE = InFlightRequestsInterceptor.class.getName() + ".count";
+
+    private final InFlightRequests inFlight;
+
+    public InFlightRequestsInterceptor(InFlightRequests inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method && request.getAttribute(COUNT_ATTRIBUTE) == null) {
+            AtomicInteger count = inFlight.of(method.getBeanType());
+            count.incrementAndGet();
+            request.setAttribute(COUNT_ATTRIBUTE, count);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(COUNT_ATTRIBUTE) instanceof AtomicInteger count) {
+            request.removeAttribute(COUNT_ATTRIBUTE);
+            count.decrementAndGet();
+        }
+    }
+}
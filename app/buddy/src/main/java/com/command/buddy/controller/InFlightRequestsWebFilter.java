@@ -0,0 +1,52 @@
+package com.command.buddy.controller;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive twin of {@link InFlightRequestsInterceptor}.
+ *
+ * WebFlux picks the handler after the filters have run, so the filter looks
+ * it up itself; the lookup only matches request mappings, which is cheap
+ * next to the request it measures.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class InFlightRequestsWebFilter implements WebFilter {
+
+    private final InFlightRequests inFlight;
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    public InFlightRequestsWebFilter(InFlightRequests inFlight,
+                                     @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        this.inFlight = inFlight;
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return handlerMapping.getHandler(exchange)
+            .onErrorResume(error -> Mono.empty())
+            .map(handler -> handler instanceof HandlerMethod method
+                ? Optional.of(inFlight.of(method.getBeanType()))
+                : Optional.<AtomicInteger>empty())
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(count -> {
+                if (count.isEmpty()) {
+                    return chain.filter(exchange);
+                }
+                count.get().incrementAndGet();
+                return chain.filter(exchange).doFinally(signal -> count.get().decrementAndGet());
+            });
+    }
+}
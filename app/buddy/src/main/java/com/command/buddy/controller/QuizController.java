@@ -1,35 +1,67 @@
 package com.command.buddy.controller;
 
+import com.command.buddy.client.AnswerEvaluation;
+import com.command.buddy.client.AnswerItem;
+import com.command.buddy.client.ChatStream;
+import com.command.buddy.client.LlmUnavailableException;
+import com.command.buddy.model.AnswerFeedback;
 import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandExplanation;
 import com.command.buddy.service.QuizService;
+import com.command.buddy.session.QuizSessions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for quiz functionality
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/quiz")
 public class QuizController {
 
     private final QuizService quizService;
+    private final Duration streamTimeout;
+    private final int maxBatchItems;
 
-    public QuizController(QuizService quizService) {
+    public QuizController(QuizService quizService,
+                          @Value("${quiz.stream.timeout:90s}") Duration streamTimeout,
+                          @Value("${quiz.batch.max-items:500}") int maxBatchItems) {
         this.quizService = quizService;
+        this.streamTimeout = streamTimeout;
+        this.maxBatchItems = maxBatchItems;
     }
 
     /**
-     * Generate a quiz question for a specific tool
+     * Generate a quiz question for a specific tool. Clients that send an
+     * {@code X-Session-Id} header are not served the same question twice.
      *
      * @param toolName the name of the tool
+     * @param sessionId the client's session id, optional
      * @return a quiz question
      */
     @GetMapping("/{toolName}")
-    public ResponseEntity<Map<String, String>> getQuizQuestion(@PathVariable String toolName) {
-        String question = quizService.generateQuestion(toolName);
+    public ResponseEntity<Map<String, String>> getQuizQuestion(
+            @PathVariable String toolName,
+            @RequestHeader(value = "X-Session-Id", required = false) String sessionId) {
+        if (sessionId != null && !QuizSessions.isValidId(sessionId)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String question = quizService.generateQuestion(toolName, sessionId);
         
         Map<String, String> response = new HashMap<>();
         response.put("question", question);
@@ -47,10 +79,10 @@ public class QuizController {
      * Check if a command answer is correct
      *
      * @param params Map containing the question, answer, and toolName
-     * @return feedback on the answer
+     * @return the feedback as text, and as typed fields under "result"
      */
     @PostMapping("/check")
-    public ResponseEntity<Map<String, String>> checkAnswer(@RequestBody Map<String, String> params) {
+    public ResponseEntity<Map<String, Object>> checkAnswer(@RequestBody Map<String, String> params) {
         String question = params.get("question");
         String answer = params.get("answer");
         String toolName = params.get("toolName");
@@ -59,22 +91,47 @@ public class QuizController {
             return ResponseEntity.badRequest().build();
         }
         
-        String feedback = quizService.evaluateAnswer(toolName, question, answer);
+        AnswerFeedback feedback = quizService.evaluateAnswer(toolName, question, answer);
         
-        Map<String, String> response = new HashMap<>();
-        response.put("feedback", feedback);
+        Map<String, Object> response = new HashMap<>();
+        response.put("feedback", feedback.text());
+        response.put("result", feedback);
         
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Check many command answers at once, e.g. a whole exam. Answers are
+     * graded in as few LLM calls as possible; one that cannot be graded
+     * carries an error instead of failing the others.
+     *
+     * @param params Map containing "items", each with the question, answer, and toolName
+     * @return one result per item, in the same order, with its feedback and what batching saved
+     */
+    @PostMapping("/check/batch")
+    public CompletableFuture<ResponseEntity<Map<String, List<AnswerEvaluation>>>> checkAnswers(
+            @RequestBody Map<String, List<Map<String, String>>> params) {
+        List<AnswerItem> items = answerItems(params.get("items"), maxBatchItems);
+        if (items == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.evaluateAnswers(items)
+            .thenApply(results -> {
+                Map<String, List<AnswerEvaluation>> response = new HashMap<>();
+                response.put("results", results);
+                return ResponseEntity.ok(response);
+            });
+    }
+
     /**
      * Get an explanation for a command
      *
      * @param params Map containing the command and toolName
-     * @return explanation of the command
+     * @return the explanation as text, and as typed sections under "details"
      */
     @PostMapping("/explain")
-    public ResponseEntity<Map<String, String>> explainCommand(@RequestBody Map<String, String> params) {
+    public ResponseEntity<Map<String, Object>> explainCommand(@RequestBody Map<String, String> params) {
         String command = params.get("command");
         String toolName = params.get("toolName");
         
@@ -82,19 +139,79 @@ public class QuizController {
             return ResponseEntity.badRequest().build();
         }
         
-        String explanation = quizService.getCommandExplanation(toolName, command);
+        CommandExplanation explanation = quizService.getCommandExplanation(toolName, command);
         
-        Map<String, String> response = new HashMap<>();
-        response.put("explanation", explanation);
+        Map<String, Object> response = new HashMap<>();
+        response.put("explanation", explanation.text());
+        response.put("details", explanation);
         
         return ResponseEntity.ok(response);
     }
     
     /**
-     * Save a command after quiz
+     * Stream feedback on a command answer as server-sent events
+     *
+     * @param params Map containing the question, answer, and toolName
+     * @return an event stream of feedback tokens
+     */
+    @PostMapping(value = "/check/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAnswerCheck(@RequestBody Map<String, String> params) {
+        String question = params.get("question");
+        String answer = params.get("answer");
+        String toolName = params.get("toolName");
+        
+        if (question == null || answer == null || toolName == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        try {
+            ChatStream stream = quizService.streamAnswerEvaluation(toolName, question, answer, new SseTokenListener(emitter));
+            cancelOnDisconnect(emitter, stream);
+        } catch (LlmUnavailableException e) {
+            // Nothing has been streamed yet, so the client can still get a proper status
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, ApiExceptionHandler.retryAfterSeconds(e))
+                .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * Stream an explanation for a command as server-sent events
+     *
+     * @param params Map containing the command and toolName
+     * @return an event stream of explanation tokens
+     */
+    @PostMapping(value = "/explain/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExplanation(@RequestBody Map<String, String> params) {
+        String command = params.get("command");
+        String toolName = params.get("toolName");
+        
+        if (command == null || toolName == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        try {
+            ChatStream stream = quizService.streamCommandExplanation(toolName, command, new SseTokenListener(emitter));
+            cancelOnDisconnect(emitter, stream);
+        } catch (LlmUnavailableException e) {
+            // Nothing has been streamed yet, so the client can still get a proper status
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, ApiExceptionHandler.retryAfterSeconds(e))
+                .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * Save a command after quiz. The command is written shortly after the
+     * response, so this answers 202 Accepted.
      *
      * @param params Map containing the command, toolName, and explanation
-     * @return the saved command
+     * @return the queued command, identified by its content hash since it
+     *         has no ID until it is written
      */
     @PostMapping("/save")
     public ResponseEntity<Command> saveCommand(@RequestBody Map<String, String> params) {
@@ -106,7 +223,39 @@ public class QuizController {
             return ResponseEntity.badRequest().build();
         }
         
-        Command savedCommand = quizService.saveCommand(toolName, command, explanation);
-        return ResponseEntity.ok(savedCommand);
+        Command queuedCommand = quizService.saveCommand(toolName, command, explanation);
+        return ResponseEntity.accepted().body(queuedCommand);
+    }
+    
+    /**
+     * @param items the items of a batch check
+     * @param maxItems how many one request may carry
+     * @return the answers to grade, or null if the batch is empty, too large or an item lacks a field
+     */
+    static List<AnswerItem> answerItems(List<Map<String, String>> items, int maxItems) {
+        if (items == null || items.isEmpty() || items.size() > maxItems) {
+            return null;
+        }
+        List<AnswerItem> answers = new ArrayList<>(items.size());
+        for (Map<String, String> item : items) {
+            String question = item == null ? null : item.get("question");
+            String answer = item == null ? null : item.get("answer");
+            String toolName = item == null ? null : item.get("toolName");
+            if (question == null || answer == null || toolName == null) {
+                return null;
+            }
+            answers.add(new AnswerItem(toolName, question, answer));
+        }
+        return answers;
+    }
+
+    /**
+     * Abort the upstream LLM request when the client goes away, so we stop
+     * paying for tokens nobody reads
+     */
+    private void cancelOnDisconnect(SseEmitter emitter, ChatStream stream) {
+        emitter.onCompletion(stream::cancel);
+        emitter.onTimeout(stream::cancel);
+        emitter.onError(error -> stream.cancel());
     }
 }
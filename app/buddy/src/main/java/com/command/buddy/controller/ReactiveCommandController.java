@@ -0,0 +1,188 @@
+package com.command.buddy.controller;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandSummary;
+import com.command.buddy.service.ReactiveCommandService;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive twin of {@link CommandController}. Bulk import and export are
+ * only served by the servlet stack.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/commands")
+public class ReactiveCommandController {
+
+    private static final int MAX_SEARCH_LIMIT = 200;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final ReactiveCommandService commandService;
+
+    public ReactiveCommandController(ReactiveCommandService commandService) {
+        this.commandService = commandService;
+    }
+
+    /**
+     * Create a new command
+     *
+     * @param command the command to save
+     * @return the saved command with its generated ID, or 409 if the same command is already stored
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Command>> createCommand(@RequestBody Command command) {
+        if (command.getToolName() == null || command.getToolName().trim().isEmpty() ||
+            command.getCommandText() == null || command.getCommandText().trim().isEmpty()) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        return commandService.saveCommand(command)
+            .map(savedCommand -> new ResponseEntity<>(savedCommand, HttpStatus.CREATED));
+    }
+
+    /**
+     * Get one page of commands for a specific tool. When the page is full, a
+     * {@code Link} header with {@code rel="next"} points at the next one.
+     *
+     * @param toolName the name of the tool
+     * @param after the id of the last command of the previous page
+     * @param limit the page size
+     * @param view {@code full}, or {@code summary} to leave out explanations
+     * @param request the current request, used to build the next link
+     * @return list of commands for the specified tool, in id order
+     */
+    @GetMapping("/{toolName}")
+    public Mono<ResponseEntity<List<?>>> getCommandsByTool(
+            @PathVariable String toolName,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "full") String view,
+            ServerHttpRequest request) {
+        Class<?> type = viewType(view);
+        if (toolName == null || toolName.trim().isEmpty() || type == null ||
+            !isValidCursor(after) || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        return commandService.findCommandsByToolName(toolName, after, limit, type)
+            .collectList()
+            .map(commands -> {
+                if (commands.isEmpty()) {
+                    return new ResponseEntity<List<?>>(HttpStatus.NO_CONTENT);
+                }
+
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                if (commands.size() == limit) {
+                    String next = UriComponentsBuilder.fromUri(request.getURI())
+                        .replaceQueryParam("after", idOf(commands.get(commands.size() - 1)))
+                        .toUriString();
+                    response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+                }
+                return response.<List<?>>body(commands);
+            });
+    }
+
+    /**
+     * Stream every command for a specific tool as newline-delimited JSON,
+     * reading from the cursor only as fast as the client consumes
+     *
+     * @param toolName the name of the tool
+     * @param after only return commands after this id
+     * @param view {@code full}, or {@code summary} to leave out explanations
+     * @return one JSON document per line
+     */
+    @GetMapping(value = "/{toolName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<?>> streamCommandsByTool(
+            @PathVariable String toolName,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "full") String view) {
+        Class<?> type = viewType(view);
+        if (toolName == null || toolName.trim().isEmpty() || type == null || !isValidCursor(after)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .<Flux<?>>body(commandService.streamCommandsByToolName(toolName, after, type));
+    }
+
+    /**
+     * Search for commands by tool name and text
+     *
+     * @param toolName the name of the tool
+     * @param searchText the text to search for
+     * @param limit maximum number of results, best match first
+     * @return list of matching commands
+     */
+    @GetMapping("/{toolName}/search")
+    public Mono<ResponseEntity<List<Command>>> searchCommands(
+            @PathVariable String toolName,
+            @RequestParam String searchText,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        if (toolName == null || toolName.trim().isEmpty() ||
+            searchText == null || searchText.trim().isEmpty() ||
+            limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        return commandService.searchCommandsByToolAndText(toolName, searchText, limit)
+            .collectList()
+            .map(commands -> commands.isEmpty()
+                ? new ResponseEntity<List<Command>>(HttpStatus.NO_CONTENT)
+                : new ResponseEntity<>(commands, HttpStatus.OK));
+    }
+
+    /**
+     * Find commands by a tag of their structured explanation
+     *
+     * @param toolName the name of the tool
+     * @param tag the tag, e.g. "branching"
+     * @param limit maximum number of results
+     * @return list of matching commands, in id order
+     */
+    @GetMapping("/{toolName}/tags/{tag}")
+    public Mono<ResponseEntity<List<Command>>> getCommandsByTag(
+            @PathVariable String toolName,
+            @PathVariable String tag,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        if (toolName.trim().isEmpty() || tag.trim().isEmpty() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        return commandService.findCommandsByTag(toolName, tag, limit)
+            .collectList()
+            .map(commands -> commands.isEmpty()
+                ? new ResponseEntity<List<Command>>(HttpStatus.NO_CONTENT)
+                : new ResponseEntity<>(commands, HttpStatus.OK));
+    }
+
+    private static Class<?> viewType(String view) {
+        return switch (view) {
+            case "full" -> Command.class;
+            case "summary" -> CommandSummary.class;
+            default -> null;
+        };
+    }
+
+    private static boolean isValidCursor(String after) {
+        return after == null || ObjectId.isValid(after);
+    }
+
+    private static String idOf(Object command) {
+        return command instanceof CommandSummary summary ? summary.id() : ((Command) command).getId();
+    }
+}
@@ -0,0 +1,223 @@
+package com.command.buddy.controller;
+
+import com.command.buddy.client.AnswerEvaluation;
+import com.command.buddy.client.AnswerItem;
+import com.command.buddy.client.LlmUnavailableException;
+import com.command.buddy.model.Command;
+import com.command.buddy.service.ReactiveQuizService;
+import com.command.buddy.session.QuizSessions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive twin of {@link QuizController}, serving the same API with
+ * {@link Mono} and {@link Flux} results
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/quiz")
+public class ReactiveQuizController {
+
+    private final ReactiveQuizService quizService;
+    private final Duration streamTimeout;
+    private final int maxBatchItems;
+
+    public ReactiveQuizController(ReactiveQuizService quizService,
+                                  @Value("${quiz.stream.timeout:90s}") Duration streamTimeout,
+                                  @Value("${quiz.batch.max-items:500}") int maxBatchItems) {
+        this.quizService = quizService;
+        this.streamTimeout = streamTimeout;
+        this.maxBatchItems = maxBatchItems;
+    }
+
+    /**
+     * Generate a quiz question for a specific tool. Clients that send an
+     * {@code X-Session-Id} header are not served the same question twice.
+     *
+     * @param toolName the name of the tool
+     * @param sessionId the client's session id, optional
+     * @return a quiz question
+     */
+    @GetMapping("/{toolName}")
+    public Mono<ResponseEntity<Map<String, String>>> getQuizQuestion(
+            @PathVariable String toolName,
+            @RequestHeader(value = "X-Session-Id", required = false) String sessionId) {
+        if (sessionId != null && !QuizSessions.isValidId(sessionId)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.generateQuestion(toolName, sessionId)
+            .map(question -> {
+                Map<String, String> response = new HashMap<>();
+                response.put("question", question);
+                response.put("toolName", toolName);
+
+                return ResponseEntity
+                    .ok()
+                    .header("Cache-Control", "no-cache, no-store, must-revalidate")
+                    .header("Pragma", "no-cache")
+                    .header("Expires", "0")
+                    .body(response);
+            });
+    }
+
+    /**
+     * Check if a command answer is correct
+     *
+     * @param params Map containing the question, answer, and toolName
+     * @return the feedback as text, and as typed fields under "result"
+     */
+    @PostMapping("/check")
+    public Mono<ResponseEntity<Map<String, Object>>> checkAnswer(@RequestBody Map<String, String> params) {
+        String question = params.get("question");
+        String answer = params.get("answer");
+        String toolName = params.get("toolName");
+
+        if (question == null || answer == null || toolName == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.evaluateAnswer(toolName, question, answer)
+            .map(feedback -> ResponseEntity.ok(structured("feedback", feedback.text(), "result", feedback)));
+    }
+
+    /**
+     * Check many command answers at once, e.g. a whole exam. Answers are
+     * graded in as few LLM calls as possible; one that cannot be graded
+     * carries an error instead of failing the others.
+     *
+     * @param params Map containing "items", each with the question, answer, and toolName
+     * @return one result per item, in the same order, with its feedback and what batching saved
+     */
+    @PostMapping("/check/batch")
+    public Mono<ResponseEntity<Map<String, List<AnswerEvaluation>>>> checkAnswers(
+            @RequestBody Map<String, List<Map<String, String>>> params) {
+        List<AnswerItem> items = QuizController.answerItems(params.get("items"), maxBatchItems);
+        if (items == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.evaluateAnswers(items)
+            .map(results -> {
+                Map<String, List<AnswerEvaluation>> response = new HashMap<>();
+                response.put("results", results);
+                return ResponseEntity.ok(response);
+            });
+    }
+
+    /**
+     * Get an explanation for a command
+     *
+     * @param params Map containing the command and toolName
+     * @return the explanation as text, and as typed sections under "details"
+     */
+    @PostMapping("/explain")
+    public Mono<ResponseEntity<Map<String, Object>>> explainCommand(@RequestBody Map<String, String> params) {
+        String command = params.get("command");
+        String toolName = params.get("toolName");
+
+        if (command == null || toolName == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.getCommandExplanation(toolName, command)
+            .map(explanation -> ResponseEntity.ok(structured("explanation", explanation.text(), "details", explanation)));
+    }
+
+    /**
+     * Stream feedback on a command answer as server-sent events
+     *
+     * @param params Map containing the question, answer, and toolName
+     * @return an event stream of feedback tokens
+     */
+    @PostMapping(value = "/check/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamAnswerCheck(@RequestBody Map<String, String> params) {
+        String question = params.get("question");
+        String answer = params.get("answer");
+        String toolName = params.get("toolName");
+
+        if (question == null || answer == null || toolName == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(events(quizService.streamAnswerEvaluation(toolName, question, answer)));
+    }
+
+    /**
+     * Stream an explanation for a command as server-sent events
+     *
+     * @param params Map containing the command and toolName
+     * @return an event stream of explanation tokens
+     */
+    @PostMapping(value = "/explain/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamExplanation(@RequestBody Map<String, String> params) {
+        String command = params.get("command");
+        String toolName = params.get("toolName");
+
+        if (command == null || toolName == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(events(quizService.streamCommandExplanation(toolName, command)));
+    }
+
+    /**
+     * Save a command after quiz. The command is written shortly after the
+     * response, so this answers 202 Accepted.
+     *
+     * @param params Map containing the command, toolName, and explanation
+     * @return the queued command, identified by its content hash since it
+     *         has no ID until it is written
+     */
+    @PostMapping("/save")
+    public Mono<ResponseEntity<Command>> saveCommand(@RequestBody Map<String, String> params) {
+        String command = params.get("command");
+        String toolName = params.get("toolName");
+        String explanation = params.get("explanation");
+
+        if (command == null || toolName == null || explanation == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return quizService.saveCommand(toolName, command, explanation)
+            .map(queuedCommand -> ResponseEntity.accepted().body(queuedCommand));
+    }
+
+    /**
+     * The same events as {@link SseTokenListener}: {@code token} events
+     * followed by a single {@code done} or {@code error}. A rejection before
+     * the first token is left to {@link ApiExceptionHandler}, so the client
+     * still gets a 503. Cancelling the subscription when the client goes away
+     * aborts the upstream request.
+     */
+    private Flux<ServerSentEvent<Map<String, String>>> events(Flux<String> tokens) {
+        return tokens
+            .map(token -> event("token", Map.of("token", token)))
+            .concatWith(Mono.fromSupplier(() -> event("done", Map.of())))
+            .timeout(streamTimeout)
+            .onErrorResume(error -> !(error instanceof LlmUnavailableException),
+                error -> Mono.just(event("error", Map.of("message", "Error calling Groq API: " + error.getMessage()))));
+    }
+
+    private static ServerSentEvent<Map<String, String>> event(String name, Map<String, String> data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+
+    private static Map<String, Object> structured(String textKey, String text, String key, Object value) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(textKey, text);
+        response.put(key, value);
+        return response;
+    }
+}
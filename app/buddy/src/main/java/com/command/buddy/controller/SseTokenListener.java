@@ -0,0 +1,53 @@
+package com.command.buddy.controller;
+
+import com.command.buddy.client.TokenListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Forwards streamed LLM tokens to the browser as server-sent events.
+ *
+ * Emits {@code token} events carrying {"token": "..."} followed by a single
+ * {@code done} or {@code error} event.
+ */
+class SseTokenListener implements TokenListener {
+
+    private final SseEmitter emitter;
+
+    SseTokenListener(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void onToken(String token) throws IOException {
+        // Blocks while the client is slow to read, which holds back the upstream
+        emitter.send(SseEmitter.event()
+            .name("token")
+            .data(Map.of("token", token), MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            emitter.send(SseEmitter.event().name("done").data(Map.of(), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        try {
+            emitter.send(SseEmitter.event()
+                .name("error")
+                .data(Map.of("message", "Error calling Groq API: " + error.getMessage()), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+}
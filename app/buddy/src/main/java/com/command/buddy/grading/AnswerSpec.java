@@ -0,0 +1,16 @@
+package com.command.buddy.grading;
+
+import java.util.List;
+
+/**
+ * What counts as a right answer to one quiz question
+ *
+ * @param toolName the tool the question is about
+ * @param answers canonical spellings of the commands that answer it
+ */
+public record AnswerSpec(String toolName, List<String> answers) {
+
+    public AnswerSpec {
+        answers = List.copyOf(answers);
+    }
+}
@@ -0,0 +1,117 @@
+package com.command.buddy.grading;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.client.GeneratedQuestion;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.model.ExpectedAnswer;
+import com.command.buddy.repository.ExpectedAnswerRepository;
+import com.command.buddy.shell.CommandCanonicalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Expected answers of generated questions, looked up by the question text
+ * that comes back with the user's answer.
+ *
+ * Specs are written to the {@code expected_answers} collection when the
+ * question is generated, before any user sees it, and kept in a bounded
+ * in-process LRU. Questions without a spec are remembered too, so they do
+ * not cost a MongoDB lookup on every answer.
+ */
+@Component
+public class AnswerSpecStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerSpecStore.class);
+
+    // Marks a question known to have no spec
+    private static final AnswerSpec NONE = new AnswerSpec("", List.of());
+
+    private final ExpectedAnswerRepository repository;
+    private final int maxEntries;
+    private final LinkedHashMap<String, AnswerSpec> specs;
+
+    public AnswerSpecStore(ExpectedAnswerRepository repository,
+                           @Value("${quiz.grading.max-specs:10000}") int maxEntries) {
+        this.repository = repository;
+        this.maxEntries = maxEntries;
+        this.specs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnswerSpec> eldest) {
+                return size() > AnswerSpecStore.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Record the expected answers of a freshly generated question
+     *
+     * @param toolName the name of the tool
+     * @param generated the question and its answers
+     * @return the question text
+     */
+    public String register(String toolName, GeneratedQuestion generated) {
+        String question = generated.text();
+        if (question == null || question.isBlank() || generated.answers().isEmpty()) {
+            return question;
+        }
+
+        List<String> answers = generated.answers().stream()
+            .map(CommandCanonicalizer::canonicalize)
+            .filter(answer -> !answer.isEmpty())
+            .distinct()
+            .toList();
+        String key = key(toolName, question);
+        putLocal(key, new AnswerSpec(toolName, answers));
+        try {
+            repository.save(new ExpectedAnswer(key, toolName, answers, Instant.now()));
+        } catch (DataAccessException e) {
+            log.warn("Expected answer write failed: {}", e.getMessage());
+        }
+        return question;
+    }
+
+    /**
+     * @param toolName the name of the tool
+     * @param question the quiz question as shown to the user
+     * @return its expected answers, or empty if it has none on record
+     */
+    public Optional<AnswerSpec> find(String toolName, String question) {
+        String key = key(toolName, question);
+        AnswerSpec spec;
+        synchronized (specs) {
+            spec = specs.get(key);
+        }
+        if (spec == null) {
+            try {
+                spec = repository.findById(key)
+                    .map(stored -> new AnswerSpec(stored.getToolName(), stored.getAnswers()))
+                    .orElse(NONE);
+            } catch (DataAccessException e) {
+                // Not remembered, the next answer tries again
+                log.warn("Expected answer lookup failed: {}", e.getMessage());
+                return Optional.empty();
+            }
+            putLocal(key, spec);
+        }
+        return spec == NONE ? Optional.empty() : Optional.of(spec);
+    }
+
+    private void putLocal(String key, AnswerSpec spec) {
+        synchronized (specs) {
+            specs.put(key, spec);
+        }
+    }
+
+    private static String key(String toolName, String question) {
+        return CacheKey.of(LlmOperation.GENERATE_QUESTION, toolName, question);
+    }
+}
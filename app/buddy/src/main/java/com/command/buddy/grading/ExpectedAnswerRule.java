@@ -0,0 +1,31 @@
+package com.command.buddy.grading;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * An answer that is one of the question's expected commands, up to flag
+ * order, flag spelling, quoting and whitespace, is correct
+ */
+@Component
+@Order(1)
+public class ExpectedAnswerRule implements GradingRule {
+
+    @Override
+    public String name() {
+        return "expected-answer";
+    }
+
+    @Override
+    public Optional<Grade> grade(Submission submission) {
+        AnswerSpec spec = submission.spec();
+        if (spec == null || !spec.answers().contains(submission.canonicalAnswer())) {
+            return Optional.empty();
+        }
+        return Optional.of(new Grade(true,
+            "1. CORRECT\n" +
+            "2. Your command is exactly what the task asks for: " + submission.canonicalAnswer()));
+    }
+}
@@ -0,0 +1,10 @@
+package com.command.buddy.grading;
+
+/**
+ * A verdict reached without the LLM
+ *
+ * @param correct whether the answer solves the task
+ * @param feedback the text shown to the user, in the same shape as the LLM's evaluations
+ */
+public record Grade(boolean correct, String feedback) {
+}
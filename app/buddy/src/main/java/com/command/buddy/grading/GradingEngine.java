@@ -0,0 +1,99 @@
+package com.command.buddy.grading;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Grades answers locally when a {@link GradingRule} can decide, so only the
+ * answers the rules cannot judge are sent to the LLM.
+ *
+ * {@code quiz.grading.decisions} counts who decided each answer, tagged
+ * {@code decider=local} with the rule and verdict, or {@code decider=llm};
+ * {@code quiz.grading.local.ratio} is the share decided locally.
+ */
+@Component
+public class GradingEngine {
+
+    private final List<GradingRule> rules;
+    private final AnswerSpecStore specs;
+
+    private final Map<String, Counter> localDecisions = new HashMap<>();
+    private final Counter escalations;
+    private final Timer duration;
+    private final LongAdder local = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    public GradingEngine(List<GradingRule> rules, AnswerSpecStore specs, MeterRegistry meterRegistry) {
+        this.rules = List.copyOf(rules);
+        this.specs = specs;
+
+        for (GradingRule rule : this.rules) {
+            for (boolean correct : new boolean[] {true, false}) {
+                localDecisions.put(decisionKey(rule, correct), Counter.builder("quiz.grading.decisions")
+                    .tag("decider", "local").tag("rule", rule.name()).tag("verdict", verdict(correct))
+                    .register(meterRegistry));
+            }
+        }
+        this.escalations = Counter.builder("quiz.grading.decisions")
+            .tag("decider", "llm").tag("rule", "none").tag("verdict", "unknown")
+            .register(meterRegistry);
+        this.duration = Timer.builder("quiz.grading.duration")
+            .description("Time spent grading locally, including the expected answer lookup")
+            .register(meterRegistry);
+        Gauge.builder("quiz.grading.local.ratio", this, GradingEngine::localRatio)
+            .description("Share of graded answers decided without the LLM")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Grade an answer with the rules
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param canonicalAnswer the user's answer, canonicalized
+     * @return the feedback, or empty if the answer has to go to the LLM
+     */
+    public Optional<String> grade(String toolName, String question, String canonicalAnswer) {
+        long start = System.nanoTime();
+        total.increment();
+        try {
+            Submission submission = new Submission(toolName, question, canonicalAnswer,
+                specs.find(toolName, question).orElse(null));
+            for (GradingRule rule : rules) {
+                Optional<Grade> grade = rule.grade(submission);
+                if (grade.isPresent()) {
+                    local.increment();
+                    localDecisions.get(decisionKey(rule, grade.get().correct())).increment();
+                    return Optional.of(grade.get().feedback());
+                }
+            }
+            escalations.increment();
+            return Optional.empty();
+        } finally {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private double localRatio() {
+        long graded = total.sum();
+        return graded == 0 ? 0.0 : (double) local.sum() / graded;
+    }
+
+    private static String decisionKey(GradingRule rule, boolean correct) {
+        return rule.name() + ':' + verdict(correct);
+    }
+
+    private static String verdict(boolean correct) {
+        return correct ? "correct" : "incorrect";
+    }
+}
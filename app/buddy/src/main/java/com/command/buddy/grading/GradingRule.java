@@ -0,0 +1,25 @@
+package com.command.buddy.grading;
+
+import java.util.Optional;
+
+/**
+ * One deterministic check in the {@link GradingEngine}.
+ *
+ * A rule only answers when it is certain. Anything it cannot decide is left
+ * to the next rule, and in the end to the LLM, so a rule that returns a
+ * wrong verdict is worse than one that returns nothing. Rules are Spring
+ * beans and run in {@link org.springframework.core.annotation.Order} order.
+ */
+public interface GradingRule {
+
+    /**
+     * @return the rule's name, used as a metric tag
+     */
+    String name();
+
+    /**
+     * @param submission the answer to grade
+     * @return the verdict, or empty if this rule cannot tell
+     */
+    Optional<Grade> grade(Submission submission);
+}
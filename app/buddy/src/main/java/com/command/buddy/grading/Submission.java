@@ -0,0 +1,20 @@
+package com.command.buddy.grading;
+
+/**
+ * An answer to be graded
+ *
+ * @param toolName the tool the question is about
+ * @param question the quiz question
+ * @param canonicalAnswer the user's answer, canonicalized
+ * @param spec the expected answers, or null if the question has none on record
+ */
+public record Submission(String toolName, String question, String canonicalAnswer, AnswerSpec spec) {
+
+    /**
+     * @return the program the answer runs, e.g. "kubectl", or an empty string for a blank answer
+     */
+    public String program() {
+        int space = canonicalAnswer.indexOf(' ');
+        return space < 0 ? canonicalAnswer : canonicalAnswer.substring(0, space);
+    }
+}
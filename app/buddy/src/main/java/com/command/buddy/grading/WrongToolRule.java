@@ -0,0 +1,41 @@
+package com.command.buddy.grading;
+
+import com.command.buddy.shell.ToolGrammar;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * An answer that runs a different known CLI than the one the question is
+ * about, such as a docker command for a kubernetes question, is incorrect
+ */
+@Component
+@Order(2)
+public class WrongToolRule implements GradingRule {
+
+    @Override
+    public String name() {
+        return "wrong-tool";
+    }
+
+    @Override
+    public Optional<Grade> grade(Submission submission) {
+        ToolGrammar expected = ToolGrammar.forTool(submission.toolName());
+        ToolGrammar used = ToolGrammar.forProgram(submission.program());
+        if (expected == null || used == null || expected == used) {
+            return Optional.empty();
+        }
+
+        StringBuilder feedback = new StringBuilder()
+            .append("1. INCORRECT\n")
+            .append("2. The task is about ").append(submission.toolName())
+            .append(", but your command runs ").append(used.program()).append(" instead of ")
+            .append(expected.program()).append('.');
+        AnswerSpec spec = submission.spec();
+        if (spec != null && !spec.answers().isEmpty()) {
+            feedback.append("\n3. A command that does it: ").append(spec.answers().get(0));
+        }
+        return Optional.of(new Grade(false, feedback.toString()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.command.buddy.model;
+
+/**
+ * A graded answer, as typed fields instead of free text.
+ *
+ * Evaluations made before the LLM was asked for JSON, and the ones the
+ * grading rules write, are plain text; they are read back into the same
+ * fields as far as their numbered lines allow.
+ *
+ * @param verdict whether the answer solves the task
+ * @param reason why, in a sentence or two
+ * @param correctedCommand the right command if the answer is incorrect, otherwise null
+ * @param tip a tip for remembering the command, or null
+ */
+public record AnswerFeedback(Verdict verdict, String reason, String correctedCommand, String tip) {
+
+    /**
+     * The outcome of grading an answer
+     */
+    public enum Verdict {
+        CORRECT, INCORRECT,
+        // Free text in which neither word could be found
+        UNKNOWN
+    }
+
+    /**
+     * @return the feedback as numbered lines, the shape clients have always displayed
+     */
+    public String text() {
+        if (verdict == Verdict.UNKNOWN && correctedCommand == null && tip == null) {
+            return reason == null ? "" : reason.strip();
+        }
+        StringBuilder text = new StringBuilder();
+        int line = 1;
+        if (verdict != Verdict.UNKNOWN) {
+            text.append(line++).append(". ").append(verdict.name());
+        }
+        line = appendLine(text, line, reason);
+        if (verdict != Verdict.CORRECT) {
+            line = appendLine(text, line, correctedCommand);
+        }
+        appendLine(text, line, tip);
+        return text.toString();
+    }
+
+    private static int appendLine(StringBuilder text, int line, String value) {
+        if (value == null || value.isBlank()) {
+            return line;
+        }
+        if (!text.isEmpty()) {
+            text.append('\n');
+        }
+        text.append(line).append(". ").append(value.strip());
+        return line + 1;
+    }
+}
@@ -0,0 +1,32 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An LLM response shared between replicas, keyed by the hash of its normalized inputs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "llm_responses")
+public class CachedResponse {
+
+    @Id
+    private String id;
+
+    private String operation;
+    private String toolName;
+    private String response;
+
+    // How long the LLM took to produce this response, used to report saved latency
+    private long upstreamLatencyMs;
+
+    @Indexed(expireAfter = "7d")
+    private Instant createdAt;
+}
@@ -1,5 +1,8 @@
 package com.command.buddy.model;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +15,14 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "commands")
+@CompoundIndexes({
+    // Serves the per-tool listings and counts, in _id order
+    @CompoundIndex(name = "tool_id", def = "{'toolName': 1, '_id': 1}"),
+    // Lets the database fallback search scan index keys instead of whole documents
+    @CompoundIndex(name = "tool_command", def = "{'toolName': 1, 'commandText': 1}"),
+    // Multikey index for looking commands up by the topics of their structured explanation
+    @CompoundIndex(name = "tool_tags", def = "{'toolName': 1, 'details.tags': 1}")
+})
 public class Command {
     
     @Id
@@ -21,6 +32,13 @@ public class Command {
     private String commandText;
     private String explanation;
     
+    // The explanation as typed sections, when it came from a JSON mode reply; null otherwise
+    private CommandExplanation details;
+    
+    // Normalized hash of (toolName, commandText), set on every write so each pair is stored once
+    @Indexed(unique = true, sparse = true)
+    private String contentHash;
+    
     // Constructor with fields (excluding id which is auto-generated)
     public Command(String toolName, String commandText, String explanation) {
         this.toolName = toolName;
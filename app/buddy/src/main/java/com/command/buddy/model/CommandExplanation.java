@@ -0,0 +1,77 @@
+package com.command.buddy.model;
+
+import java.util.List;
+
+/**
+ * An explanation of a command, split into sections so it can be indexed
+ * and queried without asking the LLM again. Stored on {@link Command} as
+ * {@code details}.
+ *
+ * @param summary what the command does
+ * @param parts each part and flag of the command with its meaning
+ * @param useCases common situations the command is used in
+ * @param gotchas pitfalls and warnings
+ * @param tags short lowercase topics, e.g. "branching" or "networking"
+ */
+public record CommandExplanation(String summary,
+                                 List<Part> parts,
+                                 List<String> useCases,
+                                 List<String> gotchas,
+                                 List<String> tags) {
+
+    public CommandExplanation {
+        parts = parts == null ? List.of() : List.copyOf(parts);
+        useCases = useCases == null ? List.of() : List.copyOf(useCases);
+        gotchas = gotchas == null ? List.of() : List.copyOf(gotchas);
+        tags = tags == null ? List.of() : List.copyOf(tags);
+    }
+
+    /**
+     * One part of a command
+     *
+     * @param token the part as written, e.g. "--oneline"
+     * @param meaning what it does
+     */
+    public record Part(String token, String meaning) {
+    }
+
+    /**
+     * @return whether the explanation has more than a summary, i.e. was not read from free text
+     */
+    public boolean isStructured() {
+        return !parts.isEmpty() || !useCases.isEmpty() || !gotchas.isEmpty() || !tags.isEmpty();
+    }
+
+    /**
+     * @return the explanation as text for display
+     */
+    public String text() {
+        StringBuilder text = new StringBuilder(summary == null ? "" : summary.strip());
+        if (!parts.isEmpty()) {
+            section(text, "Breakdown");
+            for (Part part : parts) {
+                text.append("\n- ").append(part.token()).append(": ").append(part.meaning());
+            }
+        }
+        list(text, "Common use cases", useCases);
+        list(text, "Gotchas", gotchas);
+        return text.toString();
+    }
+
+    private static void list(StringBuilder text, String title, List<String> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        section(text, title);
+        for (String item : items) {
+            text.append("\n- ").append(item);
+        }
+    }
+
+    private static void section(StringBuilder text, String title) {
+        if (!text.isEmpty()) {
+            text.append("\n\n");
+        }
+        text.append(title).append(':');
+    }
+}
@@ -0,0 +1,8 @@
+package com.command.buddy.model;
+
+/**
+ * List view of a command without its explanation, read from MongoDB as a
+ * projection so the explanation text never leaves the database.
+ */
+public record CommandSummary(String id, String toolName, String commandText) {
+}
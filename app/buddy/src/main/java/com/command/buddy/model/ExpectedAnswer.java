@@ -0,0 +1,32 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The commands that answer a generated quiz question, keyed by the hash of
+ * the question, so any replica can grade answers to it without the LLM.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "expected_answers")
+public class ExpectedAnswer {
+
+    @Id
+    private String id;
+
+    private String toolName;
+
+    // Canonical spellings, see CommandCanonicalizer
+    private List<String> answers;
+
+    @Indexed(expireAfter = "7d")
+    private Instant createdAt;
+}
@@ -0,0 +1,27 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A lease that one replica holds at a time, keyed by what it is for.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "leader_leases")
+public class LeaderLease {
+
+    @Id
+    private String id;
+
+    // Instance id of the holder
+    private String owner;
+
+    // Written with the holder's clock; anyone may take the lease after this
+    private Instant expiresAt;
+}
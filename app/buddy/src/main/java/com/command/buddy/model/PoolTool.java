@@ -0,0 +1,29 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A tool some replica ran short of shared questions for, so the leader
+ * keeps {@code pooled_questions} topped up for it even if it never served
+ * the tool itself.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "pool_tools")
+public class PoolTool {
+
+    // The normalized tool name
+    @Id
+    private String id;
+
+    // Refreshed on every claim that comes up short; tools nobody asked for in a while drop out
+    @Indexed(expireAfter = "1h")
+    private Instant requestedAt;
+}
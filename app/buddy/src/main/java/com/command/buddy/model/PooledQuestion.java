@@ -0,0 +1,33 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A pre-generated quiz question waiting in the pool shared by all replicas.
+ * The leader writes them, and each replica takes them out to fill its
+ * in-process pool.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "pooled_questions")
+// Serves the oldest-first claims and the per-tool counts
+@CompoundIndex(name = "tool_created", def = "{'toolName': 1, 'createdAt': 1}")
+public class PooledQuestion {
+
+    @Id
+    private String id;
+
+    private String toolName;
+    private String text;
+
+    @Indexed(expireAfter = "1d")
+    private Instant createdAt;
+}
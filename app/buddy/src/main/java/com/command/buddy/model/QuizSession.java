@@ -0,0 +1,32 @@
+package com.command.buddy.model;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The questions a quiz user has already been served for one tool, so any
+ * replica can avoid repeating them. Dropped a day after the last question.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "quiz_sessions")
+public class QuizSession {
+
+    // Session id and tool name, e.g. "3f2a...:git"
+    @Id
+    private String id;
+
+    // Bloom filter and recent MinHash signatures, see SeenQuestions
+    private byte[] seenQuestions;
+
+    private int questionsServed;
+
+    @Indexed(expireAfter = "1d")
+    private Instant updatedAt;
+}
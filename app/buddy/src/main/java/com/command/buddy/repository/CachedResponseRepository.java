@@ -0,0 +1,12 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.model.CachedResponse;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the shared second-tier LLM response cache
+ */
+@Repository
+public interface CachedResponseRepository extends MongoRepository<CachedResponse, String> {
+}
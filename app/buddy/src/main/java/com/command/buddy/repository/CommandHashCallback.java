@@ -0,0 +1,34 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.model.Command;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets the content hash of every command written through the template:
+ * repository saves, template inserts and bulk inserts alike. The unique
+ * index on the hash then keeps a second copy of a command out, whichever
+ * way it arrives. Upserts by hash, which convert no entity, take it from
+ * {@link #contentHash}.
+ */
+@Component
+public class CommandHashCallback implements BeforeConvertCallback<Command> {
+
+    @Override
+    public Command onBeforeConvert(Command command, String collection) {
+        command.setContentHash(contentHash(command));
+        return command;
+    }
+
+    /**
+     * @param command the command
+     * @return the hash of its normalized tool and command text, or null if either is missing
+     */
+    public static String contentHash(Command command) {
+        if (command.getToolName() == null || command.getCommandText() == null) {
+            return null;
+        }
+        return CacheKey.ofCommand(command.getToolName(), command.getCommandText());
+    }
+}
@@ -1,13 +1,19 @@
 package com.command.buddy.repository;
 
 import com.command.buddy.model.Command;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Repository interface for Command entity operations with MongoDB
+ * Repository interface for Command entity operations with MongoDB.
+ *
+ * Spring Boot times every call as {@code spring.data.repository.invocations}
+ * tagged {@code repository=CommandRepository} and the method name; methods
+ * returning a {@link Stream} are only timed until the cursor is opened.
  */
 @Repository
 public interface CommandRepository extends MongoRepository<Command, String> {
@@ -20,6 +26,37 @@ public interface CommandRepository extends MongoRepository<Command, String> {
      */
     List<Command> findByToolName(String toolName);
     
+    /**
+     * Find one page of commands for a tool, in id order, starting after the given id.
+     * Served by the {toolName, _id} index, so every page costs the same however deep it is.
+     * 
+     * @param toolName the name of the tool
+     * @param after the id of the last command of the previous page
+     * @param limit the page size
+     * @param type the type to read, {@link Command} or a projection such as {@link com.command.buddy.model.CommandSummary}
+     * @return the page
+     */
+    <T> List<T> findByToolNameAndIdGreaterThanOrderByIdAsc(String toolName, String after, Limit limit, Class<T> type);
+    
+    /**
+     * Stream the commands for a tool straight from a database cursor, in id order.
+     * The stream must be closed to release the cursor.
+     * 
+     * @param toolName the name of the tool
+     * @param after only return commands with a greater id
+     * @param type the type to read, {@link Command} or a projection
+     * @return the commands
+     */
+    <T> Stream<T> streamByToolNameAndIdGreaterThanOrderByIdAsc(String toolName, String after, Class<T> type);
+    
+    /**
+     * Stream every command straight from a database cursor, in id order.
+     * The stream must be closed to release the cursor.
+     * 
+     * @return all commands
+     */
+    Stream<Command> streamAllByOrderByIdAsc();
+    
     /**
      * Find all commands for a specific tool containing the given text (case insensitive)
      * 
@@ -29,6 +66,17 @@ public interface CommandRepository extends MongoRepository<Command, String> {
      */
     List<Command> findByToolNameAndCommandTextContainingIgnoreCase(String toolName, String text);
     
+    /**
+     * Find commands of a tool whose structured explanation has a tag, in id
+     * order. Served by the multikey {toolName, details.tags} index.
+     * 
+     * @param toolName the name of the tool
+     * @param tag the tag, lowercase
+     * @param limit maximum number of results
+     * @return the matching commands
+     */
+    List<Command> findByToolNameAndDetailsTagsOrderByIdAsc(String toolName, String tag, Limit limit);
+    
     /**
      * Count the number of commands for a specific tool
      * 
@@ -0,0 +1,12 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.model.ExpectedAnswer;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the expected answers of generated quiz questions
+ */
+@Repository
+public interface ExpectedAnswerRepository extends MongoRepository<ExpectedAnswer, String> {
+}
@@ -0,0 +1,12 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.model.QuizSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for per-user quiz session state
+ */
+@Repository
+public interface QuizSessionRepository extends MongoRepository<QuizSession, String> {
+}
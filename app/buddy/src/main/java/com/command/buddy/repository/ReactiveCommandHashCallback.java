@@ -0,0 +1,20 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.model.Command;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link CommandHashCallback} for the reactive template
+ */
+@Component
+public class ReactiveCommandHashCallback implements ReactiveBeforeConvertCallback<Command> {
+
+    @Override
+    public Publisher<Command> onBeforeConvert(Command command, String collection) {
+        command.setContentHash(CommandHashCallback.contentHash(command));
+        return Mono.just(command);
+    }
+}
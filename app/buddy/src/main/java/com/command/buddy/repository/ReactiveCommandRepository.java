@@ -0,0 +1,64 @@
+package com.command.buddy.repository;
+
+import com.command.buddy.model.Command;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking twin of {@link CommandRepository} for the reactive stack
+ */
+@Repository
+public interface ReactiveCommandRepository extends ReactiveMongoRepository<Command, String> {
+
+    /**
+     * Find one page of commands for a tool, in id order, starting after the given id
+     *
+     * @param toolName the name of the tool
+     * @param after the id of the last command of the previous page
+     * @param limit the page size
+     * @param type the type to read, {@link Command} or a projection such as {@link com.command.buddy.model.CommandSummary}
+     * @return the page
+     */
+    <T> Flux<T> findByToolNameAndIdGreaterThanOrderByIdAsc(String toolName, String after, Limit limit, Class<T> type);
+
+    /**
+     * Stream the commands for a tool from a database cursor, in id order.
+     * Documents are fetched as the subscriber requests them.
+     *
+     * @param toolName the name of the tool
+     * @param after only return commands with a greater id
+     * @param type the type to read, {@link Command} or a projection
+     * @return the commands
+     */
+    <T> Flux<T> streamByToolNameAndIdGreaterThanOrderByIdAsc(String toolName, String after, Class<T> type);
+
+    /**
+     * Find all commands for a specific tool containing the given text (case insensitive)
+     *
+     * @param toolName the name of the tool
+     * @param text the text to search for in the command text
+     * @return the matching commands
+     */
+    Flux<Command> findByToolNameAndCommandTextContainingIgnoreCase(String toolName, String text);
+
+    /**
+     * Find commands of a tool whose structured explanation has a tag, in id order
+     *
+     * @param toolName the name of the tool
+     * @param tag the tag, lowercase
+     * @param limit maximum number of results
+     * @return the matching commands
+     */
+    Flux<Command> findByToolNameAndDetailsTagsOrderByIdAsc(String toolName, String tag, Limit limit);
+
+    /**
+     * Count the number of commands for a specific tool
+     *
+     * @param toolName the name of the tool
+     * @return the count of commands
+     */
+    Mono<Long> countByToolName(String toolName);
+}
@@ -0,0 +1,180 @@
+package com.command.buddy.resilience;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.OptionalDouble;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Token bucket that adjusts itself to the limits the Groq API reports.
+ *
+ * The bucket starts at the configured rate. Every response's
+ * {@code x-ratelimit-*} headers narrow the refill rate to what the remaining
+ * quota can sustain until it resets, and a 429 or an exhausted token quota
+ * pauses the bucket until the advertised reset.
+ */
+public class AdaptiveRateLimiter {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double configuredPerSecond;
+    private final long minRemainingTokens;
+
+    private double tokens;
+    private double refillPerSecond;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public AdaptiveRateLimiter(double requestsPerSecond, int burst, long minRemainingTokens) {
+        this.capacity = burst;
+        this.configuredPerSecond = requestsPerSecond;
+        this.minRemainingTokens = minRemainingTokens;
+        this.tokens = burst;
+        this.refillPerSecond = requestsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserve a permit for one request
+     *
+     * @param maxWait the longest the caller is willing to wait for it
+     * @return how long to wait before sending, or null if that would exceed maxWait
+     */
+    public synchronized Duration reserve(Duration maxWait) {
+        long now = System.nanoTime();
+        refill(now);
+
+        long waitNanos = Math.max(0, pausedUntilNanos - now);
+        if (tokens < 1) {
+            waitNanos = Math.max(waitNanos, (long) ((1 - tokens) / refillPerSecond * NANOS_PER_SECOND));
+        }
+        if (waitNanos > maxWait.toNanos()) {
+            return null;
+        }
+        // Permits can go negative, later callers queue behind the ones already waiting
+        tokens -= 1;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * How long until a permit could be granted, for Retry-After headers
+     *
+     * @return the estimated wait
+     */
+    public synchronized Duration estimatedWait() {
+        long now = System.nanoTime();
+        refill(now);
+        long waitNanos = Math.max(0, pausedUntilNanos - now);
+        if (tokens < 1) {
+            waitNanos = Math.max(waitNanos, (long) ((1 - tokens) / refillPerSecond * NANOS_PER_SECOND));
+        }
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * Adjust to the quota reported on a response
+     *
+     * @param headers the response headers
+     */
+    public synchronized void update(HttpHeaders headers) {
+        long now = System.nanoTime();
+        refill(now);
+
+        OptionalDouble remainingRequests = number(headers, "x-ratelimit-remaining-requests");
+        Duration requestsReset = duration(headers, "x-ratelimit-reset-requests");
+        if (remainingRequests.isPresent() && requestsReset != null && !requestsReset.isZero()) {
+            double sustainable = remainingRequests.getAsDouble() / (requestsReset.toNanos() / (double) NANOS_PER_SECOND);
+            refillPerSecond = Math.max(0.01, Math.min(configuredPerSecond, sustainable));
+            tokens = Math.min(tokens, remainingRequests.getAsDouble());
+        }
+
+        OptionalDouble remainingTokens = number(headers, "x-ratelimit-remaining-tokens");
+        Duration tokensReset = duration(headers, "x-ratelimit-reset-tokens");
+        if (remainingTokens.isPresent() && remainingTokens.getAsDouble() < minRemainingTokens && tokensReset != null) {
+            pauseUntil(now + tokensReset.toNanos());
+        }
+    }
+
+    /**
+     * Back off after the API answered 429
+     *
+     * @param headers the response headers, which may carry retry-after
+     * @return how long the limiter is paused for
+     */
+    public synchronized Duration throttled(HttpHeaders headers) {
+        long now = System.nanoTime();
+        Duration retryAfter = headers.firstValue("retry-after")
+            .map(AdaptiveRateLimiter::parseDuration)
+            .orElse(Duration.ofSeconds(1));
+        pauseUntil(now + retryAfter.toNanos());
+        // Halve the rate, it recovers on later responses that report spare quota
+        refillPerSecond = Math.max(0.01, refillPerSecond / 2);
+        tokens = Math.min(tokens, 0);
+        return retryAfter;
+    }
+
+    /**
+     * @return the current refill rate in requests per second
+     */
+    public synchronized double currentRate() {
+        return refillPerSecond;
+    }
+
+    private void pauseUntil(long nanos) {
+        if (nanos - pausedUntilNanos > 0) {
+            pausedUntilNanos = nanos;
+        }
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / (double) NANOS_PER_SECOND;
+        tokens = Math.min(capacity, tokens + elapsedSeconds * refillPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private static OptionalDouble number(HttpHeaders headers, String name) {
+        try {
+            return headers.firstValue(name)
+                .map(value -> OptionalDouble.of(Double.parseDouble(value.trim())))
+                .orElse(OptionalDouble.empty());
+        } catch (NumberFormatException e) {
+            return OptionalDouble.empty();
+        }
+    }
+
+    private static Duration duration(HttpHeaders headers, String name) {
+        return headers.firstValue(name).map(AdaptiveRateLimiter::parseDuration).orElse(null);
+    }
+
+    /**
+     * Parse the durations Groq uses, such as {@code 7.66s}, {@code 2m59.56s}
+     * or {@code 250ms}, as well as plain seconds
+     *
+     * @param value the header value
+     * @return the duration, zero if it cannot be parsed
+     */
+    static Duration parseDuration(String value) {
+        String text = value.trim();
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(text) * 1000));
+        } catch (NumberFormatException e) {
+            // Not plain seconds, fall through to the unit format
+        }
+
+        double millis = 0;
+        Matcher matcher = DURATION_PART.matcher(text);
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h" -> millis += amount * 3_600_000;
+                case "m" -> millis += amount * 60_000;
+                case "s" -> millis += amount * 1_000;
+                default -> millis += amount;
+            }
+        }
+        return Duration.ofMillis((long) millis);
+    }
+}
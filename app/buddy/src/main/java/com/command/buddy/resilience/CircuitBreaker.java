@@ -0,0 +1,130 @@
+package com.command.buddy.resilience;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * Tracks the outcome of the last {@code windowSize} calls. Once at least
+ * {@code minimumCalls} have been recorded and the failure rate reaches the
+ * threshold the breaker opens and rejects calls for {@code openDuration}.
+ * After that a single trial call is let through; its outcome closes or
+ * re-opens the breaker.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] outcomes;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration) {
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Ask to make a call. A caller that is allowed through must report its
+     * outcome with {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return true if the call may proceed
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * Give back a permission that ended without a meaningful outcome, such as
+     * a call that was cancelled or never sent
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * @return the time left before a trial call is allowed, zero unless open
+     */
+    public synchronized Duration remainingOpenTime() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (System.nanoTime() - openedAtNanos)));
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
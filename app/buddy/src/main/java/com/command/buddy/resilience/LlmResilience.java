@@ -0,0 +1,306 @@
+package com.command.buddy.resilience;
+
+import com.command.buddy.client.GroqApiException;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.LlmUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Guards every call to the LLM.
+ *
+ * A call must get past the circuit breaker, its operation's bulkhead and the
+ * adaptive rate limiter before it is sent. Anything that cannot be admitted
+ * fails fast with {@link LlmUnavailableException}, which is reported to
+ * clients as a 503 with Retry-After. Idempotent calls that fail with a
+ * connection error, a 5xx or a 429 are retried with full-jitter exponential
+ * backoff.
+ */
+@Component
+public class LlmResilience {
+
+    private final AdaptiveRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<LlmOperation, Semaphore> bulkheads = new EnumMap<>(LlmOperation.class);
+    private final Duration maxQueueWait;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+
+    private final Counter retries;
+    private final Map<String, Counter> rejections;
+
+    public LlmResilience(MeterRegistry meterRegistry,
+                         @Value("${llm.rate-limit.requests-per-second:5}") double requestsPerSecond,
+                         @Value("${llm.rate-limit.burst:10}") int burst,
+                         @Value("${llm.rate-limit.min-remaining-tokens:1000}") long minRemainingTokens,
+                         @Value("${llm.rate-limit.max-queue-wait:2s}") Duration maxQueueWait,
+                         @Value("${llm.bulkhead.generate:8}") int generateConcurrency,
+                         @Value("${llm.bulkhead.evaluate:16}") int evaluateConcurrency,
+                         @Value("${llm.bulkhead.explain:16}") int explainConcurrency,
+                         @Value("${llm.circuit-breaker.window-size:20}") int windowSize,
+                         @Value("${llm.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                         @Value("${llm.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                         @Value("${llm.circuit-breaker.open-duration:30s}") Duration openDuration,
+                         @Value("${llm.retry.max-attempts:3}") int maxAttempts,
+                         @Value("${llm.retry.base-backoff:200ms}") Duration baseBackoff,
+                         @Value("${llm.retry.max-backoff:2s}") Duration maxBackoff) {
+        this.rateLimiter = new AdaptiveRateLimiter(requestsPerSecond, burst, minRemainingTokens);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration);
+        this.maxQueueWait = maxQueueWait;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+
+        bulkheads.put(LlmOperation.GENERATE_QUESTION, new Semaphore(generateConcurrency));
+        bulkheads.put(LlmOperation.EVALUATE_ANSWER, new Semaphore(evaluateConcurrency));
+        // A batch of evaluations takes one evaluate slot
+        bulkheads.put(LlmOperation.EVALUATE_BATCH, bulkheads.get(LlmOperation.EVALUATE_ANSWER));
+        bulkheads.put(LlmOperation.EXPLAIN_COMMAND, new Semaphore(explainConcurrency));
+
+        this.retries = Counter.builder("llm.resilience.retries").register(meterRegistry);
+        this.rejections = Map.of(
+            "circuit_open", rejectionCounter(meterRegistry, "circuit_open"),
+            "bulkhead_full", rejectionCounter(meterRegistry, "bulkhead_full"),
+            "rate_limited", rejectionCounter(meterRegistry, "rate_limited"));
+        Gauge.builder("llm.resilience.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+            .description("0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        Gauge.builder("llm.resilience.rate", rateLimiter, AdaptiveRateLimiter::currentRate)
+            .baseUnit("requests/s")
+            .register(meterRegistry);
+        bulkheads.forEach((operation, bulkhead) ->
+            Gauge.builder("llm.resilience.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("operation", operation.tag())
+                .register(meterRegistry));
+    }
+
+    /**
+     * Send an idempotent request, retrying transient failures
+     *
+     * @param operation the operation, which selects the bulkhead
+     * @param send starts one attempt of the request
+     * @return a future completed with the first successful response
+     */
+    public <T> CompletableFuture<HttpResponse<T>> execute(LlmOperation operation,
+                                                          Supplier<CompletableFuture<HttpResponse<T>>> send) {
+        return attempt(operation, send, 1);
+    }
+
+    /**
+     * Admit a single request. The caller must report how it ended through the permit.
+     *
+     * @param operation the operation, which selects the bulkhead
+     * @return the permit
+     * @throws LlmUnavailableException if the request cannot be admitted
+     */
+    public Permit acquire(LlmOperation operation) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject("circuit_open", "LLM is unavailable, try again later", circuitBreaker.remainingOpenTime());
+        }
+
+        Semaphore bulkhead = bulkheads.get(operation);
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            throw reject("bulkhead_full", "Too many " + operation.tag() + " requests in flight", Duration.ofSeconds(1));
+        }
+
+        Duration delay = rateLimiter.reserve(maxQueueWait);
+        if (delay == null) {
+            bulkhead.release();
+            circuitBreaker.onIgnored();
+            throw reject("rate_limited", "LLM rate limit reached", rateLimiter.estimatedWait());
+        }
+        return new Permit(bulkhead, delay);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attempt(LlmOperation operation,
+                                                           Supplier<CompletableFuture<HttpResponse<T>>> send,
+                                                           int attempt) {
+        Permit permit;
+        try {
+            permit = acquire(operation);
+        } catch (LlmUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return after(permit.delay())
+            .thenCompose(ignored -> send.get())
+            .handle((response, error) -> {
+                Failure failure = error != null ? permit.onError(error) : permit.onResponse(response);
+                if (failure == null) {
+                    return CompletableFuture.completedFuture(response);
+                }
+                Duration backoff = retryDelay(failure, attempt);
+                if (backoff != null) {
+                    return after(backoff).thenCompose(ignored -> attempt(operation, send, attempt + 1));
+                }
+                return CompletableFuture.<HttpResponse<T>>failedFuture(failure.exception());
+            })
+            .thenCompose(Function.identity());
+    }
+
+    /**
+     * Decide whether a failed attempt is tried again, for callers that run
+     * their own attempts through {@link #acquire}
+     *
+     * @param failure how the attempt failed
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @return how long to wait before the next attempt, or null to give up
+     */
+    public Duration retryDelay(Failure failure, int attempt) {
+        // Waiting out a long Retry-After would only hold the caller, let the client retry instead
+        boolean worthWaiting = failure.retryAfter().compareTo(maxQueueWait) <= 0;
+        if (!failure.retryable() || !worthWaiting || attempt >= maxAttempts) {
+            return null;
+        }
+        retries.increment();
+        return max(jitteredBackoff(attempt), failure.retryAfter());
+    }
+
+    private Duration jitteredBackoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << (attempt - 1));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private static CompletableFuture<Void> after(Duration delay) {
+        if (delay.isZero() || delay.isNegative()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { },
+            CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private LlmUnavailableException reject(String reason, String message, Duration retryAfter) {
+        rejections.get(reason).increment();
+        return new LlmUnavailableException(message, retryAfter);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("llm.resilience.rejections")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * How an attempt failed and whether it is worth trying again
+     */
+    public record Failure(RuntimeException exception, boolean retryable, Duration retryAfter) {
+    }
+
+    /**
+     * Admission for one request. Releases its bulkhead slot exactly once,
+     * when the outcome is reported.
+     */
+    public final class Permit {
+
+        private final Semaphore bulkhead;
+        private final Duration delay;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore bulkhead, Duration delay) {
+            this.bulkhead = bulkhead;
+            this.delay = delay;
+        }
+
+        /**
+         * @return how long to wait before sending, as dictated by the rate limiter
+         */
+        public Duration delay() {
+            return delay;
+        }
+
+        /**
+         * Report a response
+         *
+         * @param response the response
+         * @return null on success, otherwise the failure to surface or retry
+         */
+        public Failure onResponse(HttpResponse<?> response) {
+            return onResponse(response.statusCode(), response.headers());
+        }
+
+        /**
+         * Report a response received through another HTTP client
+         *
+         * @param status the HTTP status code
+         * @param headers the response headers, which carry the rate limit state
+         * @return null on success, otherwise the failure to surface or retry
+         */
+        public Failure onResponse(int status, HttpHeaders headers) {
+            if (!released.compareAndSet(false, true)) {
+                return null;
+            }
+            bulkhead.release();
+
+            if (status == 429) {
+                // Throttling says nothing about the health of the API
+                circuitBreaker.onSuccess();
+                Duration retryAfter = rateLimiter.throttled(headers);
+                return new Failure(new LlmUnavailableException("LLM rate limit reached", retryAfter), true, retryAfter);
+            }
+
+            rateLimiter.update(headers);
+            if (status / 100 == 5) {
+                circuitBreaker.onFailure();
+                return new Failure(new GroqApiException(status, "Groq API returned HTTP " + status), true, Duration.ZERO);
+            }
+            circuitBreaker.onSuccess();
+            if (status / 100 != 2) {
+                return new Failure(new GroqApiException(status, "Groq API returned HTTP " + status), false, Duration.ZERO);
+            }
+            return null;
+        }
+
+        /**
+         * Report a request that failed without a response
+         *
+         * @param error the failure
+         * @return the failure to surface or retry
+         */
+        public Failure onError(Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!released.compareAndSet(false, true)) {
+                return new Failure(asRuntime(cause), false, Duration.ZERO);
+            }
+            bulkhead.release();
+
+            if (cause instanceof CancellationException) {
+                // Cancelled by our side, typically because the client went away
+                circuitBreaker.onIgnored();
+                return new Failure((CancellationException) cause, false, Duration.ZERO);
+            }
+            circuitBreaker.onFailure();
+            return new Failure(asRuntime(cause), true, Duration.ZERO);
+        }
+
+        private RuntimeException asRuntime(Throwable cause) {
+            if (cause instanceof RuntimeException runtime) {
+                return runtime;
+            }
+            return new GroqApiException("Groq API request failed: " + cause.getMessage(), cause);
+        }
+    }
+}
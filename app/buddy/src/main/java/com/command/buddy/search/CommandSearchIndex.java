@@ -0,0 +1,201 @@
+package com.command.buddy.search;
+
+import com.command.buddy.model.Command;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process full-text index over {@code commandText} and {@code explanation}.
+ *
+ * Commands are indexed by character trigrams per tool, which gives ranked,
+ * typo-tolerant matching without a regex scan over the collection. The
+ * index is built from MongoDB in the background at startup and kept up to
+ * date by {@link #index(Command)} on every save, and by
+ * {@link com.command.buddy.cluster.CommandChangeStream} for writes made by
+ * other replicas; until the first build
+ * finishes, {@link #isReady()} is false and callers should fall back to the
+ * database.
+ */
+@Component
+public class CommandSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandSearchIndex.class);
+
+    private final MongoOperations mongoOperations;
+    private final boolean enabled;
+    private final boolean indexExplanations;
+    private final double minSimilarity;
+    private final double maxDocFrequency;
+
+    private final ConcurrentHashMap<String, ToolIndex> tools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Location> locations = new ConcurrentHashMap<>();
+    private final Timer queries;
+    private volatile boolean ready;
+
+    public CommandSearchIndex(MongoOperations mongoOperations,
+                              MeterRegistry meterRegistry,
+                              @Value("${search.index.enabled:true}") boolean enabled,
+                              @Value("${search.index.explanations:true}") boolean indexExplanations,
+                              @Value("${search.min-similarity:0.3}") double minSimilarity,
+                              @Value("${search.max-doc-frequency:0.2}") double maxDocFrequency) {
+        this.mongoOperations = mongoOperations;
+        this.enabled = enabled;
+        this.indexExplanations = indexExplanations;
+        this.minSimilarity = minSimilarity;
+        this.maxDocFrequency = maxDocFrequency;
+
+        this.queries = Timer.builder("search.queries")
+            .description("Time to rank search results in the in-process index")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("search.index.documents", locations, ConcurrentHashMap::size)
+            .description("Commands held in the search index")
+            .register(meterRegistry);
+        Gauge.builder("search.index.tombstones", tools,
+                all -> all.values().stream().mapToInt(ToolIndex::tombstones).sum())
+            .description("Replaced or deleted commands whose postings the search index still holds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Build the index from the {@code commands} collection without holding
+     * up startup. Runs after {@link com.command.buddy.cluster.CommandChangeStream}
+     * has read where its stream starts, so writes made during the scan are replayed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread.ofVirtual().name("command-search-index").start(() -> {
+            Query query = new Query();
+            query.fields().include("toolName", "commandText", "explanation");
+            try (Stream<Command> commands = mongoOperations.stream(query, Command.class)) {
+                long start = System.nanoTime();
+                rebuild(commands);
+                log.info("Indexed {} commands for search in {} ms",
+                    locations.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (DataAccessException e) {
+                log.warn("Unable to build the command search index, search stays on MongoDB: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Add every command to the index and mark it ready
+     *
+     * @param commands the commands to index
+     */
+    public void rebuild(Stream<Command> commands) {
+        commands.forEach(this::index);
+        ready = true;
+    }
+
+    /**
+     * Add or replace a saved command. A command indexed again with the same
+     * content, as when a replica's own write comes back on the change
+     * stream, is left where it is.
+     *
+     * @param command the command, which must have an id
+     */
+    public void index(Command command) {
+        if (!enabled || command.getId() == null || command.getToolName() == null) {
+            return;
+        }
+        long fingerprint = fingerprint(command);
+        ToolIndex tool = tools.computeIfAbsent(command.getToolName(), name -> new ToolIndex());
+
+        locations.compute(command.getId(), (id, previous) -> {
+            if (previous != null) {
+                if (previous.tool() == tool && previous.fingerprint() == fingerprint) {
+                    return previous;
+                }
+                if (previous.tool() != tool) {
+                    previous.tool().remove(id);
+                }
+            }
+            long[] commandText = Trigrams.of(command.getCommandText());
+            long[] explanation = indexExplanations ? Trigrams.of(command.getExplanation()) : new long[0];
+            tool.add(id, commandText, explanation);
+            return new Location(tool, fingerprint);
+        });
+    }
+
+    /**
+     * Drop a deleted command
+     *
+     * @param id the command id
+     */
+    public void remove(String id) {
+        locations.computeIfPresent(id, (key, previous) -> {
+            previous.tool().remove(id);
+            return null;
+        });
+    }
+
+    /**
+     * Whether the index holds every stored command and can answer searches
+     *
+     * @return true once the startup build has finished
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Find the commands of a tool that best match a query
+     *
+     * @param toolName the name of the tool
+     * @param text the search text, typos allowed
+     * @param limit maximum number of results
+     * @return the hits, best match first
+     */
+    public List<SearchHit> search(String toolName, String text, int limit) {
+        ToolIndex tool = tools.get(toolName);
+        if (tool == null) {
+            return List.of();
+        }
+        long[] query = Trigrams.of(text);
+        return queries.record(() -> tool.search(query, minSimilarity, maxDocFrequency, limit));
+    }
+
+    /**
+     * 64-bit FNV-1a over the indexed text
+     */
+    private long fingerprint(Command command) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fingerprint(hash, command.getCommandText());
+        return indexExplanations ? fingerprint(hash, command.getExplanation()) : hash;
+    }
+
+    private static long fingerprint(long hash, String text) {
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        // Keeps ("ab", "c") apart from ("a", "bc") and null apart from ""
+        return (hash ^ (text == null ? 0xffff : 0x10000)) * 0x100000001b3L;
+    }
+
+    /**
+     * @param tool the index of the tool the command is in
+     * @param fingerprint of the text the entry was indexed with
+     */
+    private record Location(ToolIndex tool, long fingerprint) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.command.buddy.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted list of the documents containing one trigram, appended to as
+ * documents are added and renumbered when the index is compacted.
+ *
+ * Each entry packs a document ordinal with the field the trigram was found
+ * in ({@code ordinal << 1 | field}). Ordinals are handed out in increasing
+ * order, so appending keeps the list sorted and lookups can binary search.
+ */
+final class PostingList {
+
+    static final int COMMAND_TEXT = 0;
+    static final int EXPLANATION = 1;
+
+    private int[] entries = new int[4];
+    private int size;
+
+    void add(int ordinal, int field) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+        }
+        entries[size++] = ordinal << 1 | field;
+    }
+
+    /**
+     * Move the entries to new ordinals, dropping those mapped to -1
+     *
+     * @param renumbered the new ordinal for each old one, in the same order
+     * @return the entries left
+     */
+    int renumber(int[] renumbered) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int ordinal = renumbered[entries[i] >>> 1];
+            if (ordinal >= 0) {
+                entries[kept++] = ordinal << 1 | (entries[i] & 1);
+            }
+        }
+        size = kept;
+        if (entries.length > 4 && kept < entries.length >> 2) {
+            entries = Arrays.copyOf(entries, Math.max(4, kept + (kept >> 1)));
+        }
+        return kept;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int entry(int index) {
+        return entries[index];
+    }
+
+    /**
+     * @param ordinal the document to look for
+     * @return the best field the document has this trigram in, or -1 if it has none
+     */
+    int find(int ordinal) {
+        int index = Arrays.binarySearch(entries, 0, size, ordinal << 1);
+        if (index >= 0) {
+            return COMMAND_TEXT;
+        }
+        int insertion = -index - 1;
+        return insertion < size && entries[insertion] == (ordinal << 1 | EXPLANATION) ? EXPLANATION : -1;
+    }
+}
@@ -0,0 +1,10 @@
+package com.command.buddy.search;
+
+/**
+ * A ranked search result
+ *
+ * @param id the id of the matching command
+ * @param score trigram similarity between 0 and 1, higher is better
+ */
+public record SearchHit(String id, double score) {
+}
@@ -0,0 +1,331 @@
+package com.command.buddy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over the commands of a single tool.
+ *
+ * A query matches documents that share at least a minimum fraction of its
+ * trigrams. Since such a document must then appear in one of the
+ * {@code lists - minMatch + 1} shortest posting lists, only those are
+ * scanned to collect candidates; the longer, less selective lists are just
+ * probed by binary search for each candidate.
+ *
+ * A removed document only leaves a tombstone, since its ordinal is spread
+ * over its posting lists. Once tombstones make up a quarter of the
+ * ordinals the index is compacted: the live documents are numbered again
+ * in the same order and their postings copied over.
+ */
+final class ToolIndex {
+
+    private static final double FIELD_WEIGHT_EXPLANATION = 0.5;
+
+    // Share of tombstoned ordinals that triggers a compaction, and the fewest worth one
+    static final double COMPACT_AT = 0.25;
+    private static final int MIN_TOMBSTONES = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private BitSet deleted = new BitSet();
+    private String[] ids = new String[16];
+    private int size;
+    private int live;
+
+    /**
+     * Add a document, replacing any earlier one with the same id
+     */
+    void add(String id, long[] commandText, long[] explanation) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinals.get(id);
+            if (previous != null) {
+                tombstone(previous);
+            }
+            int ordinal = size;
+            if (ordinal == ids.length) {
+                ids = Arrays.copyOf(ids, ordinal + (ordinal >> 1));
+            }
+            ids[ordinal] = id;
+            ordinals.put(id, ordinal);
+            size++;
+            live++;
+
+            // Both arrays are sorted, so walk them together to add the command text entry first
+            int t = 0;
+            int e = 0;
+            while (t < commandText.length || e < explanation.length) {
+                if (e == explanation.length || (t < commandText.length && commandText[t] <= explanation[e])) {
+                    long gram = commandText[t++];
+                    postingsFor(gram).add(ordinal, PostingList.COMMAND_TEXT);
+                    if (e < explanation.length && explanation[e] == gram) {
+                        postingsFor(gram).add(ordinal, PostingList.EXPLANATION);
+                        e++;
+                    }
+                } else {
+                    postingsFor(explanation[e++]).add(ordinal, PostingList.EXPLANATION);
+                }
+            }
+            if (previous != null) {
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hide a document from results. Its postings stay behind until the
+     * next compaction.
+     */
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                tombstone(ordinal);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        return live;
+    }
+
+    /**
+     * @return removed documents whose postings are still held
+     */
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return size - live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param query the distinct query trigrams
+     * @param minSimilarity share of the selective query trigrams a document must contain
+     * @param maxDocFrequency share of documents above which a trigram is too common to select on
+     * @param limit maximum number of hits
+     * @return the best hits, best first
+     */
+    List<SearchHit> search(long[] query, double minSimilarity, double maxDocFrequency, int limit) {
+        if (query.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return rank(query, minSimilarity, maxDocFrequency, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<SearchHit> rank(long[] query, double minSimilarity, double maxDocFrequency, int limit) {
+        // Rare trigrams say more about a match than common ones
+        double maxIdf = Math.log(1 + Math.max(live, 1));
+        double totalWeight = 0;
+        int missing = 0;
+        List<PostingList> lists = new ArrayList<>(query.length);
+        for (long gram : query) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                totalWeight += maxIdf;
+                missing++;
+            } else {
+                totalWeight += idf(list);
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        // Trigrams found in most documents (the tool name, common flags) only add to the score;
+        // the match threshold counts the selective ones, unless there are none
+        int selective = 0;
+        long commonSize = (long) Math.ceil(maxDocFrequency * live);
+        while (selective < lists.size() && lists.get(selective).size() <= commonSize) {
+            selective++;
+        }
+        if (selective == 0) {
+            selective = lists.size();
+        }
+        int minMatch = Math.max(1, (int) Math.ceil((selective + missing) * minSimilarity));
+        if (selective < minMatch) {
+            return List.of();
+        }
+
+        int generators = selective - minMatch + 1;
+        Candidates candidates = new Candidates(lists.get(0).size() * 2);
+        for (int i = 0; i < generators; i++) {
+            PostingList list = lists.get(i);
+            double weight = idf(list);
+            int previous = -1;
+            for (int j = 0; j < list.size(); j++) {
+                int entry = list.entry(j);
+                int ordinal = entry >>> 1;
+                // The command text entry sorts first, so a repeat can only be a weaker match
+                if (ordinal == previous || deleted.get(ordinal)) {
+                    continue;
+                }
+                previous = ordinal;
+                candidates.add(ordinal, weight * fieldWeight(entry & 1));
+            }
+        }
+
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(SearchHit::score));
+        for (int c = 0; c < candidates.size; c++) {
+            int ordinal = candidates.ordinals[c];
+            int matches = candidates.matches[c];
+            double score = candidates.scores[c];
+            for (int i = generators; i < selective && matches + selective - i >= minMatch; i++) {
+                PostingList list = lists.get(i);
+                int field = list.find(ordinal);
+                if (field >= 0) {
+                    matches++;
+                    score += idf(list) * fieldWeight(field);
+                }
+            }
+            if (matches < minMatch) {
+                continue;
+            }
+            for (int i = selective; i < lists.size(); i++) {
+                PostingList list = lists.get(i);
+                int field = list.find(ordinal);
+                if (field >= 0) {
+                    score += idf(list) * fieldWeight(field);
+                }
+            }
+            double similarity = score / totalWeight;
+            if (best.size() < limit) {
+                best.add(new SearchHit(ids[ordinal], similarity));
+            } else if (similarity > best.peek().score()) {
+                best.poll();
+                best.add(new SearchHit(ids[ordinal], similarity));
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::score).reversed());
+        return hits;
+    }
+
+    private void tombstone(int ordinal) {
+        ordinals.remove(ids[ordinal]);
+        deleted.set(ordinal);
+        ids[ordinal] = null;
+        live--;
+    }
+
+    private void compactIfSparse() {
+        int tombstones = size - live;
+        if (tombstones < MIN_TOMBSTONES || tombstones < size * COMPACT_AT) {
+            return;
+        }
+        // Live documents keep their order, so every posting list stays sorted
+        int[] renumbered = new int[size];
+        String[] compacted = new String[Math.max(16, live + (live >> 1))];
+        int next = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (deleted.get(ordinal)) {
+                renumbered[ordinal] = -1;
+            } else {
+                renumbered[ordinal] = next;
+                compacted[next] = ids[ordinal];
+                ordinals.put(ids[ordinal], next);
+                next++;
+            }
+        }
+        postings.values().removeIf(list -> list.renumber(renumbered) == 0);
+        ids = compacted;
+        size = live;
+        deleted = new BitSet();
+    }
+
+    private PostingList postingsFor(long gram) {
+        return postings.computeIfAbsent(gram, g -> new PostingList());
+    }
+
+    private double idf(PostingList list) {
+        return Math.log(1 + (double) Math.max(live, 1) / list.size());
+    }
+
+    private static double fieldWeight(int field) {
+        return field == PostingList.COMMAND_TEXT ? 1.0 : FIELD_WEIGHT_EXPLANATION;
+    }
+
+    /**
+     * Open-addressing map from ordinal to accumulated score, kept flat so
+     * collecting a few hundred thousand candidates does not box each one
+     */
+    private static final class Candidates {
+
+        private int[] slots;
+        private int[] ordinals;
+        private int[] matches;
+        private double[] scores;
+        private int size;
+
+        Candidates(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            ordinals = new int[capacity / 2];
+            matches = new int[capacity / 2];
+            scores = new double[capacity / 2];
+        }
+
+        void add(int ordinal, double weight) {
+            int mask = slots.length - 1;
+            int slot = (ordinal * 0x9E3779B9) & mask;
+            while (slots[slot] >= 0) {
+                int index = slots[slot];
+                if (ordinals[index] == ordinal) {
+                    matches[index]++;
+                    scores[index] += weight;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == ordinals.length) {
+                grow();
+                add(ordinal, weight);
+                return;
+            }
+            slots[slot] = size;
+            ordinals[size] = ordinal;
+            matches[size] = 1;
+            scores[size] = weight;
+            size++;
+        }
+
+        private void grow() {
+            int capacity = slots.length * 2;
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            ordinals = Arrays.copyOf(ordinals, capacity / 2);
+            matches = Arrays.copyOf(matches, capacity / 2);
+            scores = Arrays.copyOf(scores, capacity / 2);
+            int mask = capacity - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = (ordinals[i] * 0x9E3779B9) & mask;
+                while (slots[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = i;
+            }
+        }
+    }
+}
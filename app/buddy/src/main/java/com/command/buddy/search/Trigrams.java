@@ -0,0 +1,83 @@
+package com.command.buddy.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits text into the padded, lowercased character trigrams the search
+ * index is keyed on. Each word is padded with a space on both sides, so
+ * {@code "log"} becomes {@code " lo"}, {@code "log"}, {@code "og "}; a typo
+ * only breaks the trigrams it touches, which is what makes matching fuzzy.
+ */
+final class Trigrams {
+
+    private static final long[] NONE = new long[0];
+
+    private Trigrams() {
+    }
+
+    /**
+     * @param text the text to split
+     * @return the distinct trigrams, each packed into a long
+     */
+    static long[] of(String text) {
+        if (text == null || text.isBlank()) {
+            return NONE;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[] grams = new long[lower.length() + 2];
+        int count = 0;
+
+        // Sliding window over each word, with a virtual space before and after it
+        char first = ' ';
+        char second = ' ';
+        boolean inWord = false;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (isWordChar(c)) {
+                if (inWord) {
+                    count = add(grams, count, first, second, c);
+                } else {
+                    inWord = true;
+                    second = ' ';
+                    count = add(grams, count, ' ', ' ', c);
+                }
+                first = second;
+                second = c;
+            } else if (inWord) {
+                count = add(grams, count, first, second, ' ');
+                inWord = false;
+            }
+        }
+
+        long[] distinct = Arrays.copyOf(grams, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    private static int add(long[] grams, int count, char a, char b, char c) {
+        // "  x" only carries the first letter, which every word starting with it shares
+        if (a == ' ' && b == ' ') {
+            return count;
+        }
+        if (count == grams.length) {
+            return count;
+        }
+        grams[count] = ((long) a << 32) | ((long) b << 16) | c;
+        return count + 1;
+    }
+
+    /**
+     * Flags and paths are searched as written, so dashes, dots and slashes
+     * stay inside the word
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == '/' || c == ':' || c == '=';
+    }
+}
@@ -0,0 +1,116 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.cache.LlmResponseCache;
+import com.command.buddy.cache.VerdictCache;
+import com.command.buddy.client.AnswerEvaluation;
+import com.command.buddy.client.AnswerItem;
+import com.command.buddy.client.BatchEvaluator;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.StructuredOutputs;
+import com.command.buddy.grading.GradingEngine;
+import com.command.buddy.shell.CommandCanonicalizer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Grades many answers at once for exam mode, shared by {@link QuizService}
+ * and {@link ReactiveQuizService}.
+ *
+ * Each answer goes through the same local steps as a single evaluation:
+ * the grading rules, the verdict cache and the response cache. Answers
+ * repeated within the request are graded once. Only what is left goes to
+ * {@link BatchEvaluator}, and its verdicts are cached like single ones.
+ */
+@Service
+public class AnswerBatchGrader {
+
+    private final BatchEvaluator batchEvaluator;
+    private final LlmResponseCache responseCache;
+    private final VerdictCache verdictCache;
+    private final GradingEngine gradingEngine;
+
+    public AnswerBatchGrader(BatchEvaluator batchEvaluator, LlmResponseCache responseCache,
+                             VerdictCache verdictCache, GradingEngine gradingEngine) {
+        this.batchEvaluator = batchEvaluator;
+        this.responseCache = responseCache;
+        this.verdictCache = verdictCache;
+        this.gradingEngine = gradingEngine;
+    }
+
+    /**
+     * Grade answers. The local lookups run on the calling thread and may
+     * touch MongoDB; the LLM calls do not block it.
+     *
+     * @param items the answers to grade
+     * @return a future completed with one evaluation per answer, in the same order
+     */
+    public CompletableFuture<List<AnswerEvaluation>> grade(List<AnswerItem> items) {
+        AnswerEvaluation[] results = new AnswerEvaluation[items.size()];
+        List<AnswerItem> pending = new ArrayList<>();
+        List<String> pendingKeys = new ArrayList<>();
+        Map<String, List<Integer>> positions = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            AnswerItem item = items.get(i);
+            String answer = CommandCanonicalizer.canonicalize(item.answer());
+            String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, item.toolName(), item.question(), answer);
+
+            List<Integer> same = positions.get(key);
+            if (same != null) {
+                same.add(i);
+                continue;
+            }
+
+            Optional<String> local = gradingEngine.grade(item.toolName(), item.question(), answer);
+            Optional<String> cached = local.isPresent()
+                ? Optional.empty()
+                : verdictCache.find(item.toolName(), item.question(), answer)
+                    .or(() -> responseCache.peek(LlmOperation.EVALUATE_ANSWER, key));
+            if (local.isPresent() || cached.isPresent()) {
+                results[i] = batchEvaluator.withoutCall(local.isPresent() ? "local" : "cache",
+                    StructuredOutputs.parseFeedback(local.or(() -> cached).get()), item);
+                positions.put(key, new ArrayList<>(List.of(i)));
+                continue;
+            }
+
+            positions.put(key, new ArrayList<>(List.of(i)));
+            pending.add(item);
+            pendingKeys.add(key);
+        }
+
+        return batchEvaluator.evaluate(pending)
+            .thenApply(evaluations -> {
+                for (int i = 0; i < evaluations.size(); i++) {
+                    AnswerEvaluation evaluation = evaluations.get(i);
+                    String key = pendingKeys.get(i);
+                    results[positions.get(key).get(0)] = evaluation;
+                    if (evaluation.feedback() != null) {
+                        store(pending.get(i), key, evaluation);
+                    }
+                }
+                for (List<Integer> same : positions.values()) {
+                    AnswerEvaluation first = results[same.get(0)];
+                    for (int index : same.subList(1, same.size())) {
+                        results[index] = first.feedback() != null
+                            ? batchEvaluator.withoutCall("duplicate", first.feedback(), items.get(index))
+                            : first;
+                    }
+                }
+                return Arrays.asList(results);
+            });
+    }
+
+    private void store(AnswerItem item, String key, AnswerEvaluation evaluation) {
+        String feedback = StructuredOutputs.toJson(evaluation.feedback());
+        responseCache.put(LlmOperation.EVALUATE_ANSWER, item.toolName(), key, feedback, evaluation.latencyMs());
+        verdictCache.put(item.toolName(), item.question(), CommandCanonicalizer.canonicalize(item.answer()), feedback);
+    }
+}
@@ -0,0 +1,62 @@
+package com.command.buddy.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs background work at most {@code concurrency} tasks at a time, each
+ * on its own virtual thread. Work over the limit is turned away rather than
+ * queued, so the caller can carry on without it.
+ */
+final class BoundedExecutor {
+
+    private final int concurrency;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    BoundedExecutor(String threadName, int concurrency) {
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        // Concurrency is bounded by the permits, so nothing is gained by pooling the threads
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadName + "-", 0).factory());
+    }
+
+    /**
+     * @param task the work to run
+     * @return false if the task was not started because all permits are taken or the executor is shut down
+     */
+    boolean tryExecute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return false;
+        }
+    }
+
+    /**
+     * @return tasks started and not yet finished
+     */
+    int running() {
+        return concurrency - permits.availablePermits();
+    }
+
+    /**
+     * Stop taking tasks and interrupt the running ones
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -2,10 +2,19 @@ package com.command.buddy.service;
 
 import com.command.buddy.model.Command;
 import com.command.buddy.repository.CommandRepository;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.search.SearchHit;
+import org.springframework.data.domain.Limit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class that provides business logic for Command operations
@@ -13,21 +22,30 @@ import java.util.List;
 @Service
 public class CommandService {
 
+    // Lower than any ObjectId, so the first page starts at the beginning
+    private static final String FIRST_ID = "000000000000000000000000";
+
     private final CommandRepository commandRepository;
+    private final CommandSearchIndex searchIndex;
     
     @Autowired
-    public CommandService(CommandRepository commandRepository) {
+    public CommandService(CommandRepository commandRepository, CommandSearchIndex searchIndex) {
         this.commandRepository = commandRepository;
+        this.searchIndex = searchIndex;
     }
     
     /**
-     * Save a command to the database
+     * Save a command to the database. A command with the same tool and
+     * command text as a stored one is refused with a
+     * {@link org.springframework.dao.DuplicateKeyException}.
      *
      * @param command the command to save
      * @return the saved command with its generated ID
      */
     public Command saveCommand(Command command) {
-        return commandRepository.save(command);
+        Command saved = commandRepository.save(command);
+        searchIndex.index(saved);
+        return saved;
     }
     
     /**
@@ -41,14 +59,87 @@ public class CommandService {
     }
     
     /**
-     * Find commands by tool name and containing specific text
+     * Find one page of commands for a tool
+     *
+     * @param toolName the name of the tool
+     * @param after the id of the last command of the previous page, or null for the first page
+     * @param limit the page size
+     * @param view {@link Command} for full documents, or a projection type
+     * @return the page, in id order
+     */
+    public <T> List<T> findCommandsByToolName(String toolName, String after, int limit, Class<T> view) {
+        return commandRepository.findByToolNameAndIdGreaterThanOrderByIdAsc(
+            toolName, after == null ? FIRST_ID : after, Limit.of(limit), view);
+    }
+    
+    /**
+     * Stream every command for a tool from a database cursor. The caller
+     * must close the stream.
+     *
+     * @param toolName the name of the tool
+     * @param after only return commands after this id, or null for all of them
+     * @param view {@link Command} for full documents, or a projection type
+     * @return the commands, in id order
+     */
+    public <T> Stream<T> streamCommandsByToolName(String toolName, String after, Class<T> view) {
+        return commandRepository.streamByToolNameAndIdGreaterThanOrderByIdAsc(
+            toolName, after == null ? FIRST_ID : after, view);
+    }
+    
+    /**
+     * Stream every command from a database cursor. The caller must close
+     * the stream.
+     *
+     * @return all commands, in id order
+     */
+    public Stream<Command> streamAllCommands() {
+        return commandRepository.streamAllByOrderByIdAsc();
+    }
+    
+    /**
+     * Search the commands of a tool, best match first. Matching is fuzzy, so
+     * small typos in the search text still find the command.
      *
      * @param toolName the name of the tool
-     * @param searchText the text to search for in the command
+     * @param searchText the text to search for in the command and its explanation
+     * @param limit maximum number of results
      * @return list of matching commands
      */
-    public List<Command> searchCommandsByToolAndText(String toolName, String searchText) {
-        return commandRepository.findByToolNameAndCommandTextContainingIgnoreCase(toolName, searchText);
+    public List<Command> searchCommandsByToolAndText(String toolName, String searchText, int limit) {
+        if (!searchIndex.isReady()) {
+            // Still building the index, so fall back to a (slow) substring scan in MongoDB
+            return commandRepository.findByToolNameAndCommandTextContainingIgnoreCase(toolName, searchText)
+                .stream()
+                .limit(limit)
+                .toList();
+        }
+
+        List<SearchHit> hits = searchIndex.search(toolName, searchText, limit);
+        Map<String, Command> byId = commandRepository.findAllById(hits.stream().map(SearchHit::id).toList())
+            .stream()
+            .collect(Collectors.toMap(Command::getId, Function.identity()));
+
+        List<Command> commands = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            Command command = byId.get(hit.id());
+            if (command != null) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+    
+    /**
+     * Find the commands of a tool whose structured explanation has a tag
+     *
+     * @param toolName the name of the tool
+     * @param tag the tag, in any case
+     * @param limit maximum number of results
+     * @return the matching commands, in id order
+     */
+    public List<Command> findCommandsByTag(String toolName, String tag, int limit) {
+        return commandRepository.findByToolNameAndDetailsTagsOrderByIdAsc(
+            toolName, tag.strip().toLowerCase(Locale.ROOT), Limit.of(limit));
     }
     
     /**
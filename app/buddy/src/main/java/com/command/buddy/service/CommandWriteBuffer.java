@@ -0,0 +1,324 @@
+package com.command.buddy.service;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.repository.CommandHashCallback;
+import com.command.buddy.search.CommandSearchIndex;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for commands saved from the quiz.
+ *
+ * Saves return as soon as the command is queued. Pending commands are keyed
+ * by their content hash, so saving the same command twice before a flush
+ * costs nothing, and are written in unordered bulk upserts on that hash, so
+ * a command already in the database is left untouched instead of being
+ * stored again. Whatever is still pending when the application stops is
+ * written before the database connection goes away.
+ *
+ * The buffer holds its own copy of each command, so neither the caller nor
+ * the flusher ever sees the other change it. The database assigns the id
+ * when the command is first written, which is why callers only get the
+ * content hash back. A command that fails to write is retried on the next
+ * flushes until it has failed {@code max-attempts} times, then dropped.
+ */
+@Component
+public class CommandWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandWriteBuffer.class);
+
+    // MongoDB's duplicate key error, raised when another instance upserted the same hash first
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoOperations mongoOperations;
+    private final CommandSearchIndex searchIndex;
+    private final int batchSize;
+    private final int maxPending;
+    private final int maxAttempts;
+
+    private final ConcurrentHashMap<String, Command> pending = new ConcurrentHashMap<>();
+    // Failed writes so far, by content hash, of the commands being retried
+    private final ConcurrentHashMap<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService flusher;
+
+    private final Counter queued;
+    private final Counter coalesced;
+    private final Counter inserted;
+    private final Counter duplicates;
+    private final Counter failures;
+    private final Counter dropped;
+    private final Timer flushes;
+
+    public CommandWriteBuffer(MongoOperations mongoOperations,
+                              CommandSearchIndex searchIndex,
+                              MeterRegistry meterRegistry,
+                              @Value("${commands.write-behind.batch-size:500}") int batchSize,
+                              @Value("${commands.write-behind.max-pending:10000}") int maxPending,
+                              @Value("${commands.write-behind.max-attempts:5}") int maxAttempts) {
+        this.mongoOperations = mongoOperations;
+        this.searchIndex = searchIndex;
+        this.batchSize = batchSize;
+        this.maxPending = Math.max(maxPending, batchSize);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.flusher = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("command-write-behind-", 0).factory());
+
+        this.queued = Counter.builder("commands.write-behind.saves")
+            .tag("result", "queued")
+            .register(meterRegistry);
+        this.coalesced = Counter.builder("commands.write-behind.saves")
+            .tag("result", "coalesced")
+            .description("Saves of a command that was already waiting to be written")
+            .register(meterRegistry);
+        this.inserted = Counter.builder("commands.write-behind.written")
+            .tag("outcome", "inserted")
+            .register(meterRegistry);
+        this.duplicates = Counter.builder("commands.write-behind.written")
+            .tag("outcome", "duplicate")
+            .description("Flushed commands that were already stored")
+            .register(meterRegistry);
+        this.failures = Counter.builder("commands.write-behind.failures")
+            .description("Failed writes of a command, each retried until it has failed max-attempts times")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("commands.write-behind.dropped")
+            .description("Commands given up on after failing max-attempts writes")
+            .register(meterRegistry);
+        this.flushes = Timer.builder("commands.write-behind.flush")
+            .register(meterRegistry);
+        Gauge.builder("commands.write-behind.pending", pending, Map::size)
+            .description("Commands waiting to be written")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue a command to be written. A full batch is flushed in the
+     * background; once the buffer is full the caller writes one batch
+     * itself before returning.
+     *
+     * @param command the command to save, which is not modified
+     * @return the content hash the command is stored under, the same for every save of the command;
+     *         its id is only known once it has been written
+     */
+    public String submit(Command command) {
+        String hash = CommandHashCallback.contentHash(command);
+        Command copy = new Command(null, command.getToolName(), command.getCommandText(),
+            command.getExplanation(), command.getDetails(), hash);
+
+        if (pending.putIfAbsent(hash, copy) != null) {
+            coalesced.increment();
+            return hash;
+        }
+        queued.increment();
+
+        int size = pending.size();
+        if (size >= maxPending) {
+            // Slows the callers down to the write rate, one batch each; the background flush does the rest
+            flushBatch();
+            scheduleFlush();
+        } else if (size >= batchSize) {
+            scheduleFlush();
+        }
+        return hash;
+    }
+
+    /**
+     * Number of commands waiting to be written
+     *
+     * @return the pending count
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Write everything that is pending, one batch at a time. Stops early if
+     * a batch fails, leaving the commands that can still be retried for the
+     * next flush.
+     */
+    @Scheduled(fixedDelayString = "${commands.write-behind.flush-interval-ms:500}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                if (!writeNextBatch()) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write out the buffer before the database goes away. The web server has
+     * already stopped taking requests by the time beans are destroyed.
+     */
+    @PreDestroy
+    public void drain() {
+        flusher.shutdown();
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("Dropping {} unsaved commands on shutdown", pending.size());
+        }
+    }
+
+    private void flushBatch() {
+        flushLock.lock();
+        try {
+            writeNextBatch();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if nothing was pending or the batch could not be written
+     */
+    private boolean writeNextBatch() {
+        List<Command> batch = nextBatch();
+        return !batch.isEmpty() && write(batch);
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the drain picks it up
+            flushScheduled.set(false);
+        }
+    }
+
+    private List<Command> nextBatch() {
+        List<Command> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Map.Entry<String, Command>> entries = pending.entrySet().iterator();
+        while (batch.size() < batchSize && entries.hasNext()) {
+            Map.Entry<String, Command> entry = entries.next();
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Upsert a batch by content hash, indexing the commands that were new
+     *
+     * @return false if some of the batch could not be written
+     */
+    private boolean write(List<Command> batch) {
+        long start = System.nanoTime();
+        BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Command.class);
+        for (Command command : batch) {
+            Update update = new Update()
+                .setOnInsert("toolName", command.getToolName())
+                .setOnInsert("commandText", command.getCommandText())
+                .setOnInsert("explanation", command.getExplanation());
+            if (command.getDetails() != null) {
+                // A later save can fill in the structured explanation of a command stored without one
+                update.set("details", command.getDetails());
+            }
+            operations.upsert(Query.query(Criteria.where("contentHash").is(command.getContentHash())), update);
+        }
+
+        BulkWriteResult result;
+        Map<Integer, String> failed = new HashMap<>();
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    failed.put(error.getIndex(), error.getMessage());
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to write {} buffered commands: {}", batch.size(), e.getMessage());
+            for (Command command : batch) {
+                retry(command, e.getMessage());
+            }
+            return false;
+        } finally {
+            flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        List<BulkWriteUpsert> upserts = result.getUpserts();
+        for (BulkWriteUpsert upsert : upserts) {
+            Command command = batch.get(upsert.getIndex());
+            command.setId(upsert.getId().asObjectId().getValue().toHexString());
+            searchIndex.index(command);
+        }
+        inserted.increment(upserts.size());
+        duplicates.increment(batch.size() - upserts.size() - failed.size());
+        if (!attempts.isEmpty()) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (!failed.containsKey(i)) {
+                    attempts.remove(batch.get(i).getContentHash());
+                }
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            log.warn("Failed to write {} of {} buffered commands", failed.size(), batch.size());
+            failed.forEach((index, reason) -> retry(batch.get(index), reason));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Put a command that failed to write back in the buffer, or drop it
+     * once it has failed too often, so one the database always refuses
+     * cannot be retried forever
+     */
+    private void retry(Command command, String reason) {
+        failures.increment();
+        String hash = command.getContentHash();
+        if (attempts.merge(hash, 1, Integer::sum) < maxAttempts) {
+            pending.putIfAbsent(hash, command);
+            return;
+        }
+        attempts.remove(hash);
+        dropped.increment();
+        log.error("Dropping command '{}' of {} after {} failed writes: {}",
+            command.getCommandText(), command.getToolName(), maxAttempts, reason);
+    }
+}
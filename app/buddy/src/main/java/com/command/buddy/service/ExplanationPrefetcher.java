@@ -0,0 +1,312 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.cache.LlmResponseCache;
+import com.command.buddy.client.GroqClient;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.StructuredOutputs;
+import com.command.buddy.grading.AnswerSpec;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.command.buddy.shell.CommandCanonicalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Speculative work started when a quiz question is served, so that the
+ * calls the quiz usually makes next find their results ready.
+ *
+ * The flow is nearly always question, check, explain, save. A correct
+ * answer is graded from the question's expected answers without the LLM,
+ * so the check only needs the {@link AnswerSpec} in memory; a pooled
+ * question may have been generated on another replica, so its spec is
+ * loaded here. The explanation is an LLM call of its own: the first
+ * expected answer is explained into the response cache, and an explanation
+ * asked for any spelling of that command is answered from it (see
+ * {@link #resolve}).
+ *
+ * Speculation spends real tokens, so it is capped at
+ * {@code quiz.prefetch.max-per-tool-per-minute} explanations per tool and
+ * {@code quiz.prefetch.concurrency} in flight; a question over either cap
+ * is served without a prefetch. A prefetched explanation that nobody asks
+ * for within {@code quiz.prefetch.window} counts as wasted.
+ *
+ * An explain asked for while its prefetch is still running must not call
+ * the LLM again. A blocking one on the servlet stack joins the same call in
+ * {@link GroqClient}; streamed ones and those on the reactive stack wait
+ * for the prefetch through {@link #inFlight} and are answered from the
+ * cache.
+ */
+@Component
+public class ExplanationPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExplanationPrefetcher.class);
+
+    // Bounds the bookkeeping when many tools are quizzed at once
+    private static final int MAX_TRACKED = 10_000;
+
+    private final GroqClient groqClient;
+    private final LlmResponseCache responseCache;
+    private final AnswerSpecStore answerSpecs;
+    private final boolean enabled;
+    private final int maxPerToolPerMinute;
+    private final Duration window;
+
+    private final ConcurrentHashMap<String, Prefetch> prefetched = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final BoundedExecutor executor;
+
+    private final Counter started;
+    private final Counter failed;
+    private final Counter alreadyCached;
+    private final Counter overBudget;
+    private final Counter busy;
+    private final Counter noAnswer;
+    private final Counter used;
+    private final Counter late;
+    private final Counter wasted;
+
+    public ExplanationPrefetcher(GroqClient groqClient,
+                                 LlmResponseCache responseCache,
+                                 AnswerSpecStore answerSpecs,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${quiz.prefetch.enabled:true}") boolean enabled,
+                                 @Value("${quiz.prefetch.max-per-tool-per-minute:10}") int maxPerToolPerMinute,
+                                 @Value("${quiz.prefetch.concurrency:4}") int concurrency,
+                                 @Value("${quiz.prefetch.window:10m}") Duration window) {
+        this.groqClient = groqClient;
+        this.responseCache = responseCache;
+        this.answerSpecs = answerSpecs;
+        this.enabled = enabled;
+        this.maxPerToolPerMinute = maxPerToolPerMinute;
+        this.window = window;
+        this.executor = new BoundedExecutor("explanation-prefetch", concurrency);
+
+        this.started = calls(meterRegistry, "started");
+        this.failed = calls(meterRegistry, "failed");
+        this.alreadyCached = calls(meterRegistry, "cached");
+        this.overBudget = calls(meterRegistry, "over_budget");
+        this.busy = calls(meterRegistry, "busy");
+        this.noAnswer = calls(meterRegistry, "no_answer");
+        this.used = results(meterRegistry, "used");
+        this.late = results(meterRegistry, "late");
+        this.wasted = results(meterRegistry, "wasted");
+        Gauge.builder("quiz.prefetch.hit.ratio", this, ExplanationPrefetcher::hitRatio)
+            .description("Share of prefetched explanations that were asked for")
+            .register(meterRegistry);
+        Gauge.builder("quiz.prefetch.tracked", prefetched, ConcurrentHashMap::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Start speculative work for a question that is being served; returns at once
+     *
+     * @param toolName the name of the tool
+     * @param question the question
+     */
+    public void questionServed(String toolName, String question) {
+        if (!enabled || question == null || question.isBlank()) {
+            return;
+        }
+        if (prefetched.size() >= MAX_TRACKED || !executor.tryExecute(() -> prefetch(toolName, question))) {
+            busy.increment();
+        }
+    }
+
+    /**
+     * The command to explain in place of the requested one: the prefetched
+     * spelling if the request is the same command, so it hits the cache
+     *
+     * @param toolName the name of the tool
+     * @param command the command as requested
+     * @return the prefetched spelling, or the command unchanged
+     */
+    public String resolve(String toolName, String command) {
+        if (prefetched.isEmpty() || command == null) {
+            return command;
+        }
+        Prefetch entry = prefetched.get(key(toolName, CommandCanonicalizer.canonicalize(command)));
+        if (entry == null) {
+            return command;
+        }
+        if (entry.spent && entry.used.compareAndSet(false, true)) {
+            (entry.done ? used : late).increment();
+        }
+        return entry.command;
+    }
+
+    /**
+     * The prefetch of a command's explanation, if it is still running, so
+     * that a streamed explain can wait for the cache instead of calling the
+     * LLM a second time
+     *
+     * @param toolName the name of the tool
+     * @param command the command as returned by {@link #resolve}
+     * @return completes once the prefetch has finished, whether or not it succeeded; empty if none is running
+     */
+    public Optional<CompletableFuture<Void>> inFlight(String toolName, String command) {
+        if (prefetched.isEmpty() || command == null) {
+            return Optional.empty();
+        }
+        Prefetch entry = prefetched.get(key(toolName, CommandCanonicalizer.canonicalize(command)));
+        if (entry == null || entry.finished.isDone()) {
+            return Optional.empty();
+        }
+        // A copy, so a caller that gives up cannot cancel it for the others
+        return Optional.of(entry.finished.copy());
+    }
+
+    /**
+     * Forget prefetches older than the window, counting the unused ones as wasted
+     */
+    @Scheduled(fixedDelayString = "${quiz.prefetch.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        prefetched.values().removeIf(entry -> {
+            if (now - entry.startedAtNanos < window.toNanos()) {
+                return false;
+            }
+            if (entry.spent && !entry.used.get()) {
+                wasted.increment();
+            }
+            return true;
+        });
+        budgets.values().removeIf(budget -> budget.isIdle(now));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void prefetch(String toolName, String question) {
+        Optional<AnswerSpec> spec = answerSpecs.find(toolName, question);
+        if (spec.isEmpty() || spec.get().answers().isEmpty()) {
+            noAnswer.increment();
+            return;
+        }
+
+        String command = spec.get().answers().getFirst();
+        String key = key(toolName, command);
+        if (prefetched.containsKey(key)) {
+            return;
+        }
+        String cacheKey = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        if (responseCache.peek(LlmOperation.EXPLAIN_COMMAND, cacheKey).isPresent()) {
+            // Free to keep for other spellings, but not a prefetch
+            prefetched.putIfAbsent(key, new Prefetch(command, false, true));
+            alreadyCached.increment();
+            return;
+        }
+        if (!budgets.computeIfAbsent(toolName.trim().toLowerCase(Locale.ROOT), tool -> new Budget())
+                .tryTake(maxPerToolPerMinute)) {
+            overBudget.increment();
+            return;
+        }
+
+        Prefetch entry = new Prefetch(command, true, false);
+        if (prefetched.putIfAbsent(key, entry) != null) {
+            return;
+        }
+        started.increment();
+        try {
+            responseCache.get(LlmOperation.EXPLAIN_COMMAND, toolName, cacheKey,
+                () -> StructuredOutputs.toJson(groqClient.explainCommand(toolName, command)));
+            entry.done = true;
+        } catch (RuntimeException e) {
+            prefetched.remove(key, entry);
+            failed.increment();
+            log.debug("Explanation prefetch for {} failed: {}", toolName, e.getMessage());
+        } finally {
+            entry.finished.complete(null);
+        }
+    }
+
+    private double hitRatio() {
+        double hits = used.count() + late.count();
+        double total = hits + wasted.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private static String key(String toolName, String canonicalCommand) {
+        return toolName.trim().toLowerCase(Locale.ROOT) + '\0' + canonicalCommand;
+    }
+
+    private static Counter calls(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("quiz.prefetch.calls")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Counter results(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("quiz.prefetch.results")
+            .description("Prefetched explanations asked for once ready (used), while in flight (late) or never (wasted)")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * A prefetched explanation
+     */
+    private static final class Prefetch {
+
+        private final String command;
+        // Whether an LLM call was made for it
+        private final boolean spent;
+        private final long startedAtNanos = System.nanoTime();
+        private final AtomicBoolean used = new AtomicBoolean();
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private volatile boolean done;
+
+        Prefetch(String command, boolean spent, boolean done) {
+            this.command = command;
+            this.spent = spent;
+            this.done = done;
+            if (!spent) {
+                finished.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Prefetches started for one tool in the current minute
+     */
+    private static final class Budget {
+
+        private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+        private long windowStart = System.nanoTime();
+        private int spent;
+
+        synchronized boolean tryTake(int max) {
+            long now = System.nanoTime();
+            if (now - windowStart >= MINUTE) {
+                windowStart = now;
+                spent = 0;
+            }
+            if (spent >= max) {
+                return false;
+            }
+            spent++;
+            return true;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - windowStart >= MINUTE;
+        }
+    }
+}
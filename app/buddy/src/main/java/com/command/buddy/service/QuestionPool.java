@@ -0,0 +1,499 @@
+package com.command.buddy.service;
+
+import com.command.buddy.client.GroqClient;
+import com.command.buddy.cluster.LeaderElection;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.command.buddy.session.QuestionFingerprint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Bounded per-tool pool of pre-generated quiz questions.
+ *
+ * A background job keeps every known tool topped up so that the quiz endpoint
+ * can serve questions from memory and only falls back to a live LLM call when
+ * the pool for a tool has run dry.
+ *
+ * Users with a quiz session share the pooled questions: each of them is
+ * served the oldest question they have not seen, and a question only leaves
+ * the pool after {@code quiz.pool.max-serves} users got it. Anonymous users
+ * take questions out of the pool. Near-duplicates are kept out of the pool.
+ *
+ * With {@code quiz.pool.shared} on, only the replica holding the
+ * {@link LeaderElection} lease calls the LLM for refills. It keeps the
+ * {@code pooled_questions} collection topped up for the tools it serves and
+ * the ones other replicas ran short of, and every replica, the leader
+ * included, fills its own pool by claiming questions from there, so the
+ * refill cost does not grow with the number of replicas.
+ */
+@Component
+public class QuestionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionPool.class);
+
+    // Weight given to the latest consumption sample in the moving average
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final GroqClient groqClient;
+    private final AnswerSpecStore answerSpecs;
+    private final LeaderElection leaderElection;
+    // Null when every replica refills its own pool
+    private final SharedQuestions shared;
+    private final MeterRegistry meterRegistry;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final int maxTools;
+    private final int maxServes;
+    private final double refillLeadSeconds;
+    private final double similarityThreshold;
+
+    private final ConcurrentHashMap<String, ToolPool> pools = new ConcurrentHashMap<>();
+    private final BoundedExecutor refillExecutor;
+    private final AtomicInteger refillTurn = new AtomicInteger();
+    private final AtomicInteger publishTurn = new AtomicInteger();
+
+    public QuestionPool(GroqClient groqClient,
+                        AnswerSpecStore answerSpecs,
+                        LeaderElection leaderElection,
+                        MongoOperations mongoOperations,
+                        MeterRegistry meterRegistry,
+                        @Value("${quiz.pool.capacity:20}") int capacity,
+                        @Value("${quiz.pool.low-water-mark:5}") int lowWaterMark,
+                        @Value("${quiz.pool.refill-concurrency:4}") int refillConcurrency,
+                        @Value("${quiz.pool.refill-lead-seconds:10}") double refillLeadSeconds,
+                        @Value("${quiz.pool.max-tools:32}") int maxTools,
+                        @Value("${quiz.pool.max-serves:50}") int maxServes,
+                        @Value("${quiz.session.similarity-threshold:0.6}") double similarityThreshold,
+                        @Value("${quiz.pool.tools:}") String[] warmTools,
+                        @Value("${quiz.pool.shared:true}") boolean shared) {
+        this.groqClient = groqClient;
+        this.answerSpecs = answerSpecs;
+        this.leaderElection = leaderElection;
+        this.shared = shared ? new SharedQuestions(mongoOperations) : null;
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.lowWaterMark = Math.min(lowWaterMark, capacity);
+        this.refillLeadSeconds = refillLeadSeconds;
+        this.maxTools = maxTools;
+        this.maxServes = maxServes;
+        this.similarityThreshold = similarityThreshold;
+        this.refillExecutor = new BoundedExecutor("question-pool-refill", refillConcurrency);
+
+        Gauge.builder("quiz.pool.refills.in-flight", refillExecutor, BoundedExecutor::running)
+            .description("Question generation calls currently running for pool refills")
+            .register(meterRegistry);
+
+        Arrays.stream(warmTools)
+            .filter(tool -> !tool.isBlank())
+            .forEach(this::poolFor);
+    }
+
+    /**
+     * Take a pre-generated question for a tool, registering the tool for
+     * background refills if it has not been seen before
+     *
+     * @param toolName the name of the tool
+     * @return a pooled question, or empty if the pool for the tool is drained
+     */
+    public Optional<String> poll(String toolName) {
+        ToolPool pool = poolFor(toolName);
+        if (pool == null) {
+            return Optional.empty();
+        }
+
+        pool.consumed.increment();
+        Entry entry = pool.questions.poll();
+        if (entry == null) {
+            pool.misses.increment();
+            return Optional.empty();
+        }
+
+        pool.depth.decrementAndGet();
+        pool.hits.increment();
+        return Optional.of(entry.question.text());
+    }
+
+    /**
+     * Serve the oldest pooled question a user accepts, leaving it in the pool
+     * for other users until it has been served {@code quiz.pool.max-serves} times
+     *
+     * @param toolName the name of the tool
+     * @param accept whether the user may be served a question, typically "not seen yet"
+     * @return the question, or empty if the user has seen everything in the pool
+     */
+    public Optional<Pooled> poll(String toolName, Predicate<QuestionFingerprint> accept) {
+        ToolPool pool = poolFor(toolName);
+        if (pool == null) {
+            return Optional.empty();
+        }
+
+        pool.consumed.increment();
+        for (Entry entry : pool.questions) {
+            if (!accept.test(entry.question.fingerprint())) {
+                continue;
+            }
+            int serves = entry.serves.incrementAndGet();
+            if (serves > maxServes) {
+                // Used up by another user while we were looking at it
+                continue;
+            }
+            if (serves == maxServes && pool.questions.remove(entry)) {
+                pool.depth.decrementAndGet();
+            }
+            pool.hits.increment();
+            return Optional.of(entry.question);
+        }
+
+        pool.misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Add a question generated outside the pool, so other users can be served
+     * it too. A full pool makes room by dropping its oldest question.
+     *
+     * @param toolName the name of the tool
+     * @param question the question and its fingerprint
+     */
+    public void offer(String toolName, Pooled question) {
+        ToolPool pool = poolFor(toolName);
+        if (pool == null || pool.containsNear(question.fingerprint())) {
+            return;
+        }
+        if (pool.depth.get() >= capacity && pool.questions.poll() != null) {
+            pool.depth.decrementAndGet();
+        }
+        pool.add(question);
+    }
+
+    /**
+     * Current number of pooled questions for a tool
+     *
+     * @param toolName the name of the tool
+     * @return the pool depth, or 0 if the tool is unknown
+     */
+    public int depth(String toolName) {
+        ToolPool pool = pools.get(normalize(toolName));
+        return pool == null ? 0 : pool.depth.get();
+    }
+
+    /**
+     * Periodically update consumption rates and top up every pool that has
+     * fallen below its low-water mark, then, on the leader, the shared collection.
+     * Each run starts at the next tool, so when the refill permits run out
+     * it is not always the same tools that wait.
+     */
+    @Scheduled(initialDelayString = "${quiz.pool.initial-delay-ms:5000}",
+               fixedDelayString = "${quiz.pool.refill-interval-ms:2000}")
+    public void refill() {
+        long now = System.nanoTime();
+        boolean permitsLeft = true;
+        for (ToolPool pool : inTurn(refillTurn)) {
+            pool.updateRate(now);
+            if (!pool.served) {
+                // Only known here because another replica asked the leader for it
+                continue;
+            }
+
+            int depth = pool.depth.get() + pool.pending.get();
+            if (depth >= pool.lowWaterMark()) {
+                continue;
+            }
+
+            // Fill all the way up so that refills happen in bursts, not one by one
+            if (shared != null) {
+                claimInto(pool, capacity - depth);
+            } else if (permitsLeft) {
+                permitsLeft = startGenerations(pool, capacity - depth, false);
+            }
+        }
+
+        if (shared != null && leaderElection.isLeader()) {
+            publish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdown();
+    }
+
+    /**
+     * Leader only: top up the shared collection for every tool this replica
+     * serves or another replica asked for
+     */
+    private void publish() {
+        try {
+            for (String toolName : shared.requestedTools(maxTools)) {
+                if (!pools.containsKey(toolName) && pools.size() < maxTools) {
+                    pools.computeIfAbsent(toolName, ToolPool::new);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to read the tools other replicas asked for: {}", e.getMessage());
+        }
+
+        for (ToolPool pool : inTurn(publishTurn)) {
+            long waiting;
+            try {
+                waiting = shared.count(pool.toolName) + pool.publishing.get();
+            } catch (DataAccessException e) {
+                log.warn("Unable to count shared questions, skipping this refill: {}", e.getMessage());
+                return;
+            }
+            if (waiting >= lowWaterMark) {
+                continue;
+            }
+            if (!startGenerations(pool, (int) (capacity - waiting), true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Move questions the leader generated into this replica's pool
+     */
+    private void claimInto(ToolPool pool, int max) {
+        List<String> claimed;
+        try {
+            claimed = shared.claim(pool.toolName, max);
+        } catch (DataAccessException e) {
+            log.warn("Unable to claim shared questions for {}: {}", pool.toolName, e.getMessage());
+            return;
+        }
+        if (claimed.size() < max) {
+            try {
+                shared.request(pool.toolName);
+            } catch (DataAccessException e) {
+                log.warn("Unable to ask for shared questions for {}: {}", pool.toolName, e.getMessage());
+            }
+        }
+        for (String question : claimed) {
+            QuestionFingerprint fingerprint = QuestionFingerprint.of(pool.toolName, question);
+            if (pool.containsNear(fingerprint)) {
+                pool.refillDuplicates.increment();
+                continue;
+            }
+            pool.add(new Pooled(question, fingerprint));
+            pool.claims.increment();
+        }
+    }
+
+    /**
+     * Start up to {@code count} question generations for a tool
+     *
+     * @param publish whether the questions go to the shared collection rather than this pool
+     * @return false if the refill permits ran out
+     */
+    private boolean startGenerations(ToolPool pool, int count, boolean publish) {
+        AtomicInteger pending = publish ? pool.publishing : pool.pending;
+        for (int i = 0; i < count; i++) {
+            pending.incrementAndGet();
+            if (!refillExecutor.tryExecute(() -> generateInto(pool, publish))) {
+                pending.decrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generateInto(ToolPool pool, boolean publish) {
+        try {
+            String question = answerSpecs.register(pool.toolName, groqClient.generateCommandQuestion(pool.toolName));
+            if (question == null || question.isBlank()) {
+                pool.refillFailures.increment();
+                return;
+            }
+            QuestionFingerprint fingerprint = QuestionFingerprint.of(pool.toolName, question);
+            if (pool.containsNear(fingerprint) || (publish && publishedNear(pool.toolName, fingerprint))) {
+                pool.refillDuplicates.increment();
+                return;
+            }
+            if (publish) {
+                shared.publish(pool.toolName, question);
+            } else if (pool.depth.get() < capacity) {
+                pool.add(new Pooled(question, fingerprint));
+            }
+            pool.refills.increment();
+        } catch (RuntimeException e) {
+            pool.refillFailures.increment();
+            log.warn("Failed to pre-generate question for {}: {}", pool.toolName, e.getMessage());
+        } finally {
+            (publish ? pool.publishing : pool.pending).decrementAndGet();
+        }
+    }
+
+    private boolean publishedNear(String toolName, QuestionFingerprint fingerprint) {
+        for (String text : shared.texts(toolName)) {
+            if (isNear(QuestionFingerprint.of(toolName, text), fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNear(QuestionFingerprint a, QuestionFingerprint b) {
+        return a.hash() == b.hash() || a.similarity(b) >= similarityThreshold;
+    }
+
+    /**
+     * @param turn the rotation of the caller, so refills and publishes each go round on their own
+     * @return the pools, starting one further along than the caller's previous call
+     */
+    private List<ToolPool> inTurn(AtomicInteger turn) {
+        List<ToolPool> all = new ArrayList<>(pools.values());
+        if (all.size() > 1) {
+            Collections.rotate(all, -Math.floorMod(turn.getAndIncrement(), all.size()));
+        }
+        return all;
+    }
+
+    private ToolPool poolFor(String toolName) {
+        String key = normalize(toolName);
+        ToolPool pool = pools.get(key);
+        if (pool == null) {
+            // Tool names come from the URL, so cap how many pools a client can create
+            if (pools.size() >= maxTools) {
+                return null;
+            }
+            pool = pools.computeIfAbsent(key, ToolPool::new);
+        }
+        if (!pool.served) {
+            pool.served = true;
+        }
+        return pool;
+    }
+
+    private static String normalize(String toolName) {
+        return toolName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A pooled question
+     *
+     * @param text the question
+     * @param fingerprint its fingerprint, to check it against what a user has seen
+     */
+    public record Pooled(String text, QuestionFingerprint fingerprint) {
+    }
+
+    private static final class Entry {
+
+        private final Pooled question;
+        private final AtomicInteger serves = new AtomicInteger();
+
+        Entry(Pooled question) {
+            this.question = question;
+        }
+    }
+
+    /**
+     * Questions and bookkeeping for a single tool
+     */
+    private final class ToolPool {
+
+        private final String toolName;
+        private final ConcurrentLinkedQueue<Entry> questions = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+        // Generations on their way to the shared collection, leader only
+        private final AtomicInteger publishing = new AtomicInteger();
+        private final LongAdder consumed = new LongAdder();
+        private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+        private volatile double ratePerSecond;
+        // False for a tool the leader only publishes for, so it does not claim questions it would never serve
+        private volatile boolean served;
+
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter refills;
+        private final Counter refillFailures;
+        private final Counter refillDuplicates;
+        private final Counter claims;
+
+        ToolPool(String toolName) {
+            this.toolName = toolName;
+            this.hits = Counter.builder("quiz.pool.requests")
+                .tag("tool", toolName).tag("result", "hit")
+                .register(meterRegistry);
+            this.misses = Counter.builder("quiz.pool.requests")
+                .tag("tool", toolName).tag("result", "miss")
+                .register(meterRegistry);
+            this.refills = Counter.builder("quiz.pool.refills")
+                .tag("tool", toolName).tag("outcome", "success")
+                .register(meterRegistry);
+            this.refillFailures = Counter.builder("quiz.pool.refills")
+                .tag("tool", toolName).tag("outcome", "failure")
+                .register(meterRegistry);
+            this.refillDuplicates = Counter.builder("quiz.pool.refills")
+                .tag("tool", toolName).tag("outcome", "duplicate")
+                .register(meterRegistry);
+            this.claims = Counter.builder("quiz.pool.refills")
+                .tag("tool", toolName).tag("outcome", "claimed")
+                .register(meterRegistry);
+            Gauge.builder("quiz.pool.depth", depth, AtomicInteger::get)
+                .tag("tool", toolName)
+                .description("Pre-generated questions ready to be served")
+                .register(meterRegistry);
+            Gauge.builder("quiz.pool.consumption.rate", this, p -> p.ratePerSecond)
+                .tag("tool", toolName)
+                .baseUnit("questions/s")
+                .register(meterRegistry);
+        }
+
+        void add(Pooled question) {
+            questions.offer(new Entry(question));
+            depth.incrementAndGet();
+        }
+
+        boolean containsNear(QuestionFingerprint fingerprint) {
+            for (Entry entry : questions) {
+                if (isNear(entry.question.fingerprint(), fingerprint)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void updateRate(long now) {
+            long previous = lastTick.getAndSet(now);
+            double elapsedSeconds = (now - previous) / 1_000_000_000.0;
+            if (elapsedSeconds <= 0) {
+                return;
+            }
+            double sample = consumed.sumThenReset() / elapsedSeconds;
+            ratePerSecond = RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * ratePerSecond;
+        }
+
+        /**
+         * Busy tools get a higher watermark so a refill can land before the
+         * pool runs dry
+         */
+        int lowWaterMark() {
+            int demand = (int) Math.ceil(ratePerSecond * refillLeadSeconds);
+            return Math.min(capacity, Math.max(lowWaterMark, demand));
+        }
+    }
+}
@@ -1,9 +1,30 @@
 package com.command.buddy.service;
 
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.cache.LlmResponseCache;
+import com.command.buddy.cache.VerdictCache;
+import com.command.buddy.client.AnswerEvaluation;
+import com.command.buddy.client.AnswerItem;
+import com.command.buddy.client.ChatStream;
 import com.command.buddy.client.GroqClient;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.StructuredOutputs;
+import com.command.buddy.client.TokenListener;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.command.buddy.grading.GradingEngine;
+import com.command.buddy.model.AnswerFeedback;
 import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandExplanation;
+import com.command.buddy.session.QuizSessions;
+import com.command.buddy.shell.CommandCanonicalizer;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 /**
  * Service for handling quiz-related operations
  */
@@ -11,56 +32,249 @@ import org.springframework.stereotype.Service;
 public class QuizService {
 
     private final GroqClient groqClient;
-    private final CommandService commandService;
+    private final QuestionPool questionPool;
+    private final LlmResponseCache responseCache;
+    private final CommandWriteBuffer writeBuffer;
+    private final QuizSessions sessions;
+    private final VerdictCache verdictCache;
+    private final GradingEngine gradingEngine;
+    private final AnswerSpecStore answerSpecs;
+    private final AnswerBatchGrader batchGrader;
+    private final ExplanationPrefetcher prefetcher;
 
-    public QuizService(GroqClient groqClient, CommandService commandService) {
+    public QuizService(GroqClient groqClient, QuestionPool questionPool, LlmResponseCache responseCache,
+                       CommandWriteBuffer writeBuffer, QuizSessions sessions, VerdictCache verdictCache,
+                       GradingEngine gradingEngine, AnswerSpecStore answerSpecs, AnswerBatchGrader batchGrader,
+                       ExplanationPrefetcher prefetcher) {
         this.groqClient = groqClient;
-        this.commandService = commandService;
+        this.questionPool = questionPool;
+        this.responseCache = responseCache;
+        this.writeBuffer = writeBuffer;
+        this.sessions = sessions;
+        this.verdictCache = verdictCache;
+        this.gradingEngine = gradingEngine;
+        this.answerSpecs = answerSpecs;
+        this.batchGrader = batchGrader;
+        this.prefetcher = prefetcher;
     }
 
     /**
-     * Generate a quiz question for a specific tool
+     * Generate a quiz question for a specific tool, served from the
+     * pre-generated pool when possible. Its explanation is prefetched.
      *
      * @param toolName the name of the tool
      * @return a quiz question about using the tool
      */
     public String generateQuestion(String toolName) {
-        return groqClient.generateCommandQuestion(toolName);
+        return served(toolName, questionPool.poll(toolName)
+            .orElseGet(() -> generate(toolName)));
+    }
+
+    /**
+     * Generate a quiz question the user has not been served before, from the
+     * shared pool when possible
+     *
+     * @param toolName the name of the tool
+     * @param sessionId the user's session id, or null for an anonymous user
+     * @return a quiz question about using the tool
+     */
+    public String generateQuestion(String toolName, String sessionId) {
+        if (sessionId == null) {
+            return generateQuestion(toolName);
+        }
+
+        QuizSessions.Session session = sessions.open(sessionId, toolName);
+        try {
+            Optional<String> pooled = sessions.takePooled(session);
+            if (pooled.isPresent()) {
+                return served(toolName, pooled.get());
+            }
+
+            String question = null;
+            for (int attempt = 0; attempt < sessions.maxGenerationAttempts(); attempt++) {
+                question = generate(toolName);
+                if (sessions.accept(session, question)) {
+                    return served(toolName, question);
+                }
+            }
+            // A repeat beats no question at all
+            sessions.repeat();
+            return served(toolName, question);
+        } finally {
+            sessions.save(session);
+        }
+    }
+
+    /**
+     * Evaluate a user's answer to a quiz question. Answers the grading rules
+     * can decide, and the same command with its flags in another order given
+     * to a near-identical question, are answered without calling the LLM.
+     * Evaluations are cached as JSON and read back into the typed record.
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param userAnswer the user's command answer
+     * @return the verdict and feedback
+     */
+    public AnswerFeedback evaluateAnswer(String toolName, String question, String userAnswer) {
+        String answer = CommandCanonicalizer.canonicalize(userAnswer);
+        Optional<String> verdict = gradingEngine.grade(toolName, question, answer)
+            .or(() -> verdictCache.find(toolName, question, answer));
+        if (verdict.isPresent()) {
+            return StructuredOutputs.parseFeedback(verdict.get());
+        }
+
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, answer);
+        String feedback = responseCache.get(LlmOperation.EVALUATE_ANSWER, toolName, key,
+            () -> StructuredOutputs.toJson(groqClient.evaluateCommandAnswer(toolName, question, userAnswer)));
+        verdictCache.put(toolName, question, answer, feedback);
+        return StructuredOutputs.parseFeedback(feedback);
+    }
+
+    /**
+     * Evaluate many answers at once. Answers that cannot be decided locally
+     * are packed into as few LLM calls as fit, instead of one call each.
+     *
+     * @param items the answers to grade
+     * @return a future completed with one evaluation per answer, in the same order
+     */
+    public CompletableFuture<List<AnswerEvaluation>> evaluateAnswers(List<AnswerItem> items) {
+        return batchGrader.grade(items);
+    }
+
+    /**
+     * Get an explanation for a command. The same command in another spelling
+     * is answered with the prefetched explanation of the question's answer.
+     *
+     * @param toolName the name of the tool
+     * @param requested the command to explain
+     * @return the explanation, split into sections
+     */
+    public CommandExplanation getCommandExplanation(String toolName, String requested) {
+        String command = prefetcher.resolve(toolName, requested);
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        return StructuredOutputs.parseExplanation(responseCache.get(LlmOperation.EXPLAIN_COMMAND, toolName, key,
+            () -> StructuredOutputs.toJson(groqClient.explainCommand(toolName, command))));
     }
 
     /**
-     * Evaluate a user's answer to a quiz question
+     * Stream the evaluation of a user's answer. Locally graded and cached evaluations are sent in one piece.
      *
      * @param toolName the name of the tool
      * @param question the quiz question
      * @param userAnswer the user's command answer
-     * @return evaluation feedback
+     * @param listener receives the feedback as it is generated
+     * @return the in-flight stream, cancel it when the client goes away
      */
-    public String evaluateAnswer(String toolName, String question, String userAnswer) {
-        return groqClient.evaluateCommandAnswer(toolName, question, userAnswer);
+    public ChatStream streamAnswerEvaluation(String toolName, String question, String userAnswer, TokenListener listener) {
+        String answer = CommandCanonicalizer.canonicalize(userAnswer);
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, answer);
+        Optional<String> cached = gradingEngine.grade(toolName, question, answer)
+            .or(() -> verdictCache.find(toolName, question, answer))
+            .or(() -> responseCache.peek(LlmOperation.EVALUATE_ANSWER, key));
+        if (cached.isPresent()) {
+            return replay(StructuredOutputs.feedbackText(cached.get()), listener);
+        }
+        return groqClient.streamCommandEvaluation(toolName, question, userAnswer,
+            caching(LlmOperation.EVALUATE_ANSWER, toolName, key, listener,
+                feedback -> verdictCache.put(toolName, question, answer, feedback)));
     }
 
     /**
-     * Get an explanation for a command
+     * Stream the explanation of a command. Cached explanations are sent in
+     * one piece, and so is one that is still being prefetched, once it is done.
      *
      * @param toolName the name of the tool
-     * @param command the command to explain
-     * @return detailed explanation of the command
+     * @param requested the command to explain
+     * @param listener receives the explanation as it is generated
+     * @return the in-flight stream, cancel it when the client goes away
      */
-    public String getCommandExplanation(String toolName, String command) {
-        return groqClient.explainCommand(toolName, command);
+    public ChatStream streamCommandExplanation(String toolName, String requested, TokenListener listener) {
+        String command = prefetcher.resolve(toolName, requested);
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        // Request threads are virtual, so waiting here holds no platform thread
+        prefetcher.inFlight(toolName, command).ifPresent(CompletableFuture::join);
+        Optional<String> cached = responseCache.peek(LlmOperation.EXPLAIN_COMMAND, key);
+        if (cached.isPresent()) {
+            return replay(StructuredOutputs.explanationText(cached.get()), listener);
+        }
+        return groqClient.streamCommandExplanation(toolName, command,
+            caching(LlmOperation.EXPLAIN_COMMAND, toolName, key, listener, response -> { }));
     }
 
     /**
-     * Save a command to the database
+     * Queue a command to be saved. Each distinct command is stored once,
+     * shortly after the call returns. The structured explanation the user
+     * was shown, if still cached, is stored with it.
      *
      * @param toolName the name of the tool
      * @param commandText the command text
      * @param explanation the command explanation
-     * @return the saved command
+     * @return the queued command with its content hash; it has no ID until it is written
      */
     public Command saveCommand(String toolName, String commandText, String explanation) {
         Command command = new Command(toolName, commandText, explanation);
-        return commandService.saveCommand(command);
+        command.setDetails(cachedExplanation(responseCache, toolName, commandText));
+        command.setContentHash(writeBuffer.submit(command));
+        return command;
+    }
+
+    /**
+     * @return the structured explanation of a command in the response cache, or null
+     */
+    static CommandExplanation cachedExplanation(LlmResponseCache responseCache, String toolName, String command) {
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        return responseCache.peek(LlmOperation.EXPLAIN_COMMAND, key)
+            .map(StructuredOutputs::parseExplanation)
+            .filter(CommandExplanation::isStructured)
+            .orElse(null);
+    }
+
+    private String served(String toolName, String question) {
+        prefetcher.questionServed(toolName, question);
+        return question;
+    }
+
+    private String generate(String toolName) {
+        return answerSpecs.register(toolName, groqClient.generateCommandQuestion(toolName));
+    }
+
+    private ChatStream replay(String response, TokenListener listener) {
+        try {
+            listener.onToken(response);
+            listener.onComplete();
+        } catch (Exception e) {
+            listener.onError(e);
+        }
+        return ChatStream.completed();
+    }
+
+    /**
+     * Wrap a listener so that a stream which runs to completion is cached like a blocking call
+     */
+    private TokenListener caching(LlmOperation operation, String toolName, String key, TokenListener delegate,
+                                  Consumer<String> onResponse) {
+        long start = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        return new TokenListener() {
+            @Override
+            public void onToken(String token) throws Exception {
+                text.append(token);
+                delegate.onToken(token);
+            }
+
+            @Override
+            public void onComplete() {
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                responseCache.put(operation, toolName, key, text.toString(), latencyMs);
+                onResponse.accept(text.toString());
+                delegate.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                delegate.onError(error);
+            }
+        };
     }
 }
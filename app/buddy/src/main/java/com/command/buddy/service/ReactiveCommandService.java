@@ -0,0 +1,123 @@
+package com.command.buddy.service;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.repository.ReactiveCommandRepository;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.search.SearchHit;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Non-blocking twin of {@link CommandService} for the reactive stack
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCommandService {
+
+    // Lower than any ObjectId, so the first page starts at the beginning
+    private static final String FIRST_ID = "000000000000000000000000";
+
+    private final ReactiveCommandRepository commandRepository;
+    private final CommandSearchIndex searchIndex;
+
+    public ReactiveCommandService(ReactiveCommandRepository commandRepository, CommandSearchIndex searchIndex) {
+        this.commandRepository = commandRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Save a command to the database. A command with the same tool and
+     * command text as a stored one is refused with a
+     * {@link org.springframework.dao.DuplicateKeyException}.
+     *
+     * @param command the command to save
+     * @return the saved command with its generated ID
+     */
+    public Mono<Command> saveCommand(Command command) {
+        return commandRepository.save(command)
+            .doOnNext(searchIndex::index);
+    }
+
+    /**
+     * Find one page of commands for a tool
+     *
+     * @param toolName the name of the tool
+     * @param after the id of the last command of the previous page, or null for the first page
+     * @param limit the page size
+     * @param view {@link Command} for full documents, or a projection type
+     * @return the page, in id order
+     */
+    public <T> Flux<T> findCommandsByToolName(String toolName, String after, int limit, Class<T> view) {
+        return commandRepository.findByToolNameAndIdGreaterThanOrderByIdAsc(
+            toolName, after == null ? FIRST_ID : after, Limit.of(limit), view);
+    }
+
+    /**
+     * Stream every command for a tool from a database cursor
+     *
+     * @param toolName the name of the tool
+     * @param after only return commands after this id, or null for all of them
+     * @param view {@link Command} for full documents, or a projection type
+     * @return the commands, in id order
+     */
+    public <T> Flux<T> streamCommandsByToolName(String toolName, String after, Class<T> view) {
+        return commandRepository.streamByToolNameAndIdGreaterThanOrderByIdAsc(
+            toolName, after == null ? FIRST_ID : after, view);
+    }
+
+    /**
+     * Search the commands of a tool, best match first
+     *
+     * @param toolName the name of the tool
+     * @param searchText the text to search for in the command and its explanation
+     * @param limit maximum number of results
+     * @return the matching commands
+     */
+    public Flux<Command> searchCommandsByToolAndText(String toolName, String searchText, int limit) {
+        if (!searchIndex.isReady()) {
+            // Still building the index, so fall back to a (slow) substring scan in MongoDB
+            return commandRepository.findByToolNameAndCommandTextContainingIgnoreCase(toolName, searchText)
+                .take(limit);
+        }
+
+        // The index lookup is in memory, only the documents come from MongoDB
+        List<String> ids = searchIndex.search(toolName, searchText, limit).stream()
+            .map(SearchHit::id)
+            .toList();
+        return commandRepository.findAllById(ids)
+            .collectMap(Command::getId)
+            .flatMapIterable(byId -> ids.stream()
+                .map(byId::get)
+                .filter(command -> command != null)
+                .toList());
+    }
+
+    /**
+     * Find the commands of a tool whose structured explanation has a tag
+     *
+     * @param toolName the name of the tool
+     * @param tag the tag, in any case
+     * @param limit maximum number of results
+     * @return the matching commands, in id order
+     */
+    public Flux<Command> findCommandsByTag(String toolName, String tag, int limit) {
+        return commandRepository.findByToolNameAndDetailsTagsOrderByIdAsc(
+            toolName, tag.strip().toLowerCase(Locale.ROOT), Limit.of(limit));
+    }
+
+    /**
+     * Get count of commands for a specific tool
+     *
+     * @param toolName the name of the tool
+     * @return the count of commands
+     */
+    public Mono<Long> getCommandCountByTool(String toolName) {
+        return commandRepository.countByToolName(toolName);
+    }
+}
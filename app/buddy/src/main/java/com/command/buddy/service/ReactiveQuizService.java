@@ -0,0 +1,286 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.cache.LlmResponseCache;
+import com.command.buddy.cache.VerdictCache;
+import com.command.buddy.client.AnswerEvaluation;
+import com.command.buddy.client.AnswerItem;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.ReactiveGroqClient;
+import com.command.buddy.client.StructuredOutputs;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.command.buddy.grading.GradingEngine;
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.model.Command;
+import com.command.buddy.model.CommandExplanation;
+import com.command.buddy.session.QuizSessions;
+import com.command.buddy.shell.CommandCanonicalizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Non-blocking twin of {@link QuizService} for the reactive stack.
+ *
+ * The question pool is in memory and the LLM is called through
+ * {@link ReactiveGroqClient}. The response cache, the quiz sessions, the
+ * expected answers and the write buffer may touch MongoDB through the
+ * blocking driver, so those calls are moved off the event loop.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveQuizService {
+
+    private final ReactiveGroqClient groqClient;
+    private final QuestionPool questionPool;
+    private final LlmResponseCache responseCache;
+    private final CommandWriteBuffer writeBuffer;
+    private final QuizSessions sessions;
+    private final VerdictCache verdictCache;
+    private final GradingEngine gradingEngine;
+    private final AnswerSpecStore answerSpecs;
+    private final AnswerBatchGrader batchGrader;
+    private final ExplanationPrefetcher prefetcher;
+
+    public ReactiveQuizService(ReactiveGroqClient groqClient, QuestionPool questionPool, LlmResponseCache responseCache,
+                               CommandWriteBuffer writeBuffer, QuizSessions sessions, VerdictCache verdictCache,
+                               GradingEngine gradingEngine, AnswerSpecStore answerSpecs, AnswerBatchGrader batchGrader,
+                               ExplanationPrefetcher prefetcher) {
+        this.groqClient = groqClient;
+        this.questionPool = questionPool;
+        this.responseCache = responseCache;
+        this.writeBuffer = writeBuffer;
+        this.sessions = sessions;
+        this.verdictCache = verdictCache;
+        this.gradingEngine = gradingEngine;
+        this.answerSpecs = answerSpecs;
+        this.batchGrader = batchGrader;
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Generate a quiz question for a specific tool, served from the
+     * pre-generated pool when possible. Its explanation is prefetched.
+     *
+     * @param toolName the name of the tool
+     * @return a quiz question about using the tool
+     */
+    public Mono<String> generateQuestion(String toolName) {
+        return Mono.justOrEmpty(questionPool.poll(toolName))
+            .switchIfEmpty(Mono.defer(() -> generate(toolName)))
+            .doOnNext(question -> prefetcher.questionServed(toolName, question));
+    }
+
+    /**
+     * Generate a quiz question the user has not been served before, from the
+     * shared pool when possible
+     *
+     * @param toolName the name of the tool
+     * @param sessionId the user's session id, or null for an anonymous user
+     * @return a quiz question about using the tool
+     */
+    public Mono<String> generateQuestion(String toolName, String sessionId) {
+        if (sessionId == null) {
+            return generateQuestion(toolName);
+        }
+
+        return Mono.fromCallable(() -> sessions.open(sessionId, toolName))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(session -> Mono.justOrEmpty(sessions.takePooled(session))
+                .switchIfEmpty(Mono.defer(() -> generateUnseen(session, toolName, sessions.maxGenerationAttempts())))
+                .flatMap(question -> Mono.fromRunnable(() -> sessions.save(session))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .thenReturn(question)))
+            .doOnNext(question -> prefetcher.questionServed(toolName, question));
+    }
+
+    private Mono<String> generateUnseen(QuizSessions.Session session, String toolName, int attemptsLeft) {
+        return generate(toolName)
+            .flatMap(question -> {
+                if (sessions.accept(session, question)) {
+                    return Mono.just(question);
+                }
+                if (attemptsLeft <= 1) {
+                    // A repeat beats no question at all
+                    sessions.repeat();
+                    return Mono.just(question);
+                }
+                return generateUnseen(session, toolName, attemptsLeft - 1);
+            });
+    }
+
+    /**
+     * Evaluate a user's answer to a quiz question. Answers the grading rules
+     * can decide, and the same command with its flags in another order given
+     * to a near-identical question, are answered without calling the LLM.
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param userAnswer the user's command answer
+     * @return the verdict and feedback
+     */
+    public Mono<AnswerFeedback> evaluateAnswer(String toolName, String question, String userAnswer) {
+        String answer = CommandCanonicalizer.canonicalize(userAnswer);
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, answer);
+        return decidedLocally(toolName, question, answer)
+            .switchIfEmpty(Mono.defer(() -> cached(LlmOperation.EVALUATE_ANSWER, toolName, key,
+                    () -> groqClient.evaluateCommandAnswer(toolName, question, userAnswer).map(StructuredOutputs::toJson))
+                .doOnNext(feedback -> verdictCache.put(toolName, question, answer, feedback))))
+            .map(StructuredOutputs::parseFeedback);
+    }
+
+    /**
+     * Evaluate many answers at once. Answers that cannot be decided locally
+     * are packed into as few LLM calls as fit, instead of one call each.
+     *
+     * @param items the answers to grade
+     * @return one evaluation per answer, in the same order
+     */
+    public Mono<List<AnswerEvaluation>> evaluateAnswers(List<AnswerItem> items) {
+        // The local lookups may hit MongoDB; the LLM calls after them do not block
+        return Mono.fromCallable(() -> batchGrader.grade(items))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(Mono::fromFuture);
+    }
+
+    /**
+     * Get an explanation for a command. The same command in another spelling
+     * is answered with the prefetched explanation of the question's answer.
+     *
+     * @param toolName the name of the tool
+     * @param requested the command to explain
+     * @return the explanation, split into sections
+     */
+    public Mono<CommandExplanation> getCommandExplanation(String toolName, String requested) {
+        String command = prefetcher.resolve(toolName, requested);
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        // The prefetch runs on the blocking client, whose call this one cannot join
+        return prefetched(toolName, command)
+            .then(Mono.defer(() -> cached(LlmOperation.EXPLAIN_COMMAND, toolName, key,
+                () -> groqClient.explainCommand(toolName, command).map(StructuredOutputs::toJson))))
+            .map(StructuredOutputs::parseExplanation);
+    }
+
+    /**
+     * Stream the evaluation of a user's answer. Locally graded and cached evaluations are sent in one piece.
+     *
+     * @param toolName the name of the tool
+     * @param question the quiz question
+     * @param userAnswer the user's command answer
+     * @return the feedback as it is generated
+     */
+    public Flux<String> streamAnswerEvaluation(String toolName, String question, String userAnswer) {
+        String answer = CommandCanonicalizer.canonicalize(userAnswer);
+        String key = CacheKey.of(LlmOperation.EVALUATE_ANSWER, toolName, question, answer);
+        return decidedLocally(toolName, question, answer).map(StructuredOutputs::feedbackText).flux()
+            .switchIfEmpty(Flux.defer(() -> {
+                StringBuilder feedback = new StringBuilder();
+                return cachedStream(LlmOperation.EVALUATE_ANSWER, toolName, key, StructuredOutputs::feedbackText,
+                        () -> groqClient.streamCommandEvaluation(toolName, question, userAnswer))
+                    .doOnNext(feedback::append)
+                    .doOnComplete(() -> verdictCache.put(toolName, question, answer, feedback.toString()));
+            }));
+    }
+
+    /**
+     * Stream the explanation of a command. Cached explanations are sent in
+     * one piece, and so is one that is still being prefetched, once it is done.
+     *
+     * @param toolName the name of the tool
+     * @param requested the command to explain
+     * @return the explanation as it is generated
+     */
+    public Flux<String> streamCommandExplanation(String toolName, String requested) {
+        String command = prefetcher.resolve(toolName, requested);
+        String key = CacheKey.of(LlmOperation.EXPLAIN_COMMAND, toolName, command);
+        return prefetched(toolName, command)
+            .thenMany(Flux.defer(() -> cachedStream(LlmOperation.EXPLAIN_COMMAND, toolName, key,
+                StructuredOutputs::explanationText, () -> groqClient.streamCommandExplanation(toolName, command))));
+    }
+
+    /**
+     * Queue a command to be saved. Each distinct command is stored once,
+     * shortly after the call returns. The structured explanation the user
+     * was shown, if still cached, is stored with it.
+     *
+     * @param toolName the name of the tool
+     * @param commandText the command text
+     * @param explanation the command explanation
+     * @return the queued command with its content hash; it has no ID until it is written
+     */
+    public Mono<Command> saveCommand(String toolName, String commandText, String explanation) {
+        // A cache lookup that may reach MongoDB, then usually just a map insert, but a full buffer is flushed by the caller
+        return Mono.fromCallable(() -> {
+                Command command = new Command(toolName, commandText, explanation);
+                command.setDetails(QuizService.cachedExplanation(responseCache, toolName, commandText));
+                command.setContentHash(writeBuffer.submit(command));
+                return command;
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<String> generate(String toolName) {
+        return groqClient.generateCommandQuestion(toolName)
+            .flatMap(generated -> Mono.fromCallable(() -> answerSpecs.register(toolName, generated))
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * The grading rules, then the verdict cache; the expected answer lookup may hit MongoDB
+     */
+    private Mono<String> decidedLocally(String toolName, String question, String canonicalAnswer) {
+        return Mono.fromCallable(() -> gradingEngine.grade(toolName, question, canonicalAnswer)
+                .or(() -> verdictCache.find(toolName, question, canonicalAnswer))
+                .orElse(null))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<String> cached(LlmOperation operation, String toolName, String key, Supplier<Mono<String>> loader) {
+        return Mono.fromCallable(() -> responseCache.peek(operation, key))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(cached -> cached.map(Mono::just).orElseGet(() -> {
+                long start = System.nanoTime();
+                return loader.get()
+                    .flatMap(response -> store(operation, toolName, key, response, start).thenReturn(response));
+            }));
+    }
+
+    /**
+     * Cache a stream that runs to completion like a blocking call. Cached
+     * responses may be JSON from a blocking call, so they are sent as text.
+     */
+    private Flux<String> cachedStream(LlmOperation operation, String toolName, String key,
+                                      UnaryOperator<String> asText, Supplier<Flux<String>> tokens) {
+        return Mono.fromCallable(() -> responseCache.peek(operation, key))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(cached -> cached.map(response -> Flux.just(asText.apply(response))).orElseGet(() -> {
+                long start = System.nanoTime();
+                StringBuilder text = new StringBuilder();
+                return tokens.get()
+                    .doOnNext(text::append)
+                    .concatWith(Mono.defer(() -> store(operation, toolName, key, text.toString(), start))
+                        .then(Mono.<String>empty()));
+            }));
+    }
+
+    /**
+     * @return completes when the explanation prefetch of the command, if one is running, has finished
+     */
+    private Mono<Void> prefetched(String toolName, String command) {
+        return prefetcher.inFlight(toolName, command).map(Mono::fromFuture).orElseGet(Mono::empty);
+    }
+
+    private Mono<Void> store(LlmOperation operation, String toolName, String key, String response, long start) {
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return Mono.fromRunnable(() -> responseCache.put(operation, toolName, key, response, latencyMs))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+}
@@ -0,0 +1,90 @@
+package com.command.buddy.service;
+
+import com.command.buddy.model.PoolTool;
+import com.command.buddy.model.PooledQuestion;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code pooled_questions} collection, through which the leader hands
+ * pre-generated questions to every replica's {@link QuestionPool}.
+ * Each question is claimed by exactly one replica. Replicas that run short
+ * of a tool's questions record it in {@code pool_tools}, so the leader
+ * publishes for every tool the cluster serves, not only the ones it does.
+ */
+class SharedQuestions {
+
+    private final MongoOperations mongoOperations;
+
+    SharedQuestions(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * @return how many questions are waiting for a tool
+     */
+    long count(String toolName) {
+        return mongoOperations.count(byTool(toolName), PooledQuestion.class);
+    }
+
+    /**
+     * @return the questions waiting for a tool, to keep near-duplicates out
+     */
+    List<String> texts(String toolName) {
+        Query query = byTool(toolName);
+        query.fields().include("text");
+        return mongoOperations.find(query, PooledQuestion.class).stream()
+            .map(PooledQuestion::getText)
+            .toList();
+    }
+
+    void publish(String toolName, String text) {
+        mongoOperations.insert(new PooledQuestion(null, toolName, text, Instant.now()));
+    }
+
+    /**
+     * Take up to {@code max} questions for a tool out of the collection, oldest first.
+     * Each is removed in its own findAndModify, so two replicas never take the same one.
+     */
+    List<String> claim(String toolName, int max) {
+        Query oldest = byTool(toolName).with(Sort.by("createdAt"));
+        List<String> claimed = new ArrayList<>(max);
+        while (claimed.size() < max) {
+            PooledQuestion question = mongoOperations.findAndRemove(oldest, PooledQuestion.class);
+            if (question == null) {
+                break;
+            }
+            claimed.add(question.getText());
+        }
+        return claimed;
+    }
+
+    /**
+     * Ask the leader to publish questions for a tool
+     */
+    void request(String toolName) {
+        mongoOperations.upsert(Query.query(Criteria.where("_id").is(toolName)),
+            Update.update("requestedAt", Instant.now()), PoolTool.class);
+    }
+
+    /**
+     * @return up to {@code max} of the tools replicas asked for, most recently asked first
+     */
+    List<String> requestedTools(int max) {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "requestedAt")).limit(max);
+        return mongoOperations.find(query, PoolTool.class).stream()
+            .map(PoolTool::getId)
+            .toList();
+    }
+
+    private static Query byTool(String toolName) {
+        return Query.query(Criteria.where("toolName").is(toolName));
+    }
+}
@@ -0,0 +1,192 @@
+package com.command.buddy.session;
+
+import com.command.buddy.model.QuizSession;
+import com.command.buddy.repository.QuizSessionRepository;
+import com.command.buddy.service.QuestionPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user quiz state that keeps a user from being served the same question
+ * twice for a tool.
+ *
+ * What a user has seen is kept in the {@code quiz_sessions} collection, so
+ * every replica sees it and it expires on its own. Because repeats are
+ * filtered per user, pooled questions can be served to many users and the
+ * question prompt no longer has to be randomized to look fresh.
+ */
+@Component
+public class QuizSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizSessions.class);
+
+    // Session ids come from a header, so keep them short and boring
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final QuizSessionRepository repository;
+    private final QuestionPool questionPool;
+    private final double similarityThreshold;
+    private final int maxGenerationAttempts;
+
+    private final Counter servedFromPool;
+    private final Counter servedGenerated;
+    private final Counter servedRepeat;
+    private final Counter rejected;
+
+    public QuizSessions(QuizSessionRepository repository,
+                        QuestionPool questionPool,
+                        MeterRegistry meterRegistry,
+                        @Value("${quiz.session.similarity-threshold:0.6}") double similarityThreshold,
+                        @Value("${quiz.session.max-generation-attempts:3}") int maxGenerationAttempts) {
+        this.repository = repository;
+        this.questionPool = questionPool;
+        this.similarityThreshold = similarityThreshold;
+        this.maxGenerationAttempts = Math.max(1, maxGenerationAttempts);
+
+        this.servedFromPool = served(meterRegistry, "pool");
+        this.servedGenerated = served(meterRegistry, "generated");
+        this.servedRepeat = served(meterRegistry, "repeat");
+        this.rejected = Counter.builder("quiz.session.duplicates.rejected")
+            .description("Generated questions dropped because the user had already seen them")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param sessionId a session id sent by a client
+     * @return whether it can be used as a session id
+     */
+    public static boolean isValidId(String sessionId) {
+        return SESSION_ID.matcher(sessionId).matches();
+    }
+
+    /**
+     * @return how many questions to generate before giving up on an unseen one
+     */
+    public int maxGenerationAttempts() {
+        return maxGenerationAttempts;
+    }
+
+    /**
+     * Load what a user has seen for a tool. If MongoDB is unavailable the
+     * session starts empty rather than failing the quiz.
+     *
+     * @param sessionId the user's session id
+     * @param toolName the name of the tool
+     * @return the session
+     */
+    public Session open(String sessionId, String toolName) {
+        String id = sessionId + ":" + toolName.trim().toLowerCase(Locale.ROOT);
+        try {
+            return repository.findById(id)
+                .map(stored -> new Session(id, toolName, SeenQuestions.fromBytes(stored.getSeenQuestions()),
+                    stored.getQuestionsServed()))
+                .orElseGet(() -> new Session(id, toolName, new SeenQuestions(), 0));
+        } catch (DataAccessException e) {
+            log.warn("Quiz session lookup failed: {}", e.getMessage());
+            return new Session(id, toolName, new SeenQuestions(), 0);
+        }
+    }
+
+    /**
+     * Serve a pooled question the user has not seen
+     *
+     * @param session the user's session
+     * @return the question, or empty if the pool has nothing new for the user
+     */
+    public Optional<String> takePooled(Session session) {
+        Optional<QuestionPool.Pooled> pooled = questionPool.poll(session.toolName,
+            fingerprint -> !session.seen.contains(fingerprint, similarityThreshold));
+        pooled.ifPresent(question -> {
+            session.record(question.fingerprint());
+            servedFromPool.increment();
+        });
+        return pooled.map(QuestionPool.Pooled::text);
+    }
+
+    /**
+     * Check a freshly generated question against what the user has seen. An
+     * accepted question is recorded and offered to the pool for other users.
+     *
+     * @param session the user's session
+     * @param question the generated question
+     * @return false if the user has seen this question or one very close to it
+     */
+    public boolean accept(Session session, String question) {
+        if (question == null || question.isBlank()) {
+            return false;
+        }
+        QuestionFingerprint fingerprint = QuestionFingerprint.of(session.toolName, question);
+        if (session.seen.contains(fingerprint, similarityThreshold)) {
+            rejected.increment();
+            return false;
+        }
+        session.record(fingerprint);
+        servedGenerated.increment();
+        questionPool.offer(session.toolName, new QuestionPool.Pooled(question, fingerprint));
+        return true;
+    }
+
+    /**
+     * Note that a repeat is being served because no unseen question could be generated
+     */
+    public void repeat() {
+        servedRepeat.increment();
+    }
+
+    /**
+     * Store the session if a question was recorded
+     *
+     * @param session the user's session
+     */
+    public void save(Session session) {
+        if (!session.changed) {
+            return;
+        }
+        try {
+            repository.save(new QuizSession(session.id, session.seen.toBytes(), session.served, Instant.now()));
+        } catch (DataAccessException e) {
+            log.warn("Quiz session write failed: {}", e.getMessage());
+        }
+    }
+
+    private static Counter served(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("quiz.session.questions")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    /**
+     * One user's quiz state for one tool, used by one request at a time
+     */
+    public static final class Session {
+
+        private final String id;
+        private final String toolName;
+        private final SeenQuestions seen;
+        private int served;
+        private boolean changed;
+
+        private Session(String id, String toolName, SeenQuestions seen, int served) {
+            this.id = id;
+            this.toolName = toolName;
+            this.seen = seen;
+            this.served = served;
+        }
+
+        private void record(QuestionFingerprint fingerprint) {
+            seen.add(fingerprint);
+            served++;
+            changed = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.command.buddy.session;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The questions one user has been served for one tool, in a fixed 2.3 KB.
+ *
+ * Exact repeats are caught by a Bloom filter over every question ever
+ * served, which has about a 2% false positive rate after 200 questions.
+ * Rewordings are caught by comparing MinHash signatures with the most
+ * recent questions, which is where a near-duplicate is noticed.
+ *
+ * Not thread safe; a session is used by one request at a time.
+ */
+final class SeenQuestions {
+
+    private static final int BLOOM_WORDS = 32;
+    private static final int BLOOM_BITS = BLOOM_WORDS * Long.SIZE;
+    private static final int BLOOM_HASHES = 3;
+    private static final int RECENT = 16;
+    private static final int BYTES = BLOOM_WORDS * Long.BYTES
+        + RECENT * QuestionFingerprint.SIGNATURE_SIZE * Integer.BYTES + 2 * Integer.BYTES;
+
+    private final long[] bloom = new long[BLOOM_WORDS];
+    private final int[][] recent = new int[RECENT][];
+    private int next;
+    private int size;
+
+    /**
+     * @param question the fingerprint of a candidate question
+     * @param threshold the similarity from which a question counts as a repeat
+     * @return whether the question, or one close to it, has been served before
+     */
+    boolean contains(QuestionFingerprint question, double threshold) {
+        if (mightContain(question.hash())) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (QuestionFingerprint.similarity(recent[i], question.signature()) >= threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void add(QuestionFingerprint question) {
+        long h2 = QuestionFingerprint.mix(question.hash());
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) Math.floorMod(question.hash() + i * h2, (long) BLOOM_BITS);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+        recent[next] = question.signature();
+        next = (next + 1) % RECENT;
+        size = Math.min(size + 1, RECENT);
+    }
+
+    byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        for (long word : bloom) {
+            buffer.putLong(word);
+        }
+        buffer.putInt(next).putInt(size);
+        for (int i = 0; i < size; i++) {
+            for (int h : recent[i]) {
+                buffer.putInt(h);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes the output of {@link #toBytes()}, or null
+     * @return the decoded questions; empty if there were none or the format is unknown
+     */
+    static SeenQuestions fromBytes(byte[] bytes) {
+        SeenQuestions seen = new SeenQuestions();
+        if (bytes == null || bytes.length != BYTES) {
+            return seen;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < BLOOM_WORDS; i++) {
+            seen.bloom[i] = buffer.getLong();
+        }
+        seen.next = Math.floorMod(buffer.getInt(), RECENT);
+        seen.size = Math.clamp(buffer.getInt(), 0, RECENT);
+        for (int i = 0; i < seen.size; i++) {
+            int[] signature = new int[QuestionFingerprint.SIGNATURE_SIZE];
+            for (int j = 0; j < signature.length; j++) {
+                signature[j] = buffer.getInt();
+            }
+            seen.recent[i] = signature;
+        }
+        return seen;
+    }
+
+    private boolean mightContain(long hash) {
+        long h2 = QuestionFingerprint.mix(hash);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) Math.floorMod(hash + i * h2, (long) BLOOM_BITS);
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,204 @@
+package com.command.buddy.shell;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rewrites a command line into one canonical spelling, so answers that only
+ * differ in whitespace, quoting or flag order compare equal:
+ *
+ * <pre>
+ * docker run -p "80:80" -d  nginx   -&gt;  docker run -d -p 80:80 nginx
+ * git commit -am "fix: typo"        -&gt;  git commit -a -m 'fix: typo'
+ * kubectl get pods -o=wide -n dev   -&gt;  kubectl get -n dev -o wide pods
+ * </pre>
+ *
+ * For the CLIs in {@link ToolGrammar}, flags are split out of clusters,
+ * paired with their values, spelled in their short form and sorted; subcommands and positional arguments
+ * keep their order, and so does everything after {@code --} or after the
+ * image of {@code docker run}. A flag the grammar does not know stays in
+ * place among the arguments when a word follows it, since that word may be
+ * its value. Other programs only get their quoting and
+ * whitespace normalized. Each part of a pipeline or list is handled on its own.
+ */
+public final class CommandCanonicalizer {
+
+    private CommandCanonicalizer() {
+    }
+
+    /**
+     * @param commandLine the command as typed
+     * @return its canonical spelling
+     */
+    public static String canonicalize(String commandLine) {
+        List<ShellTokenizer.Token> tokens = ShellTokenizer.tokenize(commandLine);
+        StringBuilder canonical = new StringBuilder(commandLine.length());
+        List<String> words = new ArrayList<>();
+        for (ShellTokenizer.Token token : tokens) {
+            if (token.operator()) {
+                appendSegment(canonical, words);
+                canonical.append(canonical.isEmpty() ? "" : " ").append(token.text());
+                words.clear();
+            } else {
+                words.add(token.text());
+            }
+        }
+        appendSegment(canonical, words);
+        return canonical.toString();
+    }
+
+    private static void appendSegment(StringBuilder canonical, List<String> words) {
+        // A copied shell prompt is not part of the command
+        if (!words.isEmpty() && words.get(0).equals("$")) {
+            words = words.subList(1, words.size());
+        }
+        if (words.isEmpty()) {
+            return;
+        }
+        ToolGrammar grammar = ToolGrammar.forProgram(words.get(0));
+        List<String> parts = grammar == null ? quoteAll(words) : parse(grammar, words);
+        for (String part : parts) {
+            canonical.append(canonical.isEmpty() ? "" : " ").append(part);
+        }
+    }
+
+    private static List<String> parse(ToolGrammar grammar, List<String> words) {
+        List<String> globalFlags = new ArrayList<>();
+        List<String> commands = new ArrayList<>();
+        List<String> flags = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        List<String> verbatim = List.of();
+
+        // Flags before the subcommand, e.g. git -C dir or terraform -chdir=dir
+        int i = 1;
+        while (i < words.size() && isFlag(words.get(i))) {
+            i = readFlag(grammar, null, words, i, globalFlags);
+        }
+
+        String command = null;
+        if (i < words.size()) {
+            command = words.get(i++);
+            commands.add(command);
+            if (grammar.isGroup(command) && i < words.size() && !isFlag(words.get(i))) {
+                commands.add(words.get(i++));
+            }
+        }
+
+        while (i < words.size()) {
+            String word = words.get(i);
+            if (word.equals("--")) {
+                verbatim = words.subList(i, words.size());
+                break;
+            }
+            if (isFlag(word)) {
+                int next = readFlag(grammar, command, words, i, flags);
+                String last = flags.get(flags.size() - 1);
+                if (next == i + 1 && hasValue(words, i) && last.indexOf('=') < 0 && !grammar.knows(command, last)) {
+                    // Perhaps the value of the flag, so neither may move
+                    arguments.add(flags.remove(flags.size() - 1));
+                }
+                i = next;
+                continue;
+            }
+            arguments.add(ShellTokenizer.quote(word));
+            i++;
+            if (grammar.isPassthrough(command)) {
+                verbatim = words.subList(i, words.size());
+                break;
+            }
+        }
+
+        if (grammar.allowsGlobalFlagsAnywhere()) {
+            flags.addAll(globalFlags);
+            globalFlags.clear();
+        }
+        Collections.sort(globalFlags);
+        Collections.sort(flags);
+        List<String> parts = new ArrayList<>(words.size());
+        parts.add(ShellTokenizer.quote(words.get(0)));
+        parts.addAll(globalFlags);
+        parts.addAll(quoteAll(commands));
+        parts.addAll(flags);
+        parts.addAll(arguments);
+        parts.addAll(quoteAll(verbatim));
+        return parts;
+    }
+
+    /**
+     * Read the flag at {@code words[i]}, with its value if it takes one
+     *
+     * @return the index of the next unread word
+     */
+    private static int readFlag(ToolGrammar grammar, String command, List<String> words, int i, List<String> into) {
+        String word = words.get(i);
+        if (word.startsWith("--") || !grammar.clustersShortFlags() || word.length() == 2 || !isCluster(grammar, command, word)) {
+            int equals = word.indexOf('=');
+            if (equals > 0 && grammar.takesValue(command, word.substring(0, equals))) {
+                into.add(withValue(grammar.shortForm(word.substring(0, equals)), word.substring(equals + 1)));
+                return i + 1;
+            }
+            if (equals < 0 && grammar.takesValue(command, word) && hasValue(words, i)) {
+                into.add(withValue(grammar.shortForm(word), words.get(i + 1)));
+                return i + 2;
+            }
+            into.add(ShellTokenizer.quote(grammar.shortForm(word)));
+            return i + 1;
+        }
+
+        // -abc is -a -b -c, and in -am msg or -n5 the value flag takes the rest
+        for (int j = 1; j < word.length(); j++) {
+            String flag = "-" + word.charAt(j);
+            if (grammar.takesValue(command, flag)) {
+                String attached = word.substring(j + 1);
+                if (!attached.isEmpty()) {
+                    into.add(withValue(flag, attached.startsWith("=") ? attached.substring(1) : attached));
+                    return i + 1;
+                }
+                if (hasValue(words, i)) {
+                    into.add(withValue(flag, words.get(i + 1)));
+                    return i + 2;
+                }
+            }
+            into.add(flag);
+        }
+        return i + 1;
+    }
+
+    /**
+     * Whether a single-dash word is a cluster of switches, optionally ending
+     * in a value flag with its value attached
+     */
+    private static boolean isCluster(ToolGrammar grammar, String command, String word) {
+        for (int j = 1; j < word.length(); j++) {
+            char c = word.charAt(j);
+            if (!Character.isLetter(c)) {
+                return false;
+            }
+            if (grammar.takesValue(command, "-" + c)) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValue(List<String> words, int i) {
+        return i + 1 < words.size() && !isFlag(words.get(i + 1)) && !words.get(i + 1).equals("--");
+    }
+
+    private static boolean isFlag(String word) {
+        return word.length() > 1 && word.charAt(0) == '-' && !word.equals("--");
+    }
+
+    private static String withValue(String flag, String value) {
+        return flag + " " + ShellTokenizer.quote(value);
+    }
+
+    private static List<String> quoteAll(List<String> words) {
+        List<String> quoted = new ArrayList<>(words.size());
+        for (String word : words) {
+            quoted.add(ShellTokenizer.quote(word));
+        }
+        return quoted;
+    }
+}
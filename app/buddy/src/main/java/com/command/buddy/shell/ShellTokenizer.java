@@ -0,0 +1,125 @@
+package com.command.buddy.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a command line into words and control operators the way a POSIX
+ * shell would, without expanding anything.
+ *
+ * Quotes are removed, so {@code "my file"}, {@code 'my file'} and
+ * {@code my\ file} all give the same word. Unterminated quotes run to the
+ * end of the line instead of failing, since answers are typed by users.
+ */
+public final class ShellTokenizer {
+
+    /**
+     * A word, or one of the operators {@code | || && ; &}
+     *
+     * @param text the word without its quotes, or the operator
+     * @param operator whether this is an unquoted control operator
+     */
+    public record Token(String text, boolean operator) {
+    }
+
+    private ShellTokenizer() {
+    }
+
+    /**
+     * @param line the command line
+     * @return its words and operators, in order
+     */
+    public static List<Token> tokenize(String line) {
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                end = end < 0 ? line.length() : end;
+                word.append(line, i + 1, end);
+                inWord = true;
+                i = end + 1;
+            } else if (c == '"') {
+                i = readDoubleQuoted(line, i + 1, word);
+                inWord = true;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                // A backslash-newline is a line continuation
+                if (line.charAt(i + 1) != '\n') {
+                    word.append(line.charAt(i + 1));
+                    inWord = true;
+                }
+                i += 2;
+            } else if (Character.isWhitespace(c)) {
+                inWord = flush(tokens, word, inWord);
+                i++;
+            } else if ((c == '|' || c == '&' || c == ';') && !isRedirect(line, i)) {
+                inWord = flush(tokens, word, inWord);
+                boolean doubled = c != ';' && i + 1 < line.length() && line.charAt(i + 1) == c;
+                tokens.add(new Token(doubled ? "" + c + c : String.valueOf(c), true));
+                i += doubled ? 2 : 1;
+            } else {
+                word.append(c);
+                inWord = true;
+                i++;
+            }
+        }
+        flush(tokens, word, inWord);
+        return tokens;
+    }
+
+    /**
+     * Quote a word so the shell reads it back unchanged, using single quotes
+     * only when needed
+     *
+     * @param word the word
+     * @return the word as it would be typed
+     */
+    public static String quote(String word) {
+        if (!word.isEmpty() && word.chars().allMatch(ShellTokenizer::isPlain)) {
+            return word;
+        }
+        return "'" + word.replace("'", "'\\''") + "'";
+    }
+
+    private static int readDoubleQuoted(String line, int i, StringBuilder word) {
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            // Inside double quotes a backslash only escapes these
+            if (c == '\\' && i + 1 < line.length() && "\"\\$`".indexOf(line.charAt(i + 1)) >= 0) {
+                word.append(line.charAt(i + 1));
+                i += 2;
+            } else {
+                word.append(c);
+                i++;
+            }
+        }
+        return i;
+    }
+
+    // The & in 2>&1, >&2 and &>file belongs to the redirection
+    private static boolean isRedirect(String line, int i) {
+        if (line.charAt(i) != '&') {
+            return false;
+        }
+        return (i > 0 && (line.charAt(i - 1) == '>' || line.charAt(i - 1) == '<'))
+            || (i + 1 < line.length() && line.charAt(i + 1) == '>');
+    }
+
+    private static boolean flush(List<Token> tokens, StringBuilder word, boolean inWord) {
+        if (inWord) {
+            tokens.add(new Token(word.toString(), false));
+            word.setLength(0);
+        }
+        return false;
+    }
+
+    private static boolean isPlain(int c) {
+        return Character.isLetterOrDigit(c) || "-_./:=,@%+^".indexOf(c) >= 0;
+    }
+}
@@ -0,0 +1,195 @@
+package com.command.buddy.shell;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the canonicalizer needs to know about a CLI's argument syntax: which
+ * words are subcommands, which flags take a value and which long flags are
+ * spellings of a short one.
+ *
+ * These are deliberately partial; they cover the flags quiz answers use. An
+ * unknown flag may take the word after it as its value, so when one is
+ * followed by a word the two keep their place among the arguments instead
+ * of being sorted with the flags: sorting would make {@code -x a -y b} and
+ * {@code -y a -x b} the same command. At worst two spellings of one command
+ * then get different cache keys.
+ */
+public final class ToolGrammar {
+
+    public static final ToolGrammar GIT = new ToolGrammar(
+        "git",
+        Set.of("remote", "stash", "submodule", "worktree", "notes", "bisect", "lfs", "sparse-checkout"),
+        Set.of("-C", "-c", "-m", "--message", "-b", "-B", "-n", "--max-count", "--author", "--format",
+            "--pretty", "--since", "--until", "--grep", "--depth", "--branch", "-o", "--origin", "-X",
+            "--strategy-option", "--onto", "-F", "--file", "--date", "--exec", "-U", "--unified", "--set-upstream-to"),
+        Map.of(),
+        Set.of(),
+        Map.of("--message", "-m", "--force", "-f", "--verbose", "-v", "--quiet", "-q", "--max-count", "-n"),
+        true,
+        false);
+
+    public static final ToolGrammar DOCKER = new ToolGrammar(
+        "docker",
+        Set.of("container", "image", "network", "volume", "compose", "system", "builder", "buildx", "context",
+            "swarm", "service", "stack", "node", "secret", "config", "plugin", "trust", "manifest"),
+        Set.of("-p", "--publish", "-v", "--volume", "-e", "--env", "--env-file", "--name", "-w", "--workdir",
+            "--network", "--net", "-u", "--user", "--restart", "--entrypoint", "--mount", "-m", "--memory",
+            "--cpus", "-l", "--label", "--format", "--filter", "-H", "--host", "--log-driver", "--platform",
+            "--add-host", "--hostname", "--dns", "--link", "--since", "--until", "--tail", "-n"),
+        Map.of(
+            // -t is the image tag for build, but a TTY switch for run and exec
+            "build", Set.of("-t", "--tag", "-f", "--file", "--build-arg", "--target", "--cache-from", "--progress"),
+            "compose", Set.of("-f", "--file", "--project-name", "--profile")),
+        // Everything after the image belongs to the container's own command
+        Set.of("run", "exec", "create"),
+        Map.ofEntries(
+            Map.entry("--detach", "-d"), Map.entry("--interactive", "-i"), Map.entry("--tty", "-t"),
+            Map.entry("--tag", "-t"), Map.entry("--publish", "-p"), Map.entry("--volume", "-v"),
+            Map.entry("--env", "-e"), Map.entry("--workdir", "-w"), Map.entry("--user", "-u"),
+            Map.entry("--all", "-a"), Map.entry("--force", "-f"), Map.entry("--quiet", "-q"),
+            Map.entry("--file", "-f"), Map.entry("--follow", "-f"), Map.entry("--memory", "-m")),
+        true,
+        false);
+
+    public static final ToolGrammar KUBECTL = new ToolGrammar(
+        "kubectl",
+        Set.of("config", "rollout", "create", "set", "top", "auth", "certificate", "cluster-info"),
+        Set.of("-n", "--namespace", "-o", "--output", "-f", "--filename", "-l", "--selector", "-c", "--container",
+            "--context", "--cluster", "--kubeconfig", "--field-selector", "--sort-by", "--image", "--replicas",
+            "--type", "--port", "--target-port", "--from-literal", "--from-file", "-p", "--patch", "--timeout",
+            "--to-revision", "--grace-period", "--since", "--tail", "--max-unavailable", "--min", "--max",
+            "--cpu-percent", "-k", "--kustomize", "--as", "--overrides", "--env", "--limits", "--requests"),
+        Map.of(),
+        Set.of(),
+        Map.of("--namespace", "-n", "--output", "-o", "--filename", "-f", "--selector", "-l",
+            "--container", "-c", "--all-namespaces", "-A", "--watch", "-w", "--kustomize", "-k"),
+        true,
+        // kubectl -n dev get pods is kubectl get pods -n dev
+        true);
+
+    public static final ToolGrammar TERRAFORM = new ToolGrammar(
+        "terraform",
+        Set.of("state", "workspace", "providers"),
+        // Terraform's flags are single-dash long flags, so -var is not -v -a -r
+        Set.of("-var", "-var-file", "-out", "-target", "-chdir", "-backend-config", "-lock-timeout",
+            "-parallelism", "-state", "-state-out", "-replace", "-backup", "-from-module", "-plugin-dir"),
+        Map.of(),
+        Set.of(),
+        Map.of(),
+        false,
+        false);
+
+    private static final Map<String, ToolGrammar> BY_PROGRAM = Map.of(
+        GIT.program, GIT,
+        DOCKER.program, DOCKER,
+        KUBECTL.program, KUBECTL,
+        TERRAFORM.program, TERRAFORM);
+
+    // Quiz tool names that are not the name of their CLI
+    private static final Map<String, ToolGrammar> BY_TOOL = Map.of(
+        "kubernetes", KUBECTL,
+        "k8s", KUBECTL);
+
+    private final String program;
+    private final Set<String> groupCommands;
+    private final Set<String> valueFlags;
+    private final Map<String, Set<String>> commandValueFlags;
+    private final Set<String> passthroughCommands;
+    private final Map<String, String> shortFlags;
+    private final boolean clusteredShortFlags;
+    private final boolean globalFlagsAnywhere;
+
+    private ToolGrammar(String program, Set<String> groupCommands, Set<String> valueFlags,
+                        Map<String, Set<String>> commandValueFlags, Set<String> passthroughCommands,
+                        Map<String, String> shortFlags, boolean clusteredShortFlags, boolean globalFlagsAnywhere) {
+        this.program = program;
+        this.groupCommands = groupCommands;
+        this.valueFlags = valueFlags;
+        this.commandValueFlags = commandValueFlags;
+        this.passthroughCommands = passthroughCommands;
+        this.shortFlags = shortFlags;
+        this.clusteredShortFlags = clusteredShortFlags;
+        this.globalFlagsAnywhere = globalFlagsAnywhere;
+    }
+
+    /**
+     * @param program the first word of a command, e.g. "git"
+     * @return the grammar for it, or null if it is not a known CLI
+     */
+    public static ToolGrammar forProgram(String program) {
+        return BY_PROGRAM.get(program.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param toolName a quiz tool name, e.g. "kubernetes"
+     * @return the grammar of the CLI the tool is used through, or null if there is none
+     */
+    public static ToolGrammar forTool(String toolName) {
+        String tool = toolName.trim().toLowerCase(Locale.ROOT);
+        ToolGrammar grammar = BY_TOOL.get(tool);
+        return grammar != null ? grammar : BY_PROGRAM.get(tool);
+    }
+
+    public String program() {
+        return program;
+    }
+
+    /**
+     * @param command a subcommand
+     * @return whether it is followed by a further subcommand, as in {@code git remote add}
+     */
+    boolean isGroup(String command) {
+        return groupCommands.contains(command);
+    }
+
+    /**
+     * @param command the first subcommand, or null before it
+     * @param flag a flag without any {@code =value}
+     * @return whether the flag is followed by a value
+     */
+    boolean takesValue(String command, String flag) {
+        return valueFlags.contains(flag)
+            || (command != null && commandValueFlags.getOrDefault(command, Set.of()).contains(flag));
+    }
+
+    /**
+     * @param command the first subcommand, or null before it
+     * @param flag a flag without any {@code =value}
+     * @return whether it is listed as a value flag or as a spelling of a short flag, so whether it takes a value is known
+     */
+    boolean knows(String command, String flag) {
+        return takesValue(command, flag) || shortFlags.containsKey(flag) || shortFlags.containsValue(flag);
+    }
+
+    /**
+     * @param flag a flag as typed
+     * @return its short form if it has one, e.g. -n for --namespace
+     */
+    String shortForm(String flag) {
+        return shortFlags.getOrDefault(flag, flag);
+    }
+
+    /**
+     * @param command the first subcommand
+     * @return whether the first positional argument ends option parsing
+     */
+    boolean isPassthrough(String command) {
+        return passthroughCommands.contains(command);
+    }
+
+    /**
+     * @return whether {@code -abc} means {@code -a -b -c}
+     */
+    boolean clustersShortFlags() {
+        return clusteredShortFlags;
+    }
+
+    /**
+     * @return whether flags before the subcommand mean the same after it
+     */
+    boolean allowsGlobalFlagsAnywhere() {
+        return globalFlagsAnywhere;
+    }
+}
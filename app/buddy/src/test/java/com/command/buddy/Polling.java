@@ -0,0 +1,32 @@
+package com.command.buddy;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Waits for work a test has handed to a background thread
+ */
+public final class Polling {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final Duration INTERVAL = Duration.ofMillis(10);
+
+	private Polling() {
+	}
+
+	/**
+	 * Check a condition until it holds, failing the test after ten seconds
+	 *
+	 * @param what what is being waited for, for the failure message
+	 * @param condition the condition
+	 */
+	public static void await(String what, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("waiting for " + what).isLessThan(deadline);
+			Thread.sleep(INTERVAL);
+		}
+	}
+}
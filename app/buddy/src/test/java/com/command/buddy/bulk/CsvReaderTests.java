@@ -0,0 +1,80 @@
+package com.command.buddy.bulk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+
+	@Test
+	void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+		CsvReader reader = reader("toolName,commandText,explanation\r\n"
+			+ "git,\"git commit -m \"\"fix, typo\"\"\",\"Commits.\nWith a message.\"\r\n"
+			+ "docker,docker ps,\n");
+
+		assertThat(reader.next()).containsExactly("toolName", "commandText", "explanation");
+		assertThat(reader.next()).containsExactly("git", "git commit -m \"fix, typo\"", "Commits.\nWith a message.");
+		assertThat(reader.line()).isEqualTo(2);
+		assertThat(reader.next()).containsExactly("docker", "docker ps", "");
+		assertThat(reader.line()).isEqualTo(4);
+		assertThat(reader.next()).isNull();
+	}
+
+	@Test
+	void skipsAByteOrderMarkAtTheStartOnly() throws IOException {
+		CsvReader reader = reader("\uFEFFtoolName,commandText\n\uFEFFgit,git status");
+
+		assertThat(reader.next()).containsExactly("toolName", "commandText");
+		assertThat(reader.next()).containsExactly("\uFEFFgit", "git status");
+	}
+
+	@Test
+	void rejectsAQuoteThatNeverCloses() throws IOException {
+		CsvReader reader = reader("toolName,commandText\ngit,git status\ngit,\"git log\ndocker,docker ps\n");
+		reader.next();
+		reader.next();
+
+		assertThatThrownBy(reader::next)
+			.isInstanceOf(MalformedCsvException.class)
+			.hasMessage("Unterminated quoted field starting on line 3")
+			.extracting(e -> ((MalformedCsvException) e).line()).isEqualTo(3);
+	}
+
+	@Test
+	void passesOnFailuresToReadTheInput() throws IOException {
+		Reader disconnected = new Reader() {
+			private boolean sent;
+
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				if (sent) {
+					throw new IOException("Connection reset");
+				}
+				sent = true;
+				String received = "toolName,commandText\ngit,\"git";
+				received.getChars(0, received.length(), buffer, offset);
+				return received.length();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		CsvReader reader = new CsvReader(disconnected);
+		reader.next();
+
+		assertThatThrownBy(reader::next)
+			.isInstanceOf(IOException.class)
+			.hasMessage("Connection reset");
+	}
+
+	private static CsvReader reader(String csv) {
+		return new CsvReader(new StringReader(csv));
+	}
+}
@@ -0,0 +1,45 @@
+package com.command.buddy.bulk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvWriterTests {
+
+	@Test
+	void quotesOnlyTheFieldsThatNeedIt() throws IOException {
+		StringWriter out = new StringWriter();
+		CsvWriter writer = new CsvWriter(out);
+
+		writer.write("git", "git commit -m \"fix, typo\"", "Commits.\r\nWith a message.");
+		writer.write("docker", "docker ps", null);
+
+		assertThat(out.toString()).isEqualTo("git,\"git commit -m \"\"fix, typo\"\"\",\"Commits.\r\nWith a message.\"\r\n"
+			+ "docker,docker ps,\r\n");
+	}
+
+	@Test
+	void writesWhatTheReaderReadsBack() throws IOException {
+		String[][] records = {
+			{ "toolName", "commandText", "explanation" },
+			{ "git", "git log --format=\"%h, %s\"", "Line one\nline two" },
+			{ "kubectl", "kubectl get pods -o wide", "\"Quoted\" at the start" },
+			{ "npm", "npm ls", "" },
+		};
+		StringWriter out = new StringWriter();
+		CsvWriter writer = new CsvWriter(out);
+		for (String[] record : records) {
+			writer.write(record);
+		}
+
+		CsvReader reader = new CsvReader(new StringReader(out.toString()));
+		for (String[] record : records) {
+			assertThat(reader.next()).containsExactly(record);
+		}
+		assertThat(reader.next()).isNull();
+	}
+}
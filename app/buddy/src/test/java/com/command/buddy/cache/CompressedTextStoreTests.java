@@ -0,0 +1,129 @@
+package com.command.buddy.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedTextStoreTests {
+
+	private static final long NEVER = Long.MAX_VALUE / 2;
+
+	// The smallest store: 64 segments of 64 KB
+	private final CompressedTextStore store = new CompressedTextStore(0);
+
+	@Test
+	void returnsWhatWasStored() {
+		store.put("key", explanation(1), 850, System.nanoTime() + NEVER);
+
+		CompressedTextStore.Hit hit = store.get("key");
+
+		assertThat(hit.text()).isEqualTo(explanation(1));
+		assertThat(hit.upstreamLatencyMs()).isEqualTo(850);
+		assertThat(store.get("other")).isNull();
+	}
+
+	@Test
+	void replacesEntriesUnderTheSameKey() {
+		store.put("key", explanation(1), 100, System.nanoTime() + NEVER);
+		store.put("key", explanation(2), 200, System.nanoTime() + NEVER);
+
+		assertThat(store.get("key").text()).isEqualTo(explanation(2));
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsExpiredEntries() {
+		store.put("key", explanation(1), 100, System.nanoTime() - 1);
+
+		assertThat(store.get("key")).isNull();
+		assertThat(store.expirations()).isEqualTo(1);
+		assertThat(store.size()).isZero();
+	}
+
+	@Test
+	void trainsADictionaryAndStillReadsEntriesStoredBeforeIt() {
+		double withoutDictionary = 0;
+		for (int i = 0; i < 400; i++) {
+			store.put("key" + i, explanation(i), 100, System.nanoTime() + NEVER);
+			if (i == 198) {
+				withoutDictionary = store.compressionRatio();
+			}
+		}
+
+		assertThat(store.hasDictionary()).isTrue();
+		assertThat(store.get("key0").text()).isEqualTo(explanation(0));
+		assertThat(store.get("key399").text()).isEqualTo(explanation(399));
+		assertThat(store.compressionRatio()).isGreaterThan(withoutDictionary * 1.5);
+	}
+
+	@Test
+	void readsEveryEntryWhenPutsRaceTheTraining() {
+		int writers = 8;
+		int perWriter = 200;
+		try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+			List<CompletableFuture<Void>> puts = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				int first = w * perWriter;
+				puts.add(CompletableFuture.runAsync(() -> {
+					for (int i = first; i < first + perWriter; i++) {
+						store.put("key" + i, explanation(i), 100, System.nanoTime() + NEVER);
+						// Reads race the dictionary being set
+						assertThat(store.get("key" + (i - (i - first) / 2)).text())
+							.isEqualTo(explanation(i - (i - first) / 2));
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(puts.toArray(CompletableFuture[]::new)).join();
+		}
+
+		assertThat(store.hasDictionary()).isTrue();
+		for (int i = 0; i < writers * perWriter; i++) {
+			assertThat(store.get("key" + i).text()).isEqualTo(explanation(i));
+		}
+	}
+
+	@Test
+	void evictsTheLeastRecentlyReadOnceFull() {
+		int i = 0;
+		while (store.evictions() == 0) {
+			store.put("key" + i, random(i), 100, System.nanoTime() + NEVER);
+			if (i == 0) {
+				store.put("hot", "hot", 100, System.nanoTime() + NEVER);
+			}
+			// Read often enough to be copied forward before its segment comes round
+			store.get("hot");
+			i++;
+		}
+
+		assertThat(store.get("key0")).isNull();
+		assertThat(store.get("hot").text()).isEqualTo("hot");
+		assertThat(store.get("key" + (i - 1)).text()).isEqualTo(random(i - 1));
+	}
+
+	private static String explanation(int n) {
+		return "{\"summary\":\"Shows the commit history of the current branch, newest first (" + n + ").\","
+			+ "\"parts\":[{\"token\":\"git\",\"meaning\":\"The Git command line.\"},"
+			+ "{\"token\":\"log\",\"meaning\":\"Lists commits reachable from HEAD.\"},"
+			+ "{\"token\":\"--oneline\",\"meaning\":\"Prints each commit on one line with its short hash.\"}],"
+			+ "\"examples\":[\"git log --oneline -n " + n + "\"]}";
+	}
+
+	/**
+	 * Text that barely compresses, to fill segments quickly
+	 */
+	private static String random(int seed) {
+		Random random = new Random(seed);
+		StringBuilder text = new StringBuilder(4096);
+		for (int i = 0; i < 4096; i++) {
+			text.append((char) ('!' + random.nextInt(90)));
+		}
+		return text.toString();
+	}
+}
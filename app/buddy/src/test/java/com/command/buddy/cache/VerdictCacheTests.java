@@ -0,0 +1,34 @@
+package com.command.buddy.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerdictCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final VerdictCache cache = new VerdictCache(meterRegistry, 100, 0.6);
+
+	@Test
+	void servesTheVerdictForTheSameAnswerToARewordedQuestion() {
+		cache.put("git", "How do you show the commit history as a graph?", "git log --graph", "CORRECT");
+
+		assertThat(cache.find("git", "What command would you use to show the commit history as a graph?",
+			"git log --graph")).contains("CORRECT");
+		assertThat(cache.find("git", "How do you show the commit history as a graph?", "git log --oneline"))
+			.isEmpty();
+		assertThat(meterRegistry.get("llm.verdict-cache.similarity").summary().max()).isEqualTo(1.0);
+	}
+
+	@Test
+	void comparesQuestionsByTheirExactSimilarity() {
+		cache.put("git", "show commit history graph branches", "git log --graph", "CORRECT");
+
+		// 7 of 12 shingles shared, 0.58; the 32-slot MinHash puts this pair at 0.66
+		assertThat(cache.find("git", "graph branches commit history branches show", "git log --graph")).isEmpty();
+		// 9 of 11 shared, 0.82
+		assertThat(cache.find("git", "show commit history graph branches remote", "git log --graph"))
+			.contains("CORRECT");
+	}
+}
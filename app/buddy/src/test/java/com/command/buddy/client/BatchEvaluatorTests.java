@@ -0,0 +1,96 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.resilience.LlmResilience;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the evaluator against a local stub that rejects every batch call
+ */
+class BatchEvaluatorTests {
+
+	private static final int FALLBACK_CONCURRENCY = 2;
+
+	private static final byte[] VERDICT = StubChatServer.completion(
+		"{\\\"verdict\\\":\\\"CORRECT\\\",\\\"reason\\\":\\\"Lists the files.\\\"}");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger batchCalls = new AtomicInteger();
+	private final AtomicInteger singleCalls = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private StubChatServer server;
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = StubChatServer.start(this::handle);
+	}
+
+	@AfterEach
+	void stopStub() {
+		server.close();
+	}
+
+	@Test
+	void gradesEveryAnswerOfAFailedBatchWithBoundedSingleCalls() {
+		List<AnswerItem> items = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			items.add(new AnswerItem("git", "How do you list the files in the index?", "git ls-files " + i));
+		}
+
+		List<AnswerEvaluation> results = evaluator().evaluate(items).join();
+
+		assertThat(batchCalls.get()).isEqualTo(5);
+		assertThat(singleCalls).hasValue(50);
+		assertThat(results).hasSize(50).allSatisfy(result -> {
+			assertThat(result.error()).isNull();
+			assertThat(result.source()).isEqualTo("single");
+			assertThat(result.feedback().verdict()).isEqualTo(AnswerFeedback.Verdict.CORRECT);
+		});
+		assertThat(maxInFlight.get()).isLessThanOrEqualTo(FALLBACK_CONCURRENCY);
+		assertThat(meterRegistry.get("llm.batch.items").tag("outcome", "fallback").counter().count()).isEqualTo(50);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+		if (body.contains("Each item has an id")) {
+			batchCalls.incrementAndGet();
+			exchange.sendResponseHeaders(400, -1);
+			exchange.close();
+			return;
+		}
+
+		singleCalls.incrementAndGet();
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			Thread.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		inFlight.decrementAndGet();
+		StubChatServer.respond(exchange, 200, VERDICT);
+	}
+
+	private BatchEvaluator evaluator() {
+		ModelRouter router = server.router(meterRegistry);
+		// Failed batches must not open the circuit for the single calls
+		LlmResilience resilience = StubChatServer.resilience(4, 1000, 1, Duration.ofSeconds(1));
+		GroqHttpClient httpClient = StubChatServer.httpClient(meterRegistry, resilience, router, Duration.ofSeconds(5));
+		return new BatchEvaluator(httpClient, StubChatServer.requests(meterRegistry),
+			StubChatServer.groqClient(meterRegistry, httpClient), router, meterRegistry,
+			10, 6000, 6000, 150, FALLBACK_CONCURRENCY);
+	}
+}
@@ -0,0 +1,50 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchVerdictParserTests {
+
+	@Test
+	void matchesVerdictsToItemsById() {
+		Map<Integer, AnswerFeedback> feedback = BatchVerdictParser.parse("""
+			{"results":[
+			  {"id":2,"verdict":"INCORRECT","reason":"That lists tags.","command":"git branch -a","tip":"-a is for all."},
+			  {"id":"1","verdict":"correct","reason":"It shows the status.","command":"","tip":"Run it often."}
+			]}""");
+
+		assertThat(feedback).containsOnlyKeys(1, 2);
+		assertThat(feedback.get(1).verdict()).isEqualTo(AnswerFeedback.Verdict.CORRECT);
+		assertThat(feedback.get(1).correctedCommand()).isNull();
+		assertThat(feedback.get(1).text()).isEqualTo("1. CORRECT\n2. It shows the status.\n3. Run it often.");
+		assertThat(feedback.get(2).text()).isEqualTo("1. INCORRECT\n2. That lists tags.\n3. git branch -a\n4. -a is for all.");
+	}
+
+	@Test
+	void dropsResultsWithoutAKnownVerdict() {
+		Map<Integer, AnswerFeedback> feedback = BatchVerdictParser.parse(
+			"{\"results\":[{\"id\":1,\"verdict\":\"MAYBE\"},{\"verdict\":\"CORRECT\"},{\"id\":3,\"verdict\":\"CORRECT\"}]}");
+
+		assertThat(feedback).containsOnlyKeys(3);
+	}
+
+	@Test
+	void readsJsonWrappedInMarkdown() {
+		Map<Integer, AnswerFeedback> feedback = BatchVerdictParser.parse(
+			"```json\n{\"results\":[{\"id\":1,\"verdict\":\"CORRECT\"}]}\n```");
+
+		assertThat(feedback.get(1).text()).isEqualTo("1. CORRECT");
+	}
+
+	@Test
+	void keepsWhatWasReadBeforeMalformedOutput() {
+		assertThat(BatchVerdictParser.parse("1. CORRECT\n2. Looks right")).isEmpty();
+		assertThat(BatchVerdictParser.parse(
+			"{\"results\":[{\"id\":1,\"verdict\":\"CORRECT\"},{\"id\":2,\"verdict\":oops}]}"))
+			.containsOnlyKeys(1);
+	}
+}
@@ -0,0 +1,74 @@
+package com.command.buddy.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatCompletionParserTests {
+
+	@Test
+	void readsTheFirstChoiceAndTheUsage() {
+		ChatCompletion completion = ChatCompletionParser.parse(utf8("""
+			{"id":"chatcmpl-1","object":"chat.completion","choices":[
+			  {"index":0,"message":{"role":"assistant","content":"git log --oneline"},"logprobs":null,"finish_reason":"stop"},
+			  {"index":1,"message":{"role":"assistant","content":"git shortlog"}}],
+			 "usage":{"queue_time":0.01,"prompt_tokens":52,"completion_tokens":7,"total_tokens":59},
+			 "system_fingerprint":"fp_1","x_groq":{"id":"req_1"}}"""));
+
+		assertThat(completion.content()).isEqualTo("git log --oneline");
+		assertThat(completion.usage()).isEqualTo(new ChatCompletion.Usage(52, 7, 59));
+	}
+
+	@Test
+	void readsTheDeltaOfAChunk() {
+		ChatCompletion chunk = ChatCompletionParser.parseChunk(utf8(
+			"{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Lists \\\"all\\\"\"},\"finish_reason\":null}]}"));
+
+		assertThat(chunk.content()).isEqualTo("Lists \"all\"");
+		assertThat(chunk.usage()).isNull();
+	}
+
+	@Test
+	void readsTheUsageOfTheLastChunkFromTheGroqExtension() {
+		ChatCompletion chunk = ChatCompletionParser.parseChunk(utf8(
+			"{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+				+ "\"x_groq\":{\"id\":\"req_1\",\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":20,\"total_tokens\":30}}}"));
+
+		assertThat(chunk.content()).isNull();
+		assertThat(chunk.usage()).isEqualTo(new ChatCompletion.Usage(10, 20, 30));
+	}
+
+	@Test
+	void toleratesAMissingOrNullContent() {
+		assertThat(ChatCompletionParser.parse(utf8("{\"choices\":[]}")).content()).isNull();
+		assertThat(ChatCompletionParser.parse(utf8("{\"choices\":[{\"message\":{\"content\":null}}]}")).content())
+			.isNull();
+	}
+
+	@Test
+	void rejectsATruncatedBody() {
+		assertThatThrownBy(() -> ChatCompletionParser.parse(utf8(
+			"{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"git lo")))
+			.isInstanceOf(MalformedJsonException.class);
+		assertThatThrownBy(() -> ChatCompletionParser.parse(utf8("{\"choices\":[{\"message\":{\"content\":\"x\"}")))
+			.isInstanceOf(MalformedJsonException.class);
+	}
+
+	@Test
+	void rejectsInvalidJson() {
+		assertThatThrownBy(() -> ChatCompletionParser.parse(utf8("{\"choices\":[{\"logprobs\":nil}]}")))
+			.isInstanceOf(MalformedJsonException.class);
+		assertThatThrownBy(() -> ChatCompletionParser.parse(utf8("[]")))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("not a JSON object");
+		assertThatThrownBy(() -> ChatCompletionParser.parse(utf8("")))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static byte[] utf8(String json) {
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+}
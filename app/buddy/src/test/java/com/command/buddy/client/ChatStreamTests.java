@@ -0,0 +1,111 @@
+package com.command.buddy.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds server-sent event lines to a stream as the HTTP client would
+ */
+class ChatStreamTests {
+
+	private final List<String> tokens = new ArrayList<>();
+	private final List<Throwable> errors = new ArrayList<>();
+	private final Subscription subscription = new Subscription();
+	private int completions;
+	private boolean refuseTokens;
+
+	private ChatStream stream;
+
+	@BeforeEach
+	void subscribe() {
+		stream = new ChatStream(new TokenListener() {
+			@Override
+			public void onToken(String token) {
+				if (refuseTokens) {
+					throw new IllegalStateException("client went away");
+				}
+				tokens.add(token);
+			}
+
+			@Override
+			public void onComplete() {
+				completions++;
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				errors.add(error);
+			}
+		});
+		stream.onSubscribe(subscription);
+	}
+
+	@Test
+	void forwardsTokensUntilDone() {
+		stream.onNext(chunk("Lists"));
+		stream.onNext("");
+		stream.onNext(": keep-alive");
+		stream.onNext(chunk(" files"));
+		stream.onNext("data: {\"choices\":[],\"x_groq\":{\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":2,\"total_tokens\":14}}}");
+		stream.onNext("data: [DONE]");
+		stream.onComplete();
+
+		assertThat(tokens).containsExactly("Lists", " files");
+		assertThat(stream.content()).isEqualTo("Lists files");
+		assertThat(stream.usage().totalTokens()).isEqualTo(14);
+		assertThat(completions).isEqualTo(1);
+		assertThat(errors).isEmpty();
+		assertThat(subscription.cancelled).isFalse();
+	}
+
+	@Test
+	void corruptChunkFailsTheStream() {
+		stream.onNext(chunk("Lists"));
+		stream.onNext("data: {\"choices\":[{\"delta\":{\"content\":\"fil");
+		stream.onNext(chunk(" files"));
+		stream.onComplete();
+
+		assertThat(errors).singleElement().isInstanceOf(GroqApiException.class);
+		assertThat(completions).isZero();
+		assertThat(tokens).containsExactly("Lists");
+		assertThat(subscription.cancelled).isTrue();
+		assertThat(stream.isCancelled()).isFalse();
+	}
+
+	@Test
+	void failingListenerCancelsSilently() {
+		refuseTokens = true;
+
+		stream.onNext(chunk("Lists"));
+		stream.onNext(chunk(" files"));
+
+		assertThat(errors).isEmpty();
+		assertThat(completions).isZero();
+		assertThat(subscription.cancelled).isTrue();
+		assertThat(stream.isCancelled()).isTrue();
+	}
+
+	private static String chunk(String content) {
+		return "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"}}]}";
+	}
+
+	private static final class Subscription implements Flow.Subscription {
+
+		private boolean cancelled;
+
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.command.buddy.client;
+
+import com.command.buddy.resilience.LlmResilience;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the client against a local stub of the chat completions endpoint
+ */
+class GroqHttpClientResilienceTests {
+
+	private static final String COMPLETION = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"git status\"}}],"
+		+ "\"usage\":{\"prompt_tokens\":42,\"completion_tokens\":7,\"total_tokens\":49}}";
+
+	private static final ChatRequest REQUEST = new ChatRequest("test",
+		List.of(ChatMessage.user("What does git status do?")), 0.3, null, null, null, null, false);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile Map<String, String> extraHeaders = Map.of();
+	private StubChatServer server;
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = StubChatServer.start(this::handle);
+	}
+
+	@AfterEach
+	void stopStub() {
+		server.close();
+	}
+
+	@Test
+	void retriesTransientServerErrors() {
+		statuses.add(503);
+		statuses.add(502);
+		GroqHttpClient client = client(resilience(10, 3, Duration.ofSeconds(1)));
+
+		String content = client.chatCompletion(LlmOperation.EXPLAIN_COMMAND, REQUEST).join().content();
+
+		assertThat(content).isEqualTo("git status");
+		assertThat(requests).hasValue(3);
+	}
+
+	@Test
+	void doesNotRetryClientErrors() {
+		statuses.add(400);
+		GroqHttpClient client = client(resilience(10, 3, Duration.ofSeconds(1)));
+
+		assertThatThrownBy(() -> client.chatCompletion(LlmOperation.EXPLAIN_COMMAND, REQUEST).join())
+			.hasCauseInstanceOf(GroqApiException.class);
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void openCircuitFailsFastWithoutCallingTheApi() {
+		for (int i = 0; i < 10; i++) {
+			statuses.add(500);
+		}
+		GroqHttpClient client = client(resilience(4, 1, Duration.ofSeconds(1)));
+
+		for (int i = 0; i < 4; i++) {
+			assertThatThrownBy(() -> client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join())
+				.isInstanceOf(CompletionException.class);
+		}
+		int sent = requests.get();
+
+		assertThatThrownBy(() -> client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join())
+			.hasCauseInstanceOf(LlmUnavailableException.class);
+		assertThat(requests).hasValue(sent);
+	}
+
+	@Test
+	void throttledResponsePausesTheLimiter() {
+		statuses.add(429);
+		extraHeaders = Map.of("retry-after", "30");
+		GroqHttpClient client = client(resilience(10, 3, Duration.ofMillis(100)));
+
+		assertThatThrownBy(() -> client.chatCompletion(LlmOperation.GENERATE_QUESTION, REQUEST).join())
+			.hasCauseInstanceOf(LlmUnavailableException.class)
+			.satisfies(e -> assertThat(((LlmUnavailableException) e.getCause()).getRetryAfter())
+				.isGreaterThan(Duration.ofSeconds(20)));
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void recordsLatencyOutcomeAndTokenUsage() {
+		statuses.add(400);
+		GroqHttpClient client = client(resilience(10, 3, Duration.ofSeconds(1)));
+
+		assertThatThrownBy(() -> client.chatCompletion(LlmOperation.EXPLAIN_COMMAND, REQUEST).join())
+			.hasCauseInstanceOf(GroqApiException.class);
+		client.chatCompletion(LlmOperation.EXPLAIN_COMMAND, REQUEST).join();
+
+		assertThat(meterRegistry.get("llm.requests").tags("operation", "explain", "model", "test", "outcome", "client_error")
+			.timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.requests").tags("operation", "explain", "outcome", "success")
+			.timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.tokens").tags("type", "prompt").counter().count()).isEqualTo(42);
+		assertThat(meterRegistry.get("llm.tokens").tags("type", "completion").counter().count()).isEqualTo(7);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		exchange.getRequestBody().readAllBytes();
+		Integer status = statuses.poll();
+		byte[] body = (status == null ? COMPLETION : "{\"error\":\"stub\"}").getBytes(StandardCharsets.UTF_8);
+		extraHeaders.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+		StubChatServer.respond(exchange, status == null ? 200 : status, body);
+	}
+
+	private GroqHttpClient client(LlmResilience resilience) {
+		return server.httpClient(meterRegistry, resilience);
+	}
+
+	private static LlmResilience resilience(int minimumCalls, int maxAttempts, Duration maxQueueWait) {
+		return StubChatServer.resilience(4, minimumCalls, maxAttempts, maxQueueWait);
+	}
+}
@@ -0,0 +1,97 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroqRequestFactoryTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void capsOutputTokensPerOperation() {
+		GroqRequestFactory requests = factory("v1", 2000);
+
+		assertThat(requests.generateQuestion("git").maxTokens()).isEqualTo(300);
+		assertThat(requests.evaluateAnswer("git", "List all branches", "git branch -a").maxTokens()).isEqualTo(400);
+		assertThat(new String(requests.explainCommand("git", "git status").toJson(), StandardCharsets.UTF_8))
+			.contains("\"max_tokens\":800");
+	}
+
+	@Test
+	void compactPromptsKeepEverythingButTheInputsInAFixedPrefix() {
+		GroqRequestFactory requests = factory("v2", 2000);
+
+		ChatRequest first = requests.explainCommand("git", "git status");
+		ChatRequest second = requests.explainCommand("docker", "docker ps -a");
+
+		assertThat(first.messages().get(0)).isEqualTo(second.messages().get(0));
+		assertThat(first.messages().get(1).content()).isEqualTo("Tool: git\nCommand: git status");
+		assertThat(TokenEstimator.estimate(first))
+			.isLessThan(TokenEstimator.estimate(factory("v1", 2000).explainCommand("git", "git status")));
+	}
+
+	@Test
+	void rotatesTheTaskTypesOfEachToolOnItsOwn() {
+		GroqRequestFactory requests = factory("v1", 2000);
+
+		assertThat(requests.generateQuestion("git").messages())
+			.isEqualTo(requests.generateQuestion("git", "creating/configuring").messages());
+		for (int i = 0; i < 5; i++) {
+			requests.generateQuestion("docker");
+		}
+		assertThat(requests.generateQuestion("git").messages())
+			.isEqualTo(requests.generateQuestion("git", "managing").messages());
+	}
+
+	@Test
+	void rejectsPromptsOverTheInputBudget() {
+		GroqRequestFactory requests = factory("v1", 200);
+
+		assertThatThrownBy(() -> requests.evaluateAnswer("git", "List all branches", "git branch -a ".repeat(100)))
+			.isInstanceOf(PromptTooLongException.class);
+		assertThat(meterRegistry.get("llm.prompt.tokens").tags("operation", "evaluate", "version", "v1")
+			.summary().count()).isEqualTo(1);
+	}
+
+	@Test
+	void batchesShareOneSystemPromptAndAskForJson() {
+		GroqRequestFactory requests = factory("v2", 2000);
+		List<AnswerItem> items = List.of(
+			new AnswerItem("git", "List all branches", "git branch -a"),
+			new AnswerItem("docker", "List all containers", "docker ps -a"));
+
+		ChatRequest batch = requests.evaluateAnswers(items, 4000, 300);
+
+		assertThat(batch.messages()).hasSize(2);
+		assertThat(batch.messages().get(1).content()).contains("[1] Tool: git", "[2] Tool: docker");
+		assertThat(new String(batch.toJson(), StandardCharsets.UTF_8))
+			.contains("\"response_format\":{\"type\":\"json_object\"}", "\"max_tokens\":300");
+		assertThat(TokenEstimator.estimate(batch))
+			.isLessThan(requests.evaluationTokens(items.get(0)) + requests.evaluationTokens(items.get(1)));
+	}
+
+	@Test
+	void estimatesAboutOneTokenPerWord() {
+		assertThat(TokenEstimator.estimate("The quick brown fox jumps over the lazy dog.")).isEqualTo(10);
+		assertThat(TokenEstimator.estimate("Hello, world!\n\nHow are you?")).isEqualTo(9);
+	}
+
+	@Test
+	void chargesLongWordsOneTokenPerSixLetters() {
+		assertThat(TokenEstimator.estimate("branch")).isEqualTo(1);
+		assertThat(TokenEstimator.estimate("branches")).isEqualTo(2);
+		assertThat(TokenEstimator.estimate("abcdefghijkl")).isEqualTo(2);
+		assertThat(TokenEstimator.estimate("abcdefghijklm")).isEqualTo(3);
+		assertThat(TokenEstimator.estimate("git containerization")).isEqualTo(4);
+	}
+
+	private GroqRequestFactory factory(String version, int maxInputTokens) {
+		return new GroqRequestFactory(meterRegistry, version, 300, 400, 800, maxInputTokens);
+	}
+}
@@ -0,0 +1,119 @@
+package com.command.buddy.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonScannerTests {
+
+	@Test
+	void readsTheTokensOfADocument() {
+		JsonScanner scanner = scanner("{\"a\": [1, -2.5e3, true, false, null], \"b\": {}}");
+
+		assertThat(tokens(scanner)).containsExactly(
+			JsonScanner.Token.START_OBJECT, JsonScanner.Token.FIELD_NAME, JsonScanner.Token.START_ARRAY,
+			JsonScanner.Token.NUMBER, JsonScanner.Token.NUMBER, JsonScanner.Token.TRUE, JsonScanner.Token.FALSE,
+			JsonScanner.Token.NULL, JsonScanner.Token.END_ARRAY, JsonScanner.Token.FIELD_NAME,
+			JsonScanner.Token.START_OBJECT, JsonScanner.Token.END_OBJECT, JsonScanner.Token.END_OBJECT,
+			JsonScanner.Token.END);
+	}
+
+	@Test
+	void comparesNamesAndReadsValues() {
+		JsonScanner scanner = scanner("{\"total_tokens\":-42}");
+
+		scanner.next();
+		assertThat(scanner.next()).isEqualTo(JsonScanner.Token.FIELD_NAME);
+		assertThat(scanner.nameEquals(ascii("total_tokens"))).isTrue();
+		assertThat(scanner.nameEquals(ascii("total"))).isFalse();
+		assertThat(scanner.next()).isEqualTo(JsonScanner.Token.NUMBER);
+		assertThat(scanner.longValue()).isEqualTo(-42);
+	}
+
+	@Test
+	void decodesEscapes() {
+		JsonScanner scanner = scanner("\"a\\\"b\\\\c\\nd\\u00e9\\u2713 ü\"");
+
+		assertThat(scanner.next()).isEqualTo(JsonScanner.Token.STRING);
+		assertThat(scanner.stringValue()).isEqualTo("a\"b\\c\nd\u00e9\u2713 ü");
+	}
+
+	@Test
+	void skipsNestedValues() {
+		JsonScanner scanner = scanner("{\"skip\":{\"x\":[1,{\"y\":\"}\"}]},\"keep\":\"yes\"}");
+
+		scanner.next();
+		scanner.next();
+		scanner.skipValue();
+		assertThat(scanner.next()).isEqualTo(JsonScanner.Token.FIELD_NAME);
+		assertThat(scanner.next()).isEqualTo(JsonScanner.Token.STRING);
+		assertThat(scanner.stringValue()).isEqualTo("yes");
+	}
+
+	@Test
+	void rejectsTruncatedStrings() {
+		assertMalformed("{\"content\":\"Lists the fi", "Unterminated string");
+		assertMalformed("\"ends in an escape\\", "Unterminated string");
+		assertMalformed("\"\\u00\"", "Truncated \\u escape");
+		assertMalformed("\"\\u00zz\"", "Invalid \\u escape");
+	}
+
+	@Test
+	void rejectsMisspelledLiterals() {
+		assertMalformed("[tru]", "Invalid literal");
+		assertMalformed("[nul", "Invalid literal");
+		assertMalformed("[fals3]", "Invalid literal");
+		assertMalformed("[oops]", "Unexpected character");
+	}
+
+	@Test
+	void rejectsUnbalancedAndTruncatedContainers() {
+		assertMalformed("[1}", "Unbalanced '}'");
+		assertMalformed("]", "Unbalanced ']'");
+		assertMalformed("{\"choices\":[{\"message\":{", "Unexpected end of input");
+	}
+
+	@Test
+	void reportsWhereTheInputWentWrong() {
+		JsonScanner scanner = scanner("[1, tru]");
+
+		scanner.next();
+		scanner.next();
+		assertThatThrownBy(scanner::next)
+			.isInstanceOfSatisfying(MalformedJsonException.class, e -> assertThat(e.position()).isEqualTo(4));
+	}
+
+	private static void assertMalformed(String json, String message) {
+		JsonScanner scanner = scanner(json);
+		assertThatThrownBy(() -> {
+			while (true) {
+				if (scanner.next() == JsonScanner.Token.STRING) {
+					scanner.stringValue();
+				}
+			}
+		}).isInstanceOf(MalformedJsonException.class).hasMessageContaining(message);
+	}
+
+	private static List<JsonScanner.Token> tokens(JsonScanner scanner) {
+		List<JsonScanner.Token> tokens = new ArrayList<>();
+		JsonScanner.Token token;
+		do {
+			token = scanner.next();
+			tokens.add(token);
+		} while (token != JsonScanner.Token.END);
+		return tokens;
+	}
+
+	private static JsonScanner scanner(String json) {
+		return new JsonScanner(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] ascii(String name) {
+		return name.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,161 @@
+package com.command.buddy.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hedges calls between two local stubs of the chat completions endpoint, a
+ * slow one with an occasional outlier and a fast one
+ */
+class ModelRouterTests {
+
+	private static final ChatRequest REQUEST = new ChatRequest("ignored",
+		List.of(ChatMessage.user("What does git status do?")), 0.3, null, null, null, null, false);
+
+	private static final int MIN_SAMPLES = 5;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Queue<Duration> slowDelays = new ConcurrentLinkedQueue<>();
+	private final Queue<Integer> slowStatuses = new ConcurrentLinkedQueue<>();
+	private StubChatServer slow;
+	private StubChatServer fast;
+
+	@BeforeEach
+	void startStubs() throws IOException {
+		slow = stub("slow", () -> {
+			Duration delay = slowDelays.poll();
+			return delay != null ? delay : Duration.ofMillis(20);
+		}, slowStatuses);
+		fast = stub("fast", () -> Duration.ofMillis(5), new ConcurrentLinkedQueue<>());
+	}
+
+	@AfterEach
+	void stopStubs() {
+		slow.close();
+		fast.close();
+	}
+
+	@Test
+	void slowCallIsAnsweredByTheHedge() {
+		GroqHttpClient client = client(1.0);
+		warmUp(client);
+
+		slowDelays.add(Duration.ofSeconds(5));
+		long start = System.nanoTime();
+		String content = client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join().content();
+
+		assertThat(content).isEqualTo("fast");
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+		assertThat(hedges("won")).isEqualTo(1);
+		assertThat(meterRegistry.get("llm.requests").tags("model", "slow", "outcome", "cancelled")
+			.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void hedgesAreNotSentWithoutBudget() {
+		GroqHttpClient client = client(0);
+		warmUp(client);
+
+		slowDelays.add(Duration.ofMillis(500));
+		String content = client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join().content();
+
+		assertThat(content).isEqualTo("slow");
+		assertThat(hedges("budget_exhausted")).isEqualTo(1);
+		assertThat(hedges("won")).isZero();
+	}
+
+	@Test
+	void failedCallFailsOverBeforeThereAreSamplesToHedgeOn() {
+		GroqHttpClient client = client(0);
+
+		slowStatuses.add(503);
+		String content = client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join().content();
+
+		assertThat(content).isEqualTo("fast");
+		assertThat(failovers("succeeded")).isEqualTo(1);
+		assertThat(hedges("won")).isZero();
+	}
+
+	@Test
+	void rejectedRequestIsNotFailedOver() {
+		GroqHttpClient client = client(1.0);
+
+		slowStatuses.add(400);
+
+		assertThatThrownBy(() -> client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join())
+			.hasCauseInstanceOf(GroqApiException.class);
+		assertThat(failovers("succeeded") + failovers("failed")).isZero();
+	}
+
+	/**
+	 * Calls made before the primary route has enough samples are never hedged
+	 */
+	private void warmUp(GroqHttpClient client) {
+		for (int i = 0; i < MIN_SAMPLES; i++) {
+			assertThat(client.chatCompletion(LlmOperation.EVALUATE_ANSWER, REQUEST).join().content()).isEqualTo("slow");
+		}
+	}
+
+	private double hedges(String outcome) {
+		return meterRegistry.get("llm.hedge.requests").tags("operation", "evaluate", "outcome", outcome)
+			.counter().count();
+	}
+
+	private double failovers(String outcome) {
+		return meterRegistry.get("llm.failovers").tags("operation", "evaluate", "outcome", outcome)
+			.counter().count();
+	}
+
+	private GroqHttpClient client(double hedgeRatio) {
+		String routes = "slow@" + slow.url() + ",fast@" + fast.url();
+		ModelRouter router = new ModelRouter(meterRegistry, slow.url(), routes, routes, routes,
+			true, 0.9, MIN_SAMPLES, Duration.ZERO, hedgeRatio, 10);
+		return StubChatServer.httpClient(meterRegistry, StubChatServer.resilience(4, 10, 1, Duration.ofSeconds(1)),
+			router, Duration.ofSeconds(10));
+	}
+
+	private static StubChatServer stub(String content, DelaySource delays, Queue<Integer> statuses) throws IOException {
+		byte[] body = StubChatServer.completion(content);
+		return StubChatServer.start(exchange -> {
+			Integer status = statuses.poll();
+			if (status != null) {
+				exchange.getRequestBody().readAllBytes();
+				exchange.sendResponseHeaders(status, -1);
+				exchange.close();
+				return;
+			}
+			respond(exchange, delays.next(), body);
+		});
+	}
+
+	private static void respond(HttpExchange exchange, Duration delay, byte[] body) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			StubChatServer.respond(exchange, 200, body);
+		} catch (IOException e) {
+			// The client cancelled the request and hung up
+		}
+	}
+
+	private interface DelaySource {
+
+		Duration next();
+	}
+}
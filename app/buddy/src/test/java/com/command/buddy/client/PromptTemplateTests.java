@@ -0,0 +1,48 @@
+package com.command.buddy.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PromptTemplateTests {
+
+	@Test
+	void fillsEachPlaceholderWithItsValue() {
+		PromptTemplate template = PromptTemplate.compile("Explain {{ command }} for {{tool}}. Only {{tool}}.");
+
+		assertThat(template.variables()).containsExactly("command", "tool");
+		assertThat(template.render("git log", "git")).isEqualTo("Explain git log for git. Only git.");
+	}
+
+	@Test
+	void rendersTemplatesWithoutPlaceholders() {
+		PromptTemplate template = PromptTemplate.compile("Reply in JSON.");
+
+		assertThat(template.variables()).isEmpty();
+		assertThat(template.render()).isEqualTo("Reply in JSON.");
+	}
+
+	@Test
+	void keepsValuesThatLookLikePlaceholders() {
+		PromptTemplate template = PromptTemplate.compile("{{a}}-{{b}}");
+
+		assertThat(template.render("{{b}}", "$1")).isEqualTo("{{b}}-$1");
+	}
+
+	@Test
+	void rejectsTheWrongNumberOfValues() {
+		PromptTemplate template = PromptTemplate.compile("{{tool}} {{question}}");
+
+		assertThatThrownBy(() -> template.render("git"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("[tool, question]");
+	}
+
+	@Test
+	void rejectsAnUnterminatedPlaceholder() {
+		assertThatThrownBy(() -> PromptTemplate.compile("Explain {{command for git"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("Unterminated placeholder at 8");
+	}
+}
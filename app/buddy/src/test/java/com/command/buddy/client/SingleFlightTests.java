@@ -0,0 +1,75 @@
+package com.command.buddy.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	private final SingleFlight<String> singleFlight =
+		new SingleFlight<>("explain", Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+	@Test
+	void concurrentCallersShareOneUpstreamCall() {
+		AtomicInteger calls = new AtomicInteger();
+		CompletableFuture<String> upstream = new CompletableFuture<>();
+
+		CompletableFuture<String> leader = singleFlight.execute("key", () -> {
+			calls.incrementAndGet();
+			return upstream;
+		});
+		CompletableFuture<String> follower = singleFlight.execute("key", () -> {
+			calls.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+
+		upstream.complete("answer");
+
+		assertThat(calls).hasValue(1);
+		assertThat(leader.join()).isEqualTo("answer");
+		assertThat(follower.join()).isEqualTo("answer");
+		assertThat(singleFlight.inFlight()).isZero();
+	}
+
+	@Test
+	void failedLeaderIsNotReusedByLaterCalls() {
+		CompletableFuture<String> failing = singleFlight.execute("key",
+			() -> CompletableFuture.failedFuture(new GroqApiException(500, "boom")));
+
+		assertThatThrownBy(failing::join).isInstanceOf(CompletionException.class);
+
+		CompletableFuture<String> retry = singleFlight.execute("key",
+			() -> CompletableFuture.completedFuture("answer"));
+		assertThat(retry.join()).isEqualTo("answer");
+	}
+
+	@Test
+	void cancellingOneCallerDoesNotCancelTheOthers() {
+		CompletableFuture<String> upstream = new CompletableFuture<>();
+		CompletableFuture<String> first = singleFlight.execute("key", () -> upstream);
+		CompletableFuture<String> second = singleFlight.execute("key", () -> upstream);
+
+		first.cancel(true);
+		upstream.complete("answer");
+
+		assertThat(second.join()).isEqualTo("answer");
+	}
+
+	@Test
+	void hungLeaderTimesOut() {
+		SingleFlight<String> shortLived =
+			new SingleFlight<>("explain", Duration.ofMillis(50), new SimpleMeterRegistry());
+
+		CompletableFuture<String> hung = shortLived.execute("key", CompletableFuture::new);
+
+		assertThatThrownBy(hung::join).isInstanceOf(CompletionException.class);
+		assertThat(shortLived.inFlight()).isZero();
+	}
+}
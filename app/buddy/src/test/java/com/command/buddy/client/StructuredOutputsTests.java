@@ -0,0 +1,63 @@
+package com.command.buddy.client;
+
+import com.command.buddy.model.AnswerFeedback;
+import com.command.buddy.model.CommandExplanation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuredOutputsTests {
+
+	@Test
+	void readsFeedbackJsonAndWritesItBack() {
+		AnswerFeedback feedback = StructuredOutputs.parseFeedback("""
+			{"verdict":"incorrect","reason":"That lists tags.","correctedCommand":"git branch -a","tip":"-a is for all."}""");
+
+		assertThat(feedback).isEqualTo(new AnswerFeedback(AnswerFeedback.Verdict.INCORRECT,
+			"That lists tags.", "git branch -a", "-a is for all."));
+		assertThat(StructuredOutputs.parseFeedback(StructuredOutputs.toJson(feedback))).isEqualTo(feedback);
+	}
+
+	@Test
+	void readsNumberedTextFeedback() {
+		AnswerFeedback feedback = StructuredOutputs.parseFeedback(
+			"1. **INCORRECT**\n2. That lists tags.\n3. git branch -a\n4. -a is for all.");
+
+		assertThat(feedback).isEqualTo(new AnswerFeedback(AnswerFeedback.Verdict.INCORRECT,
+			"That lists tags.", "git branch -a", "-a is for all."));
+		assertThat(StructuredOutputs.feedbackText("1. CORRECT\n2. Yes")).isEqualTo("1. CORRECT\n2. Yes");
+	}
+
+	@Test
+	void keepsUnnumberedTextAsTheReason() {
+		AnswerFeedback feedback = StructuredOutputs.parseFeedback("Your answer is INCORRECT, use git log.");
+
+		assertThat(feedback.verdict()).isEqualTo(AnswerFeedback.Verdict.INCORRECT);
+		assertThat(feedback.reason()).isEqualTo("Your answer is INCORRECT, use git log.");
+	}
+
+	@Test
+	void readsExplanationJsonAndWritesItBack() {
+		CommandExplanation explanation = StructuredOutputs.parseExplanation("""
+			```json
+			{"summary":"Lists all branches.","parts":[{"token":"-a","meaning":"include remotes"}],
+			 "useCases":["Find a remote branch"],"gotchas":[],"tags":["Branches"," branches","remote"]}
+			```""");
+
+		assertThat(explanation.isStructured()).isTrue();
+		assertThat(explanation.parts()).containsExactly(new CommandExplanation.Part("-a", "include remotes"));
+		assertThat(explanation.tags()).isEqualTo(List.of("branches", "remote"));
+		assertThat(StructuredOutputs.parseExplanation(StructuredOutputs.toJson(explanation))).isEqualTo(explanation);
+	}
+
+	@Test
+	void keepsTextExplanationsAsTheSummary() {
+		CommandExplanation explanation = StructuredOutputs.parseExplanation("  Lists all branches.\n");
+
+		assertThat(explanation.summary()).isEqualTo("Lists all branches.");
+		assertThat(explanation.isStructured()).isFalse();
+		assertThat(StructuredOutputs.explanationText("Lists all branches.")).isEqualTo("Lists all branches.");
+	}
+}
@@ -0,0 +1,125 @@
+package com.command.buddy.client;
+
+import com.command.buddy.resilience.LlmResilience;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stub of the chat completions endpoint, answering with whatever
+ * the test's handler writes, and the client stack pointed at it.
+ *
+ * Each exchange gets its own virtual thread, so a handler may block to
+ * hold a call open.
+ */
+public final class StubChatServer implements AutoCloseable {
+
+	private static final String PATH = "/v1/chat/completions";
+
+	private final HttpServer server;
+
+	private StubChatServer(HttpServer server) {
+		this.server = server;
+	}
+
+	/**
+	 * @param handler answers every call to the endpoint
+	 * @return the running stub, on a free port of the loopback address
+	 */
+	public static StubChatServer start(HttpHandler handler) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext(PATH, handler);
+		server.start();
+		return new StubChatServer(server);
+	}
+
+	public String url() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	/**
+	 * @param content the message, already escaped for a JSON string
+	 * @return a completion body without usage
+	 */
+	public static byte[] completion(String content) {
+		return ("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"}}]}")
+			.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Send a JSON body and end the exchange
+	 */
+	public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * @return a router with this stub as its only route, which never hedges
+	 */
+	public ModelRouter router(MeterRegistry meterRegistry) {
+		return new ModelRouter(meterRegistry, url(), "test", "test", "test",
+			false, 0.95, 20, Duration.ofMillis(250), 0.1, 10);
+	}
+
+	/**
+	 * @return a client of this stub that gives up on a call after five seconds
+	 */
+	public GroqHttpClient httpClient(MeterRegistry meterRegistry, LlmResilience resilience) {
+		return httpClient(meterRegistry, resilience, router(meterRegistry), Duration.ofSeconds(5));
+	}
+
+	/**
+	 * @return a client of this stub that calls it once per request, with room for 16 calls at a time
+	 */
+	public GroqClient groqClient(MeterRegistry meterRegistry) {
+		return groqClient(meterRegistry, httpClient(meterRegistry, resilience(16, 10, 1, Duration.ofSeconds(1))));
+	}
+
+	/**
+	 * @param concurrency the concurrency limit of each kind of call
+	 * @param minimumCalls calls before the circuit breaker may open
+	 * @param maxAttempts attempts per call, retries included
+	 * @param maxQueueWait how long a call may wait for the rate limiter
+	 * @return resilience that is never rate limited in practice, with its own meters
+	 */
+	public static LlmResilience resilience(int concurrency, int minimumCalls, int maxAttempts, Duration maxQueueWait) {
+		return new LlmResilience(new SimpleMeterRegistry(),
+			100, 100, 0, maxQueueWait,
+			concurrency, concurrency, concurrency,
+			minimumCalls, minimumCalls, 0.5, Duration.ofSeconds(30),
+			maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5));
+	}
+
+	public static GroqHttpClient httpClient(MeterRegistry meterRegistry, LlmResilience resilience, ModelRouter router,
+	                                        Duration requestTimeout) {
+		return new GroqHttpClient(resilience, router, new LlmMetrics(meterRegistry), "test-key",
+			Duration.ofSeconds(2), requestTimeout);
+	}
+
+	public static GroqRequestFactory requests(MeterRegistry meterRegistry) {
+		return new GroqRequestFactory(meterRegistry, "v1", 300, 400, 800, 2000);
+	}
+
+	public static GroqClient groqClient(MeterRegistry meterRegistry, GroqHttpClient httpClient) {
+		return new GroqClient(httpClient, requests(meterRegistry), meterRegistry, Duration.ofSeconds(10));
+	}
+}
@@ -0,0 +1,126 @@
+package com.command.buddy.cluster;
+
+import com.command.buddy.model.Command;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.search.SearchHit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.command.buddy.Polling.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two replicas, each with its own search index, following the
+ * {@code commands} collection they share
+ */
+class CommandChangeStreamTests {
+
+	private static ReplicaSetMongo mongo;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = ReplicaSetMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void clearCommands() {
+		mongo.template("changes").dropCollection(Command.class);
+	}
+
+	@AfterEach
+	void stopReplicas() {
+		replicas.forEach(replica -> replica.stream.stop());
+	}
+
+	@Test
+	void writesOfOneReplicaReachTheIndexOfTheOther() throws InterruptedException {
+		Replica a = replica();
+		Replica b = replica();
+
+		Command command = a.save(new Command("git", "git log --oneline", "Shows the history compactly."));
+		await("the change stream", () -> ids(b, "git log oneline").contains(command.getId()));
+
+		command.setCommandText("git log --graph");
+		a.save(command);
+		await("the change stream", () -> ids(b, "log graph").contains(command.getId()));
+		assertThat(ids(b, "oneline")).doesNotContain(command.getId());
+
+		a.template.remove(command);
+		await("the change stream", () -> ids(b, "log graph").isEmpty());
+	}
+
+	@Test
+	void ownWritesComingBackLeaveTheIndexAsItIs() throws InterruptedException {
+		Replica a = replica();
+
+		a.save(new Command("git", "git stash pop", "Applies the latest stash and drops it."));
+		await("the change stream", () -> a.meterRegistry.get("cluster.change-stream.events").tag("type", "insert")
+			.counter().count() == 1);
+
+		assertThat(a.meterRegistry.get("search.index.documents").gauge().value()).isEqualTo(1);
+		assertThat(a.meterRegistry.get("search.index.tombstones").gauge().value()).isZero();
+	}
+
+	@Test
+	void writesMadeDuringTheStartupScanAreReplayed() throws InterruptedException {
+		Replica a = replica();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MongoTemplate template = mongo.template("changes");
+		CommandSearchIndex index = new CommandSearchIndex(template, meterRegistry, true, true, 0.3, 0.2);
+		CommandChangeStream stream = new CommandChangeStream(template, index, meterRegistry, true);
+
+		stream.start();
+		replicas.add(new Replica(template, meterRegistry, index, stream));
+		// Written after the stream's start time was read, but missed by the scan
+		Command command = a.save(new Command("docker", "docker ps -a", "Lists all containers, stopped ones too."));
+		index.rebuild(Stream.empty());
+
+		await("the change stream", () -> index.search("docker", "docker ps", 5).stream()
+			.anyMatch(hit -> hit.id().equals(command.getId())));
+	}
+
+	private Replica replica() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		MongoTemplate template = mongo.template("changes");
+		CommandSearchIndex index = new CommandSearchIndex(template, meterRegistry, true, true, 0.3, 0.2);
+		CommandChangeStream stream = new CommandChangeStream(template, index, meterRegistry, true);
+		stream.start();
+		index.rebuild(Stream.empty());
+		Replica replica = new Replica(template, meterRegistry, index, stream);
+		replicas.add(replica);
+		return replica;
+	}
+
+	private static List<String> ids(Replica replica, String query) {
+		return replica.index.search("git", query, 5).stream().map(SearchHit::id).toList();
+	}
+
+	private record Replica(MongoTemplate template, SimpleMeterRegistry meterRegistry,
+	                       CommandSearchIndex index, CommandChangeStream stream) {
+
+		/**
+		 * Save and index locally, as the services do
+		 */
+		Command save(Command command) {
+			Command saved = template.save(command);
+			index.index(saved);
+			return saved;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.command.buddy.cluster;
+
+import com.command.buddy.model.LeaderLease;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances competing for the lease in one database
+ */
+class LeaderElectionTests {
+
+	private static ReplicaSetMongo mongo;
+
+	private MongoTemplate first;
+	private MongoTemplate second;
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = ReplicaSetMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void clearLeases() {
+		first = mongo.template("leader");
+		second = mongo.template("leader");
+		first.dropCollection(LeaderLease.class);
+	}
+
+	@Test
+	void onlyOneInstanceHoldsTheLease() {
+		LeaderElection a = election(first, "a", Duration.ofSeconds(15));
+		LeaderElection b = election(second, "b", Duration.ofSeconds(15));
+
+		a.renew();
+		b.renew();
+		a.renew();
+
+		assertThat(a.isLeader()).isTrue();
+		assertThat(b.isLeader()).isFalse();
+		assertThat(first.findById(LeaderElection.LEASE, LeaderLease.class).getOwner()).isEqualTo("a");
+	}
+
+	@Test
+	void anotherInstanceTakesOverOnceTheLeaseExpires() throws InterruptedException {
+		LeaderElection a = election(first, "a", Duration.ofMillis(500));
+		LeaderElection b = election(second, "b", Duration.ofMillis(500));
+		a.renew();
+		b.renew();
+		assertThat(b.isLeader()).isFalse();
+
+		// a stops renewing, as a replica that died would
+		Thread.sleep(700);
+
+		assertThat(a.isLeader()).isFalse();
+		b.renew();
+		assertThat(b.isLeader()).isTrue();
+		a.renew();
+		assertThat(a.isLeader()).isFalse();
+		assertThat(first.findById(LeaderElection.LEASE, LeaderLease.class).getOwner()).isEqualTo("b");
+	}
+
+	@Test
+	void releasingHandsTheLeaseOverAtOnce() {
+		LeaderElection a = election(first, "a", Duration.ofSeconds(15));
+		LeaderElection b = election(second, "b", Duration.ofSeconds(15));
+		a.renew();
+
+		a.release();
+		b.renew();
+
+		assertThat(a.isLeader()).isFalse();
+		assertThat(b.isLeader()).isTrue();
+	}
+
+	private static LeaderElection election(MongoTemplate template, String instanceId, Duration leaseDuration) {
+		return new LeaderElection(template, new SimpleMeterRegistry(), instanceId, leaseDuration, true);
+	}
+}
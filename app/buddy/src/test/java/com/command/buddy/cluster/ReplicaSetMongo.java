@@ -0,0 +1,90 @@
+package com.command.buddy.cluster;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A throwaway mongod started as a single-node replica set, which change
+ * streams need. The binary is downloaded on first use and cached under
+ * {@code ~/.embedmongo}.
+ *
+ * Each {@link #template} has its own client, so tests can stand in for
+ * several replicas of the service sharing one database.
+ */
+public final class ReplicaSetMongo implements AutoCloseable {
+
+	private static final String REPLICA_SET = "rs0";
+
+	private final TransitionWalker.ReachedState<RunningMongodProcess> process;
+	private final List<MongoClient> clients = new ArrayList<>();
+
+	private ReplicaSetMongo(TransitionWalker.ReachedState<RunningMongodProcess> process) {
+		this.process = process;
+	}
+
+	public static ReplicaSetMongo start() {
+		ReplicaSetMongo mongo = new ReplicaSetMongo(Mongod.instance()
+			.withMongodArguments(Start.to(MongodArguments.class).initializedWith(MongodArguments.defaults()
+				.withUseNoJournal(false)
+				.withReplication(Storage.of(REPLICA_SET, 0))))
+			.start(Version.Main.V7_0));
+		mongo.initiate();
+		return mongo;
+	}
+
+	/**
+	 * @param database the database to point at
+	 * @return a template with a client of its own
+	 */
+	public synchronized MongoTemplate template(String database) {
+		MongoClient client = MongoClients.create(uri());
+		clients.add(client);
+		return new MongoTemplate(client, database);
+	}
+
+	@Override
+	public synchronized void close() {
+		clients.forEach(MongoClient::close);
+		process.close();
+	}
+
+	private void initiate() {
+		ServerAddress address = process.current().getServerAddress();
+		try (MongoClient client = MongoClients.create(uri())) {
+			client.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", REPLICA_SET)
+				.append("members", List.of(new Document("_id", 0)
+					.append("host", address.getHost() + ":" + address.getPort())))));
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+			while (!Boolean.TRUE.equals(client.getDatabase("admin").runCommand(new Document("hello", 1))
+					.getBoolean("isWritablePrimary"))) {
+				if (System.nanoTime() > deadline) {
+					throw new IllegalStateException("The replica set did not elect a primary");
+				}
+				Thread.sleep(100);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String uri() {
+		ServerAddress address = process.current().getServerAddress();
+		return "mongodb://" + address.getHost() + ":" + address.getPort() + "/?directConnection=true";
+	}
+}
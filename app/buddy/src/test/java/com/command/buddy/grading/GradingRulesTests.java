@@ -0,0 +1,49 @@
+package com.command.buddy.grading;
+
+import com.command.buddy.shell.CommandCanonicalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradingRulesTests {
+
+	private static final String QUESTION = "How do you list the pods in the staging namespace with wide output?";
+	private static final AnswerSpec SPEC = new AnswerSpec("kubernetes",
+		List.of(CommandCanonicalizer.canonicalize("kubectl get pods -n staging -o wide")));
+
+	@Test
+	void expectedAnswerInAnotherSpellingIsCorrect() {
+		Submission submission = submission("kubectl get pods --output=wide --namespace staging", SPEC);
+
+		assertThat(new ExpectedAnswerRule().grade(submission))
+			.hasValueSatisfying(grade -> assertThat(grade.correct()).isTrue());
+	}
+
+	@Test
+	void differentCommandIsLeftToTheLlm() {
+		Submission submission = submission("kubectl get pods -n staging", SPEC);
+
+		assertThat(new ExpectedAnswerRule().grade(submission)).isEmpty();
+		assertThat(new WrongToolRule().grade(submission)).isEmpty();
+	}
+
+	@Test
+	void commandForAnotherToolIsIncorrect() {
+		Submission submission = submission("docker ps", null);
+
+		assertThat(new WrongToolRule().grade(submission))
+			.hasValueSatisfying(grade -> assertThat(grade.correct()).isFalse());
+	}
+
+	@Test
+	void unknownProgramsAreLeftToTheLlm() {
+		// Could be an alias for kubectl
+		assertThat(new WrongToolRule().grade(submission("k get pods", SPEC))).isEmpty();
+	}
+
+	private static Submission submission(String answer, AnswerSpec spec) {
+		return new Submission("kubernetes", QUESTION, CommandCanonicalizer.canonicalize(answer), spec);
+	}
+}
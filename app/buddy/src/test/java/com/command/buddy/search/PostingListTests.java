@@ -0,0 +1,54 @@
+package com.command.buddy.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostingListTests {
+
+	@Test
+	void findsTheBestFieldOfADocument() {
+		PostingList list = new PostingList();
+		list.add(1, PostingList.COMMAND_TEXT);
+		list.add(1, PostingList.EXPLANATION);
+		list.add(3, PostingList.EXPLANATION);
+		list.add(8, PostingList.COMMAND_TEXT);
+
+		assertThat(list.size()).isEqualTo(4);
+		assertThat(list.find(1)).isEqualTo(PostingList.COMMAND_TEXT);
+		assertThat(list.find(3)).isEqualTo(PostingList.EXPLANATION);
+		assertThat(list.find(8)).isEqualTo(PostingList.COMMAND_TEXT);
+		assertThat(list.find(0)).isEqualTo(-1);
+		assertThat(list.find(2)).isEqualTo(-1);
+		assertThat(list.find(9)).isEqualTo(-1);
+	}
+
+	@Test
+	void growsPastItsInitialCapacity() {
+		PostingList list = new PostingList();
+		for (int ordinal = 0; ordinal < 1000; ordinal++) {
+			list.add(ordinal, ordinal % 2);
+		}
+
+		assertThat(list.size()).isEqualTo(1000);
+		assertThat(list.find(998)).isEqualTo(PostingList.COMMAND_TEXT);
+		assertThat(list.find(999)).isEqualTo(PostingList.EXPLANATION);
+	}
+
+	@Test
+	void renumbersAndDropsRemovedDocuments() {
+		PostingList list = new PostingList();
+		list.add(0, PostingList.COMMAND_TEXT);
+		list.add(2, PostingList.EXPLANATION);
+		list.add(5, PostingList.COMMAND_TEXT);
+		list.add(5, PostingList.EXPLANATION);
+
+		int kept = list.renumber(new int[] { -1, 0, 1, -1, -1, 2 });
+
+		assertThat(kept).isEqualTo(3);
+		assertThat(list.find(0)).isEqualTo(-1);
+		assertThat(list.find(1)).isEqualTo(PostingList.EXPLANATION);
+		assertThat(list.find(2)).isEqualTo(PostingList.COMMAND_TEXT);
+		assertThat(list.entry(2)).isEqualTo(2 << 1 | PostingList.EXPLANATION);
+	}
+}
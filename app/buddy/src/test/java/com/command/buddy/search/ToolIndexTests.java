@@ -0,0 +1,112 @@
+package com.command.buddy.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolIndexTests {
+
+	private static final long[] NONE = new long[0];
+
+	private final ToolIndex index = new ToolIndex();
+
+	@Test
+	void ranksCloserMatchesFirst() {
+		add("stash", "git stash", "Shelves the changes in the working tree.");
+		add("stash-pop", "git stash pop", "Applies the latest stash and drops it.");
+		add("status", "git status", "Shows the state of the working tree.");
+
+		// Every command shares "git" and "stash" is in two of three, so only the full match passes
+		assertThat(ids(search("git stash pop"))).containsExactly("stash-pop");
+		assertThat(ids(search("stat"))).startsWith("status").contains("stash", "stash-pop");
+	}
+
+	@Test
+	void toleratesTypos() {
+		add("checkout", "git checkout main", "Switches to the main branch.");
+		add("log", "git log --oneline", "Lists commits one per line.");
+
+		assertThat(ids(search("chekout main"))).containsExactly("checkout");
+	}
+
+	@Test
+	void weighsTheCommandTextAboveTheExplanation() {
+		add("in-explanation", "git reflog", "Lists where rebase moved the branch.");
+		add("in-command", "git rebase", "Replays commits onto another base.");
+
+		List<SearchHit> hits = search("rebase");
+
+		assertThat(ids(hits)).containsExactly("in-command", "in-explanation");
+		assertThat(hits.get(0).score()).isGreaterThan(hits.get(1).score());
+	}
+
+	@Test
+	void removedDocumentsLeaveTheResults() {
+		add("a", "docker ps", null);
+		add("b", "docker ps -a", null);
+
+		index.remove("a");
+
+		assertThat(ids(search("docker ps"))).containsExactly("b");
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.tombstones()).isEqualTo(1);
+	}
+
+	@Test
+	void addingAnIdAgainReplacesIt() {
+		add("a", "kubectl get pods", null);
+		add("a", "kubectl describe node", null);
+
+		assertThat(search("get pods")).isEmpty();
+		assertThat(ids(search("describe node"))).containsExactly("a");
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void compactsOnceAQuarterAreTombstones() {
+		for (int i = 0; i < 100; i++) {
+			add("cmd" + i, "terraform plan -target=module.m" + i, null);
+		}
+		for (int i = 0; i < 24; i++) {
+			index.remove("cmd" + i);
+		}
+		assertThat(index.tombstones()).isEqualTo(24);
+
+		index.remove("cmd24");
+
+		assertThat(index.tombstones()).isZero();
+		assertThat(index.size()).isEqualTo(75);
+		assertThat(ids(search("module.m24"))).doesNotContain("cmd24");
+		assertThat(ids(search("module.m99"))).first().isEqualTo("cmd99");
+		assertThat(ids(search("module.m25"))).first().isEqualTo("cmd25");
+
+		// Ids still resolve to their new ordinals
+		index.remove("cmd99");
+		add("cmd25", "terraform apply", null);
+		assertThat(ids(search("module.m99"))).doesNotContain("cmd99");
+		assertThat(ids(search("terraform apply"))).first().isEqualTo("cmd25");
+		assertThat(index.size()).isEqualTo(74);
+	}
+
+	@Test
+	void emptyQueriesFindNothing() {
+		add("a", "npm install", null);
+
+		assertThat(index.search(NONE, 0.3, 0.2, 10)).isEmpty();
+		assertThat(index.search(Trigrams.of("npm"), 0.3, 0.2, 0)).isEmpty();
+	}
+
+	private void add(String id, String commandText, String explanation) {
+		index.add(id, Trigrams.of(commandText), Trigrams.of(explanation));
+	}
+
+	private List<SearchHit> search(String text) {
+		return index.search(Trigrams.of(text), 0.3, 0.2, 10);
+	}
+
+	private static List<String> ids(List<SearchHit> hits) {
+		return hits.stream().map(SearchHit::id).toList();
+	}
+}
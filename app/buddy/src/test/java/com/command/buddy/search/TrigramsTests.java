@@ -0,0 +1,50 @@
+package com.command.buddy.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramsTests {
+
+	@Test
+	void padsEachWordAndSkipsTheBareFirstLetter() {
+		assertThat(Trigrams.of("log")).containsExactly(gram(' ', 'l', 'o'), gram('l', 'o', 'g'), gram('o', 'g', ' '));
+	}
+
+	@Test
+	void returnsDistinctSortedTrigramsIgnoringCase() {
+		long[] grams = Trigrams.of("Log log LOG");
+
+		assertThat(grams).isEqualTo(Trigrams.of("log"));
+		assertThat(grams).isSorted();
+	}
+
+	@Test
+	void keepsFlagsAndPathsTogether() {
+		assertThat(Trigrams.of("--all")).contains(gram('-', '-', 'a'), gram('-', 'a', 'l'));
+		assertThat(Trigrams.of("a/b.c")).contains(gram('a', '/', 'b'), gram('/', 'b', '.'));
+		// Other punctuation splits words
+		assertThat(Trigrams.of("a,b")).containsExactly(gram(' ', 'a', ' '), gram(' ', 'b', ' '));
+	}
+
+	@Test
+	void aTypoOnlyBreaksTheTrigramsItTouches() {
+		long[] right = Trigrams.of("checkout");
+		long[] typo = Trigrams.of("chekcout");
+
+		assertThat(typo).containsAnyOf(right);
+		assertThat(typo).doesNotContain(gram('e', 'c', 'k'));
+	}
+
+	@Test
+	void blankTextHasNoTrigrams() {
+		assertThat(Trigrams.of(null)).isEmpty();
+		assertThat(Trigrams.of("  \t")).isEmpty();
+		// A single letter only has the skipped "  x" and the padded "x  "
+		assertThat(Trigrams.of("x")).containsExactly(gram(' ', 'x', ' '));
+	}
+
+	private static long gram(char a, char b, char c) {
+		return ((long) a << 32) | ((long) b << 16) | c;
+	}
+}
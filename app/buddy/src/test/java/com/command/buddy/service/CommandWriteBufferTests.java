@@ -0,0 +1,174 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cluster.ReplicaSetMongo;
+import com.command.buddy.model.Command;
+import com.command.buddy.repository.CommandHashCallback;
+import com.command.buddy.search.CommandSearchIndex;
+import com.command.buddy.search.SearchHit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.validation.Validator;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The write-behind buffer against a real {@code commands} collection
+ */
+class CommandWriteBufferTests {
+
+	private static ReplicaSetMongo mongo;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private MongoTemplate template;
+	private CommandSearchIndex searchIndex;
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = ReplicaSetMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void clearCommands() {
+		template = mongo.template("write_behind");
+		template.dropCollection(Command.class);
+		searchIndex = new CommandSearchIndex(template, meterRegistry, true, true, 0.3, 0.2);
+		searchIndex.rebuild(Stream.empty());
+	}
+
+	@Test
+	void storesEachCommandOnceByContent() {
+		CommandWriteBuffer buffer = buffer(100, 1000);
+		Command saved = new Command("git", "git log --oneline", "Shows the history compactly.");
+
+		String queued = buffer.submit(saved);
+		assertThat(buffer.submit(new Command("Git", "  git log   --oneline ", "Same command."))).isEqualTo(queued);
+		assertThat(buffer.pending()).isEqualTo(1);
+		// The caller's object is left alone
+		assertThat(saved.getId()).isNull();
+		assertThat(saved.getContentHash()).isNull();
+
+		buffer.flush();
+		buffer.submit(new Command("git", "git log --oneline", "Saved again after the flush."));
+		buffer.flush();
+
+		Command stored = template.findOne(byHash(queued), Command.class);
+		assertThat(stored).isNotNull();
+		assertThat(stored.getExplanation()).isEqualTo("Shows the history compactly.");
+		assertThat(template.count(new Query(), Command.class)).isEqualTo(1);
+		assertThat(searchIndex.search("git", "git log oneline", 5)).extracting(SearchHit::id)
+			.containsExactly(stored.getId());
+		assertThat(count("commands.write-behind.saves", "result", "coalesced")).isEqualTo(1);
+		assertThat(count("commands.write-behind.written", "outcome", "inserted")).isEqualTo(1);
+		assertThat(count("commands.write-behind.written", "outcome", "duplicate")).isEqualTo(1);
+	}
+
+	@Test
+	void keepsCommandsThatFailToWriteForTheNextFlush() {
+		// Rejects one of the commands until the validator is dropped
+		template.createCollection(Command.class, CollectionOptions.empty()
+			.validator(Validator.criteria(Criteria.where("commandText").ne("git stash pop"))));
+		CommandWriteBuffer buffer = buffer(100, 1000);
+
+		String rejected = buffer.submit(new Command("git", "git stash pop", "Applies the last stash."));
+		buffer.submit(new Command("git", "git stash list", "Lists the stashes."));
+		buffer.flush();
+
+		assertThat(buffer.pending()).isEqualTo(1);
+		assertThat(template.count(new Query(), Command.class)).isEqualTo(1);
+		assertThat(meterRegistry.get("commands.write-behind.failures").counter().count()).isEqualTo(1);
+
+		template.executeCommand(new Document("collMod", "commands").append("validator", new Document()));
+		buffer.flush();
+
+		assertThat(buffer.pending()).isZero();
+		assertThat(template.findOne(byHash(rejected), Command.class)).isNotNull()
+			.extracting(Command::getCommandText).isEqualTo("git stash pop");
+	}
+
+	@Test
+	void dropsCommandsThatKeepFailingToWrite() {
+		template.createCollection(Command.class, CollectionOptions.empty()
+			.validator(Validator.criteria(Criteria.where("commandText").ne("git stash pop"))));
+		CommandWriteBuffer buffer = buffer(100, 1000, 2);
+
+		buffer.submit(new Command("git", "git stash pop", "Applies the last stash."));
+		buffer.flush();
+		assertThat(buffer.pending()).isEqualTo(1);
+		buffer.flush();
+
+		assertThat(buffer.pending()).isZero();
+		assertThat(meterRegistry.get("commands.write-behind.failures").counter().count()).isEqualTo(2);
+		assertThat(meterRegistry.get("commands.write-behind.dropped").counter().count()).isEqualTo(1);
+		assertThat(template.count(new Query(), Command.class)).isZero();
+	}
+
+	@Test
+	void sharesTheContentHashWithCommandsWrittenAnyOtherWay() {
+		template.setEntityCallbacks(EntityCallbacks.create(new CommandHashCallback()));
+		template.indexOps(Command.class).createIndex(new Index("contentHash", Sort.Direction.ASC).unique().sparse());
+		CommandWriteBuffer buffer = buffer(100, 1000);
+
+		template.bulkOps(BulkOperations.BulkMode.UNORDERED, Command.class)
+			.insert(new Command("git", "git log --oneline", "Shows the history compactly."))
+			.execute();
+		String hash = buffer.submit(new Command("git", "git  log --oneline", "Saved from the quiz."));
+		buffer.flush();
+
+		assertThat(template.findOne(byHash(hash), Command.class)).isNotNull()
+			.extracting(Command::getExplanation).isEqualTo("Shows the history compactly.");
+		assertThat(count("commands.write-behind.written", "outcome", "duplicate")).isEqualTo(1);
+		assertThatThrownBy(() -> template.save(new Command("Git", "git log --oneline", "Created again.")))
+			.isInstanceOf(DuplicateKeyException.class);
+		assertThat(template.count(new Query(), Command.class)).isEqualTo(1);
+	}
+
+	@Test
+	void writesEverythingPendingOnShutdown() {
+		CommandWriteBuffer buffer = buffer(2, 1000);
+		for (int i = 0; i < 5; i++) {
+			buffer.submit(new Command("docker", "docker ps -n " + i, "Lists the last containers."));
+		}
+
+		buffer.drain();
+
+		assertThat(buffer.pending()).isZero();
+		assertThat(template.count(new Query(), Command.class)).isEqualTo(5);
+	}
+
+	private CommandWriteBuffer buffer(int batchSize, int maxPending) {
+		return buffer(batchSize, maxPending, 5);
+	}
+
+	private CommandWriteBuffer buffer(int batchSize, int maxPending, int maxAttempts) {
+		return new CommandWriteBuffer(template, searchIndex, meterRegistry, batchSize, maxPending, maxAttempts);
+	}
+
+	private static Query byHash(String contentHash) {
+		return Query.query(Criteria.where("contentHash").is(contentHash));
+	}
+
+	private double count(String name, String tag, String value) {
+		return meterRegistry.get(name).tag(tag, value).counter().count();
+	}
+}
@@ -0,0 +1,222 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cache.CacheKey;
+import com.command.buddy.cache.LlmResponseCache;
+import com.command.buddy.client.GeneratedQuestion;
+import com.command.buddy.client.LlmOperation;
+import com.command.buddy.client.StubChatServer;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.command.buddy.repository.CachedResponseRepository;
+import com.command.buddy.repository.ExpectedAnswerRepository;
+import com.command.buddy.shell.CommandCanonicalizer;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.command.buddy.Polling.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prefetches explanations from a local stub that holds every call until
+ * the test lets it answer
+ */
+class ExplanationPrefetcherTests {
+
+	private static final byte[] EXPLANATION = StubChatServer.completion("Shows the working tree status.");
+	private static final String STATUS = CommandCanonicalizer.canonicalize("git status -s");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger calls = new AtomicInteger();
+	private final CountDownLatch gate = new CountDownLatch(1);
+	private StubChatServer server;
+	private AnswerSpecStore answerSpecs;
+	private LlmResponseCache responseCache;
+	private ExplanationPrefetcher prefetcher;
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = StubChatServer.start(this::handle);
+		answerSpecs = new AnswerSpecStore(repository(ExpectedAnswerRepository.class), 20_000);
+		responseCache = new LlmResponseCache(repository(CachedResponseRepository.class), meterRegistry,
+			20_000, Duration.ofHours(1), false, 0);
+	}
+
+	@AfterEach
+	void stop() {
+		gate.countDown();
+		if (prefetcher != null) {
+			prefetcher.shutdown();
+		}
+		server.close();
+	}
+
+	@Test
+	void spendsAtMostTheBudgetOfEachTool() throws InterruptedException {
+		gate.countDown();
+		prefetcher = prefetcher(2, 8, Duration.ofMinutes(10));
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+		serve("git", "Which command lists the branches?", "git branch");
+		serve("git", "Which command shows the last commit?", "git show");
+		serve("docker", "Which command lists running containers?", "docker ps");
+
+		await("the prefetch", () -> count("calls", "outcome", "started") + count("calls", "outcome", "over_budget") == 4
+			&& calls.get() == 3);
+		assertThat(count("calls", "outcome", "started")).isEqualTo(3);
+		assertThat(count("calls", "outcome", "over_budget")).isEqualTo(1);
+	}
+
+	@Test
+	void servesQuestionsWithoutAPrefetchWhileAllPermitsAreTaken() throws InterruptedException {
+		prefetcher = prefetcher(10, 1, Duration.ofMinutes(10));
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+		await("the prefetch", () -> calls.get() == 1);
+		serve("git", "Which command lists the branches?", "git branch");
+
+		assertThat(count("calls", "outcome", "busy")).isEqualTo(1);
+		gate.countDown();
+		await("the prefetch", () -> prefetcher.inFlight("git", "git status -s").isEmpty());
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void stopsTrackingOnceTheLimitIsReached() throws InterruptedException {
+		prefetcher = prefetcher(10, 20_000, Duration.ofMinutes(10));
+		// Already cached, so every prefetch is tracked without calling the stub
+		int limit = 10_000;
+		for (int i = 0; i < limit; i++) {
+			String question = "Which command shows commit " + i + "?";
+			answerSpecs.register("git", new GeneratedQuestion(question, List.of("git show c" + i)));
+			String command = answerSpecs.find("git", question).orElseThrow().answers().getFirst();
+			responseCache.put(LlmOperation.EXPLAIN_COMMAND, "git",
+				CacheKey.of(LlmOperation.EXPLAIN_COMMAND, "git", command), "Shows a commit.", 0);
+			prefetcher.questionServed("git", question);
+		}
+		await("the prefetch", () -> count("calls", "outcome", "cached") == limit);
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+
+		assertThat(meterRegistry.get("quiz.prefetch.tracked").gauge().value()).isEqualTo(limit);
+		assertThat(count("calls", "outcome", "busy")).isEqualTo(1);
+		assertThat(calls).hasValue(0);
+	}
+
+	@Test
+	void countsExplainsAskedForWhileInFlightAsLate() throws InterruptedException {
+		prefetcher = prefetcher(10, 8, Duration.ofMinutes(10));
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+		await("the prefetch", () -> calls.get() == 1);
+
+		assertThat(prefetcher.resolve("git", "git  status   -s")).isEqualTo(STATUS);
+		Optional<CompletableFuture<Void>> running = prefetcher.inFlight("git", "git status -s");
+		assertThat(running).isPresent();
+		// Giving up on the wait leaves it running for the others
+		running.get().cancel(true);
+		assertThat(prefetcher.inFlight("git", "git status -s")).isPresent();
+
+		gate.countDown();
+		prefetcher.inFlight("git", "git status -s").ifPresent(CompletableFuture::join);
+		assertThat(prefetcher.inFlight("git", "git status -s")).isEmpty();
+		assertThat(responseCache.peek(LlmOperation.EXPLAIN_COMMAND,
+			CacheKey.of(LlmOperation.EXPLAIN_COMMAND, "git", STATUS))).isPresent();
+
+		// Only the first explain of a prefetch is counted
+		prefetcher.resolve("git", "git status -s");
+		assertThat(count("results", "result", "late")).isEqualTo(1);
+		assertThat(count("results", "result", "used")).isZero();
+	}
+
+	@Test
+	void countsExplainsAskedForOnceReadyAsUsed() throws InterruptedException {
+		gate.countDown();
+		prefetcher = prefetcher(10, 8, Duration.ofMinutes(10));
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+		await("the prefetch", () -> count("calls", "outcome", "started") == 1);
+		prefetcher.inFlight("git", "git status -s").ifPresent(CompletableFuture::join);
+
+		assertThat(prefetcher.resolve("git", "git status -s")).isEqualTo(STATUS);
+		assertThat(count("results", "result", "used")).isEqualTo(1);
+		assertThat(count("results", "result", "late")).isZero();
+		assertThat(meterRegistry.get("quiz.prefetch.hit.ratio").gauge().value()).isEqualTo(1.0);
+	}
+
+	@Test
+	void countsPrefetchesNobodyAskedForAsWastedWhenSwept() throws InterruptedException {
+		gate.countDown();
+		prefetcher = prefetcher(10, 8, Duration.ZERO);
+		String cached = answerSpecs.register("git", new GeneratedQuestion("Which command lists the branches?",
+			List.of("git branch")));
+		responseCache.put(LlmOperation.EXPLAIN_COMMAND, "git",
+			CacheKey.of(LlmOperation.EXPLAIN_COMMAND, "git", CommandCanonicalizer.canonicalize("git branch")),
+			"Lists the branches.", 0);
+
+		serve("git", "Which command shows the status briefly?", "git status -s");
+		prefetcher.questionServed("git", cached);
+		await("the prefetch", () -> count("calls", "outcome", "started") == 1
+			&& count("calls", "outcome", "cached") == 1);
+		prefetcher.inFlight("git", "git status -s").ifPresent(CompletableFuture::join);
+
+		prefetcher.sweep();
+
+		// The explanation that was already cached cost nothing, so it is not wasted
+		assertThat(count("results", "result", "wasted")).isEqualTo(1);
+		assertThat(meterRegistry.get("quiz.prefetch.tracked").gauge().value()).isZero();
+		assertThat(prefetcher.resolve("git", "git status -s")).isEqualTo(STATUS);
+		assertThat(count("results", "result", "used")).isZero();
+	}
+
+	private void serve(String toolName, String question, String answer) {
+		answerSpecs.register(toolName, new GeneratedQuestion(question, List.of(answer)));
+		prefetcher.questionServed(toolName, question);
+	}
+
+	private double count(String meter, String tag, String value) {
+		return meterRegistry.get("quiz.prefetch." + meter).tag(tag, value).counter().count();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		calls.incrementAndGet();
+		try {
+			gate.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		StubChatServer.respond(exchange, 200, EXPLANATION);
+	}
+
+	private ExplanationPrefetcher prefetcher(int maxPerToolPerMinute, int concurrency, Duration window) {
+		return new ExplanationPrefetcher(server.groqClient(meterRegistry), responseCache, answerSpecs, meterRegistry,
+			true, maxPerToolPerMinute, concurrency, window);
+	}
+
+	/**
+	 * A repository that stores nothing, so every lookup misses
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T repository(Class<T> type) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+			(proxy, method, args) -> switch (method.getName()) {
+				case "save" -> args[0];
+				case "findById" -> Optional.empty();
+				case "hashCode" -> System.identityHashCode(proxy);
+				case "equals" -> proxy == args[0];
+				case "toString" -> type.getSimpleName();
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+	}
+}
@@ -0,0 +1,131 @@
+package com.command.buddy.service;
+
+import com.command.buddy.client.StubChatServer;
+import com.command.buddy.cluster.LeaderElection;
+import com.command.buddy.grading.AnswerSpecStore;
+import com.sun.net.httpserver.HttpExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.command.buddy.Polling.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Refills pools on this replica from a local stub that generates a new
+ * question on every call
+ */
+class QuestionPoolTests {
+
+	private static final String[] TOOLS = { "git", "docker", "npm" };
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger generated = new AtomicInteger();
+	private StubChatServer server;
+	private QuestionPool pool;
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = StubChatServer.start(this::handle);
+	}
+
+	@AfterEach
+	void stop() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+		server.close();
+	}
+
+	@Test
+	void refillsToCapacityOnlyBelowTheLowWaterMark() throws InterruptedException {
+		pool = pool(5, 2, 10, "git");
+
+		pool.refill();
+		await("the refill", () -> pool.depth("git") == 5);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(pool.poll("git")).isPresent();
+		}
+		pool.refill();
+		assertThat(generated).hasValue(5);
+
+		assertThat(pool.poll("git")).isPresent();
+		pool.refill();
+		await("the refill", () -> pool.depth("git") == 5);
+		assertThat(generated).hasValue(9);
+	}
+
+	@Test
+	void toolsTakeTurnsWhenThePermitsRunOut() throws InterruptedException {
+		// Permits for one tool's refill per run
+		pool = pool(3, 1, 3, TOOLS);
+
+		for (int run = 1; run <= TOOLS.length; run++) {
+			pool.refill();
+			int expected = 3 * run;
+			await("the refill", () -> generated.get() == expected && refillsInFlight() == 0);
+			// The busiest tool is empty again before every run
+			while (pool.poll("git").isPresent()) {
+				assertThat(pool.depth("git")).isLessThan(3);
+			}
+		}
+
+		assertThat(pool.depth("docker")).isEqualTo(3);
+		assertThat(pool.depth("npm")).isEqualTo(3);
+	}
+
+	@Test
+	void tracksTheConsumptionRateOfEveryToolWithoutPermits() throws InterruptedException {
+		pool = pool(5, 2, 0, TOOLS);
+		for (int i = 0; i < 10; i++) {
+			pool.poll("git");
+			pool.poll("docker");
+		}
+		Thread.sleep(50);
+
+		pool.refill();
+
+		double git = rate("git");
+		assertThat(git).isPositive();
+		assertThat(rate("docker")).isPositive();
+		assertThat(rate("npm")).isZero();
+		assertThat(generated).hasValue(0);
+
+		// Nothing consumed since, so the average decays
+		Thread.sleep(50);
+		pool.refill();
+		assertThat(rate("git")).isLessThan(git);
+	}
+
+	private double rate(String tool) {
+		return meterRegistry.get("quiz.pool.consumption.rate").tag("tool", tool).gauge().value();
+	}
+
+	private double refillsInFlight() {
+		return meterRegistry.get("quiz.pool.refills.in-flight").gauge().value();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		// Distinct words in every question, so none is a near-duplicate of another
+		int n = generated.incrementAndGet();
+		StubChatServer.respond(exchange, 200,
+			StubChatServer.completion("QUESTION: Which command prints item " + Integer.toHexString(n * 7919) + "?"));
+	}
+
+	private QuestionPool pool(int capacity, int lowWaterMark, int refillConcurrency, String... tools) {
+		// Generated questions carry no answers here, so nothing is written to the repository
+		AnswerSpecStore answerSpecs = new AnswerSpecStore(null, 100);
+		LeaderElection leaderElection = new LeaderElection(null, meterRegistry, "test", Duration.ofSeconds(15), false);
+		// No refill lead, so the low-water mark stays put however fast questions go;
+		// and only identical questions count as duplicates
+		return new QuestionPool(server.groqClient(meterRegistry), answerSpecs, leaderElection, null, meterRegistry,
+			capacity, lowWaterMark, refillConcurrency, 0, 32, 50, 1.01, tools, false);
+	}
+}
@@ -0,0 +1,97 @@
+package com.command.buddy.service;
+
+import com.command.buddy.cluster.ReplicaSetMongo;
+import com.command.buddy.model.PoolTool;
+import com.command.buddy.model.PooledQuestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two replicas claiming from one {@code pooled_questions} collection
+ */
+class SharedQuestionsTests {
+
+	private static ReplicaSetMongo mongo;
+
+	private SharedQuestions first;
+	private SharedQuestions second;
+
+	@BeforeAll
+	static void startMongo() {
+		mongo = ReplicaSetMongo.start();
+	}
+
+	@AfterAll
+	static void stopMongo() {
+		mongo.close();
+	}
+
+	@BeforeEach
+	void clearPool() {
+		MongoTemplate template = mongo.template("pool");
+		template.dropCollection(PooledQuestion.class);
+		template.dropCollection(PoolTool.class);
+		first = new SharedQuestions(template);
+		second = new SharedQuestions(mongo.template("pool"));
+	}
+
+	@Test
+	void claimsTheOldestQuestionsOfTheTool() throws InterruptedException {
+		for (int i = 1; i <= 3; i++) {
+			first.publish("git", "git question " + i);
+			// Distinct creation times
+			Thread.sleep(5);
+		}
+		first.publish("docker", "docker question");
+
+		assertThat(second.claim("git", 2)).containsExactly("git question 1", "git question 2");
+		assertThat(second.claim("git", 2)).containsExactly("git question 3");
+		assertThat(second.claim("git", 2)).isEmpty();
+		assertThat(first.count("docker")).isEqualTo(1);
+	}
+
+	@Test
+	void twoReplicasNeverClaimTheSameQuestion() {
+		for (int i = 0; i < 200; i++) {
+			first.publish("git", "git question " + i);
+		}
+
+		CompletableFuture<List<String>> a = CompletableFuture.supplyAsync(() -> drain(first));
+		CompletableFuture<List<String>> b = CompletableFuture.supplyAsync(() -> drain(second));
+		List<String> claimed = new ArrayList<>(a.join());
+		claimed.addAll(b.join());
+
+		assertThat(claimed).hasSize(200).doesNotHaveDuplicates();
+		assertThat(first.count("git")).isZero();
+	}
+
+	@Test
+	void listsTheToolsReplicasAskedForMostRecentFirst() throws InterruptedException {
+		first.request("git");
+		Thread.sleep(5);
+		second.request("docker");
+		Thread.sleep(5);
+		second.request("git");
+
+		assertThat(first.requestedTools(10)).containsExactly("git", "docker");
+		assertThat(first.requestedTools(1)).containsExactly("git");
+	}
+
+	private static List<String> drain(SharedQuestions questions) {
+		List<String> claimed = new ArrayList<>();
+		List<String> batch;
+		while (!(batch = questions.claim("git", 10)).isEmpty()) {
+			claimed.addAll(batch);
+		}
+		return claimed;
+	}
+}
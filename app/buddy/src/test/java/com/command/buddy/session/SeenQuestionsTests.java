@@ -0,0 +1,68 @@
+package com.command.buddy.session;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeenQuestionsTests {
+
+	private static final double THRESHOLD = 0.6;
+
+	private static final String BRANCHES = "List all local branches sorted by the date of their last commit";
+	private static final String REWORDED = "Show all local branches sorted by the date of their last commit";
+
+	@Test
+	void readsBackWhatWasServedFromItsBytes() {
+		SeenQuestions seen = new SeenQuestions();
+		// More than the recent signatures hold, so the ring has wrapped
+		for (int i = 0; i < 20; i++) {
+			seen.add(container(i, "removes"));
+		}
+		seen.add(QuestionFingerprint.of("git", BRANCHES));
+
+		byte[] bytes = seen.toBytes();
+		SeenQuestions decoded = SeenQuestions.fromBytes(bytes);
+
+		assertThat(decoded.toBytes()).isEqualTo(bytes);
+		// Every exact question is in the Bloom filter
+		for (int i = 0; i < 20; i++) {
+			assertThat(decoded.contains(container(i, "removes"), 1.01)).isTrue();
+		}
+		// A rewording is only caught by the MinHash signatures of the recent questions
+		QuestionFingerprint reworded = QuestionFingerprint.of("git", REWORDED);
+		assertThat(decoded.contains(reworded, 1.01)).isFalse();
+		assertThat(decoded.contains(reworded, THRESHOLD)).isTrue();
+		assertThat(decoded.contains(container(19, "deletes"), THRESHOLD)).isTrue();
+		assertThat(decoded.contains(container(0, "deletes"), THRESHOLD)).isFalse();
+		assertThat(decoded.contains(QuestionFingerprint.of("git",
+			"Which command shows who last changed each line of a file?"), THRESHOLD)).isFalse();
+	}
+
+	@Test
+	void startsEmptyWithoutBytesOrFromAnUnknownFormat() {
+		QuestionFingerprint question = QuestionFingerprint.of("git", BRANCHES);
+
+		assertThat(SeenQuestions.fromBytes(null).contains(question, 0.0)).isFalse();
+		assertThat(SeenQuestions.fromBytes(new byte[10]).contains(question, 0.0)).isFalse();
+		assertThat(SeenQuestions.fromBytes(new SeenQuestions().toBytes()).contains(question, 0.0)).isFalse();
+	}
+
+	@Test
+	void fingerprintsStayTheSameAcrossRuns() {
+		// Stored sessions are read by other replicas and later releases
+		QuestionFingerprint question = QuestionFingerprint.of("git", BRANCHES);
+
+		assertThat(QuestionFingerprint.of("Git", BRANCHES.toUpperCase() + "?")).satisfies(same -> {
+			assertThat(same.hash()).isEqualTo(question.hash());
+			assertThat(same.signature()).isEqualTo(question.signature());
+		});
+		// Only filler and the tool's name, so the hash of no words: the FNV-1a offset basis
+		assertThat(QuestionFingerprint.of("git", "How do you use git?").hash()).isEqualTo(0xcbf29ce484222325L);
+		assertThat(QuestionFingerprint.of("git", REWORDED).similarity(question)).isEqualTo(0.8125);
+	}
+
+	private static QuestionFingerprint container(int n, String verb) {
+		return QuestionFingerprint.of("docker", "Which command " + verb + " stopped container number " + n
+			+ " and its volumes?");
+	}
+}
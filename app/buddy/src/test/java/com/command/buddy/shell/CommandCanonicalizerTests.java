@@ -0,0 +1,56 @@
+package com.command.buddy.shell;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandCanonicalizerTests {
+
+	@Test
+	void reorderedFlagsAndQuotingGiveTheSameCommand() {
+		assertThat(CommandCanonicalizer.canonicalize("docker run -p \"80:80\" -d  nginx"))
+			.isEqualTo(CommandCanonicalizer.canonicalize("docker run -d -p 80:80 nginx"))
+			.isEqualTo("docker run -d -p 80:80 nginx");
+		assertThat(CommandCanonicalizer.canonicalize("git commit -am \"fix: typo\""))
+			.isEqualTo(CommandCanonicalizer.canonicalize("git   commit -m 'fix: typo' -a"));
+		assertThat(CommandCanonicalizer.canonicalize("kubectl -n dev get pods -owide"))
+			.isEqualTo(CommandCanonicalizer.canonicalize("kubectl get pods -o=wide -n dev"));
+	}
+
+	@Test
+	void argumentsKeepTheirOrder() {
+		assertThat(CommandCanonicalizer.canonicalize("git push origin main"))
+			.isNotEqualTo(CommandCanonicalizer.canonicalize("git push main origin"));
+		// Everything after the image is the container's command line
+		assertThat(CommandCanonicalizer.canonicalize("docker run --rm ubuntu ls -l -a"))
+			.isEqualTo("docker run --rm ubuntu ls -l -a");
+		assertThat(CommandCanonicalizer.canonicalize("kubectl exec -it web -- sh -c 'ls -la'"))
+			.isEqualTo("kubectl exec -i -t web -- sh -c 'ls -la'");
+	}
+
+	@Test
+	void unknownFlagsFollowedByAWordKeepTheirPlace() {
+		// Neither flag is in the git grammar, so a and b may be their values
+		assertThat(CommandCanonicalizer.canonicalize("git log -x a -y b"))
+			.isNotEqualTo(CommandCanonicalizer.canonicalize("git log -y a -x b"))
+			.isEqualTo("git log -x a -y b");
+		// Known flags around them are still sorted
+		assertThat(CommandCanonicalizer.canonicalize("git log -n 5 -x a --author=me"))
+			.isEqualTo(CommandCanonicalizer.canonicalize("git log --author me -x a -n5"));
+		// Nothing follows, so it is a switch
+		assertThat(CommandCanonicalizer.canonicalize("git log -n 5 --graph"))
+			.isEqualTo(CommandCanonicalizer.canonicalize("git log --graph -n 5"));
+	}
+
+	@Test
+	void terraformFlagsAreNotSplit() {
+		assertThat(CommandCanonicalizer.canonicalize("terraform apply -var 'region=eu' -auto-approve"))
+			.isEqualTo("terraform apply -auto-approve -var region=eu");
+	}
+
+	@Test
+	void otherProgramsOnlyGetWhitespaceAndQuotingNormalized() {
+		assertThat(CommandCanonicalizer.canonicalize("$ ls  -la \"/tmp\" | grep log"))
+			.isEqualTo("ls -la /tmp | grep log");
+	}
+}
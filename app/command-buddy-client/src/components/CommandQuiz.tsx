@@ -114,8 +114,11 @@ const CommandQuiz: React.FC = () => {
     setFeedback('');
     
     try {
-      const data = await apiService.checkAnswer(selectedTool, question, answer);
-      setFeedback(data.feedback);
+      // Show feedback as soon as the first tokens arrive
+      await apiService.streamCheckAnswer(selectedTool, question, answer, (token) => {
+        setLoading(false);
+        setFeedback((current) => current + token);
+      });
     } catch (error) {
       console.error('Error checking answer:', error);
       setFeedback('Error checking answer. Please try again.');
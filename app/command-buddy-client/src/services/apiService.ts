@@ -5,6 +5,9 @@
 // Base API URL - configured to use Vite's proxy
 const API_BASE_URL = '/api';
 
+// Saved commands are fetched in pages of this size
+const COMMAND_PAGE_SIZE = 200;
+
 // Available tools for command quizzes
 export const AVAILABLE_TOOLS = [
   'git',
@@ -20,6 +23,88 @@ export const AVAILABLE_TOOLS = [
   'gcloud'
 ];
 
+const SESSION_ID_KEY = 'commandBuddySessionId';
+
+/**
+ * Id of this browser's quiz session, created on first use
+ *
+ * @returns The session id
+ */
+function getSessionId(): string {
+  let sessionId = localStorage.getItem(SESSION_ID_KEY);
+  if (!sessionId) {
+    sessionId = crypto.randomUUID();
+    localStorage.setItem(SESSION_ID_KEY, sessionId);
+  }
+  return sessionId;
+}
+
+/**
+ * POST a JSON body and consume the server-sent events the backend streams back
+ * 
+ * @param url The streaming endpoint
+ * @param body The request body
+ * @param onToken Called with the text of every token event
+ * @param signal Optional abort signal
+ * @returns Promise with the concatenated tokens
+ */
+async function streamEvents(
+  url: string,
+  body: object,
+  onToken: (token: string) => void,
+  signal?: AbortSignal
+): Promise<string> {
+  const response = await fetch(url, {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+      'Accept': 'text/event-stream'
+    },
+    body: JSON.stringify(body),
+    signal
+  });
+
+  if (!response.ok || !response.body) {
+    throw new Error(`Failed to open stream: ${response.status}`);
+  }
+
+  const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+  let buffer = '';
+  let text = '';
+
+  while (true) {
+    const { value, done } = await reader.read();
+    if (done) break;
+    buffer += value;
+
+    // Events are separated by a blank line
+    let boundary;
+    while ((boundary = buffer.indexOf('\n\n')) !== -1) {
+      const rawEvent = buffer.slice(0, boundary);
+      buffer = buffer.slice(boundary + 2);
+
+      let eventName = 'message';
+      let data = '';
+      for (const line of rawEvent.split('\n')) {
+        if (line.startsWith('event:')) eventName = line.slice(6).trim();
+        else if (line.startsWith('data:')) data += line.slice(5);
+      }
+
+      if (eventName === 'token') {
+        const token = JSON.parse(data).token as string;
+        text += token;
+        onToken(token);
+      } else if (eventName === 'error') {
+        throw new Error(JSON.parse(data).message);
+      } else if (eventName === 'done') {
+        return text;
+      }
+    }
+  }
+
+  return text;
+}
+
 // API Service
 export const apiService = {
   /**
@@ -37,6 +122,8 @@ export const apiService = {
         method: 'GET',
         headers: {
           'Accept': 'application/json',
+          // Lets the server avoid serving a question this browser has already seen
+          'X-Session-Id': getSessionId(),
           'Cache-Control': 'no-cache, no-store, must-revalidate',
           'Pragma': 'no-cache',
           'Expires': '0'
@@ -114,6 +201,44 @@ export const apiService = {
     }
   },
 
+  /**
+   * Check an answer and receive the feedback token by token as it is generated
+   * 
+   * @param toolName The name of the tool
+   * @param question The quiz question
+   * @param answer The user's answer
+   * @param onToken Called with each piece of feedback text
+   * @param signal Aborting it cancels the request on the server as well
+   * @returns Promise with the full feedback once the stream ends
+   */
+  async streamCheckAnswer(
+    toolName: string,
+    question: string,
+    answer: string,
+    onToken: (token: string) => void,
+    signal?: AbortSignal
+  ): Promise<string> {
+    return streamEvents(`${API_BASE_URL}/quiz/check/stream`, { toolName, question, answer }, onToken, signal);
+  },
+
+  /**
+   * Get an explanation for a command token by token as it is generated
+   * 
+   * @param toolName The name of the tool
+   * @param command The command to explain
+   * @param onToken Called with each piece of explanation text
+   * @param signal Aborting it cancels the request on the server as well
+   * @returns Promise with the full explanation once the stream ends
+   */
+  async streamExplanation(
+    toolName: string,
+    command: string,
+    onToken: (token: string) => void,
+    signal?: AbortSignal
+  ): Promise<string> {
+    return streamEvents(`${API_BASE_URL}/quiz/explain/stream`, { toolName, command }, onToken, signal);
+  },
+
   /**
    * Save a command for later reference
    * 
@@ -144,21 +269,35 @@ export const apiService = {
   },
 
   /**
-   * Get all saved commands for a specific tool
+   * Get all saved commands for a specific tool, following the
+   * server's pages until the last one
    * 
    * @param toolName The name of the tool
    * @returns Promise with list of commands
    */
   async getSavedCommands(toolName: string): Promise<any[]> {
     try {
-      const response = await fetch(`${API_BASE_URL}/commands/${toolName}`);
-      if (!response.ok) {
+      const commands: any[] = [];
+      let after: string | undefined;
+      for (;;) {
+        const params = new URLSearchParams({ limit: String(COMMAND_PAGE_SIZE) });
+        if (after) {
+          params.set('after', after);
+        }
+        const response = await fetch(`${API_BASE_URL}/commands/${toolName}?${params}`);
         if (response.status === 204) {
-          return []; // No content
+          return commands; // No (more) content
+        }
+        if (!response.ok) {
+          throw new Error('Failed to fetch saved commands');
         }
-        throw new Error('Failed to fetch saved commands');
+        const page: any[] = await response.json();
+        commands.push(...page);
+        if (page.length < COMMAND_PAGE_SIZE) {
+          return commands;
+        }
+        after = page[page.length - 1].id;
       }
-      return await response.json();
     } catch (error) {
       console.error('Error fetching saved commands:', error);
       throw error;